@@ -0,0 +1,50 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives the benchmarks access to the default CRestConfig implementation, package-private.
+ * @author laurent.gilles@codegist.org
+ */
+public final class BenchmarkCRestConfigs {
+
+    private BenchmarkCRestConfigs() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return a default configuration, with no property set
+     */
+    public static CRestConfig create() {
+        return create(new HashMap<String, Object>());
+    }
+
+    /**
+     * @param properties configuration properties
+     * @return a default configuration holding the given properties
+     */
+    public static CRestConfig create(Map<String, Object> properties) {
+        return new DefaultCRestConfig(properties);
+    }
+}
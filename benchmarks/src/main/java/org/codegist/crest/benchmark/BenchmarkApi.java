@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.annotate.*;
+import org.codegist.crest.serializer.simplexml.SimpleXmlDeserializer;
+
+import java.util.List;
+
+/**
+ * Benchmarked REST interface, served by {@link org.codegist.crest.io.http.LoopbackHttpChannelFactory}.
+ * @author laurent.gilles@codegist.org
+ */
+@EndPoint(Payloads.END_POINT)
+@Path("/items")
+public interface BenchmarkApi {
+
+    @Path("/{id}/name")
+    String getName(
+            @PathParam("id") long id,
+            @QueryParam("fields") String fields,
+            @HeaderParam("X-Request-Id") String requestId);
+
+    @Path("/count")
+    int getCount();
+
+    @Path("/{id}.json")
+    Item getJson(@PathParam("id") long id);
+
+    @Path("/{id}.xml")
+    Item getXml(@PathParam("id") long id);
+
+    @Path("/{id}.xml")
+    @Deserializer(SimpleXmlDeserializer.class)
+    Item getSimpleXml(@PathParam("id") long id);
+
+    @POST
+    @Path("/form")
+    String postForm(
+            @FormParam("name") String name,
+            @FormParam("tags") List<String> tags);
+
+    @POST
+    @Path("/multipart")
+    String postMultiPart(
+            @MultiPartParam("name") String name,
+            @MultiPartParam("description") String description);
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.BenchmarkCRestConfigs;
+import org.codegist.crest.CRestConfig;
+import org.codegist.crest.serializer.Deserializer;
+import org.codegist.crest.serializer.StringDeserializer;
+import org.codegist.crest.serializer.jackson.JacksonDeserializer;
+import org.codegist.crest.serializer.jaxb.JaxbDeserializer;
+import org.codegist.crest.serializer.primitive.BooleanPrimitiveDeserializer;
+import org.codegist.crest.serializer.primitive.DoublePrimitiveDeserializer;
+import org.codegist.crest.serializer.primitive.IntegerPrimitiveDeserializer;
+import org.codegist.crest.serializer.primitive.LongWrapperDeserializer;
+import org.codegist.crest.serializer.simplexml.SimpleXmlDeserializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import static org.codegist.crest.benchmark.Payloads.*;
+
+/**
+ * Deserializers in isolation, each deserializing an in-memory response entity.
+ * @author laurent.gilles@codegist.org
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeserializerBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] TRUE = "true".getBytes(UTF8);
+    private static final byte[] DOUBLE = "19.99".getBytes(UTF8);
+
+    private Deserializer jackson;
+    private Deserializer jaxb;
+    private Deserializer simpleXml;
+    private Deserializer string;
+    private Deserializer intPrimitive;
+    private Deserializer longWrapper;
+    private Deserializer doublePrimitive;
+    private Deserializer booleanPrimitive;
+
+    @Setup
+    public void setUp() throws Exception {
+        CRestConfig crestConfig = BenchmarkCRestConfigs.create();
+        jackson = new JacksonDeserializer(crestConfig);
+        jaxb = new JaxbDeserializer(crestConfig);
+        simpleXml = new SimpleXmlDeserializer(crestConfig);
+        string = new StringDeserializer();
+        intPrimitive = new IntegerPrimitiveDeserializer();
+        longWrapper = new LongWrapperDeserializer();
+        doublePrimitive = new DoublePrimitiveDeserializer();
+        booleanPrimitive = new BooleanPrimitiveDeserializer(crestConfig);
+    }
+
+    @Benchmark
+    public Item jackson() throws Exception {
+        return jackson.deserialize(Item.class, Item.class, new ByteArrayInputStream(JSON), UTF8);
+    }
+
+    @Benchmark
+    public Item jaxb() throws Exception {
+        return jaxb.deserialize(Item.class, Item.class, new ByteArrayInputStream(XML), UTF8);
+    }
+
+    @Benchmark
+    public Item simpleXml() throws Exception {
+        return simpleXml.deserialize(Item.class, Item.class, new ByteArrayInputStream(XML), UTF8);
+    }
+
+    @Benchmark
+    public String string() throws Exception {
+        return string.deserialize(String.class, String.class, new ByteArrayInputStream(TEXT), UTF8);
+    }
+
+    @Benchmark
+    public Integer intPrimitive() throws Exception {
+        return intPrimitive.deserialize(int.class, int.class, new ByteArrayInputStream(COUNT), UTF8);
+    }
+
+    @Benchmark
+    public Long longWrapper() throws Exception {
+        return longWrapper.deserialize(Long.class, Long.class, new ByteArrayInputStream(COUNT), UTF8);
+    }
+
+    @Benchmark
+    public Double doublePrimitive() throws Exception {
+        return doublePrimitive.deserialize(double.class, double.class, new ByteArrayInputStream(DOUBLE), UTF8);
+    }
+
+    @Benchmark
+    public Boolean booleanPrimitive() throws Exception {
+        return booleanPrimitive.deserialize(boolean.class, boolean.class, new ByteArrayInputStream(TRUE), UTF8);
+    }
+}
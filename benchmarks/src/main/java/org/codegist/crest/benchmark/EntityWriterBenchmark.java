@@ -0,0 +1,77 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.CRestBuilder;
+import org.codegist.crest.io.Request;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.codegist.crest.benchmark.Payloads.*;
+
+/**
+ * Request entity writers in isolation, each writing the entity of a real request to a reused buffer.
+ * @author laurent.gilles@codegist.org
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityWriterBenchmark {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    private Request urlEncodedFormRequest;
+    private Request multiPartRequest;
+
+    @Setup
+    public void setUp() {
+        RequestCapture capture = new RequestCapture();
+        BenchmarkApi api = new CRestBuilder()
+                .setHttpChannelFactory(Payloads.newChannelFactory())
+                .addEventListener(capture)
+                .build()
+                .build(BenchmarkApi.class);
+        api.postForm(NAME, TAGS);
+        urlEncodedFormRequest = capture.getRequest();
+        api.postMultiPart(NAME, DESCRIPTION);
+        multiPartRequest = capture.getRequest();
+    }
+
+    @Benchmark
+    public int urlEncodedForm() throws Exception {
+        return write(urlEncodedFormRequest);
+    }
+
+    @Benchmark
+    public int multiPart() throws Exception {
+        return write(multiPartRequest);
+    }
+
+    private int write(Request request) throws Exception {
+        out.reset();
+        request.getMethodConfig().getEntityWriter().writeTo(request, out);
+        return out.size();
+    }
+}
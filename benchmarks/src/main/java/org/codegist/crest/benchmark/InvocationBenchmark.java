@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.CRestBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.codegist.crest.benchmark.Payloads.*;
+
+/**
+ * End-to-end invocations through the proxy, from {@code DefaultCRest.CRestInvocationHandler} down to the response deserialization, over the loopback transport.
+ * @author laurent.gilles@codegist.org
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvocationBenchmark {
+
+    private BenchmarkApi api;
+
+    @Setup
+    public void setUp() {
+        api = new CRestBuilder()
+                .setHttpChannelFactory(Payloads.newChannelFactory())
+                .build()
+                .build(BenchmarkApi.class);
+    }
+
+    @Benchmark
+    public String text() {
+        return api.getName(ID, FIELDS, REQUEST_ID);
+    }
+
+    @Benchmark
+    public int primitive() {
+        return api.getCount();
+    }
+
+    @Benchmark
+    public Item jackson() {
+        return api.getJson(ID);
+    }
+
+    @Benchmark
+    public Item jaxb() {
+        return api.getXml(ID);
+    }
+
+    @Benchmark
+    public Item simpleXml() {
+        return api.getSimpleXml(ID);
+    }
+
+    @Benchmark
+    public String urlEncodedForm() {
+        return api.postForm(NAME, TAGS);
+    }
+
+    @Benchmark
+    public String multiPart() {
+        return api.postMultiPart(NAME, DESCRIPTION);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.config.MethodType;
+import org.codegist.crest.param.EncodedPair;
+import org.codegist.crest.security.AuthorizationToken;
+import org.codegist.crest.security.oauth.CallCredentials;
+import org.codegist.crest.security.oauth.OAuthToken;
+import org.codegist.crest.security.oauth.OAuthorization;
+import org.codegist.crest.security.oauth.v1.OAuthenticatorV1;
+import org.codegist.crest.util.Pairs;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OAuth 1.0 request signing throughput, from a single thread and from concurrent ones, either with the authorization's access token or with per-call tokens of multiple tenants.
+ * @author laurent.gilles@codegist.org
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OAuthorizationBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String URL = "http://photos.example.net/photos?file=vacation.jpg&size=original";
+    private static final int TENANTS = 64;
+
+    private final OAuthorization authorization = new OAuthorization(
+            new OAuthToken("nnch734d00sl2jdk", "pfkkdhi9sl3r4s00"),
+            new OAuthenticatorV1(new OAuthToken("dpf43f3p2l4k3l03", "kd94hf93k423kf44")));
+    private final OAuthToken[] tenants = new OAuthToken[TENANTS];
+    private EncodedPair[] parameters;
+
+    @Setup
+    public void setUp() throws Exception {
+        for (int i = 0; i < TENANTS; i++) {
+            tenants[i] = new OAuthToken("token-" + i, "secret-" + i);
+        }
+        parameters = new EncodedPair[]{
+                Pairs.toPair("file", "vacation.jpg", UTF8),
+                Pairs.toPair("size", "original", UTF8)
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class Tenant {
+        private int next;
+    }
+
+    @Benchmark
+    public AuthorizationToken authorize() throws Exception {
+        return authorization.authorize(MethodType.GET, URL, parameters);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AuthorizationToken authorizeConcurrently() throws Exception {
+        return authorization.authorize(MethodType.GET, URL, parameters);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AuthorizationToken authorizeTenantsConcurrently(Tenant tenant) throws Exception {
+        CallCredentials.set(tenants[tenant.next++ & (TENANTS - 1)]);
+        try {
+            return authorization.authorize(MethodType.GET, URL, parameters);
+        } finally {
+            CallCredentials.clear();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.config.MethodType;
+import org.codegist.crest.io.http.LoopbackHttpChannelFactory;
+import org.codegist.crest.io.http.LoopbackResponse;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark arguments and canned responses.
+ * @author laurent.gilles@codegist.org
+ */
+public final class Payloads {
+
+    public static final String END_POINT = "http://bench.codegist.org";
+    public static final long ID = 42;
+    public static final String NAME = "CRest benchmark item";
+    public static final String FIELDS = "name,description,price";
+    public static final String REQUEST_ID = "7f2b9c1e-93a4-4d1b-8d0e-2f6c4a1b5e77";
+    public static final String DESCRIPTION;
+    public static final List<String> TAGS;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String BASE = END_POINT + "/items";
+
+    public static final byte[] TEXT;
+    public static final byte[] COUNT;
+    public static final byte[] JSON;
+    public static final byte[] XML;
+
+    static {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            description.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit & co. ");
+        }
+        DESCRIPTION = description.toString().trim();
+        TAGS = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            TAGS.add("tag-" + i);
+        }
+
+        StringBuilder json = new StringBuilder()
+                .append("{\"id\":").append(ID)
+                .append(",\"name\":\"").append(NAME)
+                .append("\",\"description\":\"").append(DESCRIPTION)
+                .append("\",\"price\":19.99,\"available\":true,\"tags\":[");
+        StringBuilder xml = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><item><id>").append(ID)
+                .append("</id><name>").append(NAME)
+                .append("</name><description>").append(DESCRIPTION.replace("&", "&amp;"))
+                .append("</description><price>19.99</price><available>true</available><tags>");
+        for (int i = 0; i < TAGS.size(); i++) {
+            json.append(i > 0 ? "," : "").append('"').append(TAGS.get(i)).append('"');
+            xml.append("<tag>").append(TAGS.get(i)).append("</tag>");
+        }
+        JSON = json.append("]}").toString().getBytes(UTF8);
+        XML = xml.append("</tags></item>").toString().getBytes(UTF8);
+        TEXT = NAME.getBytes(UTF8);
+        COUNT = "1234567".getBytes(UTF8);
+    }
+
+    private Payloads() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return a loopback channel factory serving the responses of all the {@link org.codegist.crest.benchmark.BenchmarkApi} methods
+     */
+    public static LoopbackHttpChannelFactory newChannelFactory() {
+        return new LoopbackHttpChannelFactory()
+                .addRoute(MethodType.GET, BASE + "/" + ID + "/name", new LoopbackResponse(200, "text/plain; charset=UTF-8", TEXT))
+                .addRoute(MethodType.GET, BASE + "/count", new LoopbackResponse(200, "text/plain", COUNT))
+                .addRoute(MethodType.GET, BASE + "/" + ID + ".json", new LoopbackResponse(200, "application/json; charset=UTF-8", JSON))
+                .addRoute(MethodType.GET, BASE + "/" + ID + ".xml", new LoopbackResponse(200, "application/xml; charset=UTF-8", XML))
+                .addRoute(MethodType.POST, BASE + "/form", new LoopbackResponse(200, "text/plain", TEXT))
+                .addRoute(MethodType.POST, BASE + "/multipart", new LoopbackResponse(200, "text/plain", TEXT));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.CRestBuilder;
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.config.ParamType;
+import org.codegist.crest.config.PathTemplate;
+import org.codegist.crest.io.Request;
+import org.codegist.crest.io.RequestBuilderFactory;
+import org.codegist.crest.io.http.HttpRequestBuilderFactory;
+import org.codegist.crest.io.http.BenchmarkHttpRequests;
+import org.codegist.crest.param.EncodedPair;
+import org.codegist.crest.param.Param;
+import org.codegist.crest.param.ParamProcessors;
+import org.codegist.crest.util.Requests;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.codegist.crest.benchmark.Payloads.*;
+
+/**
+ * Request building stages in isolation: arguments to request, path template merging, parameters encoding and URL building.
+ * @author laurent.gilles@codegist.org
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBenchmark {
+
+    private final RequestBuilderFactory requestBuilderFactory = new HttpRequestBuilderFactory();
+    private final Object[] args = {ID, FIELDS, REQUEST_ID};
+    private final String id = String.valueOf(ID);
+    private Request request;
+    private MethodConfig methodConfig;
+    private PathTemplate pathTemplate;
+    private Charset charset;
+    private List<Param> params;
+
+    @Setup
+    public void setUp() {
+        RequestCapture capture = new RequestCapture();
+        new CRestBuilder()
+                .setHttpChannelFactory(Payloads.newChannelFactory())
+                .addEventListener(capture)
+                .build()
+                .build(BenchmarkApi.class)
+                .getName(ID, FIELDS, REQUEST_ID);
+        request = capture.getRequest();
+        methodConfig = request.getMethodConfig();
+        pathTemplate = methodConfig.getPathTemplate();
+        charset = methodConfig.getCharset();
+        params = new ArrayList<Param>();
+        for (ParamType type : ParamType.values()) {
+            params.addAll(request.getParams(type));
+        }
+    }
+
+    @Benchmark
+    public Request buildRequest() throws Exception {
+        return Requests.from(requestBuilderFactory, methodConfig, args);
+    }
+
+    @Benchmark
+    public String mergePathTemplate() throws Exception {
+        return pathTemplate.getBuilder(charset).merge("id", id, false).build();
+    }
+
+    @Benchmark
+    public void encodeParams(Blackhole blackhole) {
+        Iterator<EncodedPair> pairs = ParamProcessors.iterate(params, charset);
+        while(pairs.hasNext()) {
+            blackhole.consume(pairs.next());
+        }
+    }
+
+    @Benchmark
+    public String toUrl() throws Exception {
+        return BenchmarkHttpRequests.toUrl(request);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.codegist.crest.NoOpCRestEventListener;
+import org.codegist.crest.io.Request;
+
+/**
+ * Captures the requests built by CRest, so that the request-level code paths can be benchmarked in isolation on real requests.
+ * @author laurent.gilles@codegist.org
+ */
+public class RequestCapture extends NoOpCRestEventListener {
+
+    private volatile Request request;
+
+    @Override
+    public void requestBuilt(Request request, long nanoTime) {
+        this.request = request;
+    }
+
+    /**
+     * @return the last request built
+     */
+    public Request getRequest() {
+        return request;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark.load;
+
+import java.util.Arrays;
+
+/**
+ * <p>Log-linear latency histogram, values being recorded in microseconds with a relative precision better than 1%.</p>
+ * <p>Values below 128 are recorded exactly, above they fall in one of the 64 linear sub-buckets of their power of two. Not thread-safe, each load generating thread records into its own histogram, all being merged at the end of the run.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = SUB_BUCKET_HALF * (64 - SUB_BUCKET_BITS + 2);
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * @param value value to record, in microseconds
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts[indexOf(v)]++;
+        count++;
+        total += v;
+        max = Math.max(max, v);
+    }
+
+    /**
+     * <p>Records the given value, correcting the coordinated omission of a closed loop generator.</p>
+     * <p>While a call takes longer than the expected interval between two calls, the calls that would have been issued meanwhile are not, and their latencies are omitted. These are back-filled with linearly decreasing values, as done by HdrHistogram.</p>
+     * @param value value to record, in microseconds
+     * @param expectedInterval expected interval between two calls of the recording thread, in microseconds
+     */
+    public void recordCorrected(long value, long expectedInterval) {
+        record(value);
+        if(expectedInterval <= 0) {
+            return;
+        }
+        for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            record(missing);
+        }
+    }
+
+    /**
+     * @param other histogram to add the values of to this one
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : total / (double) count;
+    }
+
+    /**
+     * @param percentile percentile, between 0 and 100
+     * @return the highest value equivalent to the value at the given percentile, 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if(count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(count * percentile / 100d - 1e-9), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(long value) {
+        if(value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    static long highestValueOf(int index) {
+        if(index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index - shift * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark.load;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Load generator driving a call either at a fixed concurrency (closed loop) or at a fixed arrival rate (open loop).</p>
+ * <p>Latencies are corrected for coordinated omission. In open loop, a call's latency is measured from the time it was scheduled to start, so the time spent waiting for a free worker is accounted for. In closed loop, each worker expects to issue a call every mean latency observed during the warmup, and back-fills the calls it omitted while stalled.</p>
+ * <p>Allocations are measured per calling thread through the JVM thread allocation accounting, when available.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class LoadTest {
+
+    private final String name;
+    private final Callable<?> call;
+    private final long warmup;
+    private final long duration;
+
+    /**
+     * @param name load test name, as reported in the results
+     * @param call call to drive
+     * @param warmup warmup duration, in milliseconds, during which nothing is recorded
+     * @param duration measurement duration, in milliseconds
+     */
+    public LoadTest(String name, Callable<?> call, long warmup, long duration) {
+        this.name = name;
+        this.call = call;
+        this.warmup = TimeUnit.MILLISECONDS.toNanos(warmup);
+        this.duration = TimeUnit.MILLISECONDS.toNanos(duration);
+    }
+
+    /**
+     * Drives the call from the given amount of threads, each issuing a new call as soon as the previous one completes
+     * @param concurrency amount of calling threads
+     * @return the measurement results
+     * @throws InterruptedException if interrupted while waiting for the run to complete
+     */
+    public LoadTestResult closedLoop(final int concurrency) throws InterruptedException {
+        final List<Worker> workers = new ArrayList<Worker>();
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(new Worker());
+        }
+
+        final long[] expectedInterval = new long[1];
+        final long[] phaseEnd = new long[1];
+        List<Thread> threads = new ArrayList<Thread>();
+        final CountDownLatch warmedUp = new CountDownLatch(concurrency);
+        final CountDownLatch measuring = new CountDownLatch(1);
+        for (final Worker worker : workers) {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    long warmupEnd = System.nanoTime() + warmup;
+                    while(System.nanoTime() < warmupEnd) {
+                        worker.call(System.nanoTime(), 0, true);
+                    }
+                    warmedUp.countDown();
+                    try {
+                        measuring.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    worker.reset();
+                    while(System.nanoTime() < phaseEnd[0]) {
+                        worker.call(System.nanoTime(), expectedInterval[0], true);
+                    }
+                }
+            }, "LoadTest-" + threads.size());
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        warmedUp.await();
+        LatencyHistogram warmupHistogram = new LatencyHistogram();
+        for (Worker worker : workers) {
+            warmupHistogram.add(worker.histogram);
+        }
+        expectedInterval[0] = TimeUnit.MICROSECONDS.toNanos((long) warmupHistogram.getMean());
+        long start = System.nanoTime();
+        phaseEnd[0] = start + duration;
+        measuring.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return result("closed/" + concurrency, workers, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Drives the call at the given fixed arrival rate, regardless of how long the calls take to complete. Calls are queued while all the given workers are busy. Calls still queued once the measurement duration has elapsed again are dropped and reported as errors.
+     * @param ratePerSecond amount of calls to issue per second
+     * @param concurrency amount of worker threads issuing the calls
+     * @return the measurement results
+     * @throws InterruptedException if interrupted while waiting for the run to complete
+     */
+    public LoadTestResult openLoop(int ratePerSecond, int concurrency) throws InterruptedException {
+        final ThreadLocal<Worker> threadWorker = new ThreadLocal<Worker>();
+        final List<Worker> workers = new ArrayList<Worker>();
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "LoadTest-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        try {
+            schedule(executor, threadWorker, workers, interval, warmup, false);
+            long start = System.nanoTime();
+            schedule(executor, threadWorker, workers, interval, duration, true);
+            executor.shutdown();
+            int dropped = 0;
+            if(!executor.awaitTermination(duration, TimeUnit.NANOSECONDS)) {
+                dropped = executor.shutdownNow().size();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            return result("open/" + ratePerSecond + "rps/" + concurrency, workers, dropped, System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void schedule(ExecutorService executor, final ThreadLocal<Worker> threadWorker, final List<Worker> workers, long interval, long phase, final boolean record) {
+        long start = System.nanoTime();
+        for (long scheduled = start; scheduled < start + phase; scheduled += interval) {
+            long wait = scheduled - System.nanoTime();
+            if(wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            final long intendedStart = scheduled;
+            executor.execute(new Runnable() {
+                public void run() {
+                    Worker worker = threadWorker.get();
+                    if(worker == null) {
+                        worker = new Worker();
+                        threadWorker.set(worker);
+                        synchronized (workers) {
+                            workers.add(worker);
+                        }
+                    }
+                    worker.call(intendedStart, 0, record);
+                }
+            });
+        }
+    }
+
+    private LoadTestResult result(String mode, List<Worker> workers, long dropped, long elapsed) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long calls = 0;
+        long errors = dropped;
+        long allocated = 0;
+        synchronized (workers) {
+            for (Worker worker : workers) {
+                histogram.add(worker.histogram);
+                calls += worker.calls;
+                errors += worker.errors;
+                allocated = allocated < 0 || worker.allocated < 0 ? -1 : allocated + worker.allocated;
+            }
+        }
+        return new LoadTestResult(name + " " + mode, calls, errors, elapsed, allocated, histogram);
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Per calling thread measurements, only ever updated by its own thread
+     */
+    private final class Worker {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long calls;
+        private long errors;
+        private long allocated;
+
+        void call(long intendedStart, long expectedInterval, boolean record) {
+            long allocatedBefore = allocatedBytes();
+            try {
+                call.call();
+            } catch (Exception e) {
+                if(record) {
+                    errors++;
+                }
+            }
+            long end = System.nanoTime();
+            if(!record) {
+                return;
+            }
+            long allocatedAfter = allocatedBytes();
+            allocated = allocatedBefore < 0 || allocated < 0 ? -1 : allocated + allocatedAfter - allocatedBefore;
+            calls++;
+            histogram.recordCorrected(TimeUnit.NANOSECONDS.toMicros(end - intendedStart), TimeUnit.NANOSECONDS.toMicros(expectedInterval));
+        }
+
+        void reset() {
+            histogram.reset();
+            calls = 0;
+            errors = 0;
+            allocated = 0;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark.load;
+
+import org.codegist.crest.annotate.EndPoint;
+import org.codegist.crest.annotate.Path;
+import org.codegist.crest.annotate.PathParam;
+import org.codegist.crest.benchmark.Item;
+
+/**
+ * Interface driven by the load tests, pointed at the {@link org.codegist.crest.benchmark.load.StandInServer} through the load.endpoint placeholder.
+ * @author laurent.gilles@codegist.org
+ */
+@EndPoint("{load.endpoint}")
+@Path("/items")
+public interface LoadTestApi {
+
+    @Path("/{id}.json")
+    Item getItem(@PathParam("id") long id);
+
+}
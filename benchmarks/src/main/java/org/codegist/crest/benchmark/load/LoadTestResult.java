@@ -0,0 +1,97 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark.load;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a load test run.
+ * @author laurent.gilles@codegist.org
+ */
+public class LoadTestResult {
+
+    static final String HEADER = String.format("%-40s %10s %10s %10s %10s %10s %8s %12s",
+            "run", "calls/s", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "errors", "bytes/call");
+
+    private final String name;
+    private final long calls;
+    private final long errors;
+    private final long duration;
+    private final long allocatedBytes;
+    private final LatencyHistogram histogram;
+
+    LoadTestResult(String name, long calls, long errors, long duration, long allocatedBytes, LatencyHistogram histogram) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        this.duration = duration;
+        this.allocatedBytes = allocatedBytes;
+        this.histogram = histogram;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the amount of calls completed per second
+     */
+    public double getThroughput() {
+        return calls / (duration / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @param percentile percentile, between 0 and 100
+     * @return the coordinated omission corrected latency at the given percentile, in microseconds
+     */
+    public long getLatency(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * @return the maximum latency, in microseconds
+     */
+    public long getMaxLatency() {
+        return histogram.getMax();
+    }
+
+    /**
+     * @return the mean amount of bytes allocated by the calling threads per call, -1 if the JVM doesn't support thread allocation accounting
+     */
+    public long getAllocationPerCall() {
+        return allocatedBytes < 0 || calls == 0 ? -1 : allocatedBytes / calls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s %10.0f %10.2f %10.2f %10.2f %10.2f %8d %12d",
+                name, getThroughput(), getLatency(50) / 1000d, getLatency(99) / 1000d, getLatency(99.9) / 1000d,
+                getMaxLatency() / 1000d, errors, getAllocationPerCall());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark.load;
+
+import org.codegist.common.lang.Disposables;
+import org.codegist.crest.BenchmarkCRestConfigs;
+import org.codegist.crest.CRestBuilder;
+import org.codegist.crest.CRestConfig;
+import org.codegist.crest.benchmark.Payloads;
+import org.codegist.crest.io.http.HttpChannelFactory;
+import org.codegist.crest.io.http.HttpClientHttpChannelFactory;
+import org.codegist.crest.io.http.HttpURLConnectionHttpChannelFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static java.util.Collections.singletonMap;
+
+/**
+ * <p>Compares the HttpURLConnection and HttpClient channel factories under load, at several concurrency levels, against a local {@link org.codegist.crest.benchmark.load.StandInServer}.</p>
+ * <p>For each channel factory and concurrency level, a CRest instance configured with that concurrency level is driven in closed loop by as many threads, then in open loop at the given arrival rate by as many workers.</p>
+ * <p>Arguments are optional key=value pairs:</p>
+ * <ul>
+ * <li>latency: server latency in milliseconds, default 5</li>
+ * <li>jitter: server latency jitter in milliseconds, default 2</li>
+ * <li>warmup: warmup duration of each run in seconds, default 5</li>
+ * <li>duration: measurement duration of each run in seconds, default 15</li>
+ * <li>rate: open loop arrival rate in calls per second, default 1000</li>
+ * <li>levels: comma separated concurrency levels, default 1,4,16,64</li>
+ * </ul>
+ * <p>Note that HttpURLConnection keeps at most http.maxConnections (default 5) idle connections per destination, regardless of the CRest concurrency level.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+        throw new IllegalStateException();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if(eq < 0) {
+                throw new IllegalArgumentException("Expected key=value argument, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int latency = intOption(options, "latency", 5);
+        int jitter = intOption(options, "jitter", 2);
+        long warmup = intOption(options, "warmup", 5) * 1000l;
+        long duration = intOption(options, "duration", 15) * 1000l;
+        int rate = intOption(options, "rate", 1000);
+        List<Integer> levels = new ArrayList<Integer>();
+        for (String level : (options.containsKey("levels") ? options.get("levels") : "1,4,16,64").split(",")) {
+            levels.add(Integer.parseInt(level.trim()));
+        }
+
+        StandInServer server = new StandInServer(latency, jitter);
+        server.start();
+        try {
+            System.out.println(LoadTestResult.HEADER);
+            for (int level : levels) {
+                for (boolean httpClient : new boolean[]{false, true}) {
+                    HttpChannelFactory channelFactory = httpClient ? newHttpClientChannelFactory(level) : new HttpURLConnectionHttpChannelFactory();
+                    try {
+                        final LoadTestApi api = new CRestBuilder()
+                                .setHttpChannelFactory(channelFactory)
+                                .setConcurrencyLevel(level)
+                                .placeholder("load.endpoint", server.getEndPoint())
+                                .build()
+                                .build(LoadTestApi.class);
+                        String name = (httpClient ? "HttpClient" : "HttpURLConnection") + " level=" + level;
+                        LoadTest loadTest = new LoadTest(name, new Callable<Object>() {
+                            public Object call() {
+                                return api.getItem(Payloads.ID);
+                            }
+                        }, warmup, duration);
+                        System.out.println(loadTest.closedLoop(level));
+                        System.out.println(loadTest.openLoop(rate, level));
+                    } finally {
+                        Disposables.dispose(channelFactory);
+                    }
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HttpChannelFactory newHttpClientChannelFactory(int concurrencyLevel) {
+        Map<String, Object> properties = new HashMap<String, Object>(singletonMap(CRestConfig.CREST_CONCURRENCY_LEVEL, (Object) concurrencyLevel));
+        return new HttpClientHttpChannelFactory(BenchmarkCRestConfigs.create(properties));
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.codegist.crest.benchmark.Payloads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Minimal embedded HTTP server standing in for a real service, built on the JDK's HTTP server.</p>
+ * <p>Every request is answered after the configured latency, plus a uniformly distributed jitter. Paths ending with .json are served the JSON item payload, any other path the plain text one.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class StandInServer {
+
+    private static final int BACKLOG = 1024;
+
+    static {
+        /* otherwise Nagle's algorithm, combined with the client's delayed ACKs, adds tens of milliseconds to each response */
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latency;
+    private final long jitter;
+
+    /**
+     * @param latencyMillis latency injected in every response, in milliseconds
+     * @param jitterMillis maximum random jitter added to the latency, in milliseconds
+     * @throws IOException if the server can't bind to a loopback port
+     */
+    public StandInServer(int latencyMillis, int jitterMillis) throws IOException {
+        this.latency = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.jitter = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), BACKLOG);
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "StandInServer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext("/", new StandInHandler());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the server end-point, ie http://127.0.0.1:port
+     */
+    public String getEndPoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private final class StandInHandler implements HttpHandler {
+
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                drain(exchange.getRequestBody());
+                long delay = latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+                if(delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+                boolean json = exchange.getRequestURI().getPath().endsWith(".json");
+                byte[] body = json ? Payloads.JSON : Payloads.TEXT;
+                exchange.getResponseHeaders().set("Content-Type", json ? "application/json; charset=UTF-8" : "text/plain; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void drain(InputStream in) throws IOException {
+            byte[] buffer = new byte[4096];
+            while(in.read(buffer) >= 0) {
+                /* discard */
+            }
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+/**
+ * <p>Load test harness driving CRest proxies against a local {@link org.codegist.crest.benchmark.load.StandInServer}, at fixed concurrency or fixed arrival rate, reporting throughput, coordinated omission corrected latency percentiles and allocations per call.</p>
+ * <p>Run the channel factories comparison with:</p>
+ * <code><pre>
+ * mvn -f benchmarks/pom.xml package
+ * java -cp benchmarks/target/benchmarks.jar org.codegist.crest.benchmark.load.LoadTestRunner latency=5 rate=2000 levels=1,8,32
+ * </pre></code>
+ */
+package org.codegist.crest.benchmark.load;
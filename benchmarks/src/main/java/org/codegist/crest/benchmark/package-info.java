@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+/**
+ * <p>JMH benchmarks of the CRest invocation pipeline, over the loopback transport so that network noise is excluded.</p>
+ * <ul>
+ * <li>{@link org.codegist.crest.benchmark.InvocationBenchmark}: end-to-end proxy invocations</li>
+ * <li>{@link org.codegist.crest.benchmark.RequestBenchmark}: request building, path template merging, parameters encoding and URL building</li>
+ * <li>{@link org.codegist.crest.benchmark.EntityWriterBenchmark}: request entity writers</li>
+ * <li>{@link org.codegist.crest.benchmark.DeserializerBenchmark}: response deserializers</li>
+ * </ul>
+ * <p>Build and run with:</p>
+ * <code><pre>
+ * mvn -f benchmarks/pom.xml package
+ * java -jar benchmarks/target/benchmarks.jar [jmh options] [benchmark regexp]
+ * </pre></code>
+ * <p>The GC profiler is always enabled, reporting the allocation rate per operation (gc.alloc.rate.norm) along with the timings.</p>
+ */
+package org.codegist.crest.benchmark;
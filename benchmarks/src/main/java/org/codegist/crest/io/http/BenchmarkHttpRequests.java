@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.io.Request;
+
+/**
+ * Gives the benchmarks access to the URL building of the package-private {@link org.codegist.crest.io.http.HttpRequests}.
+ * @author laurent.gilles@codegist.org
+ */
+public final class BenchmarkHttpRequests {
+
+    private BenchmarkHttpRequests() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @see org.codegist.crest.io.http.HttpRequests#toUrl(org.codegist.crest.io.Request)
+     */
+    public static String toUrl(Request request) throws Exception {
+        return HttpRequests.toUrl(request);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Runs every benchmark once, in process and for a few milliseconds, to catch broken benchmarks. Timings are meaningless.
+ * @author laurent.gilles@codegist.org
+ */
+public class BenchmarksSmokeTest {
+
+    @Test
+    public void allBenchmarksShouldRun() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(BenchmarksSmokeTest.class.getPackage().getName() + ".*")
+                .forks(0)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(50))
+                .shouldFailOnError(true)
+                .build()).run();
+        assertFalse(results.isEmpty());
+    }
+}
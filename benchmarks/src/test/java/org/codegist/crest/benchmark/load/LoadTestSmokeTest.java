@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.benchmark.load;
+
+import org.codegist.common.lang.Disposables;
+import org.codegist.crest.CRestBuilder;
+import org.codegist.crest.benchmark.Payloads;
+import org.codegist.crest.io.http.HttpURLConnectionHttpChannelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the load harness for a short while against its stand-in server, to catch a broken harness. Figures are meaningless.
+ * @author laurent.gilles@codegist.org
+ */
+public class LoadTestSmokeTest {
+
+    private final HttpURLConnectionHttpChannelFactory channelFactory = new HttpURLConnectionHttpChannelFactory();
+    private StandInServer server;
+    private LoadTest toTest;
+
+    @Before
+    public void setup() throws Exception {
+        server = new StandInServer(1, 0);
+        server.start();
+        final LoadTestApi api = new CRestBuilder()
+                .setHttpChannelFactory(channelFactory)
+                .placeholder("load.endpoint", server.getEndPoint())
+                .build()
+                .build(LoadTestApi.class);
+        toTest = new LoadTest("smoke", new Callable<Object>() {
+            public Object call() {
+                return api.getItem(Payloads.ID);
+            }
+        }, 100, 300);
+    }
+
+    @After
+    public void teardown() {
+        Disposables.dispose(channelFactory);
+        server.stop();
+    }
+
+    @Test
+    public void closedLoopShouldCallWithoutErrors() throws Exception {
+        assertRan(toTest.closedLoop(2));
+    }
+
+    @Test
+    public void openLoopShouldCallWithoutErrors() throws Exception {
+        assertRan(toTest.openLoop(100, 2));
+    }
+
+    @Test
+    public void runnerShouldRunWithShortOptions() throws Exception {
+        LoadTestRunner.main(new String[]{"latency=1", "jitter=0", "warmup=0", "duration=1", "rate=50", "levels=1"});
+    }
+
+    private static void assertRan(LoadTestResult result) {
+        assertTrue(result.getCalls() > 0);
+        assertEquals(0, result.getErrors());
+    }
+}
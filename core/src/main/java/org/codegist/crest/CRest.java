@@ -20,6 +20,8 @@
 
 package org.codegist.crest;
 
+import org.codegist.common.lang.Disposable;
+
 import java.util.Map;
 
 /**
@@ -50,7 +52,7 @@ import java.util.Map;
  * @see javax.ws.rs
  * @see <a href="http://jsr311.java.net/">JAX-RS 1.0</a>
  */
-public abstract class CRest {
+public abstract class CRest implements Disposable {
 
     /**
      * <p>Build an instance of an annotated interface.</p>
@@ -59,6 +61,28 @@ public abstract class CRest {
      */
     public abstract <T> T build(Class<T> interfaze) throws CRestException;
 
+    /**
+     * <p>Returns a builder holding this instance's configuration, to cheaply create <b>CRest</b> instances differing only by some settings, ie the end-point, placeholders, properties or credentials.</p>
+     * <p>The resulting instances share this instance's transport (the http channel factory and its connection pool), proxy factory and timer, unless explicitly overridden on the returned builder. Their own annotation handlers, serializers, deserializers, request executors, circuit breakers, rate limiters and bulkheads are not shared, so that they are built against the derived placeholders and properties.</p>
+     * <code><pre>
+     * CRest crest = new CRestBuilder().setHttpChannelFactory(HttpClientHttpChannelFactory.class).build();
+     * CRest tenant = crest.derive().placeholder("tenant", "acme").basicAuth("acme", "secret").build();
+     * </pre></code>
+     * <p>Derived instances don't dispose the shared transport, timer and metrics collector, which remain owned by this instance.</p>
+     * @return a builder pre-configured as this instance
+     * @throws UnsupportedOperationException if this implementation can't be derived
+     */
+    public CRestBuilder derive() {
+        throw new UnsupportedOperationException(getClass().getName() + " cannot be derived");
+    }
+
+    /**
+     * <p>Releases the resources held by this instance, ie its transport, timer and published metrics. The interfaces built by this instance must not be used anymore once disposed.</p>
+     * <p>Does nothing by default.</p>
+     */
+    public void dispose() {
+    }
+
     /**
      * <p>Build a <b>CRest</b> instance.</p>
      * @return a <b>CRest</b> instance
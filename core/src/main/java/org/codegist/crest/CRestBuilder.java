@@ -27,11 +27,28 @@ import org.codegist.crest.config.annotate.AnnotationHandler;
 import org.codegist.crest.config.annotate.CRestAnnotations;
 import org.codegist.crest.config.annotate.NoOpAnnotationHandler;
 import org.codegist.crest.config.annotate.jaxrs.JaxRsAnnotations;
+import org.codegist.crest.handler.BackoffRetryHandler;
 import org.codegist.crest.handler.DefaultResponseHandler;
+import org.codegist.crest.io.AdaptiveTimeouts;
+import org.codegist.crest.io.AdaptiveConcurrencyRequestExecutor;
+import org.codegist.crest.io.BulkheadRequestExecutor;
+import org.codegist.crest.io.CircuitBreakerListener;
+import org.codegist.crest.io.CircuitBreakerRequestExecutor;
+import org.codegist.crest.io.DeadlineRequestExecutor;
+import org.codegist.crest.io.ConcurrencyLimitListener;
+import org.codegist.crest.io.HedgingRequestExecutor;
+import org.codegist.crest.io.RateLimitRequestExecutor;
 import org.codegist.crest.io.RequestBuilderFactory;
 import org.codegist.crest.io.RequestExecutor;
+import org.codegist.crest.io.RetryBudget;
 import org.codegist.crest.io.RetryingRequestExecutor;
+import org.codegist.crest.io.balancing.EndPointGroup;
+import org.codegist.crest.io.balancing.LoadBalancer;
+import org.codegist.crest.io.balancing.RoundRobinLoadBalancer;
 import org.codegist.crest.io.http.*;
+import org.codegist.crest.metrics.DefaultMetricsCollector;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.NoOpMetricsCollector;
 import org.codegist.crest.security.Authorization;
 import org.codegist.crest.security.basic.BasicAuthorization;
 import org.codegist.crest.security.handler.RefreshAuthorizationRetryHandler;
@@ -46,6 +63,7 @@ import org.codegist.crest.serializer.jaxb.JaxbDeserializer;
 import org.codegist.crest.serializer.primitive.*;
 import org.codegist.crest.util.ComponentFactory;
 import org.codegist.crest.util.ComponentRegistry;
+import org.codegist.crest.util.TimerWheel;
 
 import java.io.File;
 import java.io.InputStream;
@@ -82,6 +100,9 @@ public class CRestBuilder {
 
     private final Map<String, Object> jsonDeserializerConfig = new HashMap<String, Object>();
 
+    private final Map<String, List<String>> balancedEndPoints = new LinkedHashMap<String, List<String>>();
+    private final Map<String, File> balancedEndPointFiles = new LinkedHashMap<String, File>();
+
     private final ComponentRegistry.Builder<Class<? extends Annotation>, AnnotationHandler> annotationHandlerBuilder = new ComponentRegistry.Builder<Class<? extends Annotation>, AnnotationHandler>()
                             .defaultAs(NoOpAnnotationHandler.class)
                             .register(CRestAnnotations.getMapping());
@@ -126,12 +147,89 @@ public class CRestBuilder {
     private Class<? extends HttpChannelFactory> httpChannelFactoryClass = HttpURLConnectionHttpChannelFactory.class;
     private HttpChannelFactory httpChannelFactory;
     private ProxyFactory proxyFactory;
+    private TimerWheel timerWheel;
+    private RetryBudget retryBudget = RetryBudget.getDefault();
+    private int replayableEntityThreshold = -1;
+    private float hedgingPercentile = -1;
+    private float maxHedgeRatio;
+    private int adaptiveConcurrencyInitialLimit = -1;
+    private int adaptiveConcurrencyMaxLimit;
+    private AdaptiveTimeouts adaptiveTimeouts;
+    private WireLogger wireLogger;
+    private MetricsCollector metricsCollector = new NoOpMetricsCollector();
+    private final List<CRestEventListener> eventListeners = new ArrayList<CRestEventListener>();
+    private CircuitBreakerListener circuitBreakerListener;
+    private Class<? extends LoadBalancer> loadBalancerClass = RoundRobinLoadBalancer.class;
+    private int outlierEjectionThreshold = 5;
+    private int outlierEjectionTime = 30000;
     private String auth;
     private String username;
     private String password;
     private OAuthToken consumerOAuthToken;
     private OAuthToken accessOAuthToken;
     private String accessTokenRefreshUrl;
+    private long accessTokenRefreshAhead = -1;
+    /* instances shared by the CRest this builder has been derived from, and left for it to dispose */
+    private final Map<Object, Boolean> inherited = new IdentityHashMap<Object, Boolean>();
+
+    /**
+     * Creates a new builder
+     */
+    public CRestBuilder() {
+    }
+
+    /**
+     * Creates a builder holding the given builder's configuration, its components are registered again to be instantiated with the derived configuration
+     * @param parent builder to copy
+     * @see CRest#derive()
+     */
+    CRestBuilder(CRestBuilder parent) {
+        this.crestProperties.putAll(parent.crestProperties);
+        this.placeholders.putAll(parent.placeholders);
+        this.httpEntityParamExtrators.putAll(parent.httpEntityParamExtrators);
+        replace(this.plainTextMimes, parent.plainTextMimes);
+        replace(this.xmlMimes, parent.xmlMimes);
+        replace(this.jsonMimes, parent.jsonMimes);
+        this.xmlDeserializerConfig.putAll(parent.xmlDeserializerConfig);
+        this.jsonDeserializerConfig.putAll(parent.jsonDeserializerConfig);
+        for (Map.Entry<String, List<String>> entry : parent.balancedEndPoints.entrySet()) {
+            this.balancedEndPoints.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+        }
+        this.balancedEndPointFiles.putAll(parent.balancedEndPointFiles);
+        this.annotationHandlerBuilder.registerAll(parent.annotationHandlerBuilder);
+        this.mimeDeserializerBuilder.registerAll(parent.mimeDeserializerBuilder);
+        this.classDeserializerBuilder.registerAll(parent.classDeserializerBuilder);
+        this.classSerializerBuilder.registerAll(parent.classSerializerBuilder);
+        this.proxyFactoryClass = parent.proxyFactoryClass;
+        this.xmlDeserializer = parent.xmlDeserializer;
+        this.jsonDeserializer = parent.jsonDeserializer;
+        this.httpChannelFactoryClass = parent.httpChannelFactoryClass;
+        this.httpChannelFactory = parent.httpChannelFactory;
+        this.proxyFactory = parent.proxyFactory;
+        this.timerWheel = parent.timerWheel;
+        this.retryBudget = parent.retryBudget;
+        this.replayableEntityThreshold = parent.replayableEntityThreshold;
+        this.hedgingPercentile = parent.hedgingPercentile;
+        this.maxHedgeRatio = parent.maxHedgeRatio;
+        this.adaptiveConcurrencyInitialLimit = parent.adaptiveConcurrencyInitialLimit;
+        this.adaptiveConcurrencyMaxLimit = parent.adaptiveConcurrencyMaxLimit;
+        this.adaptiveTimeouts = parent.adaptiveTimeouts;
+        this.wireLogger = parent.wireLogger;
+        this.metricsCollector = parent.metricsCollector;
+        this.eventListeners.addAll(parent.eventListeners);
+        this.circuitBreakerListener = parent.circuitBreakerListener;
+        this.loadBalancerClass = parent.loadBalancerClass;
+        this.outlierEjectionThreshold = parent.outlierEjectionThreshold;
+        this.outlierEjectionTime = parent.outlierEjectionTime;
+        this.auth = parent.auth;
+        this.username = parent.username;
+        this.password = parent.password;
+        this.consumerOAuthToken = parent.consumerOAuthToken;
+        this.accessOAuthToken = parent.accessOAuthToken;
+        this.accessTokenRefreshUrl = parent.accessTokenRefreshUrl;
+        this.accessTokenRefreshAhead = parent.accessTokenRefreshAhead;
+        this.inherited.putAll(parent.inherited);
+    }
 
     /**
      * <p>Build a <b>CRest</b> instance.</p>
@@ -139,6 +237,8 @@ public class CRestBuilder {
      * @return a <b>CRest</b> instance
      */
     public CRest build() {
+        /* works on a copy, so that the builder can be derived from with its original properties */
+        Map<String, Object> crestProperties = new HashMap<String, Object>(this.crestProperties);
         putIfAbsentAndNotNull(crestProperties, DefaultResponseHandler.MIN_ERROR_STATUS_CODE_PROP, MIN_ERROR_STATUS_CODE);
         putIfAbsentAndNotNull(crestProperties, CRestConfig.class.getName() + "#placeholders", compile(placeholders));
         CRestConfig crestConfig = new DefaultCRestConfig(crestProperties);
@@ -154,7 +254,9 @@ public class CRestBuilder {
         ProxyFactory pProxyFactory = getInstance(this.proxyFactory, this.proxyFactoryClass, crestConfig);
         HttpChannelFactory plainChannelFactory = getInstance(this.httpChannelFactory, this.httpChannelFactoryClass, crestConfig);
 
-        Authorization authorization = buildAuthorization(plainChannelFactory);
+        TimerWheel pTimerWheel = this.timerWheel != null ? this.timerWheel : new TimerWheel();
+
+        Authorization authorization = buildAuthorization(plainChannelFactory, pTimerWheel);
         putIfAbsentAndNotNull(crestProperties, Authorization.class.getName(), authorization);
 
         ResponseDeserializer mimeResponseDeserializer = new ResponseDeserializerByMimeType(mimeDeserializerRegistry);
@@ -164,9 +266,8 @@ public class CRestBuilder {
         ResponseDeserializer baseResponseDeserializer = new ResponseDeserializerComposite(deserializersResponseDeserializer, mimeResponseDeserializer, classResponseDeserializer);
         ResponseDeserializer customTypeResponseDeserializer = new ResponseDeserializerComposite(classResponseDeserializer, mimeResponseDeserializer);
 
-        RequestExecutor requestExecutor = buildRequestExecutor(plainChannelFactory, authorization, baseResponseDeserializer, customTypeResponseDeserializer);
-
-
+        CRestEventListener eventListener = buildEventListener();
+        RequestExecutor requestExecutor = buildRequestExecutor(crestConfig, plainChannelFactory, pTimerWheel, authorization, baseResponseDeserializer, customTypeResponseDeserializer, eventListener);
 
         if(JaxRsAnnotations.isJaxRsAware()) {
             this.annotationHandlerBuilder.register(JaxRsAnnotations.getMapping());
@@ -174,7 +275,31 @@ public class CRestBuilder {
 
         InterfaceConfigFactory configFactory = new AnnotationDrivenInterfaceConfigFactory(icbf, annotationHandlerBuilder.build(crestConfig));
 
-        return new DefaultCRest(pProxyFactory, requestExecutor, requestBuilderFactory, configFactory);
+        /* the instances are shared with the derived CRest, a snapshot is kept as the builder may still change */
+        CRestBuilder derivable = new CRestBuilder(this);
+        derivable.proxyFactory = pProxyFactory;
+        derivable.httpChannelFactory = plainChannelFactory;
+        derivable.timerWheel = pTimerWheel;
+        derivable.inherit(plainChannelFactory, pTimerWheel, wireLogger, metricsCollector);
+
+        return new DefaultCRest(pProxyFactory, requestExecutor, requestBuilderFactory, configFactory, metricsCollector, eventListener, derivable, !isInherited(metricsCollector));
+    }
+
+    private void inherit(Object... instances) {
+        for (Object instance : instances) {
+            if(instance != null) {
+                inherited.put(instance, Boolean.TRUE);
+            }
+        }
+    }
+
+    private boolean isInherited(Object instance) {
+        return inherited.containsKey(instance);
+    }
+
+    private static <T> void replace(Set<T> set, Set<T> values) {
+        set.clear();
+        set.addAll(values);
     }
 
     private static <K,V> void putIfAbsentAndNotNull(Map<K, V> map, K key, V value){
@@ -195,12 +320,75 @@ public class CRestBuilder {
         }
     }
 
-    private RequestExecutor buildRequestExecutor(HttpChannelFactory plainChannelFactory, Authorization authorization, ResponseDeserializer baseResponseDeserializer, ResponseDeserializer customTypeResponseDeserializer){
-        HttpChannelFactory channelFactory = plainChannelFactory;
+    private CRestEventListener buildEventListener() {
+        switch (eventListeners.size()) {
+            case 0:
+                return new NoOpCRestEventListener();
+            case 1:
+                return eventListeners.get(0);
+            default:
+                return new CompositeCRestEventListener(eventListeners.toArray(new CRestEventListener[eventListeners.size()]));
+        }
+    }
+
+    private RequestExecutor buildRequestExecutor(CRestConfig crestConfig, HttpChannelFactory plainChannelFactory, TimerWheel timerWheel, Authorization authorization, ResponseDeserializer baseResponseDeserializer, ResponseDeserializer customTypeResponseDeserializer, CRestEventListener eventListener){
+        /* a derived instance must not dispose its parent's transport */
+        HttpChannelFactory channelFactory = isInherited(plainChannelFactory) ? new SharedHttpChannelFactory(plainChannelFactory) : plainChannelFactory;
         if(authorization != null) {
-            channelFactory = new AuthorizationHttpChannelFactory(plainChannelFactory, authorization, httpEntityParamExtrators);
+            channelFactory = new AuthorizationHttpChannelFactory(channelFactory, authorization, httpEntityParamExtrators);
+        }
+        ConcurrencyLimitListener limitListener = plainChannelFactory instanceof ConcurrencyLimitListener ? (ConcurrencyLimitListener) plainChannelFactory : null;
+        if(!balancedEndPoints.isEmpty() || !balancedEndPointFiles.isEmpty()) {
+            /* outermost, so that the authorization signs the member url */
+            LoadBalancingHttpChannelFactory balancingChannelFactory = new LoadBalancingHttpChannelFactory(channelFactory, buildEndPointGroups(crestConfig), limitListener);
+            /* limits are computed per logical end-point, the transport knows the members only */
+            limitListener = balancingChannelFactory;
+            channelFactory = balancingChannelFactory;
+        }
+        if(wireLogger != null) {
+            /* wraps the authorization, so that credentials are never logged */
+            channelFactory = new WireLoggingHttpChannelFactory(channelFactory, wireLogger, isInherited(wireLogger));
+        }
+        HttpRequestExecutor.Options options = new HttpRequestExecutor.Options()
+                .setAdaptiveTimeouts(adaptiveTimeouts)
+                .setMetricsCollector(metricsCollector)
+                .setEventListener(eventListener)
+                .setReplayableEntityThreshold(replayableEntityThreshold);
+        if(isInherited(timerWheel)) {
+            options.setSharedTimerWheel(timerWheel);
+        } else {
+            options.setTimerWheel(timerWheel);
+        }
+        RequestExecutor requestExecutor = new HttpRequestExecutor(channelFactory, baseResponseDeserializer, customTypeResponseDeserializer, options);
+        requestExecutor = new CircuitBreakerRequestExecutor(requestExecutor, circuitBreakerListener);
+        if(adaptiveConcurrencyInitialLimit > 0) {
+            requestExecutor = new AdaptiveConcurrencyRequestExecutor(requestExecutor, adaptiveConcurrencyInitialLimit, adaptiveConcurrencyMaxLimit, limitListener);
+        }
+        requestExecutor = new BulkheadRequestExecutor(requestExecutor);
+        /* each hedge is a request of its own, going through the circuit breakers, concurrency limits and bulkheads */
+        if(hedgingPercentile > 0) {
+            requestExecutor = new HedgingRequestExecutor(requestExecutor, hedgingPercentile, maxHedgeRatio);
+        }
+        requestExecutor = new RateLimitRequestExecutor(requestExecutor);
+        requestExecutor = new RetryingRequestExecutor(requestExecutor, MIN_ERROR_STATUS_CODE, retryBudget, metricsCollector, eventListener);
+        return new DeadlineRequestExecutor(requestExecutor);
+    }
+
+    private List<EndPointGroup> buildEndPointGroups(CRestConfig crestConfig) {
+        List<EndPointGroup> groups = new ArrayList<EndPointGroup>();
+        try {
+            for(Map.Entry<String, List<String>> entry : balancedEndPoints.entrySet()) {
+                LoadBalancer loadBalancer = ComponentFactory.instantiate(loadBalancerClass, crestConfig);
+                groups.add(new EndPointGroup(entry.getKey(), entry.getValue(), loadBalancer, outlierEjectionThreshold, outlierEjectionTime));
+            }
+            for(Map.Entry<String, File> entry : balancedEndPointFiles.entrySet()) {
+                LoadBalancer loadBalancer = ComponentFactory.instantiate(loadBalancerClass, crestConfig);
+                groups.add(new EndPointGroup(entry.getKey(), entry.getValue(), loadBalancer, outlierEjectionThreshold, outlierEjectionTime));
+            }
+        } catch (Exception e) {
+            throw CRestException.handle(e);
         }
-        return new RetryingRequestExecutor(new HttpRequestExecutor(channelFactory, baseResponseDeserializer, customTypeResponseDeserializer), MIN_ERROR_STATUS_CODE);
+        return groups;
     }
 
     private ComponentRegistry<String,Deserializer> buildDeserializerRegistry(CRestConfig crestConfig) {
@@ -210,9 +398,9 @@ public class CRestBuilder {
         return mimeDeserializerBuilder.build(crestConfig);
     }
 
-    private Authorization buildAuthorization(HttpChannelFactory channelFactory) {
+    private Authorization buildAuthorization(HttpChannelFactory channelFactory, TimerWheel timerWheel) {
         if("oauth".equals(auth)) {
-            return buildOAuthorization(channelFactory);
+            return buildOAuthorization(channelFactory, timerWheel);
         }else if("basic".equals(auth)) {
             return buildBasicAuthorization();
         }else{
@@ -224,7 +412,7 @@ public class CRestBuilder {
         return new BasicAuthorization(username, password);
     }
 
-    private Authorization buildOAuthorization(HttpChannelFactory channelFactory) {
+    private Authorization buildOAuthorization(HttpChannelFactory channelFactory, TimerWheel timerWheel) {
         OAuthenticatorV1 authenticator ;
         try {
             authenticator = new OAuthenticatorV1(consumerOAuthToken);
@@ -234,6 +422,8 @@ public class CRestBuilder {
         OAuthApi oAuthApi = buildOAuthApi(channelFactory);
         if(oAuthApi == null) {
             return new OAuthorization(accessOAuthToken, authenticator);
+        }else if(accessTokenRefreshAhead >= 0) {
+            return new OAuthorization(accessOAuthToken, authenticator, oAuthApi, timerWheel, accessTokenRefreshAhead);
         }else{
             return new OAuthorization(accessOAuthToken, authenticator, oAuthApi);
         }
@@ -264,6 +454,7 @@ public class CRestBuilder {
      */
     public CRestBuilder setProxyFactory(Class<? extends ProxyFactory> proxyFactory) {
         this.proxyFactoryClass = proxyFactory;
+        this.proxyFactory = null;
         return this;
     }
 
@@ -288,6 +479,7 @@ public class CRestBuilder {
      */
     public CRestBuilder setHttpChannelFactory(Class<? extends HttpChannelFactory> httpChannelFactory) {
         this.httpChannelFactoryClass = httpChannelFactory;
+        this.httpChannelFactory = null;
         return this;
     }
 
@@ -314,6 +506,210 @@ public class CRestBuilder {
         return property(CREST_CONCURRENCY_LEVEL, concurrencyLevel);
     }
 
+    /**
+     * Overrides the default maximum attempts made for a failing request (default is 1).
+     * @param maxAttempts maximum attempts
+     * @return current builder
+     * @see CRestConfig#CREST_MAX_ATTEMPTS
+     * @see CRestConfig#getMaxAttempts()
+     */
+    public CRestBuilder setMaxAttempts(int maxAttempts) {
+        return property(CREST_MAX_ATTEMPTS, maxAttempts);
+    }
+
+    /**
+     * Enables an exponential backoff between the attempts of a failing request (default is disabled, failed requests being retried right away). Makes {@link org.codegist.crest.handler.BackoffRetryHandler} the default retry handler, which also honours the server Retry-After header and only retries idempotent requests.
+     * @param baseDelay base delay in milliseconds
+     * @param maxDelay max delay in milliseconds
+     * @param jitter jitter strategy
+     * @return current builder
+     * @see org.codegist.crest.handler.BackoffRetryHandler
+     * @see #setMaxAttempts(int)
+     */
+    public CRestBuilder setRetryBackoff(int baseDelay, int maxDelay, BackoffRetryHandler.Jitter jitter) {
+        return property(MethodConfig.METHOD_CONFIG_DEFAULT_RETRY_HANDLER, BackoffRetryHandler.class)
+                .property(BackoffRetryHandler.BASE_DELAY_PROP, baseDelay)
+                .property(BackoffRetryHandler.MAX_DELAY_PROP, maxDelay)
+                .property(BackoffRetryHandler.JITTER_PROP, jitter);
+    }
+
+    /**
+     * Overrides the retry budget (default is the process-wide {@link org.codegist.crest.io.RetryBudget#getDefault()}).
+     * @param retryBudget retry budget to share, null for unbounded retries
+     * @return current builder
+     * @see org.codegist.crest.io.RetryBudget
+     */
+    public CRestBuilder setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+        return this;
+    }
+
+    /**
+     * <p>Enables replayable request entities (default is disabled). The entity of a request is captured the first time it is written, and sent again as is on retries, redirects and authentication challenges instead of being serialized again. Without it, requests with an InputStream entity can not be retried, the stream being consumed by the first attempt.</p>
+     * <p>Entities are kept in memory up to the given size, and spilled to a temporary file above it. The capture is released once the call is over.</p>
+     * @param memoryThreshold maximum amount of bytes of an entity kept in memory
+     * @return current builder
+     * @see #setMaxAttempts(int)
+     */
+    public CRestBuilder enableReplayableEntities(int memoryThreshold) {
+        this.replayableEntityThreshold = memoryThreshold;
+        return this;
+    }
+
+    /**
+     * Enables hedging of idempotent requests without entity (default is disabled). Requests that haven't completed within the given latency percentile of their method are duplicated, the first response wins.
+     * @param percentile latency percentile after which a request is hedged, between 0 and 1, ie 0.95
+     * @param maxHedgeRatio maximum hedges to requests ratio, ie 0.05 for hedges to represent at most 5% of the requests
+     * @return current builder
+     * @see org.codegist.crest.io.HedgingRequestExecutor
+     */
+    public CRestBuilder enableHedging(float percentile, float maxHedgeRatio) {
+        this.hedgingPercentile = percentile;
+        this.maxHedgeRatio = maxHedgeRatio;
+        return this;
+    }
+
+    /**
+     * Enables adaptive concurrency limiting (default is disabled). The amount of in-flight requests per end-point is adjusted from the observed round-trip times and errors, requests exceeding it fail fast. When the channel factory maintains a connection pool, its per end-point size follows the limit.
+     * @param initialLimit initial limit of in-flight requests per end-point
+     * @param maxLimit maximum limit of in-flight requests per end-point
+     * @return current builder
+     * @see org.codegist.crest.io.AdaptiveConcurrencyRequestExecutor
+     */
+    public CRestBuilder enableAdaptiveConcurrency(int initialLimit, int maxLimit) {
+        this.adaptiveConcurrencyInitialLimit = initialLimit;
+        this.adaptiveConcurrencyMaxLimit = maxLimit;
+        return this;
+    }
+
+    /**
+     * Enables adaptive socket timeouts (default is disabled). Each method's socket timeout is derived from a rolling histogram of its latencies, as the given latency percentile multiplied by the given factor, clamped between the given bounds.
+     * @param percentile latency percentile the timeouts are based on, between 0 and 1, ie 0.99
+     * @param factor factor the latency percentile is multiplied by, ie 2
+     * @param minTimeout minimum socket timeout in milliseconds
+     * @param maxTimeout maximum socket timeout in milliseconds
+     * @return current builder
+     * @see org.codegist.crest.io.AdaptiveTimeouts
+     */
+    public CRestBuilder enableAdaptiveTimeouts(float percentile, float factor, int minTimeout, int maxTimeout) {
+        return enableAdaptiveTimeouts(new AdaptiveTimeouts(percentile, factor, minTimeout, maxTimeout));
+    }
+
+    /**
+     * Enables adaptive socket timeouts (default is disabled), using the given instance that can be kept to inspect the methods latency histograms.
+     * @param adaptiveTimeouts adaptive timeouts to use, null to disable them
+     * @return current builder
+     * @see org.codegist.crest.io.AdaptiveTimeouts
+     */
+    public CRestBuilder enableAdaptiveTimeouts(AdaptiveTimeouts adaptiveTimeouts) {
+        this.adaptiveTimeouts = adaptiveTimeouts;
+        return this;
+    }
+
+    /**
+     * Enables HTTP wire logging (default is disabled) of the given fraction of the exchanges, asynchronously logged at info level.
+     * @param sampleRate fraction of the exchanges to log, between 0 and 1
+     * @param maxEntitySize maximum amount of bytes of each request and response entity to log
+     * @return current builder
+     * @see org.codegist.crest.io.http.WireLogger
+     */
+    public CRestBuilder enableWireLogging(float sampleRate, int maxEntitySize) {
+        return setWireLogger(new WireLogger(sampleRate, maxEntitySize));
+    }
+
+    /**
+     * Enables HTTP wire logging (default is disabled), using the given instance that can be kept to inspect the logged and dropped exchange counts.
+     * @param wireLogger wire logger to use, null to disable wire logging
+     * @return current builder
+     * @see org.codegist.crest.io.http.WireLogger
+     */
+    public CRestBuilder setWireLogger(WireLogger wireLogger) {
+        this.wireLogger = wireLogger;
+        return this;
+    }
+
+    /**
+     * Sets the metrics collector notified at each stage of the methods invocations (default is none). A {@link org.codegist.common.lang.Disposable} collector is disposed along with the built <b>CRest</b>.
+     * @param metricsCollector metrics collector to use
+     * @return current builder
+     * @see org.codegist.crest.metrics.MetricsCollector
+     */
+    public CRestBuilder setMetricsCollector(MetricsCollector metricsCollector) {
+        this.metricsCollector = metricsCollector != null ? metricsCollector : new NoOpMetricsCollector();
+        return this;
+    }
+
+    /**
+     * Collects the methods metrics and publishes them over JMX, to the platform MBean server, until the built <b>CRest</b> is disposed.
+     * @return current builder
+     * @see org.codegist.crest.metrics.DefaultMetricsCollector
+     */
+    public CRestBuilder enableJmxMetrics() {
+        return setMetricsCollector(new DefaultMetricsCollector());
+    }
+
+    /**
+     * Adds a listener notified at each phase of the methods invocations lifecycle (default is none). Listeners are notified in the order they have been added.
+     * @param eventListener event listener to add
+     * @return current builder
+     * @see org.codegist.crest.CRestEventListener
+     */
+    public CRestBuilder addEventListener(CRestEventListener eventListener) {
+        this.eventListeners.add(eventListener);
+        return this;
+    }
+
+    /**
+     * Guards all the methods with a circuit breaker (default is none), methods can override it using the {@link org.codegist.crest.annotate.CircuitBreaker} annotation
+     * @param circuitBreaker circuit breaker configuration
+     * @return current builder
+     * @see org.codegist.crest.config.MethodConfig#METHOD_CONFIG_DEFAULT_CIRCUIT_BREAKER
+     */
+    public CRestBuilder setCircuitBreaker(CircuitBreakerConfig circuitBreaker) {
+        return property(MethodConfig.METHOD_CONFIG_DEFAULT_CIRCUIT_BREAKER, circuitBreaker);
+    }
+
+    /**
+     * Limits the rate of requests of all the methods (default is none), methods can override it using the {@link org.codegist.crest.annotate.RateLimit} annotation
+     * @param rateLimit rate limit configuration
+     * @return current builder
+     * @see org.codegist.crest.config.MethodConfig#METHOD_CONFIG_DEFAULT_RATE_LIMIT
+     */
+    public CRestBuilder setRateLimit(RateLimitConfig rateLimit) {
+        return property(MethodConfig.METHOD_CONFIG_DEFAULT_RATE_LIMIT, rateLimit);
+    }
+
+    /**
+     * Bounds the concurrent requests of each interface (default is none), interfaces and methods can override it using the {@link org.codegist.crest.annotate.Bulkhead} annotation
+     * @param bulkhead bulkhead configuration
+     * @return current builder
+     * @see org.codegist.crest.config.MethodConfig#METHOD_CONFIG_DEFAULT_BULKHEAD
+     */
+    public CRestBuilder setBulkhead(BulkheadConfig bulkhead) {
+        return property(MethodConfig.METHOD_CONFIG_DEFAULT_BULKHEAD, bulkhead);
+    }
+
+    /**
+     * Bounds the concurrent requests of each interface (default is none) to the given amount, without queue
+     * @param maxConcurrent maximum amount of concurrent requests per interface
+     * @return current builder
+     * @see CRestBuilder#setBulkhead(org.codegist.crest.config.BulkheadConfig)
+     */
+    public CRestBuilder setBulkhead(int maxConcurrent) {
+        return setBulkhead(new BulkheadConfig(maxConcurrent));
+    }
+
+    /**
+     * Sets a listener to be notified of the circuit breakers state transitions
+     * @param circuitBreakerListener circuit breakers listener
+     * @return current builder
+     * @see org.codegist.crest.io.CircuitBreaker
+     */
+    public CRestBuilder setCircuitBreakerListener(CircuitBreakerListener circuitBreakerListener) {
+        this.circuitBreakerListener = circuitBreakerListener;
+        return this;
+    }
+
     /**
      * Overrides the default date format for serialization (default is "yyyy-MM-dd'T'HH:mm:ssZ").
      * @param dateFormat new date format
@@ -395,6 +791,77 @@ public class CRestBuilder {
         return property(MethodConfig.METHOD_CONFIG_DEFAULT_ENDPOINT, endpoint);
     }
 
+    /**
+     * <p>Sets the default endpoints all interfaces build through the resulting <b>CRest</b> instance will point at, requests being balanced across them.</p>
+     * <p>Shortcut to:</p>
+     * <code><pre>
+     * CRestBuilder.endpoint(endpoints[0]).loadBalance(endpoints[0], endpoints)
+     * </pre></code>
+     * @param endpoints end points to point at
+     * @return current builder
+     * @see org.codegist.crest.CRestBuilder#loadBalance(String, String...)
+     */
+    public CRestBuilder endpoints(String... endpoints) {
+        return endpoint(endpoints[0]).loadBalance(endpoints[0], endpoints);
+    }
+
+    /**
+     * <p>Balances the requests sent to the given end-point across the given members.</p>
+     * <p>The end-point is logical: it is only used as the base url interfaces point at, either through the @EndPoint annotation or {@link CRestBuilder#endpoint(String)}, and is replaced by the chosen member base url on each request.</p>
+     * <code><pre>
+     * &#64;EndPoint(&quot;http://users&quot;)
+     * public interface Users { ... }
+     *
+     * CRest crest = new CRestBuilder().loadBalance(&quot;http://users&quot;, &quot;http://10.0.0.1:8080&quot;, &quot;http://10.0.0.2:8080&quot;).build();
+     * </pre></code>
+     * @param endpoint logical end-point
+     * @param members members base urls
+     * @return current builder
+     * @see org.codegist.crest.CRestBuilder#setLoadBalancer(Class)
+     * @see org.codegist.crest.CRestBuilder#setOutlierEjection(int, int)
+     */
+    public CRestBuilder loadBalance(String endpoint, String... members) {
+        this.balancedEndPoints.put(endpoint, Arrays.asList(members));
+        return this;
+    }
+
+    /**
+     * Balances the requests sent to the given end-point across the members listed in the given file, one base url per line. The file is watched for changes, membership being updated without rebuilding the interfaces.
+     * @param endpoint logical end-point
+     * @param members file listing the members base urls
+     * @return current builder
+     * @see org.codegist.crest.CRestBuilder#loadBalance(String, String...)
+     * @see org.codegist.crest.io.balancing.EndPointGroup
+     */
+    public CRestBuilder loadBalance(String endpoint, File members) {
+        this.balancedEndPointFiles.put(endpoint, members);
+        return this;
+    }
+
+    /**
+     * Overrides the default {@link org.codegist.crest.io.balancing.RoundRobinLoadBalancer} strategy used to balance the requests across end-point members.
+     * @param loadBalancer load balancer class to use, instantiated for each balanced end-point
+     * @return current builder
+     * @see org.codegist.crest.io.balancing.LeastOutstandingLoadBalancer
+     * @see org.codegist.crest.io.balancing.LatencyWeightedLoadBalancer
+     */
+    public CRestBuilder setLoadBalancer(Class<? extends LoadBalancer> loadBalancer) {
+        this.loadBalancerClass = loadBalancer;
+        return this;
+    }
+
+    /**
+     * Overrides the default outlier ejection settings of the balanced end-points, ie members get ejected for 30 seconds after 5 consecutive failures.
+     * @param consecutiveFailures amount of requests a member must fail in a row to get ejected, 0 to disable ejection
+     * @param ejectionTime ejection duration in milliseconds, growing with each consecutive ejection of the same member
+     * @return current builder
+     */
+    public CRestBuilder setOutlierEjection(int consecutiveFailures, int ejectionTime) {
+        this.outlierEjectionThreshold = consecutiveFailures;
+        this.outlierEjectionTime = ejectionTime;
+        return this;
+    }
+
     /**
      * <p>Adds all given placeholders to the string-based annotations placeholders replacement map.</p>
      * <p>Expects a map with keys being the placeholder name (used in string-based annotations) and with values being the value to be used as replacement.<p>
@@ -653,6 +1120,19 @@ public class CRestBuilder {
         return this;
     }
 
+    /**
+     * <p>Enables the refresh of the OAuth access token ahead of its expiry (default is disabled), for end-points issuing access tokens with a known lifetime, as given by the <code>oauth_expires_in</code> attribute of the OAuth Session extension.</p>
+     * <p>The access token is refreshed in the background the given time before it expires, so that requests rarely get an unauthorized response. Only applies when an access token refresh url has been given.</p>
+     * @param refreshAhead time in milliseconds before the access token expiry to refresh it at
+     * @return current builder
+     * @see #oauth(String, String, String, String, String, String)
+     * @see org.codegist.crest.security.oauth.OAuthorization
+     */
+    public CRestBuilder enableOAuthRefreshAhead(long refreshAhead) {
+        this.accessTokenRefreshAhead = refreshAhead;
+        return this;
+    }
+
     /**
      * <p>Configures the resulting <b>CRest</b> instance to authenticate all requests using Basic Auth</p>
      * @param username user name to authenticate the requests with
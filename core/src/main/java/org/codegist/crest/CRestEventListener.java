@@ -0,0 +1,121 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest;
+
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.io.Request;
+
+/**
+ * <p>Listener of the methods invocations lifecycle, notified at each phase with its {@link System#nanoTime()} stamp, ie to attribute latencies or to trace the calls.</p>
+ * <p>Phases of an invocation are notified in the following order, the ones between connectionAcquired and responseBodyEnd once per attempt:</p>
+ * <ol>
+ * <li>callStart</li>
+ * <li>requestBuilt</li>
+ * <li>connectionAcquired</li>
+ * <li>requestHeadersSent</li>
+ * <li>requestBodySent, for requests with an entity</li>
+ * <li>responseHeadersReceived</li>
+ * <li>retryScheduled, if the attempt failed and is retried</li>
+ * <li>responseBodyEnd, once the response is closed, which happens after callEnd for methods returning the response stream</li>
+ * <li>deserialized, if the response has been handled</li>
+ * <li>callEnd</li>
+ * </ol>
+ * <p>Listeners are called from the invocation threads, or from the hedging threads for hedged requests, and must be thread-safe and fast. Extend {@link org.codegist.crest.NoOpCRestEventListener} to only listen to some of the phases.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRestBuilder#addEventListener(CRestEventListener)
+ */
+public interface CRestEventListener {
+
+    /**
+     * Notified when a method invocation starts, before its request is built
+     * @param methodConfig method config of the invocation
+     * @param nanoTime phase time stamp
+     */
+    void callStart(MethodConfig methodConfig, long nanoTime);
+
+    /**
+     * Notified once the request has been built out of the method arguments
+     * @param request request built
+     * @param nanoTime phase time stamp
+     */
+    void requestBuilt(Request request, long nanoTime);
+
+    /**
+     * Notified once the HTTP channel has been opened, including the connection acquisition if the channel factory pools them
+     * @param request request the channel has been opened for
+     * @param nanoTime phase time stamp
+     */
+    void connectionAcquired(Request request, long nanoTime);
+
+    /**
+     * Notified once the request headers have been handed to the channel, ie when the request entity starts being written, or when the request is sent if it has no entity
+     * @param request request sent
+     * @param nanoTime phase time stamp
+     */
+    void requestHeadersSent(Request request, long nanoTime);
+
+    /**
+     * Notified once the request entity has been written
+     * @param request request sent
+     * @param nanoTime phase time stamp
+     */
+    void requestBodySent(Request request, long nanoTime);
+
+    /**
+     * Notified once the response status and headers have been received
+     * @param request request sent
+     * @param statusCode response status code
+     * @param nanoTime phase time stamp
+     */
+    void responseHeadersReceived(Request request, int statusCode, long nanoTime);
+
+    /**
+     * Notified once the response has been closed, its entity being either fully read or discarded
+     * @param request request sent
+     * @param nanoTime phase time stamp
+     */
+    void responseBodyEnd(Request request, long nanoTime);
+
+    /**
+     * Notified once the response has been handled, including its entity deserialization
+     * @param request request sent
+     * @param nanoTime phase time stamp
+     */
+    void deserialized(Request request, long nanoTime);
+
+    /**
+     * Notified when a failed attempt is about to be retried
+     * @param request request retried
+     * @param attemptNumber number of the attempt about to be made
+     * @param nanoTime phase time stamp
+     */
+    void retryScheduled(Request request, int attemptNumber, long nanoTime);
+
+    /**
+     * Notified when a method invocation ends
+     * @param methodConfig method config of the invocation
+     * @param request request of the invocation, null if it failed to be built
+     * @param error invocation failure, null if it succeeded
+     * @param nanoTime phase time stamp
+     */
+    void callEnd(MethodConfig methodConfig, Request request, Exception error, long nanoTime);
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest;
+
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.io.Request;
+
+/**
+ * Event listener notifying several listeners in turn.
+ * @author laurent.gilles@codegist.org
+ */
+public class CompositeCRestEventListener implements CRestEventListener {
+
+    private final CRestEventListener[] delegates;
+
+    /**
+     * @param delegates listeners to notify, in the given order
+     */
+    public CompositeCRestEventListener(CRestEventListener... delegates) {
+        this.delegates = delegates.clone();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void callStart(MethodConfig methodConfig, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.callStart(methodConfig, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void requestBuilt(Request request, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.requestBuilt(request, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void connectionAcquired(Request request, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.connectionAcquired(request, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void requestHeadersSent(Request request, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.requestHeadersSent(request, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void requestBodySent(Request request, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.requestBodySent(request, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void responseHeadersReceived(Request request, int statusCode, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.responseHeadersReceived(request, statusCode, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void responseBodyEnd(Request request, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.responseBodyEnd(request, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void deserialized(Request request, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.deserialized(request, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void retryScheduled(Request request, int attemptNumber, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.retryScheduled(request, attemptNumber, nanoTime);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void callEnd(MethodConfig methodConfig, Request request, Exception error, long nanoTime) {
+        for (CRestEventListener delegate : delegates) {
+            delegate.callEnd(methodConfig, request, error, nanoTime);
+        }
+    }
+}
@@ -20,6 +20,7 @@
 
 package org.codegist.crest;
 
+import org.codegist.common.lang.Disposable;
 import org.codegist.common.lang.Disposables;
 import org.codegist.common.reflect.ObjectMethodsAwareInvocationHandler;
 import org.codegist.common.reflect.ProxyFactory;
@@ -30,10 +31,18 @@ import org.codegist.crest.io.Request;
 import org.codegist.crest.io.RequestBuilderFactory;
 import org.codegist.crest.io.RequestExecutor;
 import org.codegist.crest.io.Response;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.MetricsContext;
+import org.codegist.crest.metrics.NoOpMetricsCollector;
 import org.codegist.crest.util.Requests;
 
+import java.io.Closeable;
 import java.lang.reflect.Method;
 
+import static org.codegist.crest.metrics.Stage.CALL;
+import static org.codegist.crest.metrics.Stage.DESERIALIZATION;
+import static org.codegist.crest.metrics.Stage.REQUEST_BUILDING;
+
 /**
  * @author Laurent Gilles (laurent.gilles@codegist.org)
  */
@@ -43,12 +52,37 @@ class DefaultCRest extends CRest {
     private final RequestExecutor requestExecutor;
     private final RequestBuilderFactory requestBuilderFactory;
     private final InterfaceConfigFactory configFactory;
+    private final MetricsCollector metricsCollector;
+    private final CRestEventListener eventListener;
+    private final CRestBuilder derivable;
+    private final boolean disposeMetricsCollector;
+    private final boolean collectingMetrics;
 
     public DefaultCRest(ProxyFactory proxyFactory, RequestExecutor requestExecutor, RequestBuilderFactory requestBuilderFactory, InterfaceConfigFactory configFactory) {
+        this(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, new NoOpMetricsCollector(), new NoOpCRestEventListener());
+    }
+
+    public DefaultCRest(ProxyFactory proxyFactory, RequestExecutor requestExecutor, RequestBuilderFactory requestBuilderFactory, InterfaceConfigFactory configFactory, MetricsCollector metricsCollector, CRestEventListener eventListener) {
+        this(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, metricsCollector, eventListener, null);
+    }
+
+    public DefaultCRest(ProxyFactory proxyFactory, RequestExecutor requestExecutor, RequestBuilderFactory requestBuilderFactory, InterfaceConfigFactory configFactory, MetricsCollector metricsCollector, CRestEventListener eventListener, CRestBuilder derivable) {
+        this(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, metricsCollector, eventListener, derivable, true);
+    }
+
+    /**
+     * @param disposeMetricsCollector whether the metrics collector is owned by this instance and disposed along with it, false if shared with the instance this one has been derived from
+     */
+    public DefaultCRest(ProxyFactory proxyFactory, RequestExecutor requestExecutor, RequestBuilderFactory requestBuilderFactory, InterfaceConfigFactory configFactory, MetricsCollector metricsCollector, CRestEventListener eventListener, CRestBuilder derivable, boolean disposeMetricsCollector) {
         this.proxyFactory = proxyFactory;
         this.requestExecutor = requestExecutor;
         this.requestBuilderFactory = requestBuilderFactory;
         this.configFactory = configFactory;
+        this.metricsCollector = metricsCollector;
+        this.eventListener = eventListener;
+        this.derivable = derivable;
+        this.disposeMetricsCollector = disposeMetricsCollector;
+        this.collectingMetrics = metricsCollector.getClass() != NoOpMetricsCollector.class;
     }
 
     /**
@@ -64,6 +98,27 @@ class DefaultCRest extends CRest {
         }
     }
 
+    /**
+     * @inheritDoc
+     */
+    public CRestBuilder derive() {
+        if(derivable == null) {
+            throw new IllegalStateException("This instance has not been built by a CRestBuilder and cannot be derived");
+        }
+        return new CRestBuilder(derivable);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void dispose() {
+        Disposables.dispose(requestExecutor);
+        if(disposeMetricsCollector) {
+            Disposables.dispose(metricsCollector);
+        }
+    }
+
     final class CRestInvocationHandler<T> extends ObjectMethodsAwareInvocationHandler {
 
         private final InterfaceConfig interfaceConfig;
@@ -75,16 +130,56 @@ class DefaultCRest extends CRest {
         @Override
         protected Object doInvoke(Object proxy, Method method, Object[] args) throws Throwable {
             MethodConfig mc = interfaceConfig.getMethodConfig(method);
-            Request request = Requests.from(requestBuilderFactory, mc, args);
-            Response response = null;
+            MetricsContext previous = null;
+            if(collectingMetrics) {
+                previous = MetricsContext.get();
+                MetricsContext.set(new MetricsContext());
+            }
+            long start = System.nanoTime();
+            metricsCollector.onStageStart(mc, CALL);
+            metricsCollector.onStageStart(mc, REQUEST_BUILDING);
+            eventListener.callStart(mc, start);
+            Request request = null;
+            Exception error = null;
             try {
-                response = requestExecutor.execute(request);
-                return mc.getResponseHandler().handle(response);
-            }catch(Exception e){
+                request = Requests.from(requestBuilderFactory, mc, args);
+                long built = System.nanoTime();
+                metricsCollector.onStage(mc, REQUEST_BUILDING, built - start);
+                eventListener.requestBuilt(request, built);
+                Response response = null;
                 try {
-                    return mc.getErrorHandler().handle(request, e);
-                } finally {
-                    Disposables.dispose(response, e);
+                    response = requestExecutor.execute(request);
+                    long received = System.nanoTime();
+                    metricsCollector.onStageStart(mc, DESERIALIZATION);
+                    Object result = mc.getResponseHandler().handle(response);
+                    long handled = System.nanoTime();
+                    metricsCollector.onStage(mc, DESERIALIZATION, handled - received);
+                    eventListener.deserialized(request, handled);
+                    /* releases the response, ie its connection or bulkhead slot, if the handler did not consume it, unless it has been handed over to the caller */
+                    if(!(result instanceof Closeable) && !(result instanceof Disposable)) {
+                        Disposables.dispose(response);
+                    }
+                    return result;
+                }catch(Exception e){
+                    error = e;
+                    metricsCollector.onError(mc, e);
+                    try {
+                        return mc.getErrorHandler().handle(request, e);
+                    } finally {
+                        Disposables.dispose(response, e);
+                    }
+                }finally{
+                    metricsCollector.onStage(mc, CALL, System.nanoTime() - start);
+                }
+            }catch(Exception e){
+                error = error != null ? error : e;
+                throw e;
+            }finally{
+                eventListener.callEnd(mc, request, error, System.nanoTime());
+                /* releases the resources held across the attempts, ie the captured entity */
+                Disposables.dispose(request);
+                if(collectingMetrics) {
+                    MetricsContext.set(previous);
                 }
             }
         }
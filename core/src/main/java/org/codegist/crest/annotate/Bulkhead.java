@@ -0,0 +1,58 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.annotate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Isolates the annotated method behind a bulkhead, keyed by interface (and optionally by method).</p>
+ * <p>At most the given amount of requests are executed concurrently. Extra requests wait in a bounded queue for a slot to free up, and are rejected once the queue is full or the maximum wait elapsed. This prevents a slow service from holding all the connections of the pool shared by the interfaces of the same <b>CRest</b> instance.</p>
+ * <p>When set at interface level, it will applies to all methods where it is not already specified</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.BulkheadRequestExecutor
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Bulkhead {
+
+    /**
+     * Maximum amount of concurrent requests.
+     */
+    int maxConcurrent();
+
+    /**
+     * Maximum amount of requests waiting for a slot. Default is 0.
+     */
+    int maxQueue() default 0;
+
+    /**
+     * Maximum duration in milliseconds a request waits for a slot. Default is 5000.
+     */
+    int maxWait() default 5000;
+
+    /**
+     * Whether the bulkhead is specific to the annotated method rather than shared by all the methods of the same interface. Default is false.
+     */
+    boolean perMethod() default false;
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.annotate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Guards the annotated method with a circuit breaker, keyed by end-point (and optionally by method).</p>
+ * <p>Once the failure rate or the slow call rate over the sliding window reaches its threshold, the circuit opens and calls fail fast until the wait duration elapses. A limited amount of probe calls are then let through: the circuit closes if they all succeed, opens again otherwise.</p>
+ * <p>When set at interface level, it will applies to all methods where it is not already specified</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.CircuitBreakerRequestExecutor
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface CircuitBreaker {
+
+    /**
+     * Failure rate in percent from which the circuit opens. Default is 50.
+     */
+    int failureRateThreshold() default 50;
+
+    /**
+     * Slow call rate in percent from which the circuit opens. Default is 100.
+     */
+    int slowCallRateThreshold() default 100;
+
+    /**
+     * Duration in milliseconds from which a call is considered slow. Default is 10000.
+     */
+    int slowCallDuration() default 10000;
+
+    /**
+     * Minimum amount of calls over the sliding window before the rates are evaluated. Default is 20.
+     */
+    int minimumCalls() default 20;
+
+    /**
+     * Sliding window duration in seconds. Default is 10.
+     */
+    int window() default 10;
+
+    /**
+     * Duration in milliseconds the circuit stays open before letting probe calls through. Default is 30000.
+     */
+    int waitInOpen() default 30000;
+
+    /**
+     * Amount of probe calls let through when half-open. Default is 3.
+     */
+    int halfOpenCalls() default 3;
+
+    /**
+     * Whether the circuit is specific to the annotated method rather than shared by all the methods of the same end-point. Default is false.
+     */
+    boolean perMethod() default false;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.annotate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Indicates the deadline of the annotated method: the maximum time a call can take from the moment it is made, retries and response entity reading included.</p>
+ * <p>Each attempt's connection and socket timeouts are capped by the remaining time, no more retries are made once the deadline is reached, and the connection is aborted if the response entity is still being read. Calls that overrun their deadline fail with a {@link org.codegist.crest.io.DeadlineExceededException}.</p>
+ * <p>A deadline can also be set per call, see {@link org.codegist.crest.io.CallDeadline}. The earliest of the two applies.</p>
+ * <p>When set at interface level, it will applies to all methods where it is not already specified</p>
+ * @author laurent.gilles@codegist.org
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE,ElementType.METHOD})
+public @interface Deadline {
+
+    /**
+     * deadline in milliseconds to apply. Default is 0, meaning no deadline.
+     */
+    int value();
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.annotate;
+
+import org.codegist.crest.config.RateLimitConfig;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Limits the rate of requests of the annotated method, keyed by end-point (and optionally by method).</p>
+ * <p>Requests are permitted by a token bucket of the given amount of permits, refilled over the given period. The limiter also follows the server's feedback: it holds the requests back until the reset time once the server reports no remaining calls through the X-RateLimit-Remaining/X-RateLimit-Reset headers, or after a 429 response.</p>
+ * <p>When set at interface level, it will applies to all methods where it is not already specified</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.RateLimitRequestExecutor
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RateLimit {
+
+    /**
+     * Amount of requests permitted per period.
+     */
+    int permits();
+
+    /**
+     * Period duration in milliseconds. Default is 1000.
+     */
+    int period() default 1000;
+
+    /**
+     * Behavior when no permit is available. Default is {@link RateLimitConfig.Policy#BLOCK}.
+     */
+    RateLimitConfig.Policy policy() default RateLimitConfig.Policy.BLOCK;
+
+    /**
+     * Maximum duration in milliseconds a request can be delayed when using {@link RateLimitConfig.Policy#DELAY}. Default is 5000.
+     */
+    int maxDelay() default 5000;
+
+    /**
+     * Whether the limit is specific to the annotated method rather than shared by all the methods of the same end-point. Default is false.
+     */
+    boolean perMethod() default false;
+}
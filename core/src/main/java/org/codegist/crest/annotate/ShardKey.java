@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.annotate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks a method parameter as the shard key of the requests: when the method's end-point is balanced across a group of members, requests carrying the same key value are always sent to the same member, as long as it remains available.</p>
+ * <p>Members are chosen using a consistent hash ring, so that a membership change only remaps the keys of the members that joined or left.</p>
+ * <p>The key is the string representation of the parameter value(s). If more than one parameter is marked, their values are concatenated in parameter type order. Requests without any key value are balanced using the configured {@link org.codegist.crest.io.balancing.LoadBalancer}.</p>
+ * <p>Must be used together with a parameter binding annotation, ie {@link org.codegist.crest.annotate.QueryParam}, {@link org.codegist.crest.annotate.PathParam} or {@link org.codegist.crest.annotate.HeaderParam}.</p>
+ * @see org.codegist.crest.CRestBuilder#loadBalance(String, String...)
+ * @author laurent.gilles@codegist.org
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.PARAMETER})
+public @interface ShardKey {
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config;
+
+import org.codegist.common.lang.ToStringBuilder;
+
+/**
+ * <p>Reflects a REST interface's method bulkhead configuration</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.annotate.Bulkhead
+ * @see org.codegist.crest.io.BulkheadRequestExecutor
+ */
+public final class BulkheadConfig {
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final int maxWait;
+    private final boolean perMethod;
+
+    /**
+     * Creates a bulkhead configuration without queue, shared per interface
+     * @param maxConcurrent maximum amount of concurrent requests
+     */
+    public BulkheadConfig(int maxConcurrent) {
+        this(maxConcurrent, 0, 0, false);
+    }
+
+    /**
+     * @param maxConcurrent maximum amount of concurrent requests
+     * @param maxQueue maximum amount of requests waiting for a slot, further requests are rejected
+     * @param maxWait maximum duration in milliseconds a request waits for a slot before being rejected
+     * @param perMethod whether the bulkhead is specific to the method rather than shared per interface
+     */
+    public BulkheadConfig(int maxConcurrent, int maxQueue, int maxWait, boolean perMethod) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.perMethod = perMethod;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    public int getMaxWait() {
+        return maxWait;
+    }
+
+    public boolean isPerMethod() {
+        return perMethod;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("maxConcurrent", maxConcurrent)
+                .append("maxQueue", maxQueue)
+                .append("maxWait", maxWait)
+                .append("perMethod", perMethod)
+                .toString();
+    }
+}
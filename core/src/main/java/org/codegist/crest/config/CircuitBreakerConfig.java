@@ -0,0 +1,147 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config;
+
+import org.codegist.common.lang.ToStringBuilder;
+
+/**
+ * <p>Reflects a REST interface's method circuit breaker configuration</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.annotate.CircuitBreaker
+ * @see org.codegist.crest.io.CircuitBreakerRequestExecutor
+ */
+public final class CircuitBreakerConfig {
+
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final int slowCallDuration;
+    private final int minimumCalls;
+    private final int window;
+    private final int waitInOpen;
+    private final int halfOpenCalls;
+    private final boolean perMethod;
+
+    /**
+     * Creates a circuit breaker configuration with the default values (50% failure rate, or all the calls taking 10 seconds or more, over at least 20 calls within a 10 seconds window, 30 seconds wait in open state, 3 half-open calls, shared per end-point)
+     */
+    public CircuitBreakerConfig() {
+        this(50, 100, 10000, 20, 10, 30000, 3, false);
+    }
+
+    /**
+     * @param failureRateThreshold failure rate in percent from which the circuit opens
+     * @param slowCallRateThreshold slow call rate in percent from which the circuit opens
+     * @param slowCallDuration duration in milliseconds from which a call is considered slow
+     * @param minimumCalls minimum amount of calls over the sliding window before the rates are evaluated
+     * @param window sliding window duration in seconds
+     * @param waitInOpen duration in milliseconds the circuit stays open before letting probe calls through
+     * @param halfOpenCalls amount of probe calls let through when half-open
+     * @param perMethod whether the circuit is specific to the method rather than shared per end-point
+     */
+    public CircuitBreakerConfig(int failureRateThreshold, int slowCallRateThreshold, int slowCallDuration, int minimumCalls, int window, int waitInOpen, int halfOpenCalls, boolean perMethod) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.minimumCalls = minimumCalls;
+        this.window = window;
+        this.waitInOpen = waitInOpen;
+        this.halfOpenCalls = halfOpenCalls;
+        this.perMethod = perMethod;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public int getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getWaitInOpen() {
+        return waitInOpen;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public boolean isPerMethod() {
+        return perMethod;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof CircuitBreakerConfig)) {
+            return false;
+        }
+        CircuitBreakerConfig that = (CircuitBreakerConfig) o;
+        return failureRateThreshold == that.failureRateThreshold
+                && slowCallRateThreshold == that.slowCallRateThreshold
+                && slowCallDuration == that.slowCallDuration
+                && minimumCalls == that.minimumCalls
+                && window == that.window
+                && waitInOpen == that.waitInOpen
+                && halfOpenCalls == that.halfOpenCalls
+                && perMethod == that.perMethod;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = failureRateThreshold;
+        result = 31 * result + slowCallRateThreshold;
+        result = 31 * result + slowCallDuration;
+        result = 31 * result + minimumCalls;
+        result = 31 * result + window;
+        result = 31 * result + waitInOpen;
+        result = 31 * result + halfOpenCalls;
+        result = 31 * result + (perMethod ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("failureRateThreshold", failureRateThreshold)
+                .append("slowCallRateThreshold", slowCallRateThreshold)
+                .append("slowCallDuration", slowCallDuration)
+                .append("minimumCalls", minimumCalls)
+                .append("window", window)
+                .append("waitInOpen", waitInOpen)
+                .append("halfOpenCalls", halfOpenCalls)
+                .append("perMethod", perMethod)
+                .toString();
+    }
+}
@@ -88,6 +88,13 @@ class DefaultInterfaceConfigBuilder extends ConfigBuilder implements InterfaceCo
         return this;
     }
 
+    public InterfaceConfigBuilder setMethodsDeadline(int deadline) {
+        for (MethodConfigBuilder b : methodBuilders.values()) {
+            b.setDeadline(deadline);
+        }
+        return this;
+    }
+
     public InterfaceConfigBuilder setMethodsRequestInterceptor(Class<? extends RequestInterceptor> requestInterceptorClass)  {
         for (MethodConfigBuilder b : methodBuilders.values()) {
             b.setRequestInterceptor(requestInterceptorClass);
@@ -116,6 +123,27 @@ class DefaultInterfaceConfigBuilder extends ConfigBuilder implements InterfaceCo
         return this;
     }
 
+    public InterfaceConfigBuilder setMethodsCircuitBreaker(CircuitBreakerConfig circuitBreaker)  {
+        for (MethodConfigBuilder b : methodBuilders.values()) {
+            b.setCircuitBreaker(circuitBreaker);
+        }
+        return this;
+    }
+
+    public InterfaceConfigBuilder setMethodsRateLimit(RateLimitConfig rateLimit)  {
+        for (MethodConfigBuilder b : methodBuilders.values()) {
+            b.setRateLimit(rateLimit);
+        }
+        return this;
+    }
+
+    public InterfaceConfigBuilder setMethodsBulkhead(BulkheadConfig bulkhead)  {
+        for (MethodConfigBuilder b : methodBuilders.values()) {
+            b.setBulkhead(bulkhead);
+        }
+        return this;
+    }
+
     public InterfaceConfigBuilder setMethodsEntityWriter(Class<? extends EntityWriter> entityWriterClass)  {
         for (MethodConfigBuilder b : methodBuilders.values()) {
             b.setEntityWriter(entityWriterClass);
@@ -40,16 +40,21 @@ class DefaultMethodConfig implements MethodConfig {
     private final MethodType type;
     private final int socketTimeout;
     private final int connectionTimeout;
+    private final int deadline;
     private final EntityWriter entityWriter;
     private final RequestInterceptor requestInterceptor;
     private final ResponseHandler responseHandler;
     private final ErrorHandler errorHandler;
     private final RetryHandler retryHandler;
+    private final CircuitBreakerConfig circuitBreaker;
+    private final RateLimitConfig rateLimit;
+    private final BulkheadConfig bulkhead;
+    private final String endPoint;
     private final Deserializer[] deserializers;
     private final ParamConfig[] extraParams;
     private final ParamConfig[] methodParamConfigs;
 
-    DefaultMethodConfig(Charset charset, Method method, PathTemplate path, String produces, String[] consumes, MethodType type, int socketTimeout, int connectionTimeout, EntityWriter entityWriter, RequestInterceptor requestInterceptor, ResponseHandler responseHandler, ErrorHandler errorHandler, RetryHandler retryHandler, Deserializer[] deserializers, ParamConfig[] methodParamConfigs, ParamConfig[] extraParams) {
+    DefaultMethodConfig(Charset charset, Method method, PathTemplate path, String produces, String[] consumes, MethodType type, int socketTimeout, int connectionTimeout, int deadline, EntityWriter entityWriter, RequestInterceptor requestInterceptor, ResponseHandler responseHandler, ErrorHandler errorHandler, RetryHandler retryHandler, CircuitBreakerConfig circuitBreaker, RateLimitConfig rateLimit, BulkheadConfig bulkhead, String endPoint, Deserializer[] deserializers, ParamConfig[] methodParamConfigs, ParamConfig[] extraParams) {
         this.charset = charset;
         this.method = method;
         this.path = path;
@@ -58,11 +63,16 @@ class DefaultMethodConfig implements MethodConfig {
         this.type = type;
         this.socketTimeout = socketTimeout;
         this.connectionTimeout = connectionTimeout;
+        this.deadline = deadline;
         this.entityWriter = entityWriter;
         this.requestInterceptor = requestInterceptor;
         this.responseHandler = responseHandler;
         this.errorHandler = errorHandler;
         this.retryHandler = retryHandler;
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimit = rateLimit;
+        this.bulkhead = bulkhead;
+        this.endPoint = endPoint;
         this.deserializers = deserializers.clone();
         this.methodParamConfigs = methodParamConfigs.clone();
         this.extraParams = extraParams.clone();
@@ -104,6 +114,10 @@ class DefaultMethodConfig implements MethodConfig {
         return connectionTimeout;
     }
 
+    public int getDeadline() {
+        return deadline;
+    }
+
     public EntityWriter getEntityWriter() {
         return entityWriter;
     }
@@ -120,6 +134,22 @@ class DefaultMethodConfig implements MethodConfig {
         return retryHandler;
     }
 
+    public CircuitBreakerConfig getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public RateLimitConfig getRateLimit() {
+        return rateLimit;
+    }
+
+    public BulkheadConfig getBulkhead() {
+        return bulkhead;
+    }
+
+    public String getEndPoint() {
+        return endPoint;
+    }
+
     public Deserializer[] getDeserializers() {
         return deserializers.clone();
     }
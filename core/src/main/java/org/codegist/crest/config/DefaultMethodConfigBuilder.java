@@ -67,11 +67,15 @@ class DefaultMethodConfigBuilder extends ConfigBuilder implements MethodConfigBu
     private MethodType meth = MethodType.getDefault();
     private Integer socketTimeout = 20000;
     private Integer connectionTimeout = 20000;
+    private Integer deadline = 0;
     private Class<? extends RequestInterceptor> requestInterceptor = NoOpRequestInterceptor.class;
     private Class<? extends ResponseHandler> responseHandler = DefaultResponseHandler.class;
     private Class<? extends ErrorHandler> errorHandler = ErrorDelegatorHandler.class;
     private Class<? extends RetryHandler> retryHandler = MaxAttemptRetryHandler.class;
     private Class<? extends EntityWriter> entityWriter = null;
+    private CircuitBreakerConfig circuitBreaker = null;
+    private RateLimitConfig rateLimit = null;
+    private BulkheadConfig bulkhead = null;
     private final List<Class<? extends Deserializer>> deserializers = new ArrayList<Class<? extends Deserializer>>();
     private final List<String> pathSegments = new ArrayList<String>();
     private final List<String> consumes = new ArrayList<String>(asList("*/*"));
@@ -94,11 +98,15 @@ class DefaultMethodConfigBuilder extends ConfigBuilder implements MethodConfigBu
         this.meth = override(METHOD_CONFIG_DEFAULT_TYPE, this.meth);
         this.socketTimeout = override(METHOD_CONFIG_DEFAULT_SO_TIMEOUT, this.socketTimeout);
         this.connectionTimeout = override(METHOD_CONFIG_DEFAULT_CO_TIMEOUT, this.connectionTimeout);
+        this.deadline = override(METHOD_CONFIG_DEFAULT_DEADLINE, this.deadline);
         this.requestInterceptor = override(METHOD_CONFIG_DEFAULT_REQUEST_INTERCEPTOR, this.requestInterceptor);
         this.responseHandler = override(METHOD_CONFIG_DEFAULT_RESPONSE_HANDLER, this.responseHandler);
         this.errorHandler = override(METHOD_CONFIG_DEFAULT_ERROR_HANDLER, this.errorHandler);
         this.retryHandler = override(METHOD_CONFIG_DEFAULT_RETRY_HANDLER, this.retryHandler);
         this.entityWriter = override(METHOD_CONFIG_DEFAULT_ENTITY_WRITER, this.entityWriter);
+        this.circuitBreaker = override(METHOD_CONFIG_DEFAULT_CIRCUIT_BREAKER, this.circuitBreaker);
+        this.rateLimit = override(METHOD_CONFIG_DEFAULT_RATE_LIMIT, this.rateLimit);
+        this.bulkhead = override(METHOD_CONFIG_DEFAULT_BULKHEAD, this.bulkhead);
         this.extraParams = override(METHOD_CONFIG_DEFAULT_EXTRA_PARAMS, new ParamConfig[0]);
 
         List<Class<? extends Deserializer>> pDeserializers = override(METHOD_CONFIG_DEFAULT_DESERIALIZERS, this.deserializers);
@@ -138,11 +146,16 @@ class DefaultMethodConfigBuilder extends ConfigBuilder implements MethodConfigBu
                 meth,
                 socketTimeout,
                 connectionTimeout,
+                deadline,
                 getEntityWriter(allParams),
                 instantiate(requestInterceptor),
                 instantiate(responseHandler),
                 instantiate(errorHandler),
                 instantiate(retryHandler),
+                circuitBreaker,
+                rateLimit,
+                bulkhead,
+                endPoint,
                 getDeserializers(),
                 pConfigMethod,
                 pExtraParams
@@ -248,6 +261,11 @@ class DefaultMethodConfigBuilder extends ConfigBuilder implements MethodConfigBu
         return this;
     }
 
+    public MethodConfigBuilder setDeadline(int deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
     public MethodConfigBuilder setDeserializer(Class<? extends Deserializer> deserializerClass) {
         this.deserializers.clear();
         this.deserializers.add(deserializerClass);
@@ -274,6 +292,21 @@ class DefaultMethodConfigBuilder extends ConfigBuilder implements MethodConfigBu
         return this;
     }
 
+    public MethodConfigBuilder setCircuitBreaker(CircuitBreakerConfig circuitBreaker)   {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    public MethodConfigBuilder setRateLimit(RateLimitConfig rateLimit)   {
+        this.rateLimit = rateLimit;
+        return this;
+    }
+
+    public MethodConfigBuilder setBulkhead(BulkheadConfig bulkhead)   {
+        this.bulkhead = bulkhead;
+        return this;
+    }
+
     public MethodConfigBuilder setEntityWriter(Class<? extends EntityWriter> entityWriterClass)   {
         this.entityWriter = entityWriterClass;
         return this;
@@ -72,6 +72,13 @@ public interface InterfaceConfigBuilder {
      */
     InterfaceConfigBuilder setMethodsConnectionTimeout(int connectionTimeout);
 
+    /**
+     * Sets the deadline for all REST interface's methods, the maximum time a call can take, retries and response entity reading included
+     * @param deadline the deadline in milliseconds for all REST interface's methods, 0 for no deadline
+     * @return current builder
+     */
+    InterfaceConfigBuilder setMethodsDeadline(int deadline);
+
     /**
      * Binds a request interceptor, intercepting any request before it gets fired for all REST interface's methods 
      * @param requestInterceptorClass the request interceptor for all REST interface's methods
@@ -100,6 +107,27 @@ public interface InterfaceConfigBuilder {
      */
     InterfaceConfigBuilder setMethodsRetryHandler(Class<? extends RetryHandler> retryHandlerClass);
 
+    /**
+     * Guards all the REST interface's methods with a circuit breaker
+     * @param circuitBreaker the circuit breaker configuration for all REST interface's methods, null to disable it
+     * @return current builder
+     */
+    InterfaceConfigBuilder setMethodsCircuitBreaker(CircuitBreakerConfig circuitBreaker);
+
+    /**
+     * Limits the rate of requests of all the REST interface's methods
+     * @param rateLimit the rate limit configuration for all REST interface's methods, null to disable it
+     * @return current builder
+     */
+    InterfaceConfigBuilder setMethodsRateLimit(RateLimitConfig rateLimit);
+
+    /**
+     * Bounds the concurrent requests of all the REST interface's methods
+     * @param bulkhead the bulkhead configuration for all REST interface's methods, null to disable it
+     * @return current builder
+     */
+    InterfaceConfigBuilder setMethodsBulkhead(BulkheadConfig bulkhead);
+
     /**
      * Binds a entity writer for all REST interface's methods
      * @param entityWriterClass the entity writer for all REST interface's methods
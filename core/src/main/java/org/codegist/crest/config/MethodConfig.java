@@ -84,6 +84,18 @@ public interface MethodConfig {
      */
     String METHOD_CONFIG_DEFAULT_CO_TIMEOUT = MethodConfig.class.getName() + "#connection-timeout";
 
+    /**
+     * <p>CRestConfig property to override the default deadline.</p>
+     * <p>Can be overridden by setting this property as follow:</p>
+     * <code><pre>
+     * Integer deadline = ...;
+     * CRest crest = CRest.property(MethodConfig.METHOD_CONFIG_DEFAULT_DEADLINE, deadline).buid();
+     * </pre></code>
+     * <p>Default is 0, meaning no deadline</p>
+     * <p>Expects a {@link java.lang.Integer} that represents milliseconds</p>
+     */
+    String METHOD_CONFIG_DEFAULT_DEADLINE = MethodConfig.class.getName() + "#deadline";
+
     /**
      * <p>CRestConfig property to specify a default base path.</p>
      * <p>Can be overridden by setting this property as follow:</p>
@@ -216,6 +228,42 @@ public interface MethodConfig {
      */
     String METHOD_CONFIG_DEFAULT_ENTITY_WRITER = MethodConfig.class.getName() + "#entity-writer";
 
+    /**
+     * <p>CRestConfig property to specify a default circuit breaker for all methods.</p>
+     * <p>Can be overridden by setting this property as follow:</p>
+     * <code><pre>
+     * CircuitBreakerConfig circuitBreaker = ...;
+     * CRest crest = CRest.property(MethodConfig.METHOD_CONFIG_DEFAULT_CIRCUIT_BREAKER, circuitBreaker).buid();
+     * </pre></code>
+     * <p>Default is no circuit breaker</p>
+     * <p>Expects a {@link org.codegist.crest.config.CircuitBreakerConfig}</p>
+     */
+    String METHOD_CONFIG_DEFAULT_CIRCUIT_BREAKER = MethodConfig.class.getName() + "#circuit-breaker";
+
+    /**
+     * <p>CRestConfig property to specify a default rate limit for all methods.</p>
+     * <p>Can be overridden by setting this property as follow:</p>
+     * <code><pre>
+     * RateLimitConfig rateLimit = ...;
+     * CRest crest = CRest.property(MethodConfig.METHOD_CONFIG_DEFAULT_RATE_LIMIT, rateLimit).buid();
+     * </pre></code>
+     * <p>Default is no rate limit</p>
+     * <p>Expects a {@link org.codegist.crest.config.RateLimitConfig}</p>
+     */
+    String METHOD_CONFIG_DEFAULT_RATE_LIMIT = MethodConfig.class.getName() + "#rate-limit";
+
+    /**
+     * <p>CRestConfig property to specify a default bulkhead for all methods.</p>
+     * <p>Can be overridden by setting this property as follow:</p>
+     * <code><pre>
+     * BulkheadConfig bulkhead = ...;
+     * CRest crest = CRest.property(MethodConfig.METHOD_CONFIG_DEFAULT_BULKHEAD, bulkhead).buid();
+     * </pre></code>
+     * <p>Default is no bulkhead</p>
+     * <p>Expects a {@link org.codegist.crest.config.BulkheadConfig}</p>
+     */
+    String METHOD_CONFIG_DEFAULT_BULKHEAD = MethodConfig.class.getName() + "#bulkhead";
+
     /**
      * Indicates the encoding used for parameter url-encoding and request entity
      */
@@ -261,6 +309,11 @@ public interface MethodConfig {
      */
     int getConnectionTimeout();
 
+    /**
+     * Method's deadline, the maximum time a call can take, retries and response entity reading included. 0 if the method's calls have no deadline.
+     */
+    int getDeadline();
+
     /**
      * Method's return handler
      */
@@ -271,6 +324,26 @@ public interface MethodConfig {
      */
     Deserializer[] getDeserializers();
 
+    /**
+     * Method's circuit breaker configuration, null if the method is not guarded by a circuit breaker
+     */
+    CircuitBreakerConfig getCircuitBreaker();
+
+    /**
+     * Method's rate limit configuration, null if the method is not rate limited
+     */
+    RateLimitConfig getRateLimit();
+
+    /**
+     * Method's bulkhead configuration, null if the method concurrent requests are not bounded
+     */
+    BulkheadConfig getBulkhead();
+
+    /**
+     * Method's service end-point
+     */
+    String getEndPoint();
+
     /**
      * Method's URI path template.
      */
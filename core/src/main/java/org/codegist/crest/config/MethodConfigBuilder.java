@@ -119,6 +119,13 @@ public interface MethodConfigBuilder {
      */
     MethodConfigBuilder setConnectionTimeout(int connectionTimeout);
 
+    /**
+     * Sets the REST interface's method deadline, the maximum time a call can take, retries and response entity reading included
+     * @param deadline the deadline in milliseconds the REST interface's method will use, 0 for no deadline
+     * @return current builder
+     */
+    MethodConfigBuilder setDeadline(int deadline);
+
     /**
      * Binds a request interceptor for the REST interface's method, intercepting any request before it gets fired
      * @param requestInterceptorClass request interceptor of the REST interface's method
@@ -147,6 +154,27 @@ public interface MethodConfigBuilder {
      */
     MethodConfigBuilder setRetryHandler(Class<? extends RetryHandler> retryHandlerClass);
 
+    /**
+     * Guards the REST interface's method with a circuit breaker
+     * @param circuitBreaker the circuit breaker configuration of the REST interface's method, null to disable it
+     * @return current builder
+     */
+    MethodConfigBuilder setCircuitBreaker(CircuitBreakerConfig circuitBreaker);
+
+    /**
+     * Limits the rate of requests of the REST interface's method
+     * @param rateLimit the rate limit configuration of the REST interface's method, null to disable it
+     * @return current builder
+     */
+    MethodConfigBuilder setRateLimit(RateLimitConfig rateLimit);
+
+    /**
+     * Bounds the concurrent requests of the REST interface's method
+     * @param bulkhead the bulkhead configuration of the REST interface's method, null to disable it
+     * @return current builder
+     */
+    MethodConfigBuilder setBulkhead(BulkheadConfig bulkhead);
+
     /**
      * Binds a entity writer for the REST interface's method
      * @param entityWriterClass the entity writer of the REST interface's method
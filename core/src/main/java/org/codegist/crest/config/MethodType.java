@@ -28,36 +28,38 @@ public enum MethodType {
     /**
      * GET HTTP Method
      */
-    GET(false),
+    GET(false, true),
     /**
      * POST HTTP Method
      */
-    POST(true),
+    POST(true, false),
     /**
      * PUT HTTP Method
      */
-    PUT(true),
+    PUT(true, true),
     /**
      * DELETE HTTP Method
      */
-    DELETE(false),
+    DELETE(false, true),
     /**
      * OPTIONS HTTP Method
      */
-    OPTIONS(false),
+    OPTIONS(false, true),
     /**
      * HEAD HTTP Method
      */
-    HEAD(false);
+    HEAD(false, true);
 
     private final boolean hasEntity;
+    private final boolean idempotent;
 
     public static MethodType getDefault(){
         return GET;
     }
 
-    MethodType(boolean hasEntity) {
+    MethodType(boolean hasEntity, boolean idempotent) {
         this.hasEntity = hasEntity;
+        this.idempotent = idempotent;
     }
 
     /**
@@ -66,4 +68,11 @@ public enum MethodType {
     public boolean hasEntity() {
         return hasEntity;
     }
+
+    /**
+     * whether the HTTP method type is idempotent, as defined by RFC 2616 section 9.1.2, thus safe to retry
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config;
+
+import org.codegist.common.lang.ToStringBuilder;
+
+/**
+ * <p>Reflects a REST interface's method rate limit configuration</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.annotate.RateLimit
+ * @see org.codegist.crest.io.RateLimitRequestExecutor
+ */
+public final class RateLimitConfig {
+
+    private final int permits;
+    private final int period;
+    private final Policy policy;
+    private final int maxDelay;
+    private final boolean perMethod;
+
+    /**
+     * Creates a rate limit configuration that blocks until a permit is available, shared per end-point
+     * @param permits amount of requests permitted per period
+     * @param period period duration in milliseconds
+     */
+    public RateLimitConfig(int permits, int period) {
+        this(permits, period, Policy.BLOCK, 0, false);
+    }
+
+    /**
+     * @param permits amount of requests permitted per period
+     * @param period period duration in milliseconds
+     * @param policy behavior when no permit is available
+     * @param maxDelay maximum duration in milliseconds a request can be delayed when using {@link Policy#DELAY}
+     * @param perMethod whether the limit is specific to the method rather than shared per end-point
+     */
+    public RateLimitConfig(int permits, int period, Policy policy, int maxDelay, boolean perMethod) {
+        this.permits = permits;
+        this.period = period;
+        this.policy = policy;
+        this.maxDelay = maxDelay;
+        this.perMethod = perMethod;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getMaxDelay() {
+        return maxDelay;
+    }
+
+    public boolean isPerMethod() {
+        return perMethod;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("permits", permits)
+                .append("period", period)
+                .append("policy", policy)
+                .append("maxDelay", maxDelay)
+                .append("perMethod", perMethod)
+                .toString();
+    }
+
+    /**
+     * Behaviors when no permit is available
+     */
+    public enum Policy {
+        /**
+         * Waits until a permit is available
+         */
+        BLOCK,
+        /**
+         * Fails immediately with a {@link org.codegist.crest.io.RateLimitExceededException}
+         */
+        FAIL,
+        /**
+         * Waits until a permit is available if it is within the configured maximum delay, fails immediately with a {@link org.codegist.crest.io.RateLimitExceededException} otherwise
+         */
+        DELAY
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config.annotate;
+
+import org.codegist.crest.annotate.Bulkhead;
+import org.codegist.crest.config.BulkheadConfig;
+import org.codegist.crest.config.InterfaceConfigBuilder;
+import org.codegist.crest.config.MethodConfigBuilder;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+class BulkheadAnnotationHandler extends NoOpAnnotationHandler<Bulkhead> {
+
+    @Override
+    public void handleInterfaceAnnotation(Bulkhead annotation, InterfaceConfigBuilder builder) {
+        builder.setMethodsBulkhead(toConfig(annotation));
+    }
+
+    @Override
+    public void handleMethodAnnotation(Bulkhead annotation, MethodConfigBuilder builder) {
+        builder.setBulkhead(toConfig(annotation));
+    }
+
+    private static BulkheadConfig toConfig(Bulkhead annotation) {
+        return new BulkheadConfig(
+                annotation.maxConcurrent(),
+                annotation.maxQueue(),
+                annotation.maxWait(),
+                annotation.perMethod());
+    }
+}
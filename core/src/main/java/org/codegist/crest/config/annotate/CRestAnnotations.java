@@ -38,10 +38,13 @@ public final class CRestAnnotations {
 
     public static Map<Class<? extends Annotation>, Class<? extends AnnotationHandler>> getMapping(){
         Map<Class<? extends Annotation>, Class<? extends AnnotationHandler>> handlers = new HashMap<Class<? extends Annotation>, Class<? extends AnnotationHandler>>();
+        handlers.put(Bulkhead.class, BulkheadAnnotationHandler.class);
+        handlers.put(CircuitBreaker.class, CircuitBreakerAnnotationHandler.class);
         handlers.put(ConnectionTimeout.class, ConnectionTimeoutAnnotationHandler.class);
         handlers.put(Consumes.class, ConsumesAnnotationHandler.class);
         handlers.put(CookieParam.class, CookieParamAnnotationHandler.class);
         handlers.put(CookieParams.class, CookieParamsAnnotationHandler.class);
+        handlers.put(Deadline.class, DeadlineAnnotationHandler.class);
         handlers.put(DELETE.class, DELETEAnnotationHandler.class);
         handlers.put(Encoded.class, EncodedAnnotationHandler.class);
         handlers.put(Encoding.class, EncodingAnnotationHandler.class);
@@ -68,10 +71,12 @@ public final class CRestAnnotations {
         handlers.put(PUT.class, PUTAnnotationHandler.class);
         handlers.put(QueryParam.class, QueryParamAnnotationHandler.class);
         handlers.put(QueryParams.class, QueryParamsAnnotationHandler.class);
+        handlers.put(RateLimit.class, RateLimitAnnotationHandler.class);
         handlers.put(RequestInterceptor.class, RequestInterceptorAnnotationHandler.class);
         handlers.put(ResponseHandler.class, ResponseHandlerAnnotationHandler.class);
         handlers.put(RetryHandler.class, RetryHandlerAnnotationHandler.class);
         handlers.put(Serializer.class, SerializerAnnotationHandler.class);
+        handlers.put(ShardKey.class, ShardKeyAnnotationHandler.class);
         handlers.put(SocketTimeout.class, SocketTimeoutAnnotationHandler.class);
         handlers.put(Deserializer.class, DeserializerAnnotationHandler.class);
         return Collections.unmodifiableMap(handlers);
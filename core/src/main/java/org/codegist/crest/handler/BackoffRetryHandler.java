@@ -0,0 +1,284 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.handler;
+
+import org.codegist.common.log.Logger;
+import org.codegist.crest.CRestConfig;
+import org.codegist.crest.io.CallDeadline;
+import org.codegist.crest.io.DeadlineExceededException;
+import org.codegist.crest.io.RejectedRequestException;
+import org.codegist.crest.io.Request;
+import org.codegist.crest.io.RequestException;
+import org.codegist.crest.io.Response;
+import org.codegist.crest.util.Responses;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.codegist.crest.io.http.HttpConstants.HTTP_SERVICE_UNAVAILABLE;
+import static org.codegist.crest.io.http.HttpConstants.HTTP_TOO_MANY_REQUESTS;
+
+/**
+ * <p>Retry handler retrying failed requests up to the configured max attempts, waiting between each attempt following an exponential backoff with jitter.</p>
+ * <p>When the server responds with a 429 or 503 status code along with a Retry-After header, the header value is honoured instead of the computed backoff. If it exceeds the maximum delay, the request is not retried.</p>
+ * <p>If the call has a deadline the delay would reach, a {@link org.codegist.crest.io.DeadlineExceededException} is thrown right away instead of waiting.</p>
+ * <p>By default, only requests of idempotent HTTP methods are retried. Requests rejected on the client side (ie by an open circuit breaker or an exhausted rate limit) are never retried.</p>
+ * <p>Decisions are counted and exposed through this handler's getters.</p>
+ * <p>Not used by default, see {@link org.codegist.crest.CRestBuilder#setRetryBackoff(int, int, org.codegist.crest.handler.BackoffRetryHandler.Jitter)} to enable it.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRestConfig#getMaxAttempts()
+ * @see org.codegist.crest.config.MethodType#isIdempotent()
+ */
+public class BackoffRetryHandler implements DelayingRetryHandler {
+
+    /**
+     * <p>CRestConfig property to override the base backoff delay.</p>
+     * <p>Default is 100 milliseconds</p>
+     * <p>Expects an Integer that represents milliseconds</p>
+     */
+    public static final String BASE_DELAY_PROP = BackoffRetryHandler.class.getName() + "#base-delay";
+
+    /**
+     * <p>CRestConfig property to override the maximum backoff delay.</p>
+     * <p>Default is 10000 milliseconds</p>
+     * <p>Expects an Integer that represents milliseconds</p>
+     */
+    public static final String MAX_DELAY_PROP = BackoffRetryHandler.class.getName() + "#max-delay";
+
+    /**
+     * <p>CRestConfig property to override the jitter strategy.</p>
+     * <p>Default is {@link Jitter#FULL}</p>
+     * <p>Expects a {@link Jitter}</p>
+     */
+    public static final String JITTER_PROP = BackoffRetryHandler.class.getName() + "#jitter";
+
+    /**
+     * <p>CRestConfig property to allow retries of non-idempotent requests (ie POST).</p>
+     * <p>Default is false</p>
+     * <p>Expects a Boolean</p>
+     */
+    public static final String RETRY_NON_IDEMPOTENT_PROP = BackoffRetryHandler.class.getName() + "#retry-non-idempotent";
+
+    private static final Logger LOG = Logger.getLogger(BackoffRetryHandler.class);
+    private static final int MAX_SHIFT = 30;
+    private static final int DECORRELATION_FACTOR = 3;
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>(){
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private final int max;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final Jitter jitter;
+    private final boolean retryNonIdempotent;
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final AtomicLong nonIdempotentCount = new AtomicLong();
+    private final AtomicLong retryAfterCount = new AtomicLong();
+    private final AtomicLong retryAfterExceededCount = new AtomicLong();
+    private final AtomicLong deadlineExceededCount = new AtomicLong();
+    private final AtomicLong totalDelay = new AtomicLong();
+
+    /**
+     * @param crestConfig the crest config
+     */
+    public BackoffRetryHandler(CRestConfig crestConfig) {
+        this.max = crestConfig.getMaxAttempts();
+        this.baseDelay = crestConfig.<Integer>get(BASE_DELAY_PROP, 100);
+        this.maxDelay = crestConfig.<Integer>get(MAX_DELAY_PROP, 10000);
+        this.jitter = crestConfig.get(JITTER_PROP, Jitter.FULL);
+        this.retryNonIdempotent = crestConfig.get(RETRY_NON_IDEMPOTENT_PROP, false);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean retry(RequestException exception, int attemptNumber) throws Exception {
+        /* the call's previous delay is unknown here, decorrelated jitter starts from the previous attempt's exponential delay */
+        long delay = getRetryDelay(exception, attemptNumber, ceiling(attemptNumber - 1));
+        return delay >= 0 && sleep(delay);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public long getRetryDelay(RequestException exception, int attemptNumber, long previousDelay) throws Exception {
+        if(attemptNumber > max) {
+            exhaustedCount.incrementAndGet();
+            LOG.debug("Not retrying, maximum attempts reached (attempt=%d,max=%d)", attemptNumber, max);
+            return -1;
+        }
+        if(exception instanceof RejectedRequestException) {
+            LOG.debug("Not retrying, request has been rejected: %s", exception.getMessage());
+            return -1;
+        }
+        Request request = exception != null ? exception.getRequest() : null;
+        if(!retryNonIdempotent && request != null && !request.getMethodConfig().getType().isIdempotent()) {
+            nonIdempotentCount.incrementAndGet();
+            LOG.debug("Not retrying non-idempotent %s request", request.getMethodConfig().getType());
+            return -1;
+        }
+
+        long delay;
+        long retryAfter = getRetryAfter(exception);
+        if(retryAfter > maxDelay) {
+            retryAfterExceededCount.incrementAndGet();
+            LOG.debug("Not retrying, server asked to retry after %dms which exceeds the maximum delay of %dms", retryAfter, maxDelay);
+            return -1;
+        } else if(retryAfter >= 0) {
+            retryAfterCount.incrementAndGet();
+            delay = retryAfter;
+        } else {
+            delay = nextDelay(attemptNumber, previousDelay);
+        }
+
+        CallDeadline deadline = CallDeadline.get();
+        if(deadline != null && delay >= deadline.remaining()) {
+            deadlineExceededCount.incrementAndGet();
+            LOG.debug("Not retrying, retrying in %dms would exceed the deadline (remaining=%dms)", delay, deadline.remaining());
+            throw new DeadlineExceededException(deadline.getTimeout(), request);
+        }
+
+        scheduledCount.incrementAndGet();
+        totalDelay.addAndGet(delay);
+        LOG.debug("Retrying in %dms (attempt=%d,max=%d,reason=%s)", delay, attemptNumber, max, exception != null ? exception.getMessage() : "unknown");
+        return delay;
+    }
+
+    /**
+     * @param attemptNumber attempt number, starting at 2
+     * @param previousDelay delay waited before the failed attempt, only used by the decorrelated jitter
+     * @return the backoff delay in milliseconds
+     */
+    long nextDelay(int attemptNumber, long previousDelay) {
+        long ceiling = ceiling(attemptNumber);
+        Random random = RANDOM.get();
+        switch(jitter) {
+            case FULL:
+                return (long) (random.nextDouble() * (ceiling + 1));
+            case DECORRELATED:
+                long previous = attemptNumber <= 2 || previousDelay < baseDelay ? baseDelay : previousDelay;
+                long upper = Math.min(maxDelay, previous * DECORRELATION_FACTOR);
+                return baseDelay + (long) (random.nextDouble() * Math.max(upper - baseDelay, 0));
+            default:
+                return ceiling;
+        }
+    }
+
+    private long ceiling(int attemptNumber) {
+        return Math.min(maxDelay, baseDelay << Math.min(Math.max(attemptNumber - 2, 0), MAX_SHIFT));
+    }
+
+    private static long getRetryAfter(RequestException exception) throws Exception {
+        if(exception == null || !exception.hasResponse()) {
+            return -1;
+        }
+        Response response = exception.getResponse();
+        int status = response.getStatusCode();
+        if(status != HTTP_TOO_MANY_REQUESTS && status != HTTP_SERVICE_UNAVAILABLE) {
+            return -1;
+        }
+        return Responses.getRetryAfter(response);
+    }
+
+    private static boolean sleep(long delay) {
+        if(delay <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return the amount of retries scheduled by this handler
+     */
+    public long getScheduledRetryCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * @return the amount of retries refused because the maximum attempts were reached
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    /**
+     * @return the amount of retries refused because the request method is not idempotent
+     */
+    public long getNonIdempotentCount() {
+        return nonIdempotentCount.get();
+    }
+
+    /**
+     * @return the amount of retries scheduled following a server Retry-After header
+     */
+    public long getRetryAfterCount() {
+        return retryAfterCount.get();
+    }
+
+    /**
+     * @return the amount of retries refused because the server Retry-After header exceeded the maximum delay
+     */
+    public long getRetryAfterExceededCount() {
+        return retryAfterExceededCount.get();
+    }
+
+    /**
+     * @return the amount of retries refused because the backoff delay would have exceeded the call's deadline
+     */
+    public long getDeadlineExceededCount() {
+        return deadlineExceededCount.get();
+    }
+
+    /**
+     * @return the cumulated backoff delay in milliseconds
+     */
+    public long getTotalDelay() {
+        return totalDelay.get();
+    }
+
+    /**
+     * Backoff jitter strategies
+     */
+    public enum Jitter {
+        /**
+         * No jitter, waits for the exact exponential delay
+         */
+        NONE,
+        /**
+         * Waits for a random delay between zero and the exponential delay
+         */
+        FULL,
+        /**
+         * Waits for a random delay between the base delay and three times the previous delay of the same call
+         */
+        DECORRELATED
+    }
+}
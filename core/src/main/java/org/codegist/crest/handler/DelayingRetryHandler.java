@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.handler;
+
+import org.codegist.crest.io.RequestException;
+
+/**
+ * <p>RetryHandler waiting between the attempts, able to tell its decision and delay apart from the wait itself.</p>
+ * <p>The {@link org.codegist.crest.io.RetryingRequestExecutor} then only waits for retries the retry budget allows, and keeps track of the delays of each call.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.RetryingRequestExecutor
+ */
+public interface DelayingRetryHandler extends RetryHandler {
+
+    /**
+     * Should return whether to retry or not the request, and after which delay, without waiting for it.
+     * @param exception Failure reason
+     * @param attemptNumber current attempt number. Starts at 2, as the first attempt has already been consumed
+     * @param previousDelay delay in milliseconds waited before the failed attempt, 0 for the first attempt
+     * @return the delay in milliseconds to wait for before retrying, negative not to retry
+     * @throws Exception Any exception
+     */
+    long getRetryDelay(RequestException exception, int attemptNumber, long previousDelay) throws Exception;
+
+}
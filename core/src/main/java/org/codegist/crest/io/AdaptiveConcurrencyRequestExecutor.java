@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.MethodConfig;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.codegist.crest.io.http.HttpConstants.HTTP_TOO_MANY_REQUESTS;
+
+/**
+ * <p>RequestExecutor implementation that bounds the in-flight requests of each end-point with an {@link org.codegist.crest.io.AdaptiveLimiter}.</p>
+ * <p>The round-trip time of each request is fed back to its end-point limiter. Requests that throw a {@link org.codegist.crest.io.RequestException}, respond with a server error status code (&gt;= 500) or with a 429 are considered as dropped. Requests rejected on the client side are not sampled.</p>
+ * <p>Requests exceeding the current limit fail fast with a {@link org.codegist.crest.io.ConcurrencyLimitExceededException}. Limit changes are reported to the optional listener, ie the transport to resize its connection pool.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRestBuilder#enableAdaptiveConcurrency(int, int)
+ */
+public class AdaptiveConcurrencyRequestExecutor implements RequestExecutor, ConcurrencyLimitListener, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveConcurrencyRequestExecutor.class);
+    private static final int MIN_SERVER_ERROR_STATUS_CODE = 500;
+    private static final int MIN_LIMIT = 1;
+
+    private final RequestExecutor delegate;
+    private final int initialLimit;
+    private final int maxLimit;
+    private final ConcurrencyLimitListener listener;
+    private final ConcurrentMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<String, AdaptiveLimiter>();
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     * @param initialLimit initial limit of in-flight requests per end-point
+     * @param maxLimit maximum limit of in-flight requests per end-point
+     * @param listener limit changes listener, can be null
+     */
+    public AdaptiveConcurrencyRequestExecutor(RequestExecutor delegate, int initialLimit, int maxLimit, ConcurrencyLimitListener listener) {
+        this.delegate = delegate;
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.listener = listener;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Response execute(Request request) throws Exception {
+        AdaptiveLimiter limiter = limiterFor(request.getMethodConfig());
+        if(!limiter.tryAcquire()) {
+            LOGGER.debug("Concurrency limit of %s reached (limit=%d), rejecting request", limiter.getName(), limiter.getLimit());
+            throw new ConcurrencyLimitExceededException(limiter.getLimit(), request);
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+        boolean rejected = false;
+        try {
+            Response response = delegate.execute(request);
+            int status = response.getStatusCode();
+            dropped = status >= MIN_SERVER_ERROR_STATUS_CODE || status == HTTP_TOO_MANY_REQUESTS;
+            return response;
+        } catch (RejectedRequestException e) {
+            rejected = true;
+            throw e;
+        } finally {
+            if(rejected || (dropped && CallCancellation.isCurrentCancelled())) {
+                /* never reached the server, or aborted by a hedged request's winner, its round-trip time tells nothing about the server */
+                limiter.release();
+            } else {
+                limiter.onSample(System.nanoTime() - start, dropped);
+            }
+        }
+    }
+
+    /**
+     * @param endPoint end-point
+     * @return the limiter of the given end-point, null if no request went through it yet
+     */
+    public AdaptiveLimiter getLimiter(String endPoint) {
+        return limiters.get(endPoint);
+    }
+
+    public void onLimitChange(String endPoint, int limit) {
+        LOGGER.debug("Concurrency limit of %s is now %d", endPoint, limit);
+        if(listener != null) {
+            listener.onLimitChange(endPoint, limit);
+        }
+    }
+
+    private AdaptiveLimiter limiterFor(MethodConfig mc) {
+        String name = mc.getEndPoint();
+        AdaptiveLimiter limiter = limiters.get(name);
+        if(limiter == null) {
+            AdaptiveLimiter newLimiter = new AdaptiveLimiter(name, initialLimit, MIN_LIMIT, maxLimit, this);
+            limiter = limiters.putIfAbsent(name, newLimiter);
+            if(limiter == null) {
+                limiter = newLimiter;
+                onLimitChange(name, limiter.getLimit());
+            }
+        }
+        return limiter;
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+}
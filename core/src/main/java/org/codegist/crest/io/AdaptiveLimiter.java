@@ -0,0 +1,172 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Concurrency limiter that adapts the allowed amount of in-flight calls following an additive-increase/multiplicative-decrease (AIMD) scheme.</p>
+ * <p>Each call outcome is a sample. The limit grows by one per round-trip, ie by 1/limit for each successful sample taken while the limit is used by at least half, and shrinks by 10% when a call fails or when its round-trip time exceeds twice the baseline, the baseline being the minimum round-trip time observed. Samples are grouped in windows spanning ten round-trips. When none of the samples of a window gets within 10% of the baseline, the calls may have built a queue on the server side: the limit is halved to drain it, and the baseline is only raised to the minimum of the next window if it stays that high. Decreases are applied at most once per baseline round-trip so that a single burst of slow calls only counts once.</p>
+ * <p>Permits are acquired with a single compare-and-set, the limit itself being updated under the limiter lock.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.AdaptiveConcurrencyRequestExecutor
+ */
+public class AdaptiveLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int RTT_TOLERANCE = 2;
+    private static final int RTT_WINDOW = 100;
+    private static final int RTT_WINDOW_ROUND_TRIPS = 10;
+    private static final int BASELINE_DRIFT_DIVISOR = 10;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final ConcurrencyLimitListener listener;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile int limit;
+    private double estimatedLimit;
+    private long baselineRtt = Long.MAX_VALUE;
+    private long windowMinRtt = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecrease = Long.MIN_VALUE;
+    private boolean probing;
+
+    /**
+     * @param name limiter name
+     * @param initialLimit initial limit
+     * @param minLimit minimum limit
+     * @param maxLimit maximum limit
+     * @param listener limit changes listener, can be null
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, ConcurrencyLimitListener listener) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.listener = listener;
+        this.estimatedLimit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Asks for the permission to make a call. Each permitted call must be followed by a call to {@link AdaptiveLimiter#onSample(long, boolean)}, or {@link AdaptiveLimiter#release()} if it did not reach the server
+     * @return true if the call is permitted
+     */
+    public boolean tryAcquire() {
+        while(true) {
+            int current = inFlight.get();
+            if(current >= limit) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            if(inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records a call outcome and releases its permit
+     * @param rtt call round-trip time in nanoseconds
+     * @param dropped whether the call failed or got rejected by the server
+     */
+    public void onSample(long rtt, boolean dropped) {
+        onSample(rtt, dropped, System.nanoTime());
+    }
+
+    /**
+     * Releases the permit of a call that did not reach the server, ie rejected on the client side, without recording it as a sample
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void onSample(long rtt, boolean dropped, long now) {
+        int used = inFlight.getAndDecrement();
+        int previous = limit;
+        int updated;
+        synchronized (this) {
+            baselineRtt = Math.min(baselineRtt, rtt);
+            windowMinRtt = Math.min(windowMinRtt, rtt);
+            if(++windowSamples >= Math.max(RTT_WINDOW, previous * RTT_WINDOW_ROUND_TRIPS)) {
+                onWindowEnd();
+            }
+            if(dropped || rtt > baselineRtt * RTT_TOLERANCE) {
+                if(lastDecrease == Long.MIN_VALUE || now - lastDecrease >= baselineRtt) {
+                    lastDecrease = now;
+                    estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF_RATIO);
+                }
+            } else if(used * 2 >= previous) {
+                estimatedLimit = Math.min(maxLimit, estimatedLimit + 1 / estimatedLimit);
+            }
+            updated = (int) estimatedLimit;
+            limit = updated;
+        }
+        if(updated != previous && listener != null) {
+            listener.onLimitChange(name, updated);
+        }
+    }
+
+    private void onWindowEnd() {
+        if(windowMinRtt <= baselineRtt + baselineRtt / BASELINE_DRIFT_DIVISOR) {
+            probing = false;
+        } else if(!probing) {
+            /* drains the queue the calls may have built on the server before trusting higher round-trip times */
+            probing = true;
+            estimatedLimit = Math.max(minLimit, estimatedLimit / 2);
+        } else {
+            probing = false;
+            baselineRtt = windowMinRtt;
+        }
+        windowMinRtt = Long.MAX_VALUE;
+        windowSamples = 0;
+    }
+
+    /**
+     * @return the limiter name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the current maximum amount of in-flight calls
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the current amount of in-flight calls
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the amount of calls rejected
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
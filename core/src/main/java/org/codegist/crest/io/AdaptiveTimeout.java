@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.util.LatencyHistogram;
+
+/**
+ * <p>Socket timeout of a method, derived from the latencies it recently observed.</p>
+ * <p>The timeout is the configured latency percentile multiplied by the configured factor, clamped between the configured bounds. It is recomputed at most every 100 milliseconds, and the method's static socket timeout is used until enough latencies have been recorded.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.AdaptiveTimeouts
+ */
+public class AdaptiveTimeout {
+
+    private static final long REFRESH_INTERVAL = 100l;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final float percentile;
+    private final float factor;
+    private final int minTimeout;
+    private final int maxTimeout;
+    private final int minSamples;
+    private volatile int timeout = -1;
+    private volatile long refreshAt;
+
+    AdaptiveTimeout(float percentile, float factor, int minTimeout, int maxTimeout, int minSamples) {
+        this.percentile = percentile;
+        this.factor = factor;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * Records a latency
+     * @param millis latency in milliseconds
+     */
+    public void record(long millis) {
+        histogram.record(millis);
+    }
+
+    /**
+     * @param staticTimeout timeout to use if not enough latencies have been recorded yet
+     * @return the current timeout in milliseconds
+     */
+    public int getTimeout(int staticTimeout) {
+        return getTimeout(staticTimeout, System.currentTimeMillis());
+    }
+
+    /**
+     * @return the histogram of the recorded latencies
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    int getTimeout(int staticTimeout, long now) {
+        if(now - refreshAt >= 0) {
+            refreshAt = now + REFRESH_INTERVAL;
+            timeout = compute();
+        }
+        int timeout = this.timeout;
+        return timeout > 0 ? timeout : staticTimeout;
+    }
+
+    private int compute() {
+        if(histogram.getCount() < minSamples) {
+            return -1;
+        }
+        long timeout = (long) Math.ceil(histogram.getPercentile(percentile) * (double) factor);
+        return (int) Math.min(Math.max(timeout, minTimeout), maxTimeout);
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveTimeout[timeout=" + timeout + "ms, samples=" + histogram.getCount() + "]";
+    }
+}
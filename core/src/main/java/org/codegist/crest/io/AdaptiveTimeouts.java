@@ -0,0 +1,122 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.common.lang.Validate;
+import org.codegist.crest.config.MethodConfig;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Derives each method's socket timeout from a rolling histogram of its latencies, rather than using the fixed configured one.</p>
+ * <p>Static timeouts are either too generous, letting threads pile up while a server struggles, or too tight, causing spurious failures whenever the latencies shift. Adaptive ones follow the method's actual latencies: a timeout is the configured latency percentile multiplied by the given factor, clamped between the given bounds.</p>
+ * <p>The latency recorded for a request is the time it took to send it and receive the response status, or the timeout it was given if it timed out, so that a latency shift is learnt rather than turned into a series of failures.</p>
+ * <p>Instances are thread-safe, and can be kept to inspect the methods histograms.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRestBuilder#enableAdaptiveTimeouts(AdaptiveTimeouts)
+ */
+public class AdaptiveTimeouts {
+
+    private static final int DEFAULT_MIN_SAMPLES = 100;
+
+    private final ConcurrentMap<Method, AdaptiveTimeout> timeouts = new ConcurrentHashMap<Method, AdaptiveTimeout>();
+    private final float percentile;
+    private final float factor;
+    private final int minTimeout;
+    private final int maxTimeout;
+    private final int minSamples;
+
+    /**
+     * @param percentile latency percentile the timeouts are based on, between 0 and 1, ie 0.99
+     * @param factor factor the latency percentile is multiplied by, ie 2
+     * @param minTimeout minimum timeout in milliseconds
+     * @param maxTimeout maximum timeout in milliseconds
+     */
+    public AdaptiveTimeouts(float percentile, float factor, int minTimeout, int maxTimeout) {
+        this(percentile, factor, minTimeout, maxTimeout, DEFAULT_MIN_SAMPLES);
+    }
+
+    /**
+     * @param percentile latency percentile the timeouts are based on, between 0 and 1, ie 0.99
+     * @param factor factor the latency percentile is multiplied by, ie 2
+     * @param minTimeout minimum timeout in milliseconds
+     * @param maxTimeout maximum timeout in milliseconds
+     * @param minSamples amount of latencies a method must have recorded within the histogram window before its timeout gets adaptive
+     */
+    public AdaptiveTimeouts(float percentile, float factor, int minTimeout, int maxTimeout, int minSamples) {
+        Validate.isTrue(percentile > 0 && percentile <= 1, "Percentile must be within ]0,1]!");
+        Validate.isTrue(factor > 0, "Factor must be positive!");
+        Validate.isTrue(minTimeout > 0 && minTimeout <= maxTimeout, "Timeout bounds must be positive and ordered!");
+        this.percentile = percentile;
+        this.factor = factor;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * @param methodConfig method to get the socket timeout of
+     * @return the method's current socket timeout in milliseconds
+     */
+    public int getSocketTimeout(MethodConfig methodConfig) {
+        return timeoutOf(methodConfig.getMethod()).getTimeout(methodConfig.getSocketTimeout());
+    }
+
+    /**
+     * Records a method's request latency
+     * @param methodConfig method the request has been made for
+     * @param millis latency in milliseconds
+     */
+    public void record(MethodConfig methodConfig, long millis) {
+        timeoutOf(methodConfig.getMethod()).record(millis);
+    }
+
+    /**
+     * @param method method to get the adaptive timeout of
+     * @return the method's adaptive timeout, null if it hasn't been called yet
+     */
+    public AdaptiveTimeout get(Method method) {
+        return timeouts.get(method);
+    }
+
+    /**
+     * @return the adaptive timeouts of all the methods called so far
+     */
+    public Map<Method, AdaptiveTimeout> getAll() {
+        return Collections.unmodifiableMap(timeouts);
+    }
+
+    private AdaptiveTimeout timeoutOf(Method method) {
+        AdaptiveTimeout timeout = timeouts.get(method);
+        if(timeout == null) {
+            AdaptiveTimeout newTimeout = new AdaptiveTimeout(percentile, factor, minTimeout, maxTimeout, minSamples);
+            timeout = timeouts.putIfAbsent(method, newTimeout);
+            if(timeout == null) {
+                timeout = newTimeout;
+            }
+        }
+        return timeout;
+    }
+}
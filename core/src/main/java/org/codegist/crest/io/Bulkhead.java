@@ -0,0 +1,158 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.BulkheadConfig;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Bounds the amount of concurrent calls.</p>
+ * <p>Slots are handed out by a non-fair semaphore, acquired with a single compare-and-set when available. Otherwise the caller joins a bounded queue and waits for a slot up to the configured maximum wait. Callers are rejected when the queue is full or the wait elapsed.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.BulkheadRequestExecutor
+ */
+public class Bulkhead {
+
+    private static final long MILLISECOND = 1000000l;
+
+    private final String name;
+    private final int maxQueue;
+    private final long maxWait;
+    private final Semaphore slots;
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalQueueTime = new AtomicLong();
+
+    /**
+     * @param name bulkhead name
+     * @param config bulkhead configuration
+     */
+    public Bulkhead(String name, BulkheadConfig config) {
+        this.name = name;
+        this.maxQueue = config.getMaxQueue();
+        this.maxWait = config.getMaxWait() * MILLISECOND;
+        this.slots = new Semaphore(config.getMaxConcurrent());
+    }
+
+    /**
+     * Asks for a slot, waiting in the queue if none is available. Each acquired slot must be released with {@link Bulkhead#release()}
+     * @return true if a slot has been acquired
+     * @throws InterruptedException if the current thread is interrupted while waiting in the queue
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        return tryAcquire(Long.MAX_VALUE);
+    }
+
+    /**
+     * Asks for a slot, waiting in the queue if none is available, up to the given time at most. Each acquired slot must be released with {@link Bulkhead#release()}
+     * @param maxWait maximum time in milliseconds to wait for, the configured maximum wait applies if shorter
+     * @return true if a slot has been acquired
+     * @throws InterruptedException if the current thread is interrupted while waiting in the queue
+     */
+    public boolean tryAcquire(long maxWait) throws InterruptedException {
+        if(slots.tryAcquire()) {
+            return true;
+        }
+        if(!enqueue()) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            long wait = maxWait >= this.maxWait / MILLISECOND ? this.maxWait : maxWait * MILLISECOND;
+            if(slots.tryAcquire(wait, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            rejectedCount.incrementAndGet();
+            return false;
+        } finally {
+            totalQueueTime.addAndGet(System.nanoTime() - start);
+            queueSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * Releases a previously acquired slot
+     */
+    public void release() {
+        slots.release();
+    }
+
+    private boolean enqueue() {
+        while(true) {
+            int current = queueSize.get();
+            if(current >= maxQueue) {
+                return false;
+            }
+            if(queueSize.compareAndSet(current, current + 1)) {
+                queuedCount.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the bulkhead name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the amount of free slots
+     */
+    public int getAvailableSlots() {
+        return slots.availablePermits();
+    }
+
+    /**
+     * @return the amount of calls currently waiting for a slot
+     */
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    /**
+     * @return the amount of calls that had to wait for a slot
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return the amount of calls rejected
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return the total time in milliseconds calls spent waiting for a slot
+     */
+    public long getTotalQueueTime() {
+        return totalQueueTime.get() / MILLISECOND;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.BulkheadConfig;
+import org.codegist.crest.config.MethodConfig;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>RequestExecutor implementation that bounds the concurrent requests of the methods configured with a bulkhead.</p>
+ * <p>Bulkheads are shared by interface, or specific to a method if configured so. A slot is held until the response is consumed, ie deserialized, disposed or its stream closed, or until the request fails. Requests rejected by a full bulkhead fail fast with a {@link org.codegist.crest.io.BulkheadFullException}. Requests don't wait for a slot past their call's deadline, and fail with a {@link org.codegist.crest.io.DeadlineExceededException} once it expired.</p>
+ * <p>Requests of methods not configured with a bulkhead are directly delegated.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.config.MethodConfig#getBulkhead()
+ * @see org.codegist.crest.io.Bulkhead
+ */
+public class BulkheadRequestExecutor implements RequestExecutor, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkheadRequestExecutor.class);
+
+    private final RequestExecutor delegate;
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<String, Bulkhead>();
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     */
+    public BulkheadRequestExecutor(RequestExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Response execute(Request request) throws Exception {
+        MethodConfig mc = request.getMethodConfig();
+        BulkheadConfig config = mc.getBulkhead();
+        if(config == null) {
+            return delegate.execute(request);
+        }
+
+        Bulkhead bulkhead = bulkheadFor(mc, config);
+        CallDeadline deadline = CallDeadline.get();
+        boolean acquired;
+        try {
+            acquired = deadline != null ? bulkhead.tryAcquire(deadline.remaining()) : bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestException(e, request);
+        }
+        if(!acquired) {
+            if(deadline != null && deadline.isExpired()) {
+                LOGGER.debug("Bulkhead %s is full, no slot freed before the deadline", bulkhead.getName());
+                throw new DeadlineExceededException(deadline.getTimeout(), request);
+            }
+            LOGGER.debug("Bulkhead %s is full, rejecting request (queue=%d)", bulkhead.getName(), bulkhead.getQueueSize());
+            throw new BulkheadFullException(bulkhead.getName(), request);
+        }
+
+        Response response;
+        try {
+            response = delegate.execute(request);
+        } catch (Exception e) {
+            bulkhead.release();
+            throw e;
+        }
+        return new BulkheadResponse(response, bulkhead);
+    }
+
+    /**
+     * @param name bulkhead name
+     * @return the bulkhead of the given name, null if no request went through it yet
+     */
+    public Bulkhead getBulkhead(String name) {
+        return bulkheads.get(name);
+    }
+
+    private Bulkhead bulkheadFor(MethodConfig mc, BulkheadConfig config) {
+        String name = config.isPerMethod() ? mc.getMethod().toGenericString() : mc.getMethod().getDeclaringClass().getName();
+        Bulkhead bulkhead = bulkheads.get(name);
+        if(bulkhead == null) {
+            Bulkhead newBulkhead = new Bulkhead(name, config);
+            bulkhead = bulkheads.putIfAbsent(name, newBulkhead);
+            if(bulkhead == null) {
+                bulkhead = newBulkhead;
+            }
+        }
+        return bulkhead;
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+}
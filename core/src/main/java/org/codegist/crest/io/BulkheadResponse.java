@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Response holding its bulkhead slot until its entity is consumed. The slot is released once, when the response is disposed, when its stream is closed, or when its deserialization ends. Methods returning the response stream itself release it as the stream is handed over.
+ * @author laurent.gilles@codegist.org
+ */
+class BulkheadResponse implements Response {
+
+    private final Response delegate;
+    private final Bulkhead bulkhead;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private InputStream stream;
+
+    BulkheadResponse(Response delegate, Bulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    public Request getRequest() {
+        return delegate.getRequest();
+    }
+
+    public int getStatusCode() throws Exception {
+        return delegate.getStatusCode();
+    }
+
+    public String getContentType() throws Exception {
+        return delegate.getContentType();
+    }
+
+    public Charset getCharset() throws Exception {
+        return delegate.getCharset();
+    }
+
+    public String getContentEncoding() throws Exception {
+        return delegate.getContentEncoding();
+    }
+
+    public String getHeader(String name) throws Exception {
+        return delegate.getHeader(name);
+    }
+
+    public Type getExpectedGenericType() {
+        return delegate.getExpectedGenericType();
+    }
+
+    public Class<?> getExpectedType() {
+        return delegate.getExpectedType();
+    }
+
+    public <T> T deserialize() throws Exception {
+        try {
+            return delegate.<T>deserialize();
+        } finally {
+            release();
+        }
+    }
+
+    public <T> T to(Class<T> type) throws Exception {
+        try {
+            return delegate.<T>to(type);
+        } finally {
+            release();
+        }
+    }
+
+    public <T> T to(Class<T> type, Type genericType) throws Exception {
+        try {
+            return delegate.<T>to(type, genericType);
+        } finally {
+            release();
+        }
+    }
+
+    public synchronized InputStream asStream() throws Exception {
+        if(stream == null) {
+            stream = new ReleasingInputStream(delegate.asStream());
+        }
+        return stream;
+    }
+
+    public void dispose() {
+        try {
+            delegate.dispose();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        if(released.compareAndSet(false, true)) {
+            bulkhead.release();
+        }
+    }
+
+    private final class ReleasingInputStream extends FilterInputStream {
+
+        private ReleasingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+/**
+ * <p>Cancellation of the call made by the current thread, used to abort the losing attempt of a hedged request.</p>
+ * <p>The executor sending the request registers how to abort it for as long as it is in flight. Cancelling runs the registered action, an action registered once cancelled is run right away.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.HedgingRequestExecutor
+ */
+public final class CallCancellation {
+
+    private static final ThreadLocal<CallCancellation> CURRENT = new ThreadLocal<CallCancellation>();
+
+    private Runnable abort;
+    private boolean cancelled;
+
+    /**
+     * Sets the cancellation of the call made by the current thread
+     * @param cancellation cancellation, null to clear it
+     */
+    public static void set(CallCancellation cancellation) {
+        if(cancellation == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(cancellation);
+        }
+    }
+
+    /**
+     * @return the cancellation of the call made by the current thread, null if none
+     */
+    public static CallCancellation get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Clears the cancellation of the call made by the current thread
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return whether the call made by the current thread has been cancelled, false if it can't be
+     */
+    public static boolean isCurrentCancelled() {
+        CallCancellation cancellation = CURRENT.get();
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /**
+     * @return whether the call has been cancelled
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers the action aborting the call in flight, replacing any previous one
+     * @param abort action to run on cancellation, null to unregister the current one
+     */
+    public void onCancel(Runnable abort) {
+        synchronized (this) {
+            if(!cancelled) {
+                this.abort = abort;
+                return;
+            }
+        }
+        if(abort != null) {
+            abort.run();
+        }
+    }
+
+    /**
+     * Cancels the call, running the registered abort action if any. Subsequent calls have no effect.
+     */
+    public void cancel() {
+        Runnable toRun;
+        synchronized (this) {
+            if(cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = abort;
+            abort = null;
+        }
+        if(toRun != null) {
+            toRun.run();
+        }
+    }
+}
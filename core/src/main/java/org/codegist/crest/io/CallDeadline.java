@@ -0,0 +1,133 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+/**
+ * <p>Deadline of calls, ie the time by when they must have completed, retries and response entity reading included.</p>
+ * <p>A deadline can be given to the calls made by the current thread as follow:</p>
+ * <code><pre>
+ * CallDeadline.set(CallDeadline.after(500));
+ * try {
+ *     api.get();
+ *     api.list();
+ * } finally {
+ *     CallDeadline.clear();
+ * }
+ * </pre></code>
+ * <p>The deadline is shared by all the calls made until cleared, so both calls above must complete within 500 milliseconds altogether. If the called method is also configured with a deadline, the earliest one applies.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.annotate.Deadline
+ * @see org.codegist.crest.io.DeadlineRequestExecutor
+ */
+public final class CallDeadline {
+
+    private static final long MILLISECOND = 1000000l;
+    private static final ThreadLocal<CallDeadline> CURRENT = new ThreadLocal<CallDeadline>();
+
+    private final long timeout;
+    private final long expiresAt;
+
+    private CallDeadline(long timeout, long expiresAt) {
+        this.timeout = timeout;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @param timeout time in milliseconds from now
+     * @return a deadline expiring once the given time has elapsed
+     */
+    public static CallDeadline after(long timeout) {
+        return after(timeout, System.nanoTime());
+    }
+
+    /**
+     * Sets the deadline of the calls made by the current thread
+     * @param deadline deadline, null to clear it
+     */
+    public static void set(CallDeadline deadline) {
+        if(deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+    }
+
+    /**
+     * @return the deadline of the calls made by the current thread, null if none
+     */
+    public static CallDeadline get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Clears the deadline of the calls made by the current thread
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the time in milliseconds the deadline has been set for
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the time in milliseconds left before the deadline, 0 if expired
+     */
+    public long remaining() {
+        return remaining(System.nanoTime());
+    }
+
+    /**
+     * @return whether the deadline has expired
+     */
+    public boolean isExpired() {
+        return isExpired(System.nanoTime());
+    }
+
+    /**
+     * @param other deadline to compare to, can be null
+     * @return the earliest of the two deadlines
+     */
+    public CallDeadline earliest(CallDeadline other) {
+        return other == null || expiresAt - other.expiresAt <= 0 ? this : other;
+    }
+
+    static CallDeadline after(long timeout, long now) {
+        return new CallDeadline(timeout, now + timeout * MILLISECOND);
+    }
+
+    long remaining(long now) {
+        long remaining = expiresAt - now;
+        return remaining > 0 ? (remaining + MILLISECOND - 1) / MILLISECOND : 0;
+    }
+
+    boolean isExpired(long now) {
+        return expiresAt - now <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CallDeadline[timeout=" + timeout + "ms, remaining=" + remaining() + "ms]";
+    }
+}
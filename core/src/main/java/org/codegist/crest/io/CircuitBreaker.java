@@ -0,0 +1,225 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.CircuitBreakerConfig;
+import org.codegist.crest.util.SlidingWindowCounter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Lock-free circuit breaker state machine.</p>
+ * <p>While {@link State#CLOSED}, calls outcome are recorded over a sliding window. Once the minimum amount of calls is reached, the circuit opens if either the failure rate or the slow call rate reaches its threshold.</p>
+ * <p>While {@link State#OPEN}, calls are rejected until the configured wait duration elapses, the circuit then becomes {@link State#HALF_OPEN} and lets a limited amount of probe calls through. It closes once all of them succeed, and opens again at the first failure.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.CircuitBreakerRequestExecutor
+ */
+public class CircuitBreaker {
+
+    private static final int CALLS = 0;
+    private static final int FAILURES = 1;
+    private static final int SLOW_CALLS = 2;
+    private static final long SECOND = 1000l;
+
+    private final String name;
+    private final CircuitBreakerConfig config;
+    private final CircuitBreakerListener listener;
+    private final SlidingWindowCounter window;
+    /* the state, the time it was entered at and the half-open counters are swapped together so that a state is never seen with stale values */
+    private final AtomicReference<Status> status = new AtomicReference<Status>(new Status(State.CLOSED, 0, 0));
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param name circuit name, used to identify the circuit in state transition notifications
+     * @param config circuit configuration
+     * @param listener state transitions listener, can be null
+     */
+    public CircuitBreaker(String name, CircuitBreakerConfig config, CircuitBreakerListener listener) {
+        this.name = name;
+        this.config = config;
+        this.listener = listener;
+        this.window = new SlidingWindowCounter(3, config.getWindow(), SECOND);
+    }
+
+    /**
+     * Asks for the permission to make a call. Each permitted call must be followed by a call to either {@link CircuitBreaker#onSuccess(long)}, {@link CircuitBreaker#onFailure(long)}, or {@link CircuitBreaker#release()} if its outcome tells nothing about the server
+     * @return true if the call is permitted
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.currentTimeMillis());
+    }
+
+    /**
+     * Records a successful call
+     * @param duration call duration in milliseconds
+     */
+    public void onSuccess(long duration) {
+        onResult(false, duration, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a failed call
+     * @param duration call duration in milliseconds
+     */
+    public void onFailure(long duration) {
+        onResult(true, duration, System.currentTimeMillis());
+    }
+
+    /**
+     * Releases a permitted call without recording its outcome, giving its probe permit back if the circuit is half-open
+     */
+    public void release() {
+        Status current = status.get();
+        if(current.state == State.HALF_OPEN) {
+            current.halfOpenPermits.incrementAndGet();
+        }
+    }
+
+    boolean tryAcquire(long now) {
+        while(true) {
+            Status current = status.get();
+            switch (current.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if(now - current.since < config.getWaitInOpen()) {
+                        rejectedCount.incrementAndGet();
+                        return false;
+                    }
+                    /* whether this thread won the transition or not, the half-open state is then re-read along with its own counters */
+                    transition(State.OPEN, State.HALF_OPEN, now);
+                    break;
+                case HALF_OPEN:
+                    int permits = current.halfOpenPermits.get();
+                    if(permits <= 0) {
+                        rejectedCount.incrementAndGet();
+                        return false;
+                    }
+                    if(current.halfOpenPermits.compareAndSet(permits, permits - 1)) {
+                        return true;
+                    }
+                    break;
+            }
+        }
+    }
+
+    void onResult(boolean failure, long duration, long now) {
+        boolean slow = duration >= config.getSlowCallDuration();
+        Status current = status.get();
+        switch (current.state) {
+            case CLOSED:
+                window.add(CALLS, 1, now);
+                if(failure) {
+                    window.add(FAILURES, 1, now);
+                }
+                if(slow) {
+                    window.add(SLOW_CALLS, 1, now);
+                }
+                if(failure || slow) {
+                    long[] sums = window.sums(now);
+                    if(sums[CALLS] >= config.getMinimumCalls()
+                            && (sums[FAILURES] * 100 >= sums[CALLS] * config.getFailureRateThreshold()
+                            || sums[SLOW_CALLS] * 100 >= sums[CALLS] * config.getSlowCallRateThreshold())) {
+                        transition(State.CLOSED, State.OPEN, now);
+                    }
+                }
+                break;
+            case HALF_OPEN:
+                if(failure || slow) {
+                    transition(State.HALF_OPEN, State.OPEN, now);
+                } else if(current.halfOpenSuccesses.incrementAndGet() >= config.getHalfOpenCalls()) {
+                    transition(State.HALF_OPEN, State.CLOSED, now);
+                }
+                break;
+            default:
+                // late outcome of a call permitted before the circuit opened
+                break;
+        }
+    }
+
+    private void transition(State from, State to, long now) {
+        Status current = status.get();
+        /* a half-open state comes with fresh counters, only published if this thread wins the transition */
+        if(current.state != from || !status.compareAndSet(current, new Status(to, now, to == State.HALF_OPEN ? config.getHalfOpenCalls() : 0))) {
+            return;
+        }
+        if(to == State.CLOSED) {
+            window.reset();
+        }
+        if(listener != null) {
+            listener.onStateChange(name, from, to);
+        }
+    }
+
+    /**
+     * @return the circuit name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the current circuit state
+     */
+    public State getState() {
+        return status.get().state;
+    }
+
+    /**
+     * @return the amount of calls rejected by this circuit
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Circuit states
+     */
+    public enum State {
+        /**
+         * Calls are let through and their outcome recorded
+         */
+        CLOSED,
+        /**
+         * Calls are rejected
+         */
+        OPEN,
+        /**
+         * A limited amount of probe calls are let through
+         */
+        HALF_OPEN
+    }
+
+    private static final class Status {
+        private final State state;
+        private final long since;
+        private final AtomicInteger halfOpenPermits;
+        private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+        private Status(State state, long since, int halfOpenPermits) {
+            this.state = state;
+            this.since = since;
+            this.halfOpenPermits = new AtomicInteger(halfOpenPermits);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+/**
+ * Exception thrown when a request is rejected by an open circuit breaker
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.CircuitBreaker
+ */
+public class CircuitBreakerOpenException extends RejectedRequestException {
+
+    private final String circuit;
+
+    /**
+     * @param circuit name of the circuit that rejected the request
+     * @param request the rejected request
+     */
+    public CircuitBreakerOpenException(String circuit, Request request) {
+        super("Circuit breaker is open: " + circuit, request);
+        this.circuit = circuit;
+    }
+
+    /**
+     * @return name of the circuit that rejected the request
+     */
+    public String getCircuit() {
+        return circuit;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.CircuitBreakerConfig;
+import org.codegist.crest.config.MethodConfig;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>RequestExecutor implementation that guards the requests of the methods configured with a circuit breaker.</p>
+ * <p>Circuits are shared by the methods of an end-point having the same configuration, or specific to a method if configured so. A request fails as soon as it throws a {@link org.codegist.crest.io.RequestException} or responds with a server error status code (&gt;= 500), client errors are not considered as failures. Requests rejected by an open circuit fail fast with a {@link org.codegist.crest.io.CircuitBreakerOpenException}.</p>
+ * <p>Requests of methods not configured with a circuit breaker are directly delegated.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.config.MethodConfig#getCircuitBreaker()
+ * @see org.codegist.crest.io.CircuitBreaker
+ */
+public class CircuitBreakerRequestExecutor implements RequestExecutor, CircuitBreakerListener, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreakerRequestExecutor.class);
+    private static final int MIN_SERVER_ERROR_STATUS_CODE = 500;
+
+    private final RequestExecutor delegate;
+    private final CircuitBreakerListener listener;
+    /* a name can be shared by the circuits of methods of a same end-point configured differently, each configuration gets its own circuit */
+    private final ConcurrentMap<String, ConcurrentMap<CircuitBreakerConfig, CircuitBreaker>> circuits = new ConcurrentHashMap<String, ConcurrentMap<CircuitBreakerConfig, CircuitBreaker>>();
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     * @param listener circuits state transitions listener, can be null
+     */
+    public CircuitBreakerRequestExecutor(RequestExecutor delegate, CircuitBreakerListener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Response execute(Request request) throws Exception {
+        MethodConfig mc = request.getMethodConfig();
+        CircuitBreakerConfig config = mc.getCircuitBreaker();
+        if(config == null) {
+            return delegate.execute(request);
+        }
+
+        CircuitBreaker circuit = circuitFor(mc, config);
+        if(!circuit.tryAcquire()) {
+            LOGGER.debug("Circuit %s is %s, rejecting request", circuit.getName(), circuit.getState());
+            throw new CircuitBreakerOpenException(circuit.getName(), request);
+        }
+
+        long start = System.currentTimeMillis();
+        boolean failure = false;
+        try {
+            Response response = delegate.execute(request);
+            failure = response.getStatusCode() >= MIN_SERVER_ERROR_STATUS_CODE;
+            return response;
+        } catch (Exception e) {
+            /* whatever went wrong, a failed call must never count as a success, especially for a half-open probe */
+            failure = true;
+            throw e;
+        } finally {
+            long duration = System.currentTimeMillis() - start;
+            if(failure && CallCancellation.isCurrentCancelled()) {
+                /* aborted by a hedged request's winner, not the server's fault */
+                circuit.release();
+            } else if(failure) {
+                circuit.onFailure(duration);
+            } else {
+                circuit.onSuccess(duration);
+            }
+        }
+    }
+
+    /**
+     * @param name circuit name
+     * @return the circuit of the given name, null if no request went through it yet
+     * @see #getCircuit(String, org.codegist.crest.config.CircuitBreakerConfig)
+     */
+    public CircuitBreaker getCircuit(String name) {
+        ConcurrentMap<CircuitBreakerConfig, CircuitBreaker> configCircuits = circuits.get(name);
+        if(configCircuits == null || configCircuits.isEmpty()) {
+            return null;
+        }
+        return configCircuits.values().iterator().next();
+    }
+
+    /**
+     * @param name circuit name
+     * @param config circuit configuration
+     * @return the circuit of the given name and configuration, null if no request went through it yet
+     */
+    public CircuitBreaker getCircuit(String name, CircuitBreakerConfig config) {
+        ConcurrentMap<CircuitBreakerConfig, CircuitBreaker> configCircuits = circuits.get(name);
+        return configCircuits != null ? configCircuits.get(config) : null;
+    }
+
+    public void onStateChange(String name, CircuitBreaker.State from, CircuitBreaker.State to) {
+        if(to == CircuitBreaker.State.OPEN) {
+            LOGGER.warn("Circuit %s opened (was %s)", name, from);
+        } else {
+            LOGGER.info("Circuit %s is now %s (was %s)", name, to, from);
+        }
+        if(listener != null) {
+            listener.onStateChange(name, from, to);
+        }
+    }
+
+    private CircuitBreaker circuitFor(MethodConfig mc, CircuitBreakerConfig config) {
+        String name = config.isPerMethod() ? mc.getEndPoint() + "#" + mc.getMethod().toGenericString() : mc.getEndPoint();
+        ConcurrentMap<CircuitBreakerConfig, CircuitBreaker> configCircuits = circuits.get(name);
+        if(configCircuits == null) {
+            ConcurrentMap<CircuitBreakerConfig, CircuitBreaker> newConfigCircuits = new ConcurrentHashMap<CircuitBreakerConfig, CircuitBreaker>();
+            configCircuits = circuits.putIfAbsent(name, newConfigCircuits);
+            if(configCircuits == null) {
+                configCircuits = newConfigCircuits;
+            }
+        }
+        CircuitBreaker circuit = configCircuits.get(config);
+        if(circuit == null) {
+            CircuitBreaker newCircuit = new CircuitBreaker(name, config, this);
+            circuit = configCircuits.putIfAbsent(config, newCircuit);
+            if(circuit == null) {
+                circuit = newCircuit;
+            }
+        }
+        return circuit;
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+}
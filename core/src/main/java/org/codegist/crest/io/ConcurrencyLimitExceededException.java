@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+/**
+ * Exception thrown when a request is rejected because its end-point adaptive concurrency limit is reached
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.AdaptiveLimiter
+ */
+public class ConcurrencyLimitExceededException extends RejectedRequestException {
+
+    private final int limit;
+
+    /**
+     * @param limit the concurrency limit at the time the request was rejected
+     * @param request the rejected request
+     */
+    public ConcurrencyLimitExceededException(int limit, Request request) {
+        super("Concurrency limit reached: " + limit + " in-flight requests", request);
+        this.limit = limit;
+    }
+
+    /**
+     * @return the concurrency limit at the time the request was rejected
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
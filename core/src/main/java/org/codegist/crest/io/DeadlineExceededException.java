@@ -0,0 +1,64 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+/**
+ * Exception thrown when a call overruns its deadline. Unlike socket or connection timeouts, it is raised whatever the phase the call was in: waiting between retries, sending the request or reading the response.
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.CallDeadline
+ */
+public class DeadlineExceededException extends RequestException {
+
+    private final Request request;
+    private final long deadline;
+
+    /**
+     * @param deadline the deadline in milliseconds that has been exceeded
+     * @param request the request that overran its deadline
+     */
+    public DeadlineExceededException(long deadline, Request request) {
+        super("Deadline of " + deadline + "ms exceeded", (Response) null);
+        this.request = request;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param deadline the deadline in milliseconds that has been exceeded
+     * @param request the request that overran its deadline
+     * @param cause the failure the deadline overrun resulted in
+     */
+    public DeadlineExceededException(long deadline, Request request, Throwable cause) {
+        this(deadline, request);
+        initCause(cause);
+    }
+
+    /**
+     * @return the deadline in milliseconds that has been exceeded
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public Request getRequest() {
+        return request;
+    }
+}
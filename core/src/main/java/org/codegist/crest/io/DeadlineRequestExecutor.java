@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>RequestExecutor implementation that enforces the calls deadline, spanning all the attempts made by the request executors it delegates to.</p>
+ * <p>The deadline is the earliest of the one set for the current thread, if any, and the one configured for the called method, starting from now. It is made available to the delegated executors through {@link org.codegist.crest.io.CallDeadline#get()} for the duration of the call: retries are not attempted once it expires, and each attempt's timeouts are capped by the remaining time.</p>
+ * <p>Calls failing once their deadline expired are reported with a {@link org.codegist.crest.io.DeadlineExceededException}, whatever the original failure.</p>
+ * <p>Requests of methods without deadline, made by a thread without deadline, are directly delegated.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.config.MethodConfig#getDeadline()
+ * @see org.codegist.crest.io.CallDeadline
+ */
+public class DeadlineRequestExecutor implements RequestExecutor, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(DeadlineRequestExecutor.class);
+
+    private final RequestExecutor delegate;
+    private final AtomicLong exceededCount = new AtomicLong();
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     */
+    public DeadlineRequestExecutor(RequestExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Response execute(Request request) throws Exception {
+        CallDeadline current = CallDeadline.get();
+        int methodDeadline = request.getMethodConfig().getDeadline();
+        CallDeadline deadline = methodDeadline > 0 ? CallDeadline.after(methodDeadline).earliest(current) : current;
+        if(deadline == null) {
+            return delegate.execute(request);
+        }
+        if(deadline.isExpired()) {
+            throw exceeded(deadline, request, null);
+        }
+
+        CallDeadline.set(deadline);
+        try {
+            return delegate.execute(request);
+        } catch (DeadlineExceededException e) {
+            exceededCount.incrementAndGet();
+            throw e;
+        } catch (RequestException e) {
+            if(!deadline.isExpired()) {
+                throw e;
+            }
+            Disposables.dispose(e);
+            throw exceeded(deadline, request, e);
+        } finally {
+            CallDeadline.set(current);
+        }
+    }
+
+    /**
+     * @return the amount of calls that overran their deadline
+     */
+    public long getExceededCount() {
+        return exceededCount.get();
+    }
+
+    private DeadlineExceededException exceeded(CallDeadline deadline, Request request, Exception cause) {
+        exceededCount.incrementAndGet();
+        LOGGER.warn("Deadline of %dms exceeded for %s", deadline.getTimeout(), request.getMethodConfig().getMethod());
+        return cause == null ? new DeadlineExceededException(deadline.getTimeout(), request) : new DeadlineExceededException(deadline.getTimeout(), request, cause);
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+}
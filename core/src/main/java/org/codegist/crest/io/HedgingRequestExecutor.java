@@ -0,0 +1,319 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.config.MethodType;
+import org.codegist.crest.metrics.MetricsContext;
+import org.codegist.crest.security.oauth.CallCredentials;
+import org.codegist.crest.security.oauth.OAuthToken;
+import org.codegist.crest.util.LatencyHistogram;
+import org.codegist.crest.util.SlidingWindowCounter;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>RequestExecutor implementation that hedges slow requests to cut tail latency.</p>
+ * <p>For each method config, the latencies of the successful requests are recorded. Once enough samples are known, the latency percentile is computed at most once per second, and if a request hasn't completed within the configured latency percentile, a duplicate request is fired and whichever response arrives first is returned. The loser is aborted through its {@link org.codegist.crest.io.CallCancellation}, and its response, if it still completes, is disposed thus closing its underlying connection.</p>
+ * <p>The primary request runs on the calling thread, hedges run on a bounded pool of threads. Each attempt goes through the executors this one delegates to, ie the circuit breakers, concurrency limits and bulkheads. Only idempotent methods without entity are hedged, other requests are directly delegated. The amount of hedges is capped to a ratio of the requests made over a 10 seconds sliding window so that hedging can't multiply the load of a degraded server.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.config.MethodType#isIdempotent()
+ * @see org.codegist.crest.CRestBuilder#enableHedging(float, float)
+ */
+public class HedgingRequestExecutor implements RequestExecutor, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(HedgingRequestExecutor.class);
+    private static final int REQUESTS = 0;
+    private static final int HEDGES = 1;
+    private static final int MIN_SAMPLES = 20;
+    private static final int HEDGE_THREADS = 16;
+    private static final long THRESHOLD_REFRESH = 1000l;
+
+    private final RequestExecutor delegate;
+    private final ScheduledExecutorService scheduler;
+    private final float percentile;
+    private final float maxHedgeRatio;
+    private final int minSamples;
+    private final ConcurrentMap<MethodConfig, Latencies> latencies = new ConcurrentHashMap<MethodConfig, Latencies>();
+    private final SlidingWindowCounter window = new SlidingWindowCounter(2, 10, 1000);
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     * @param percentile latency percentile after which a request is hedged, between 0 and 1, ie 0.95
+     * @param maxHedgeRatio maximum hedges to requests ratio, ie 0.05 for hedges to represent at most 5% of the requests
+     */
+    public HedgingRequestExecutor(RequestExecutor delegate, float percentile, float maxHedgeRatio) {
+        this(delegate, new ScheduledThreadPoolExecutor(HEDGE_THREADS, new HedgingThreadFactory()), percentile, maxHedgeRatio, MIN_SAMPLES);
+    }
+
+    HedgingRequestExecutor(RequestExecutor delegate, ScheduledExecutorService scheduler, float percentile, float maxHedgeRatio, int minSamples) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.percentile = percentile;
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Response execute(Request request) throws Exception {
+        MethodConfig mc = request.getMethodConfig();
+        MethodType type = mc.getType();
+        if(!type.isIdempotent() || type.hasEntity()) {
+            return delegate.execute(request);
+        }
+
+        window.add(REQUESTS, 1);
+        Latencies methodLatencies = latenciesFor(mc);
+        long threshold = methodLatencies.getThreshold();
+        if(threshold < 0) {
+            long start = System.currentTimeMillis();
+            Response response = delegate.execute(request);
+            methodLatencies.record(System.currentTimeMillis() - start);
+            return response;
+        }
+
+        Race race = new Race();
+        Future<?> hedge = scheduler.schedule(new Hedge(request, methodLatencies, race, threshold), threshold, TimeUnit.MILLISECONDS);
+        CallCancellation previous = CallCancellation.get();
+        CallCancellation.set(race.primary);
+        long start = System.currentTimeMillis();
+        Response response;
+        try {
+            response = delegate.execute(request);
+        } catch (Exception e) {
+            /* failed or aborted, the hedge's response prevails if there's any */
+            if(hedge.cancel(false) || !race.awaitHedge()) {
+                throw e;
+            }
+            LOGGER.debug(e, "Primary attempt failed, returning the hedge's response");
+            Disposables.dispose(e);
+            return race.hedgeResponse;
+        } finally {
+            CallCancellation.set(previous);
+        }
+        methodLatencies.record(System.currentTimeMillis() - start);
+        hedge.cancel(false);
+        if(race.settled.compareAndSet(false, true)) {
+            race.hedge.cancel();
+            return response;
+        }
+        LOGGER.debug("Aborting losing attempt of %s", mc.getMethod());
+        Disposables.dispose(response);
+        race.awaitHedge();
+        return race.hedgeResponse;
+    }
+
+    private boolean canHedge() {
+        long[] sums = window.sums();
+        if(sums[HEDGES] < maxHedgeRatio * sums[REQUESTS]) {
+            window.add(HEDGES, 1);
+            hedgeCount.incrementAndGet();
+            return true;
+        }
+        suppressedCount.incrementAndGet();
+        return false;
+    }
+
+    private Latencies latenciesFor(MethodConfig mc) {
+        Latencies methodLatencies = latencies.get(mc);
+        if(methodLatencies == null) {
+            Latencies newLatencies = new Latencies();
+            methodLatencies = latencies.putIfAbsent(mc, newLatencies);
+            if(methodLatencies == null) {
+                methodLatencies = newLatencies;
+            }
+        }
+        return methodLatencies;
+    }
+
+    /**
+     * @return the amount of hedged requests fired
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * @return the amount of hedged requests that completed before their primary request
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    /**
+     * @return the amount of hedges not fired because the maximum hedge ratio was reached
+     */
+    public long getSuppressedHedgeCount() {
+        return suppressedCount.get();
+    }
+
+    public void dispose() {
+        scheduler.shutdownNow();
+        Disposables.dispose(delegate);
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        try {
+            dispose();
+        } finally {
+            super.finalize();
+        }
+    }
+
+    /* computing the percentile walks and copies the whole histogram, the threshold is only refreshed once per second, or on each sample until enough are known */
+    private final class Latencies {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong refreshedAt = new AtomicLong();
+        private volatile long threshold = -1;
+
+        private long getThreshold() {
+            long now = System.currentTimeMillis();
+            long refreshed = refreshedAt.get();
+            if(now - refreshed >= THRESHOLD_REFRESH && refreshedAt.compareAndSet(refreshed, now)) {
+                refresh();
+            }
+            return threshold;
+        }
+
+        private void record(long millis) {
+            histogram.record(millis);
+            if(threshold < 0) {
+                refresh();
+            }
+        }
+
+        private void refresh() {
+            threshold = histogram.getCount() >= minSamples ? histogram.getPercentile(percentile) : -1;
+        }
+    }
+
+    private static final class Race {
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private final CallCancellation primary = new CallCancellation();
+        private final CallCancellation hedge = new CallCancellation();
+        private final CountDownLatch hedgeDone = new CountDownLatch(1);
+        private volatile Response hedgeResponse;
+
+        /**
+         * @return whether the hedge won the race
+         */
+        private boolean awaitHedge() {
+            boolean interrupted = false;
+            try {
+                while(true) {
+                    try {
+                        hedgeDone.await();
+                        return hedgeResponse != null;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if(interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private final class Hedge implements Runnable {
+        private final Request request;
+        private final Latencies latencies;
+        private final Race race;
+        private final long threshold;
+        private final CallDeadline deadline;
+        private final OAuthToken credentials;
+        private final MetricsContext metricsContext;
+
+        private Hedge(Request request, Latencies latencies, Race race, long threshold) {
+            this.request = request;
+            this.latencies = latencies;
+            this.race = race;
+            this.threshold = threshold;
+            this.deadline = CallDeadline.get();
+            this.credentials = CallCredentials.get();
+            this.metricsContext = MetricsContext.get();
+        }
+
+        public void run() {
+            try {
+                if(!race.settled.get() && canHedge()) {
+                    LOGGER.debug("Request exceeded %dms, hedging %s", threshold, request.getMethodConfig().getMethod());
+                    hedge();
+                }
+            } finally {
+                race.hedgeDone.countDown();
+            }
+        }
+
+        private void hedge() {
+            long start = System.currentTimeMillis();
+            Response response;
+            CallDeadline.set(deadline);
+            CallCredentials.set(credentials);
+            CallCancellation.set(race.hedge);
+            MetricsContext.set(metricsContext);
+            try {
+                response = delegate.execute(request);
+            } catch (Exception e) {
+                LOGGER.debug(e, "Hedge failed");
+                /* a failure can carry a response that nobody else will dispose */
+                Disposables.dispose(e);
+                return;
+            } finally {
+                CallDeadline.clear();
+                CallCredentials.clear();
+                CallCancellation.clear();
+                MetricsContext.clear();
+            }
+            latencies.record(System.currentTimeMillis() - start);
+            if(race.settled.compareAndSet(false, true)) {
+                hedgeWinCount.incrementAndGet();
+                race.hedgeResponse = response;
+                race.primary.cancel();
+            } else {
+                LOGGER.debug("Aborting losing attempt of %s", request.getMethodConfig().getMethod());
+                Disposables.dispose(response);
+            }
+        }
+    }
+
+    private static final class HedgingThreadFactory implements ThreadFactory {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "crest-hedging-" + COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+/**
+ * Exception thrown when a request is rejected because its rate limit is exhausted
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.RateLimiter
+ */
+public class RateLimitExceededException extends RejectedRequestException {
+
+    private final long retryAfter;
+
+    /**
+     * @param retryAfter delay in milliseconds before a permit becomes available
+     * @param request the rejected request
+     */
+    public RateLimitExceededException(long retryAfter, Request request) {
+        super("Rate limit exceeded, next permit available in " + retryAfter + "ms", request);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return delay in milliseconds before a permit becomes available
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.config.RateLimitConfig;
+import org.codegist.crest.util.Responses;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.codegist.crest.io.http.HttpConstants.HTTP_TOO_MANY_REQUESTS;
+
+/**
+ * <p>RequestExecutor implementation that limits the rate of the requests of the methods configured with a rate limit.</p>
+ * <p>Limiters are shared by end-point, or specific to a method if configured so. When no permit is available, the request either waits for it, or fails fast with a {@link org.codegist.crest.io.RateLimitExceededException}, depending on the configured policy. A request never waits past its call's deadline: it fails fast with a {@link org.codegist.crest.io.DeadlineExceededException} if the permit comes too late.</p>
+ * <p>The server's responses are used as feedback: once it reports no remaining calls through the X-RateLimit-Remaining header, the limiter is suspended until the time given by the X-RateLimit-Reset header. A 429 response suspends it for the duration given by the Retry-After header, or one period if absent.</p>
+ * <p>Requests of methods not configured with a rate limit are directly delegated.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.config.MethodConfig#getRateLimit()
+ * @see org.codegist.crest.io.RateLimiter
+ */
+public class RateLimitRequestExecutor implements RequestExecutor, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(RateLimitRequestExecutor.class);
+    private static final String RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+    private static final String RATE_LIMIT_RESET = "X-RateLimit-Reset";
+    /* X-RateLimit-Reset values above this one are epoch seconds, delta seconds otherwise */
+    private static final long EPOCH_SECONDS_THRESHOLD = 1000000000l;
+    private static final long SECOND = 1000l;
+    private static final long MILLISECOND = 1000000l;
+
+    private final RequestExecutor delegate;
+    private final ConcurrentMap<String, RateLimiter> limiters = new ConcurrentHashMap<String, RateLimiter>();
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     */
+    public RateLimitRequestExecutor(RequestExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Response execute(Request request) throws Exception {
+        MethodConfig mc = request.getMethodConfig();
+        RateLimitConfig config = mc.getRateLimit();
+        if(config == null) {
+            return delegate.execute(request);
+        }
+
+        RateLimiter limiter = limiterFor(mc, config);
+        acquire(limiter, config, request);
+
+        Response response = delegate.execute(request);
+        onResponse(limiter, config, response);
+        return response;
+    }
+
+    /**
+     * @param name limiter name
+     * @return the limiter of the given name, null if no request went through it yet
+     */
+    public RateLimiter getLimiter(String name) {
+        return limiters.get(name);
+    }
+
+    private void acquire(RateLimiter limiter, RateLimitConfig config, Request request) throws RequestException {
+        long maxDelay;
+        switch (config.getPolicy()) {
+            case FAIL:
+                maxDelay = 0;
+                break;
+            case DELAY:
+                maxDelay = config.getMaxDelay() * MILLISECOND;
+                break;
+            default:
+                maxDelay = Long.MAX_VALUE;
+                break;
+        }
+        CallDeadline deadline = CallDeadline.get();
+        long delay = limiter.reserve(deadline != null ? Math.min(maxDelay, deadline.remaining() * MILLISECOND) : maxDelay);
+        if(delay < 0) {
+            if(deadline != null && limiter.getDelay() <= maxDelay) {
+                LOGGER.debug("Rate limit %s reached, next permit comes after the deadline (remaining=%dms)", limiter.getName(), deadline.remaining());
+                throw new DeadlineExceededException(deadline.getTimeout(), request);
+            }
+            long retryAfter = limiter.getDelay() / MILLISECOND;
+            LOGGER.debug("Rate limit %s exceeded, rejecting request (next permit in %dms)", limiter.getName(), retryAfter);
+            throw new RateLimitExceededException(retryAfter, request);
+        }
+        if(delay > 0) {
+            LOGGER.debug("Rate limit %s reached, delaying request by %dms", limiter.getName(), delay / MILLISECOND);
+            try {
+                Thread.sleep(delay / MILLISECOND, (int) (delay % MILLISECOND));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RequestException(e, request);
+            }
+        }
+    }
+
+    private void onResponse(RateLimiter limiter, RateLimitConfig config, Response response) throws Exception {
+        long suspendFor = -1;
+        if(response.getStatusCode() == HTTP_TOO_MANY_REQUESTS) {
+            suspendFor = Responses.getRetryAfter(response);
+            if(suspendFor < 0) {
+                suspendFor = getReset(response);
+            }
+            if(suspendFor < 0) {
+                suspendFor = config.getPeriod();
+            }
+        } else if(isExhausted(response)) {
+            suspendFor = getReset(response);
+        }
+        if(suspendFor >= 0) {
+            LOGGER.info("Server rate limit reached for %s, suspending requests for %dms", limiter.getName(), suspendFor);
+            limiter.suspendUntil(System.nanoTime() + suspendFor * MILLISECOND);
+        }
+    }
+
+    private static boolean isExhausted(Response response) throws Exception {
+        String value = response.getHeader(RATE_LIMIT_REMAINING);
+        if(value == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(value.trim()) <= 0;
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Ignoring invalid %s header value: %s", RATE_LIMIT_REMAINING, value);
+            return false;
+        }
+    }
+
+    private static long getReset(Response response) throws Exception {
+        String value = response.getHeader(RATE_LIMIT_RESET);
+        if(value == null) {
+            return -1;
+        }
+        try {
+            long reset = Long.parseLong(value.trim());
+            if(reset > EPOCH_SECONDS_THRESHOLD) {
+                return Math.max(reset * SECOND - System.currentTimeMillis(), 0);
+            }
+            return Math.max(reset * SECOND, 0);
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Ignoring invalid %s header value: %s", RATE_LIMIT_RESET, value);
+            return -1;
+        }
+    }
+
+    private RateLimiter limiterFor(MethodConfig mc, RateLimitConfig config) {
+        String name = config.isPerMethod() ? mc.getEndPoint() + "#" + mc.getMethod().toGenericString() : mc.getEndPoint();
+        RateLimiter limiter = limiters.get(name);
+        if(limiter == null) {
+            RateLimiter newLimiter = new RateLimiter(name, config);
+            limiter = limiters.putIfAbsent(name, newLimiter);
+            if(limiter == null) {
+                limiter = newLimiter;
+            }
+        }
+        return limiter;
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+}
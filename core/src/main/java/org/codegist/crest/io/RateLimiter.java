@@ -0,0 +1,142 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.RateLimitConfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Lock-free token bucket rate limiter.</p>
+ * <p>The bucket holds up to the configured amount of permits and is continuously refilled at the rate of one permit every period/permits. Rather than counting tokens, it tracks the theoretical time at which the bucket will be full again, so a permit is granted or reserved with a single compare-and-set.</p>
+ * <p>The limiter can be suspended until a given time, ie when the server reports that its own limit is exhausted. Permits are then only granted from that time on.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.RateLimitRequestExecutor
+ */
+public class RateLimiter {
+
+    private static final long MILLISECOND = 1000000l;
+
+    private final String name;
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong suspendedUntil = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong delayedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong suspendedCount = new AtomicLong();
+
+    /**
+     * @param name limiter name
+     * @param config limiter configuration
+     */
+    public RateLimiter(String name, RateLimitConfig config) {
+        this.name = name;
+        this.tolerance = config.getPeriod() * MILLISECOND;
+        this.interval = Math.max(tolerance / Math.max(config.getPermits(), 1), 1);
+    }
+
+    /**
+     * Reserves a permit if it is available within the given maximum delay. The caller must wait for the returned delay before using the permit.
+     * @param maxDelay maximum delay in nanoseconds the caller accepts to wait
+     * @return the delay in nanoseconds before the reserved permit can be used, -1 if no permit is available within the given maximum delay
+     */
+    public long reserve(long maxDelay) {
+        return reserve(maxDelay, System.nanoTime());
+    }
+
+    /**
+     * Suspends the limiter until the given time
+     * @param until time in nanoseconds, as given by {@link System#nanoTime()}, until which no permit is granted
+     */
+    public void suspendUntil(long until) {
+        while(true) {
+            long current = suspendedUntil.get();
+            if(until <= current) {
+                return;
+            }
+            if(suspendedUntil.compareAndSet(current, until)) {
+                suspendedCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the delay in nanoseconds before the next permit is available
+     */
+    public long getDelay() {
+        return getDelay(System.nanoTime());
+    }
+
+    long reserve(long maxDelay, long now) {
+        while(true) {
+            long current = fullAt.get();
+            long start = Math.max(now, suspendedUntil.get());
+            long next = Math.max(current, start) + interval;
+            long delay = Math.max(next - tolerance, start) - now;
+            if(delay > maxDelay) {
+                rejectedCount.incrementAndGet();
+                return -1;
+            }
+            if(fullAt.compareAndSet(current, next)) {
+                if(delay > 0) {
+                    delayedCount.incrementAndGet();
+                }
+                return delay;
+            }
+        }
+    }
+
+    long getDelay(long now) {
+        long start = Math.max(now, suspendedUntil.get());
+        long next = Math.max(fullAt.get(), start) + interval;
+        return Math.max(next - tolerance, start) - now;
+    }
+
+    /**
+     * @return the limiter name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the amount of permits that had to wait before being used
+     */
+    public long getDelayedCount() {
+        return delayedCount.get();
+    }
+
+    /**
+     * @return the amount of permits refused
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return the amount of times the limiter has been suspended following the server's feedback
+     */
+    public long getSuspendedCount() {
+        return suspendedCount.get();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+/**
+ * Exception thrown when a request is rejected on the client side before reaching the server, ie by an open circuit breaker or an exhausted rate limit. Such requests are not worth retrying.
+ * @author laurent.gilles@codegist.org
+ */
+public class RejectedRequestException extends RequestException {
+
+    private final Request request;
+
+    /**
+     * @param message exception message
+     * @param request the rejected request
+     */
+    public RejectedRequestException(String message, Request request) {
+        super(message, (Response) null);
+        this.request = request;
+    }
+
+    @Override
+    public Request getRequest() {
+        return request;
+    }
+}
@@ -30,13 +30,23 @@ import org.codegist.common.lang.Disposables;
 public class RequestException extends Exception implements Disposable {
 
     private final Response response;
+    private final Request request;
 
     /**
      * @param e original error
      */
     public RequestException(Throwable e) {
+        this(e, null);
+    }
+
+    /**
+     * @param e original error
+     * @param request the failed request, can be null
+     */
+    public RequestException(Throwable e, Request request) {
         super(e);
         this.response = null;
+        this.request = request;
     }
 
     /**
@@ -46,6 +56,7 @@ public class RequestException extends Exception implements Disposable {
     public RequestException(String message, Response response) {
         super(message);
         this.response = response;
+        this.request = null;
     }
 
     /**
@@ -64,6 +75,16 @@ public class RequestException extends Exception implements Disposable {
         return response;
     }
 
+    /**
+     * @return the failed request if known, otherwise the underlying response's request, can be null
+     */
+    public Request getRequest() {
+        if(request != null) {
+            return request;
+        }
+        return hasResponse() ? response.getRequest() : null;
+    }
+
     /**
      * Dispose underlying response if applicable
      */
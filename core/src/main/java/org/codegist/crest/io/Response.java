@@ -44,6 +44,13 @@ public interface Response extends Disposable {
 
     String getContentEncoding() throws Exception;
 
+    /**
+     * @param name response header name
+     * @return the first value of the given response header, null if not present
+     * @throws Exception Any exception thrown during transaction
+     */
+    String getHeader(String name) throws Exception;
+
     /**
      * @return expected method generic return type
      */
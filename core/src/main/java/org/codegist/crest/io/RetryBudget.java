@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.util.SlidingWindowCounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Caps the amount of retries relatively to the amount of requests issued over a sliding time window.</p>
+ * <p>Retries are allowed as long as the retries made within the window stay below the configured ratio of the requests made within the same window, plus a minimum amount of retries per second so that low-traffic clients can still retry.</p>
+ * <p>Once exceeded, retries are suppressed until the window slides, preventing retry storms from multiplying the load of an already degraded server.</p>
+ * <p>A single instance can be shared across several <b>CRest</b> instances to enforce a process-wide budget, see {@link RetryBudget#getDefault()}.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.RetryingRequestExecutor
+ * @see org.codegist.crest.CRestBuilder#setRetryBudget(RetryBudget)
+ */
+public class RetryBudget {
+
+    private static final RetryBudget DEFAULT = new RetryBudget(0.1f, 10, 10);
+    private static final int REQUESTS = 0;
+    private static final int RETRIES = 1;
+    private static final long SECOND = 1000l;
+
+    private final float ratio;
+    private final int minRetriesPerSecond;
+    private final int windowSeconds;
+    private final SlidingWindowCounter window;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * @param ratio maximum retries to requests ratio, ie 0.1 for retries to represent at most 10% of the requests
+     * @param minRetriesPerSecond minimum retries per second always allowed regardless of the ratio
+     * @param windowSeconds duration of the sliding window in seconds
+     */
+    public RetryBudget(float ratio, int minRetriesPerSecond, int windowSeconds) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.windowSeconds = windowSeconds;
+        this.window = new SlidingWindowCounter(2, windowSeconds, SECOND);
+    }
+
+    /**
+     * @return the process-wide budget used by default by all <b>CRest</b> instances, allowing retries up to 10% of the requests with a minimum of 10 retries per second over a 10 seconds window.
+     */
+    public static RetryBudget getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Records a new request, increasing the retry allowance
+     */
+    public void onRequest() {
+        requestCount.incrementAndGet();
+        window.add(REQUESTS, 1);
+    }
+
+    /**
+     * Consumes a retry from the allowance if any is left. The retry is recorded first and given back if it exceeds the allowance, so that concurrent callers can not overshoot it. Suppressed retries are recorded.
+     * @return true if a retry can be made
+     */
+    public boolean tryAcquireRetry() {
+        long now = System.currentTimeMillis();
+        window.add(RETRIES, 1, now);
+        long allowed = (long) (minRetriesPerSecond * windowSeconds + ratio * window.sum(REQUESTS, now));
+        if(window.sum(RETRIES, now) <= allowed) {
+            retryCount.incrementAndGet();
+            return true;
+        }
+        window.add(RETRIES, -1, now);
+        suppressedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return the total amount of requests recorded
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the total amount of retries recorded
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return the total amount of retries suppressed because the budget was exceeded
+     */
+    public long getSuppressedRetryCount() {
+        return suppressedCount.get();
+    }
+
+    public float getRatio() {
+        return ratio;
+    }
+
+    public int getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+}
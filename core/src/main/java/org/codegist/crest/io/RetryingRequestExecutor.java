@@ -20,25 +20,74 @@
 
 package org.codegist.crest.io;
 
+import org.codegist.common.lang.Disposable;
 import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.CRestEventListener;
+import org.codegist.crest.NoOpCRestEventListener;
+import org.codegist.crest.handler.DelayingRetryHandler;
 import org.codegist.crest.handler.RetryHandler;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.NoOpMetricsCollector;
 
 /**
  * <p>RequestExecutor implementation that used the request method config's retry handler to decides whether a failed request should be retried or not.</p>
+ * <p>If a retry budget is given, retries are suppressed once it is exceeded, whatever the retry handler decides. The delay of a {@link org.codegist.crest.handler.DelayingRetryHandler} is only waited for once the budget allowed the retry.</p>
+ * <p>Retries are also suppressed once the call's deadline expired, if any.</p>
+ * <p>Retries are reported to the given metrics collector and event listener.</p>
  * @author laurent.gilles@codegist.org
  * @see org.codegist.crest.config.MethodConfig#getRetryHandler() 
+ * @see org.codegist.crest.io.RetryBudget
+ * @see org.codegist.crest.io.CallDeadline
  */
-public class RetryingRequestExecutor implements RequestExecutor {
+public class RetryingRequestExecutor implements RequestExecutor, Disposable {
 
+    private static final Logger LOGGER = Logger.getLogger(RetryingRequestExecutor.class);
     private final RequestExecutor delegate;
     private final int minErrorStatusCode;
+    private final RetryBudget retryBudget;
+    private final MetricsCollector metricsCollector;
+    private final CRestEventListener eventListener;
 
     /**
      * @param delegate request executor to delegate the requests execution to
      */
     public RetryingRequestExecutor(RequestExecutor delegate, int minErrorStatusCode) {
+        this(delegate, minErrorStatusCode, null);
+    }
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     * @param minErrorStatusCode minimum status code considered as a failure
+     * @param retryBudget retry budget to consume retries from, can be null for unbounded retries
+     */
+    public RetryingRequestExecutor(RequestExecutor delegate, int minErrorStatusCode, RetryBudget retryBudget) {
+        this(delegate, minErrorStatusCode, retryBudget, new NoOpMetricsCollector());
+    }
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     * @param minErrorStatusCode minimum status code considered as a failure
+     * @param retryBudget retry budget to consume retries from, can be null for unbounded retries
+     * @param metricsCollector metrics collector to report the retries to
+     */
+    public RetryingRequestExecutor(RequestExecutor delegate, int minErrorStatusCode, RetryBudget retryBudget, MetricsCollector metricsCollector) {
+        this(delegate, minErrorStatusCode, retryBudget, metricsCollector, new NoOpCRestEventListener());
+    }
+
+    /**
+     * @param delegate request executor to delegate the requests execution to
+     * @param minErrorStatusCode minimum status code considered as a failure
+     * @param retryBudget retry budget to consume retries from, can be null for unbounded retries
+     * @param metricsCollector metrics collector to report the retries to
+     * @param eventListener event listener to notify the scheduled retries to
+     */
+    public RetryingRequestExecutor(RequestExecutor delegate, int minErrorStatusCode, RetryBudget retryBudget, MetricsCollector metricsCollector, CRestEventListener eventListener) {
         this.delegate = delegate;
         this.minErrorStatusCode = minErrorStatusCode;
+        this.retryBudget = retryBudget;
+        this.metricsCollector = metricsCollector;
+        this.eventListener = eventListener;
     }
 
     /**
@@ -49,6 +98,10 @@ public class RetryingRequestExecutor implements RequestExecutor {
         RequestException exception = null;
         Response response;
         int attemptCount = 1;
+        long delay = 0;
+        if(retryBudget != null) {
+            retryBudget.onRequest();
+        }
         do {
             Disposables.dispose(exception);
             response = null;
@@ -62,7 +115,7 @@ public class RetryingRequestExecutor implements RequestExecutor {
             } catch (RequestException e) {
                 exception = e;
             }
-        }while(retryHandler.retry(exception, ++attemptCount));
+        }while((delay = retry(request, retryHandler, exception, ++attemptCount, delay)) >= 0);
 
         // if response is not null after all retries attempts have been exhausted (status code >= 400), then return the response
         if(response != null) {
@@ -71,4 +124,71 @@ public class RetryingRequestExecutor implements RequestExecutor {
 
         throw exception;
     }
+
+    /**
+     * @return the delay waited for before retrying, negative not to retry
+     */
+    private long retry(Request request, RetryHandler retryHandler, RequestException exception, int attemptNumber, long previousDelay) throws Exception {
+        long delay = canRetry(retryHandler, exception, attemptNumber, previousDelay);
+        if(delay < 0) {
+            return -1;
+        }
+        metricsCollector.onRetry(request.getMethodConfig(), attemptNumber);
+        eventListener.retryScheduled(request, attemptNumber, System.nanoTime());
+        if(delay > 0 && !sleep(delay)) {
+            LOGGER.debug("Interrupted while waiting to retry (attempt=%d)", attemptNumber);
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * @return the delay to wait for before retrying, negative not to retry
+     */
+    private long canRetry(RetryHandler retryHandler, RequestException exception, int attemptNumber, long previousDelay) throws Exception {
+        CallDeadline deadline = CallDeadline.get();
+        if(deadline != null && deadline.isExpired()) {
+            LOGGER.debug("Deadline exceeded, not retrying (attempt=%d)", attemptNumber);
+            return -1;
+        }
+        if(exception instanceof DeadlineExceededException) {
+            return -1;
+        }
+        long delay;
+        try {
+            if(retryHandler instanceof DelayingRetryHandler) {
+                /* decides without waiting, so that a retry suppressed by the budget does not block the caller */
+                delay = ((DelayingRetryHandler) retryHandler).getRetryDelay(exception, attemptNumber, previousDelay);
+            } else {
+                delay = retryHandler.retry(exception, attemptNumber) ? 0 : -1;
+            }
+        } catch (DeadlineExceededException e) {
+            /* the handler won't wait past the deadline, the failed attempt is dropped */
+            Disposables.dispose(exception);
+            throw e;
+        }
+        if(delay < 0) {
+            return -1;
+        }
+        /* only retries the handler asked for consume the budget */
+        if(retryBudget != null && !retryBudget.tryAcquireRetry()) {
+            LOGGER.debug("Retry budget exceeded, not retrying (attempt=%d)", attemptNumber);
+            return -1;
+        }
+        return delay;
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+
+    private static boolean sleep(long delay) {
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Consistent hash ring of members.</p>
+ * <p>Each member is placed on the ring at a fixed amount of virtual node positions derived from its url, and a key is owned by the member of the first virtual node found clockwise from the key position. Adding or removing a member then only remaps the keys it owns or gains, and the virtual nodes spread the keys evenly across the members.</p>
+ * <p>The ring is immutable and must be rebuilt on membership changes.</p>
+ * @author laurent.gilles@codegist.org
+ */
+final class ConsistentHashRing {
+
+    static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325l;
+    private static final long FNV_PRIME = 0x100000001b3l;
+
+    private final long[] positions;
+    private final Member[] owners;
+
+    /**
+     * @param members ring members
+     * @param virtualNodes amount of virtual nodes per member
+     */
+    ConsistentHashRing(List<Member> members, int virtualNodes) {
+        int size = members.size() * virtualNodes;
+        Node[] nodes = new Node[size];
+        int i = 0;
+        for(Member member : members) {
+            for(int vn = 0; vn < virtualNodes; vn++) {
+                nodes[i++] = new Node(hash(member.getUrl() + "#" + vn), member);
+            }
+        }
+        Arrays.sort(nodes);
+        this.positions = new long[size];
+        this.owners = new Member[size];
+        for(i = 0; i < size; i++) {
+            positions[i] = nodes[i].position;
+            owners[i] = nodes[i].member;
+        }
+    }
+
+    /**
+     * Gets the member owning the given key, skipping the ejected members if any. If all the members are ejected, the key owner is returned.
+     * @param key key to get the owner of
+     * @return the key owner
+     */
+    Member get(String key) {
+        int index = Arrays.binarySearch(positions, hash(key));
+        if(index < 0) {
+            index = -index - 1;
+        }
+        int size = owners.length;
+        if(index == size) {
+            index = 0;
+        }
+        for(int i = 0; i < size; i++) {
+            Member member = owners[(index + i) % size];
+            if(!member.isEjected()) {
+                return member;
+            }
+        }
+        return owners[index];
+    }
+
+    /**
+     * 64 bits FNV-1a hash, followed by a final avalanche mix so that close strings get far apart positions
+     */
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for(int i = 0, length = value.length(); i < length; i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdl;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53l;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Node implements Comparable<Node> {
+        private final long position;
+        private final Member member;
+
+        private Node(long position, Member member) {
+            this.position = position;
+            this.member = member;
+        }
+
+        public int compareTo(Node o) {
+            if(position != o.position) {
+                return position < o.position ? -1 : 1;
+            }
+            return member.getUrl().compareTo(o.member.getUrl());
+        }
+    }
+}
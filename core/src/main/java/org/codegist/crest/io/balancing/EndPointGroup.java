@@ -0,0 +1,256 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import org.codegist.common.lang.Validate;
+import org.codegist.common.log.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Group of members a logical end-point is balanced across.</p>
+ * <p>Members are passively ejected from the balancing once they fail the configured amount of requests in a row, and reinstated once the ejection time has elapsed. Each consecutive ejection of the same member lasts longer, up to ten times the configured ejection time. At most half of the members can be ejected at once, and all the members are used if none is available.</p>
+ * <p>Requests carrying a shard key are routed using a {@link org.codegist.crest.io.balancing.ConsistentHashRing} rather than the load balancer, so that the same key always goes to the same member while it is available. Keys of an ejected member are temporarily routed to the next member on the ring.</p>
+ * <p>Membership can be loaded from a local file, listing a member base url per line (blank lines and lines starting with # are ignored). The file is checked for changes at most once per second, and reloaded without affecting the state of the members that remain.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.http.LoadBalancingHttpChannelFactory
+ */
+public class EndPointGroup {
+
+    private static final Logger LOGGER = Logger.getLogger(EndPointGroup.class);
+    private static final long MILLISECOND = 1000000l;
+    private static final long RELOAD_CHECK_INTERVAL = 1000 * MILLISECOND;
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+    private static final String COMMENT = "#";
+
+    private final String name;
+    private final LoadBalancer loadBalancer;
+    private final int ejectionThreshold;
+    private final long ejectionTime;
+    private final File file;
+    private volatile List<Member> members;
+    private volatile ConsistentHashRing ring;
+    private volatile int ejectedCount;
+    private volatile long nextReloadCheck;
+    private long lastModified;
+
+    /**
+     * @param name logical end-point the group stands for
+     * @param members members base urls
+     * @param loadBalancer balancing strategy
+     * @param ejectionThreshold amount of requests a member must fail in a row to get ejected, 0 to disable ejection
+     * @param ejectionTime ejection duration in milliseconds
+     */
+    public EndPointGroup(String name, List<String> members, LoadBalancer loadBalancer, int ejectionThreshold, int ejectionTime) {
+        this(name, loadBalancer, ejectionThreshold, ejectionTime, null);
+        Validate.isFalse(members.isEmpty(), "End-point group %s has no member!", name);
+        setMembers(members);
+    }
+
+    /**
+     * @param name logical end-point the group stands for
+     * @param file file listing the members base urls
+     * @param loadBalancer balancing strategy
+     * @param ejectionThreshold amount of requests a member must fail in a row to get ejected, 0 to disable ejection
+     * @param ejectionTime ejection duration in milliseconds
+     * @throws IOException if the file can't be read
+     */
+    public EndPointGroup(String name, File file, LoadBalancer loadBalancer, int ejectionThreshold, int ejectionTime) throws IOException {
+        this(name, loadBalancer, ejectionThreshold, ejectionTime, file);
+        List<String> members = read(file);
+        Validate.isFalse(members.isEmpty(), "End-point group %s has no member listed in %s!", name, file);
+        this.lastModified = file.lastModified();
+        this.nextReloadCheck = System.nanoTime() + RELOAD_CHECK_INTERVAL;
+        setMembers(members);
+    }
+
+    private EndPointGroup(String name, LoadBalancer loadBalancer, int ejectionThreshold, int ejectionTime, File file) {
+        this.name = name;
+        this.loadBalancer = loadBalancer;
+        this.ejectionThreshold = ejectionThreshold;
+        this.ejectionTime = ejectionTime * MILLISECOND;
+        this.file = file;
+        this.members = Collections.emptyList();
+    }
+
+    /**
+     * Chooses the member to send a request to. The request outcome must then be reported with {@link EndPointGroup#onResponse(Member, long, boolean)}
+     * @return the chosen member
+     */
+    public Member choose() {
+        return choose(System.nanoTime());
+    }
+
+    /**
+     * Chooses the member to send a request carrying the given shard key to. Requests carrying the same key are sent to the same member as long as it is available. The request outcome must then be reported with {@link EndPointGroup#onResponse(Member, long, boolean)}
+     * @param shardKey request shard key, if null the member is chosen by the load balancer
+     * @return the chosen member
+     */
+    public Member choose(String shardKey) {
+        return choose(shardKey, System.nanoTime());
+    }
+
+    /**
+     * Reports a request outcome
+     * @param member member the request has been sent to
+     * @param rtt request round-trip time in nanoseconds
+     * @param failed whether the request failed
+     */
+    public void onResponse(Member member, long rtt, boolean failed) {
+        onResponse(member, rtt, failed, System.nanoTime());
+    }
+
+    /**
+     * Replaces the group members. Members that remain keep their state.
+     * @param urls new members base urls
+     */
+    public synchronized void setMembers(List<String> urls) {
+        if(urls.isEmpty()) {
+            LOGGER.warn("Ignoring empty membership of %s", name);
+            return;
+        }
+        Map<String, Member> current = new HashMap<String, Member>();
+        for(Member member : members) {
+            current.put(member.getUrl(), member);
+        }
+        List<Member> updated = new ArrayList<Member>(urls.size());
+        int ejected = 0;
+        for(String url : urls) {
+            Member member = current.get(url);
+            if(member == null) {
+                member = new Member(url);
+            } else if(member.isEjected()) {
+                ejected++;
+            }
+            updated.add(member);
+        }
+        members = Collections.unmodifiableList(updated);
+        ring = new ConsistentHashRing(updated, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        ejectedCount = ejected;
+        LOGGER.info("Members of %s are now %s", name, urls);
+    }
+
+    Member choose(long now) {
+        return choose(null, now);
+    }
+
+    Member choose(String shardKey, long now) {
+        if(file != null && now - nextReloadCheck >= 0) {
+            reloadIfModified(now);
+        }
+        List<Member> members = this.members;
+        if(ejectedCount > 0) {
+            members = available(members, now);
+        }
+        Member member = shardKey != null ? ring.get(shardKey) : loadBalancer.choose(members);
+        member.onStart();
+        return member;
+    }
+
+    void onResponse(Member member, long rtt, boolean failed, long now) {
+        member.onComplete(rtt, failed);
+        if(failed && ejectionThreshold > 0 && member.getConsecutiveFailures() >= ejectionThreshold && !member.isEjected()) {
+            eject(member, now);
+        }
+    }
+
+    private synchronized void eject(Member member, long now) {
+        if(member.isEjected() || ejectedCount >= members.size() / 2 || !members.contains(member)) {
+            return;
+        }
+        long duration = ejectionTime * Math.min(member.getEjectionCount() + 1, MAX_EJECTION_MULTIPLIER);
+        member.eject(now + duration);
+        ejectedCount++;
+        LOGGER.warn("Ejecting %s from %s for %dms after %d consecutive failures", member.getUrl(), name, duration / MILLISECOND, member.getConsecutiveFailures());
+    }
+
+    private synchronized List<Member> available(List<Member> members, long now) {
+        List<Member> available = new ArrayList<Member>(members.size());
+        for(Member member : members) {
+            if(member.isEjected() && now - member.getEjectedUntil() >= 0) {
+                member.reinstate();
+                ejectedCount--;
+                LOGGER.info("Reinstating %s in %s", member.getUrl(), name);
+            }
+            if(!member.isEjected()) {
+                available.add(member);
+            }
+        }
+        return available.isEmpty() ? members : available;
+    }
+
+    private synchronized void reloadIfModified(long now) {
+        if(now - nextReloadCheck < 0) {
+            return;
+        }
+        nextReloadCheck = now + RELOAD_CHECK_INTERVAL;
+        long modified = file.lastModified();
+        if(modified == lastModified) {
+            return;
+        }
+        lastModified = modified;
+        try {
+            setMembers(read(file));
+        } catch (IOException e) {
+            LOGGER.warn(e, "Failed to reload members of %s from %s, keeping current ones", name, file);
+        }
+    }
+
+    private static List<String> read(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            List<String> urls = new ArrayList<String>();
+            String line;
+            while((line = reader.readLine()) != null) {
+                line = line.trim();
+                if(line.length() > 0 && !line.startsWith(COMMENT)) {
+                    urls.add(line);
+                }
+            }
+            return urls;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return logical end-point the group stands for
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return current members
+     */
+    public List<Member> getMembers() {
+        return members;
+    }
+}
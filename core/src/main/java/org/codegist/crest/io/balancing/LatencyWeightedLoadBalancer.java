@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+/**
+ * <p>Latency-weighted power-of-two-choices strategy.</p>
+ * <p>Same as {@link org.codegist.crest.io.balancing.LeastOutstandingLoadBalancer}, but the outstanding requests are weighted by the member's moving average round-trip time, so that slower members get proportionally less traffic. Members without any completed request yet are considered as the fastest ones, so that they get probed.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class LatencyWeightedLoadBalancer extends LeastOutstandingLoadBalancer {
+
+    @Override
+    protected double cost(Member member) {
+        return (double) member.getLatency() * (member.getOutstanding() + 1);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Power-of-two-choices least-outstanding-requests strategy.</p>
+ * <p>Picks two distinct members at random and sends the request to the one with the fewer outstanding requests. This gets most of the benefit of always picking the least loaded member, without scanning all of them nor herding all the clients onto the same one.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class LeastOutstandingLoadBalancer implements LoadBalancer {
+
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>(){
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /**
+     * @inheritDoc
+     */
+    public Member choose(List<Member> members) {
+        int size = members.size();
+        if(size == 1) {
+            return members.get(0);
+        }
+        Random random = RANDOM.get();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if(second >= first) {
+            second++;
+        }
+        Member a = members.get(first);
+        Member b = members.get(second);
+        return cost(b) < cost(a) ? b : a;
+    }
+
+    /**
+     * @param member member
+     * @return the cost of sending a request to the given member, the lower the better
+     */
+    protected double cost(Member member) {
+        return member.getOutstanding();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import java.util.List;
+
+/**
+ * <p>Strategy choosing which member of an end-point group a request is sent to.</p>
+ * <p>Implementations must be thread-safe. They can either declare a default constructor, or a constructor accepting a {@link org.codegist.crest.CRestConfig}.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRestBuilder#setLoadBalancer(Class)
+ */
+public interface LoadBalancer {
+
+    /**
+     * @param members available members, never empty
+     * @return the member to send the request to
+     */
+    Member choose(List<Member> members);
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import org.codegist.common.lang.ToStringBuilder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Member of an {@link org.codegist.crest.io.balancing.EndPointGroup}, ie one of the servers a logical end-point is balanced across.</p>
+ * <p>Keeps track of the member's outstanding requests, its round-trip time as an exponentially weighted moving average, and its ejection state. Statistics are updated without locking and can lose concurrent updates, which is harmless for balancing purposes.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class Member {
+
+    /* each sample accounts for 1/8th of the average, as for TCP's smoothed round-trip time */
+    private static final int LATENCY_DECAY = 8;
+
+    private final String url;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private volatile long latency;
+    private volatile int consecutiveFailures;
+    private volatile long ejectedUntil;
+    private volatile int ejectionCount;
+
+    /**
+     * @param url member base url
+     */
+    public Member(String url) {
+        this.url = url;
+    }
+
+    void onStart() {
+        outstanding.incrementAndGet();
+        requestCount.incrementAndGet();
+    }
+
+    void onComplete(long rtt, boolean failed) {
+        outstanding.decrementAndGet();
+        long current = latency;
+        latency = current == 0 ? rtt : current + (rtt - current) / LATENCY_DECAY;
+        if(failed) {
+            failureCount.incrementAndGet();
+            consecutiveFailures++;
+        } else {
+            consecutiveFailures = 0;
+            ejectionCount = 0;
+        }
+    }
+
+    void eject(long until) {
+        ejectionCount++;
+        ejectedUntil = until;
+    }
+
+    void reinstate() {
+        ejectedUntil = 0;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * @return member base url
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the amount of requests sent to the member and not yet responded
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return the member moving average round-trip time in nanoseconds, 0 if no request completed yet
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the amount of requests sent to the member
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the amount of requests that failed
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * @return the amount of requests that failed in a row
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the amount of times the member has been ejected in a row, without any successful request in between
+     */
+    public int getEjectionCount() {
+        return ejectionCount;
+    }
+
+    /**
+     * @return whether the member is currently ejected from the balancing
+     */
+    public boolean isEjected() {
+        return ejectedUntil != 0;
+    }
+
+    long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("url", url)
+                .append("outstanding", getOutstanding())
+                .append("latency", latency)
+                .append("ejected", isEjected())
+                .toString();
+    }
+}
@@ -20,15 +20,12 @@
 
 package org.codegist.crest.io.http;
 
-import org.codegist.common.io.IOs;
 import org.codegist.crest.CRestException;
 import org.codegist.crest.config.MethodType;
 import org.codegist.crest.param.EncodedPair;
 import org.codegist.crest.security.Authorization;
 import org.codegist.crest.security.AuthorizationToken;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
@@ -72,14 +69,33 @@ class AuthorizationHttpChannel implements HttpChannel {
     }
 
     public Response send() throws IOException {
-        if(hasEntityParamExtrator()) {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            httpEntityWriter.writeEntityTo(out);
-            List<EncodedPair> entityParams = entityParamExtrators.get(contentType).extract(fullContentType, charset, new ByteArrayInputStream(out.toByteArray()));
-            this.parameters.addAll(entityParams);
+        RewritableHttpEntityWriter rewritable = httpEntityWriter instanceof RewritableHttpEntityWriter ? (RewritableHttpEntityWriter) httpEntityWriter : null;
+        try {
+            if(rewritable != null) {
+                // the entity is serialized once, the extractor reads it from the very buffer it is then sent from
+                extractEntityParams(rewritable.getEntity());
+            } else if(httpEntityWriter != null && hasEntityParamExtrator()) {
+                // content type set after the entity writer, the entity gets serialized twice
+                EntityBuffer entity = new EntityBuffer();
+                try {
+                    httpEntityWriter.writeEntityTo(entity);
+                    extractEntityParams(entity);
+                } finally {
+                    entity.release();
+                }
+            }
+            authenticate();
+            return this.delegate.send();
+        } finally {
+            if(rewritable != null) {
+                rewritable.release();
+            }
         }
-        authenticate();
-        return this.delegate.send();
+    }
+
+    private void extractEntityParams(EntityBuffer entity) throws IOException {
+        List<EncodedPair> entityParams = entityParamExtrators.get(contentType).extract(fullContentType, charset, entity.getInputStream());
+        this.parameters.addAll(entityParams);
     }
 
     private void authenticate() throws IOException {
@@ -144,6 +160,13 @@ class AuthorizationHttpChannel implements HttpChannel {
         this.delegate.setConnectionTimeout(timeout);
     }
 
+    /**
+     * @inheritDoc
+     */
+    public void abort() {
+        this.delegate.abort();
+    }
+
     private boolean hasEntityParamExtrator(){
         return entityParamExtrators.containsKey(contentType);
     }
@@ -152,26 +175,58 @@ class AuthorizationHttpChannel implements HttpChannel {
 
         private final HttpEntityWriter delegate;
         private Integer contentLength;
-        private byte[] entityContent;
+        private EntityBuffer entity;
+        private boolean released;
 
         private RewritableHttpEntityWriter(HttpEntityWriter delegate) {
             this.delegate = delegate;
         }
 
+        private EntityBuffer getEntity() throws IOException {
+            if(entity == null) {
+                EntityBuffer buffer = new EntityBuffer();
+                try {
+                    delegate.writeEntityTo(buffer);
+                } catch (IOException e) {
+                    buffer.release();
+                    throw e;
+                } catch (RuntimeException e) {
+                    buffer.release();
+                    throw e;
+                }
+                this.entity = buffer;
+            }
+            return entity;
+        }
+
         public void writeEntityTo(OutputStream out) throws IOException {
-            if(entityContent == null) {
-                ByteArrayOutputStream cache = new ByteArrayOutputStream();
-                delegate.writeEntityTo(cache);
-                this.entityContent = cache.toByteArray();
+            if(released) {
+                // written again once sent, the buffer is gone
+                delegate.writeEntityTo(out);
+            } else {
+                getEntity().writeTo(out);
             }
-            IOs.copy(new ByteArrayInputStream(entityContent), out);
         }
 
         public int getContentLength() {
             if(contentLength == null) {
-                contentLength = delegate.getContentLength();
+                int length = delegate.getContentLength();
+                contentLength = length < 0 && entity != null ? entity.size() : length;
             }
             return contentLength;
         }
+
+        public boolean isRepeatable() {
+            /* repeatable from the buffer until sent, then only if the delegate is */
+            return !released || delegate.isRepeatable();
+        }
+
+        private void release() {
+            if(entity != null) {
+                entity.release();
+                entity = null;
+            }
+            released = true;
+        }
     }
 }
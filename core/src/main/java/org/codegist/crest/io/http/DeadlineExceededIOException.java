@@ -0,0 +1,49 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Exception thrown when the response entity is read past the call's deadline, once the underlying connection has been aborted.
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.CallDeadline
+ * @see org.codegist.crest.io.DeadlineExceededException
+ */
+public class DeadlineExceededIOException extends InterruptedIOException {
+
+    private final long deadline;
+
+    /**
+     * @param deadline the deadline in milliseconds that has been exceeded
+     */
+    public DeadlineExceededIOException(long deadline) {
+        super("Deadline of " + deadline + "ms exceeded");
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return the deadline in milliseconds that has been exceeded
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+}
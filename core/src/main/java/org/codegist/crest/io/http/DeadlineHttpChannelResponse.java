@@ -0,0 +1,125 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.util.TimerWheel;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * HttpChannel's response whose channel gets aborted by a timeout once the call's deadline is reached. The timeout is cancelled when the response is closed. Entity reads failing because of the abort are reported with a {@link org.codegist.crest.io.http.DeadlineExceededIOException}.
+ * @author laurent.gilles@codegist.org
+ */
+class DeadlineHttpChannelResponse implements HttpChannel.Response {
+
+    private final HttpChannel.Response delegate;
+    private final TimerWheel.Timeout timeout;
+    private final long deadline;
+
+    DeadlineHttpChannelResponse(HttpChannel.Response delegate, TimerWheel.Timeout timeout, long deadline) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        this.deadline = deadline;
+    }
+
+    public InputStream getEntity() throws IOException {
+        try {
+            InputStream entity = delegate.getEntity();
+            return entity != null ? new DeadlineInputStream(entity) : null;
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    public int getStatusCode() throws IOException {
+        try {
+            return delegate.getStatusCode();
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    public String getStatusMessage() throws IOException {
+        return delegate.getStatusMessage();
+    }
+
+    public String getContentType() throws IOException {
+        return delegate.getContentType();
+    }
+
+    public String getContentEncoding() throws IOException {
+        return delegate.getContentEncoding();
+    }
+
+    public String getHeader(String name) throws IOException {
+        return delegate.getHeader(name);
+    }
+
+    public void close() throws IOException {
+        timeout.cancel();
+        delegate.close();
+    }
+
+    private IOException translate(IOException e) {
+        if(!timeout.isExpired() || e instanceof DeadlineExceededIOException) {
+            return e;
+        }
+        IOException exceeded = new DeadlineExceededIOException(deadline);
+        exceeded.initCause(e);
+        return exceeded;
+    }
+
+    private final class DeadlineInputStream extends FilterInputStream {
+
+        private DeadlineInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                return super.skip(n);
+            } catch (IOException e) {
+                throw translate(e);
+            }
+        }
+    }
+}
@@ -58,6 +58,10 @@ class DelegatingResponse implements Response {
         return delegate.getContentEncoding();
     }
 
+    public String getHeader(String name) throws Exception {
+        return delegate.getHeader(name);
+    }
+
     public Type getExpectedGenericType() {
         return delegate.getExpectedGenericType();
     }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>In-memory copy of a request entity, written once and then read or written out as many times as needed without being copied again.</p>
+ * <p>The backing arrays come from a small pool shared by all the buffers, and go back to it once the buffer is released. Only arrays up to 64KB are pooled, bigger ones are left to the garbage collector.</p>
+ * @author laurent.gilles@codegist.org
+ */
+final class EntityBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int MAX_POOLED_CAPACITY = 65536;
+    private static final int MAX_POOLED = 16;
+    private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<byte[]>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    EntityBuffer() {
+        super(0);
+        byte[] pooled = POOL.poll();
+        if(pooled != null) {
+            POOLED.decrementAndGet();
+            this.buf = pooled;
+        } else {
+            this.buf = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * @return a stream reading the buffered bytes, only valid until the buffer is released
+     */
+    synchronized InputStream getInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    /**
+     * Gives the backing array back to the pool. The buffer must not be used anymore.
+     */
+    synchronized void release() {
+        byte[] released = buf;
+        buf = null;
+        count = 0;
+        if(released == null || released.length > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        if(POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(released);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+}
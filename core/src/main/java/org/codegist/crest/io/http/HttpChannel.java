@@ -88,6 +88,11 @@ public interface HttpChannel {
      */
     Response send() throws IOException;
 
+    /**
+     * Aborts the HTTP channel, releasing its underlying connection. Can be called from any thread at any time, making any pending or subsequent send or response entity read fail.
+     */
+    void abort();
+
     /**
      * HTTP Chanel's response
      */
@@ -128,5 +133,13 @@ public interface HttpChannel {
          */
         String getContentEncoding() throws IOException;
 
+        /**
+         * Returns the first value of the given HTTP response's header
+         * @param name the HTTP header name
+         * @return the HTTP header value, null if not present
+         * @throws IOException
+         */
+        String getHeader(String name) throws IOException;
+
     }
 }
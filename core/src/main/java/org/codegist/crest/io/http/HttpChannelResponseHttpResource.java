@@ -20,11 +20,10 @@
 
 package org.codegist.crest.io.http;
 
-import org.codegist.common.io.IOs;
 import org.codegist.common.log.Logger;
 import org.codegist.crest.io.Response;
 
-import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -37,6 +36,8 @@ import java.util.zip.GZIPInputStream;
 class HttpChannelResponseHttpResource implements HttpResource {
 
     private static final Logger RESPONSE_LOGGER = Logger.getLogger(Response.class);
+    /* maximum amount of bytes of the response entity traced */
+    private static final int MAX_TRACED_SIZE = 4096;
     private final HttpChannel.Response response;
     private final InputStream inputStream;
     private final String contentEncoding;
@@ -68,6 +69,10 @@ class HttpChannelResponseHttpResource implements HttpResource {
         return inputStream;
     }
 
+    public String getHeader(String name) throws IOException {
+        return response.getHeader(name);
+    }
+
     public String getStatusMessage() throws IOException {
         return response.getStatusMessage();
     }
@@ -86,10 +91,67 @@ class HttpChannelResponseHttpResource implements HttpResource {
         if(!RESPONSE_LOGGER.isTraceOn()) {
             return stream;
         } else {
-            byte[] dump = IOs.toByteArray(stream, true);
             RESPONSE_LOGGER.trace("Received Http Response");
-            RESPONSE_LOGGER.trace(new String(dump, charset));
-            return new ByteArrayInputStream(dump);
+            return new TracingInputStream(stream, charset);
+        }
+    }
+
+    /**
+     * Traces the first bytes of the entity as they are read by the deserializer, once fully read or closed, instead of buffering the whole entity upfront
+     */
+    private static final class TracingInputStream extends FilterInputStream {
+        private final WireRecord.Capture capture = new WireRecord.Capture(MAX_TRACED_SIZE);
+        private final Charset charset;
+        private boolean traced;
+
+        private TracingInputStream(InputStream in, Charset charset) {
+            super(in);
+            this.charset = charset;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if(b >= 0) {
+                capture.write(b);
+            } else {
+                trace();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if(n > 0) {
+                capture.write(b, off, n);
+            } else if(n < 0) {
+                trace();
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                trace();
+            }
+        }
+
+        private void trace() {
+            if(!traced) {
+                traced = true;
+                StringBuilder sb = new StringBuilder();
+                capture.appendTo(sb, charset);
+                RESPONSE_LOGGER.trace(sb.toString());
+            }
         }
     }
 
@@ -81,6 +81,11 @@ final class HttpClientHttpChannel implements HttpChannel {
         return new HttpClientResponse(request, client.execute(request));
     }
 
+    public void abort() {
+        LOGGER.trace("Abording Request...");
+        request.abort();
+    }
+
     private static final class HttpClientResponse implements Response {
 
         private final HttpUriRequest request;
@@ -97,16 +102,15 @@ final class HttpClientHttpChannel implements HttpChannel {
         }
 
         public String getContentType() {
-            Header header = response.getFirstHeader("Content-Type");
-            if(header != null) {
-                return header.getValue();
-            }else{
-                return null;
-            }
+            return getHeader("Content-Type");
         }
 
         public String getContentEncoding() {
-            Header header = response.getFirstHeader("Content-Encoding");
+            return getHeader("Content-Encoding");
+        }
+
+        public String getHeader(String name) {
+            Header header = response.getFirstHeader(name);
             if(header != null) {
                 return header.getValue();
             }else{
@@ -146,7 +150,7 @@ final class HttpClientHttpChannel implements HttpChannel {
         }
 
         public boolean isRepeatable() {
-            return false;
+            return writer.isRepeatable();
         }
 
         public long getContentLength() {
@@ -162,7 +166,7 @@ final class HttpClientHttpChannel implements HttpChannel {
         }
 
         public boolean isStreaming() {
-            return true;
+            return !writer.isRepeatable();
         }
     }
 
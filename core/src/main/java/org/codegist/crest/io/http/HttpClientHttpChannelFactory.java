@@ -20,20 +20,30 @@
 
 package org.codegist.crest.io.http;
 
+import org.apache.http.HttpHost;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.*;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRoute;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.params.HttpProtocolParams;
 import org.codegist.common.lang.Disposable;
+import org.codegist.common.log.Logger;
 import org.codegist.crest.CRestConfig;
 import org.codegist.crest.config.MethodType;
+import org.codegist.crest.io.ConcurrencyLimitListener;
 
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.charset.Charset;
 
 /**
- * Apache's {@link org.apache.http.client.HttpClient}-backed HttpChannelFactory implementation
+ * <p>Apache's {@link org.apache.http.client.HttpClient}-backed HttpChannelFactory implementation</p>
+ * <p>When adaptive concurrency is enabled, the per-route maximum connections of the client's connection pool follow the end-points limits.</p>
  * @author Laurent Gilles (laurent.gilles@codegist.org)
  */
-public final class HttpClientHttpChannelFactory implements HttpChannelFactory, Disposable {
+public final class HttpClientHttpChannelFactory implements HttpChannelFactory, ConcurrencyLimitListener, Disposable {
 
     /**
      * <p>CRestConfig property to provide a preconfigured {@link org.apache.http.client.HttpClient} instance.</p>
@@ -47,6 +57,7 @@ public final class HttpClientHttpChannelFactory implements HttpChannelFactory, D
      */
     public static final String HTTP_CLIENT_PROP = HttpClientHttpChannelFactory.class.getName() + HttpClientFactory.HTTP_CLIENT;
 
+    private static final Logger LOGGER = Logger.getLogger(HttpClientHttpChannelFactory.class);
     private final HttpClient client;
 
     /**
@@ -98,6 +109,22 @@ public final class HttpClientHttpChannelFactory implements HttpChannelFactory, D
         return new HttpClientHttpChannel(client, request);
     }
 
+    public void onLimitChange(String endPoint, int limit) {
+        ConnPerRoute connPerRoute = ConnManagerParams.getMaxConnectionsPerRoute(client.getParams());
+        if(!(connPerRoute instanceof ConnPerRouteBean)) {
+            return;
+        }
+        try {
+            URL url = new URL(endPoint);
+            /* routes are keyed by their actual port, implicit ones included */
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            HttpHost host = new HttpHost(url.getHost(), port, url.getProtocol());
+            ((ConnPerRouteBean) connPerRoute).setMaxForRoute(new HttpRoute(host, null, "https".equalsIgnoreCase(url.getProtocol())), limit);
+        } catch (MalformedURLException e) {
+            LOGGER.debug(e, "Ignoring limit change of invalid end-point %s", endPoint);
+        }
+    }
+
     public void dispose() {
         client.getConnectionManager().shutdown();
     }
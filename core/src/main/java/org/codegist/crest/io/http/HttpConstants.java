@@ -74,6 +74,7 @@ public interface HttpConstants {
     int HTTP_UNPROCESSABLE_ENTITY = 422;
     int HTTP_LOCKED = 423;
     int HTTP_FAILED_DEPENDENCY = 424;
+    int HTTP_TOO_MANY_REQUESTS = 429;
 
     // --- 5xx Server Error ---
     int HTTP_INTERNAL_SERVER_ERROR = 500;
@@ -32,4 +32,9 @@ interface HttpEntityWriter {
 
     int getContentLength();
 
+    /**
+     * @return whether the entity can be written more than once, each time with the same content
+     */
+    boolean isRepeatable();
+
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>Thread-safe journal of HTTP exchanges, as recorded by the {@link org.codegist.crest.io.http.RecordingHttpChannelFactory} and replayed by the {@link org.codegist.crest.io.http.LoopbackHttpChannelFactory}.</p>
+ * <p>Journals can be saved to and loaded from a stream, so that traffic recorded in one environment can be replayed in another.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class HttpJournal {
+
+    private static final int MAGIC = 0x43524a31;
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<Entry>();
+
+    /**
+     * Appends an exchange to the journal
+     * @param methodType request method type
+     * @param url request url
+     * @param latency time, in nanoseconds, the response took to be received
+     * @param response response received
+     */
+    public void record(MethodType methodType, String url, long latency, LoopbackResponse response) {
+        entries.add(new Entry(methodType, url, latency, response));
+    }
+
+    /**
+     * @return the journal entries, in recording order
+     */
+    public List<Entry> getEntries() {
+        return new ArrayList<Entry>(entries);
+    }
+
+    /**
+     * Writes the journal to the given stream, left open
+     * @param out stream to write to
+     * @throws IOException if the stream can't be written to
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        List<Entry> snapshot = getEntries();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(snapshot.size());
+        for (Entry entry : snapshot) {
+            LoopbackResponse response = entry.getResponse();
+            data.writeUTF(entry.getMethodType().name());
+            data.writeUTF(entry.getUrl());
+            data.writeLong(entry.getLatency());
+            data.writeInt(response.getStatusCode());
+            writeNullable(data, response.getStatusMessage());
+            writeNullable(data, response.getContentType());
+            writeNullable(data, response.getContentEncoding());
+            data.writeInt(response.getHeaders().size());
+            for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+                data.writeUTF(header.getKey());
+                writeNullable(data, header.getValue());
+            }
+            byte[] entity = response.getEntityBytes();
+            data.writeInt(entity.length);
+            data.write(entity);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a journal previously written with {@link #writeTo(java.io.OutputStream)}
+     * @param in stream to read from, left open
+     * @return the journal read
+     * @throws IOException if the stream can't be read or isn't a journal
+     */
+    public static HttpJournal readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if(data.readInt() != MAGIC) {
+            throw new IOException("Not an HTTP journal");
+        }
+        HttpJournal journal = new HttpJournal();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            MethodType methodType = MethodType.valueOf(data.readUTF());
+            String url = data.readUTF();
+            long latency = data.readLong();
+            int statusCode = data.readInt();
+            String statusMessage = readNullable(data);
+            String contentType = readNullable(data);
+            String contentEncoding = readNullable(data);
+            int headerCount = data.readInt();
+            Map<String, String> headers = new HashMap<String, String>();
+            for (int j = 0; j < headerCount; j++) {
+                headers.put(data.readUTF(), readNullable(data));
+            }
+            byte[] entity = new byte[data.readInt()];
+            data.readFully(entity);
+            journal.record(methodType, url, latency, new LoopbackResponse(statusCode, statusMessage, contentType, contentEncoding, headers, entity));
+        }
+        return journal;
+    }
+
+    private static void writeNullable(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if(value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    /**
+     * Recorded HTTP exchange
+     */
+    public static final class Entry {
+        private final MethodType methodType;
+        private final String url;
+        private final long latency;
+        private final LoopbackResponse response;
+
+        Entry(MethodType methodType, String url, long latency, LoopbackResponse response) {
+            this.methodType = methodType;
+            this.url = url;
+            this.latency = latency;
+            this.response = response;
+        }
+
+        public MethodType getMethodType() {
+            return methodType;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * @return time, in nanoseconds, the response took to be received
+         */
+        public long getLatency() {
+            return latency;
+        }
+
+        public LoopbackResponse getResponse() {
+            return response;
+        }
+    }
+}
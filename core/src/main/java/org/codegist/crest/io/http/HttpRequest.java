@@ -20,6 +20,7 @@
 
 package org.codegist.crest.io.http;
 
+import org.codegist.common.lang.Disposable;
 import org.codegist.common.lang.ToStringBuilder;
 import org.codegist.crest.config.MethodConfig;
 import org.codegist.crest.config.ParamType;
@@ -36,7 +37,7 @@ import static org.codegist.crest.param.ParamProcessors.iterate;
 /**
  * @author Laurent Gilles (laurent.gilles@codegist.org)
  */
-class HttpRequest implements Request {
+class HttpRequest implements Request, Disposable {
 
     private final MethodConfig methodConfig;
     private final List<Param> headerParams;
@@ -45,6 +46,9 @@ class HttpRequest implements Request {
     private final List<Param> pathParams;
     private final List<Param> cookieParams;
     private final List<Param> formParams;
+    private ReplayableEntity replayableEntity;
+    private int writers;
+    private boolean disposed;
 
     public HttpRequest(MethodConfig methodConfig, List<Param> headerParams, List<Param> matrixParams, List<Param> queryParams, List<Param> pathParams, List<Param> cookieParams, List<Param> formParams) {
         this.methodConfig = methodConfig;
@@ -76,6 +80,56 @@ class HttpRequest implements Request {
         return iterate(getParams(type), methodConfig.getCharset());
     }
 
+    /**
+     * @param memoryThreshold maximum amount of bytes kept in memory, used on creation only
+     * @return the entity captured for this request to be sent again, created on first call
+     */
+    synchronized ReplayableEntity getReplayableEntity(int memoryThreshold) {
+        if(replayableEntity == null) {
+            replayableEntity = new ReplayableEntity(memoryThreshold);
+        }
+        return replayableEntity;
+    }
+
+    /**
+     * Same as {@link #getReplayableEntity(int)}, but keeps the entity from being released by {@link #dispose()} until {@link #releaseReplayableEntity()} is called, so that a hedged attempt still writing it does not read a released entity.
+     * @param memoryThreshold maximum amount of bytes kept in memory, used on creation only
+     * @return the entity captured for this request to be sent again, created on first call
+     */
+    synchronized ReplayableEntity acquireReplayableEntity(int memoryThreshold) {
+        writers++;
+        return getReplayableEntity(memoryThreshold);
+    }
+
+    /**
+     * Gives back an entity previously acquired, the last writer releases it if the request has been disposed in the meantime
+     */
+    synchronized void releaseReplayableEntity() {
+        if(--writers == 0 && disposed) {
+            discardReplayableEntity();
+        }
+    }
+
+    /**
+     * Releases the captured entity, if any, so that it gets captured again on next write
+     */
+    synchronized void discardReplayableEntity() {
+        if(replayableEntity != null) {
+            replayableEntity.release();
+            replayableEntity = null;
+        }
+    }
+
+    /**
+     * Releases the captured entity once the call is over, or once the last attempt still writing it is done
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        if(writers == 0) {
+            discardReplayableEntity();
+        }
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this)
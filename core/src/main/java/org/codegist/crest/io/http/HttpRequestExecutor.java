@@ -24,16 +24,27 @@ import org.codegist.common.collect.Arrays;
 import org.codegist.common.lang.Disposable;
 import org.codegist.common.lang.Disposables;
 import org.codegist.common.log.Logger;
+import org.codegist.crest.CRestEventListener;
+import org.codegist.crest.NoOpCRestEventListener;
 import org.codegist.crest.config.MethodConfig;
 import org.codegist.crest.config.MethodType;
+import org.codegist.crest.io.AdaptiveTimeouts;
+import org.codegist.crest.io.CallCancellation;
+import org.codegist.crest.io.CallDeadline;
+import org.codegist.crest.io.DeadlineExceededException;
 import org.codegist.crest.io.Request;
 import org.codegist.crest.io.RequestException;
 import org.codegist.crest.io.RequestExecutor;
 import org.codegist.crest.io.Response;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.NoOpMetricsCollector;
 import org.codegist.crest.param.EncodedPair;
 import org.codegist.crest.serializer.ResponseDeserializer;
+import org.codegist.crest.util.ShardKeys;
+import org.codegist.crest.util.TimerWheel;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
 import java.util.Iterator;
 
@@ -41,9 +52,15 @@ import static org.codegist.common.lang.Strings.isNotBlank;
 import static org.codegist.crest.config.ParamType.COOKIE;
 import static org.codegist.crest.config.ParamType.HEADER;
 import static org.codegist.crest.io.http.HttpRequests.toUrl;
+import static org.codegist.crest.metrics.Stage.CONNECTION;
+import static org.codegist.crest.metrics.Stage.FIRST_BYTE;
 
 /**
- * RequestExecutor HTTP implementation
+ * <p>RequestExecutor HTTP implementation</p>
+ * <p>When the call has a deadline, the connection and socket timeouts are capped by the remaining time, and if a timer wheel is given the channel is aborted once the deadline is reached, even while the response entity is being read.</p>
+ * <p>If adaptive timeouts are given, the socket timeouts are derived from the methods latencies rather than their configured socket timeout, and every request latency is recorded.</p>
+ * <p>The channel opening, entity serialization, time to first byte and response entity reading are timed and reported to the given metrics collector, and the corresponding phases are notified to the given event listener.</p>
+ * <p>All these features are optional and given through {@link org.codegist.crest.io.http.HttpRequestExecutor.Options}.</p>
  * @author laurent.gilles@codegist.org
  */
 public class HttpRequestExecutor implements RequestExecutor, Disposable {
@@ -52,6 +69,14 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
     private final HttpChannelFactory channelFactory;
     private final ResponseDeserializer baseResponseDeserializer;
     private final ResponseDeserializer customTypeResponseDeserializer;
+    private final TimerWheel timerWheel;
+    private final boolean sharedTimerWheel;
+    private final AdaptiveTimeouts adaptiveTimeouts;
+    private final MetricsCollector metricsCollector;
+    private final boolean collectingMetrics;
+    private final CRestEventListener eventListener;
+    private final boolean listening;
+    private final int replayableEntityThreshold;
 
     /**
      *
@@ -62,9 +87,30 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
      * @see org.codegist.crest.io.Response#to(Class)
      */
     public HttpRequestExecutor(HttpChannelFactory channelFactory, ResponseDeserializer baseResponseDeserializer, ResponseDeserializer customTypeResponseDeserializer) {
+        this(channelFactory, baseResponseDeserializer, customTypeResponseDeserializer, new Options());
+    }
+
+    /**
+     *
+     * @param channelFactory The channel factory to use
+     * @param baseResponseDeserializer the response deserializer to use for the deserialization process
+     * @param customTypeResponseDeserializer the response deserializer to use for custom deserialization process
+     * @param options optional features of the executor
+     * @see org.codegist.crest.io.Response#deserialize()
+     * @see org.codegist.crest.io.Response#to(Class)
+     */
+    public HttpRequestExecutor(HttpChannelFactory channelFactory, ResponseDeserializer baseResponseDeserializer, ResponseDeserializer customTypeResponseDeserializer, Options options) {
         this.channelFactory = channelFactory;
         this.baseResponseDeserializer = baseResponseDeserializer;
         this.customTypeResponseDeserializer = customTypeResponseDeserializer;
+        this.timerWheel = options.timerWheel;
+        this.sharedTimerWheel = options.sharedTimerWheel;
+        this.adaptiveTimeouts = options.adaptiveTimeouts;
+        this.metricsCollector = options.metricsCollector;
+        this.collectingMetrics = options.collectingMetrics;
+        this.eventListener = options.eventListener;
+        this.listening = options.listening;
+        this.replayableEntityThreshold = options.replayableEntityThreshold;
     }
 
     /**
@@ -74,11 +120,15 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
         try {
             return doExecute(request);
         }catch(IOException e){
-            throw new RequestException(e);
+            throw new RequestException(e, request);
         }
     }
 
     private HttpResponse doExecute(Request request) throws IOException, Exception {
+        CallDeadline deadline = CallDeadline.get();
+        if(deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(deadline.getTimeout(), request);
+        }
         String url = toUrl(request);
         MethodConfig mc = request.getMethodConfig();
         Charset charset = mc.getCharset();
@@ -86,13 +136,34 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
         LOGGER.debug("Initiating HTTP Channel: %s %s", mc.getType(), url);
         LOGGER.trace(request);
         MethodType methodType = mc.getType();
-        HttpChannel httpChannel = channelFactory.open(methodType, url, charset);
+        long opening = System.nanoTime();
+        metricsCollector.onStageStart(mc, CONNECTION);
+        HttpChannel httpChannel = open(methodType, url, charset, request);
+        long opened = System.nanoTime();
+        metricsCollector.onStage(mc, CONNECTION, opened - opening);
+        eventListener.connectionAcquired(request, opened);
 
-        int coTimeout = mc.getConnectionTimeout();
+        boolean done = false;
+        try {
+            HttpResponse response = exchange(httpChannel, request, deadline);
+            done = true;
+            return response;
+        } finally {
+            if(!done) {
+                /* releases the channel whatever failed, ie reporting the failure to the end-point group it got balanced by */
+                httpChannel.abort();
+            }
+        }
+    }
+
+    private HttpResponse exchange(HttpChannel httpChannel, Request request, CallDeadline deadline) throws Exception {
+        MethodConfig mc = request.getMethodConfig();
+        MethodType methodType = mc.getType();
+        int coTimeout = cap(mc.getConnectionTimeout(), deadline);
         LOGGER.debug("Set Connection Timeout: %d ", coTimeout);
         httpChannel.setConnectionTimeout(coTimeout);
 
-        int soTimeout = mc.getSocketTimeout();
+        int soTimeout = cap(adaptiveTimeouts != null ? adaptiveTimeouts.getSocketTimeout(mc) : mc.getSocketTimeout(), deadline);
         LOGGER.debug("Set Socket Timeout: %d ", soTimeout);
         httpChannel.setSocketTimeout(soTimeout);
 
@@ -108,12 +179,15 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
             httpChannel.setAccept(accept);
         }
 
+        boolean debug = LOGGER.isDebugOn();
         Iterator<EncodedPair> headers = request.getEncodedParamsIterator(HEADER);
         while(headers.hasNext()){
             EncodedPair encoded = headers.next();
             String name = encoded.getName();
             String value = encoded.getValue();
-            LOGGER.debug("Header %s: %s ", name, value);
+            if(debug) {
+                LOGGER.debug("Header %s: %s ", name, value);
+            }
             httpChannel.addHeader(name, value);
         }
 
@@ -122,10 +196,13 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
             EncodedPair encoded = cookies.next();
             String name = encoded.getName();
             String value = encoded.getValue();
-            LOGGER.debug("%s: %s ", name, value);
+            if(debug) {
+                LOGGER.debug("%s: %s ", name, value);
+            }
             httpChannel.addHeader(name, value);
         }
 
+        RequestEntityWriter entityWriter = null;
         if(methodType.hasEntity()) {
             String contentType = mc.getEntityWriter().getContentType(request);
             if(isNotBlank(contentType)) {
@@ -136,15 +213,108 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
                     LOGGER.debug("Entity Content-Type : %s (ignored as previously set)", contentType);
                 }
             }
-            httpChannel.writeEntityWith(new RequestEntityWriter(request));
+            entityWriter = new RequestEntityWriter(request, metricsCollector, collectingMetrics, eventListener, replayableEntityThreshold);
+            httpChannel.writeEntityWith(entityWriter);
         }
 
-        HttpChannel.Response response = httpChannel.send();
+        long sending = System.nanoTime();
+        /* restarted by the entity writer once the entity has been written */
+        metricsCollector.onStageStart(mc, FIRST_BYTE);
+        if(entityWriter == null) {
+            eventListener.requestHeadersSent(request, sending);
+        }
+        HttpChannel.Response response = adaptiveTimeouts != null ? sendAndRecord(httpChannel, deadline, request, soTimeout) : send(httpChannel, deadline, request);
+        long received = System.nanoTime();
+        /* the entity is written while sending, its serialization is timed apart */
+        metricsCollector.onStage(mc, FIRST_BYTE, received - sending - (entityWriter != null ? entityWriter.getWriteNanos() : 0));
+        if(listening) {
+            eventListener.responseHeadersReceived(request, response.getStatusCode(), received);
+        }
+        if(listening || collectingMetrics) {
+            response = new InstrumentedHttpChannelResponse(response, metricsCollector, eventListener, request, entityWriter != null ? entityWriter.getBytesWritten() : 0);
+        }
         return new HttpResponse(baseResponseDeserializer, customTypeResponseDeserializer, request, new HttpChannelResponseHttpResource(response));
     }
 
+    private HttpChannel.Response sendAndRecord(HttpChannel httpChannel, CallDeadline deadline, Request request, int soTimeout) throws Exception {
+        MethodConfig mc = request.getMethodConfig();
+        long start = System.nanoTime();
+        try {
+            HttpChannel.Response response = send(httpChannel, deadline, request);
+            adaptiveTimeouts.record(mc, (System.nanoTime() - start) / 1000000l);
+            return response;
+        } catch (SocketTimeoutException e) {
+            /* record the timeout itself so that a latency shift raises the next timeouts */
+            adaptiveTimeouts.record(mc, soTimeout);
+            throw e;
+        }
+    }
+
+    private HttpChannel.Response send(HttpChannel httpChannel, CallDeadline deadline, Request request) throws Exception {
+        CallCancellation cancellation = CallCancellation.get();
+        if(cancellation == null) {
+            return sendBefore(httpChannel, deadline, request);
+        }
+        cancellation.onCancel(new Abort(httpChannel, "Call cancelled"));
+        try {
+            return sendBefore(httpChannel, deadline, request);
+        } finally {
+            cancellation.onCancel(null);
+        }
+    }
+
+    private HttpChannel.Response sendBefore(HttpChannel httpChannel, CallDeadline deadline, Request request) throws Exception {
+        if(deadline == null || timerWheel == null) {
+            return httpChannel.send();
+        }
+        TimerWheel.Timeout timeout = timerWheel.schedule(new Abort(httpChannel, "Deadline reached"), deadline.remaining());
+        try {
+            return new DeadlineHttpChannelResponse(httpChannel.send(), timeout, deadline.getTimeout());
+        } catch (IOException e) {
+            if(timeout.cancel()) {
+                throw e;
+            }
+            throw new DeadlineExceededException(deadline.getTimeout(), request, e);
+        }
+    }
+
+    private static int cap(int timeout, CallDeadline deadline) {
+        if(deadline == null) {
+            return timeout;
+        }
+        int remaining = (int) Math.min(Math.max(deadline.remaining(), 1), Integer.MAX_VALUE);
+        return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+
+    private HttpChannel open(MethodType methodType, String url, Charset charset, Request request) throws IOException {
+        if(!(channelFactory instanceof ShardAwareHttpChannelFactory)) {
+            return channelFactory.open(methodType, url, charset);
+        }
+        String shardKey = ShardKeys.getShardKey(request);
+        LOGGER.debug("Shard Key: %s", shardKey);
+        return ((ShardAwareHttpChannelFactory) channelFactory).open(methodType, url, charset, shardKey);
+    }
+
     public void dispose() {
         Disposables.dispose(channelFactory);
+        if(!sharedTimerWheel) {
+            Disposables.dispose(timerWheel);
+        }
+    }
+
+    private static final class Abort implements Runnable {
+        private final HttpChannel httpChannel;
+        private final String reason;
+
+        private Abort(HttpChannel httpChannel, String reason) {
+            this.httpChannel = httpChannel;
+            this.reason = reason;
+        }
+
+        public void run() {
+            LOGGER.debug("%s, aborting HTTP Channel", reason);
+            httpChannel.abort();
+        }
     }
 
     @Override
@@ -155,4 +325,82 @@ public class HttpRequestExecutor implements RequestExecutor, Disposable {
             super.finalize();
         }
     }
+
+    /**
+     * Optional features of an HttpRequestExecutor, all disabled by default
+     */
+    public static final class Options {
+        private TimerWheel timerWheel;
+        private boolean sharedTimerWheel;
+        private AdaptiveTimeouts adaptiveTimeouts;
+        private MetricsCollector metricsCollector = new NoOpMetricsCollector();
+        private boolean collectingMetrics;
+        private CRestEventListener eventListener = new NoOpCRestEventListener();
+        private boolean listening;
+        private int replayableEntityThreshold = -1;
+
+        /**
+         * @param timerWheel timer wheel to abort the channels of the calls reaching their deadline, can be null
+         * @return current options
+         * @see org.codegist.crest.io.CallDeadline
+         */
+        public Options setTimerWheel(TimerWheel timerWheel) {
+            this.timerWheel = timerWheel;
+            this.sharedTimerWheel = false;
+            return this;
+        }
+
+        /**
+         * @param timerWheel timer wheel to abort the channels of the calls reaching their deadline, shared with other executors and thus not disposed along with this one
+         * @return current options
+         * @see #setTimerWheel(org.codegist.crest.util.TimerWheel)
+         */
+        public Options setSharedTimerWheel(TimerWheel timerWheel) {
+            this.timerWheel = timerWheel;
+            this.sharedTimerWheel = true;
+            return this;
+        }
+
+        /**
+         * @param adaptiveTimeouts adaptive timeouts to derive the socket timeouts from, can be null
+         * @return current options
+         * @see org.codegist.crest.io.AdaptiveTimeouts
+         */
+        public Options setAdaptiveTimeouts(AdaptiveTimeouts adaptiveTimeouts) {
+            this.adaptiveTimeouts = adaptiveTimeouts;
+            return this;
+        }
+
+        /**
+         * @param metricsCollector metrics collector to report the stages timings to
+         * @return current options
+         * @see org.codegist.crest.metrics.MetricsCollector
+         */
+        public Options setMetricsCollector(MetricsCollector metricsCollector) {
+            this.metricsCollector = metricsCollector;
+            this.collectingMetrics = metricsCollector.getClass() != NoOpMetricsCollector.class;
+            return this;
+        }
+
+        /**
+         * @param eventListener event listener to notify the phases to
+         * @return current options
+         * @see org.codegist.crest.CRestEventListener
+         */
+        public Options setEventListener(CRestEventListener eventListener) {
+            this.eventListener = eventListener;
+            this.listening = eventListener.getClass() != NoOpCRestEventListener.class;
+            return this;
+        }
+
+        /**
+         * @param replayableEntityThreshold maximum amount of bytes of a request entity kept in memory once captured for it to be sent again without being serialized again, bigger entities being spilled to a temporary file. Negative to serialize the entity on each attempt.
+         * @return current options
+         * @see org.codegist.crest.CRestBuilder#enableReplayableEntities(int)
+         */
+        public Options setReplayableEntityThreshold(int replayableEntityThreshold) {
+            this.replayableEntityThreshold = replayableEntityThreshold;
+            return this;
+        }
+    }
 }
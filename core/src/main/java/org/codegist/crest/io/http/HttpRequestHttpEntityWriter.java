@@ -22,12 +22,18 @@ package org.codegist.crest.io.http;
 
 import org.codegist.common.log.Logger;
 import org.codegist.common.log.LoggingOutputStream;
+import org.codegist.crest.CRestEventListener;
 import org.codegist.crest.CRestException;
 import org.codegist.crest.io.Request;
+import org.codegist.crest.metrics.MetricsCollector;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import static org.codegist.crest.metrics.Stage.FIRST_BYTE;
+import static org.codegist.crest.metrics.Stage.SERIALIZATION;
+
 /**
  * @author laurent.gilles@codegist.org
  */
@@ -35,22 +41,146 @@ class RequestEntityWriter implements HttpEntityWriter {
 
     private static final Logger LOGGER = Logger.getLogger(Request.class);
     private final Request request;
+    private final MetricsCollector metricsCollector;
+    private final boolean countingBytes;
+    private final CRestEventListener eventListener;
+    private final HttpRequest replayable;
+    private final int memoryThreshold;
+    private long writeNanos;
+    private long bytesWritten;
+
+    RequestEntityWriter(Request request, MetricsCollector metricsCollector, CRestEventListener eventListener) {
+        this(request, metricsCollector, eventListener, -1);
+    }
+
+    RequestEntityWriter(Request request, MetricsCollector metricsCollector, CRestEventListener eventListener, int memoryThreshold) {
+        this(request, metricsCollector, true, eventListener, memoryThreshold);
+    }
 
-    RequestEntityWriter(Request request) {
+    /**
+     * @param request request to write the entity of
+     * @param metricsCollector metrics collector to report the serialization time to
+     * @param countingBytes whether to count the bytes written, only needed if metrics are collected
+     * @param eventListener event listener to notify the entity writing to
+     * @param memoryThreshold maximum amount of bytes of a replayable entity kept in memory before being spilled to a temporary file, negative to serialize the entity on each write
+     */
+    RequestEntityWriter(Request request, MetricsCollector metricsCollector, boolean countingBytes, CRestEventListener eventListener, int memoryThreshold) {
         this.request = request;
+        this.metricsCollector = metricsCollector;
+        this.countingBytes = countingBytes;
+        this.eventListener = eventListener;
+        /* the entity is captured on the request itself, so that it outlives this writer across the retries */
+        this.replayable = memoryThreshold >= 0 && request instanceof HttpRequest ? (HttpRequest) request : null;
+        this.memoryThreshold = memoryThreshold;
     }
 
     public void writeEntityTo(OutputStream out) throws IOException {
-        OutputStream os = !LOGGER.isTraceOn() ? out : new LoggingOutputStream(out, LOGGER);
+        long start = System.nanoTime();
+        metricsCollector.onStageStart(request.getMethodConfig(), SERIALIZATION);
+        eventListener.requestHeadersSent(request, start);
+        CountingOutputStream counting = countingBytes ? new CountingOutputStream(out) : null;
+        OutputStream os = counting != null ? counting : out;
+        os = !LOGGER.isTraceOn() ? os : new LoggingOutputStream(os, LOGGER);
+        boolean serialized;
         try {
-            request.getMethodConfig().getEntityWriter().writeTo(request, os);
+            serialized = write(os);
         } catch (Exception e) {
             throw CRestException.handle(e);
         }
         os.flush();
+        if(counting != null) {
+            bytesWritten += counting.count;
+        }
+        long end = System.nanoTime();
+        writeNanos += end - start;
+        if(serialized) {
+            metricsCollector.onStage(request.getMethodConfig(), SERIALIZATION, end - start);
+        }
+        /* the entity is written while sending, the response wait starts once it has been */
+        metricsCollector.onStageStart(request.getMethodConfig(), FIRST_BYTE);
+        eventListener.requestBodySent(request, end);
+    }
+
+    private boolean write(OutputStream os) throws Exception {
+        if(replayable == null) {
+            request.getMethodConfig().getEntityWriter().writeTo(request, os);
+            return true;
+        }
+        ReplayableEntity entity;
+        boolean serialized;
+        /* single-flight capture: concurrent attempts (hedging) wait for the first one to capture the entity, then replay it */
+        synchronized (replayable) {
+            entity = replayable.acquireReplayableEntity(memoryThreshold);
+            serialized = !entity.isCaptured();
+            if(serialized) {
+                LOGGER.debug("Capturing replayable entity");
+                try {
+                    request.getMethodConfig().getEntityWriter().writeTo(request, entity);
+                    entity.close();
+                } catch (Exception e) {
+                    replayable.discardReplayableEntity();
+                    replayable.releaseReplayableEntity();
+                    throw e;
+                }
+            }
+        }
+        try {
+            if(!serialized) {
+                LOGGER.debug("Replaying captured entity (%d bytes, spilled: %s)", entity.size(), entity.isSpilled());
+            }
+            entity.writeTo(os);
+        } finally {
+            replayable.releaseReplayableEntity();
+        }
+        return serialized;
+    }
+
+    /**
+     * @return the total time spent writing the entity in nanoseconds
+     */
+    long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * @return the amount of entity bytes written, only counted if a metrics collector is given
+     */
+    long getBytesWritten() {
+        return bytesWritten;
     }
 
     public int getContentLength() {
+        if(replayable != null) {
+            ReplayableEntity entity = replayable.getReplayableEntity(memoryThreshold);
+            if(entity.isCaptured() && entity.size() <= Integer.MAX_VALUE) {
+                return (int) entity.size();
+            }
+        }
         return request.getMethodConfig().getEntityWriter().getContentLength(request);
     }
+
+    public boolean isRepeatable() {
+        return replayable != null;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
@@ -38,6 +38,8 @@ interface HttpResource extends Closeable {
 
     String getContentEncoding() throws IOException;
 
+    String getHeader(String name) throws IOException;
+
     String getStatusMessage() throws IOException;
 
     int getStatusCode() throws IOException;
@@ -75,6 +75,10 @@ class HttpResponse implements Response, Disposable {
         return resource.getContentEncoding();
     }
 
+    public String getHeader(String name) throws IOException {
+        return resource.getHeader(name);
+    }
+
     public Type getExpectedGenericType() {
         return request.getMethodConfig().getMethod().getGenericReturnType();
     }
@@ -87,6 +87,11 @@ final class HttpURLConnectionHttpChannel implements HttpChannel {
         return new HttpURLResponse(con);
     }
 
+    public void abort() {
+        LOG.trace("Aborting...");
+        con.disconnect();
+    }
+
     private static final class HttpURLResponse implements Response {
 
         private final HttpURLConnection con;
@@ -119,6 +124,10 @@ final class HttpURLConnectionHttpChannel implements HttpChannel {
             return con.getContentEncoding();
         }
 
+        public String getHeader(String name) {
+            return con.getHeaderField(name);
+        }
+
         public void close() {
             LOG.trace("Disconnecting...");
             con.disconnect();
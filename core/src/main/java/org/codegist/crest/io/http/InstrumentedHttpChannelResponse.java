@@ -0,0 +1,186 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.CRestEventListener;
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.io.Request;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.MetricsContext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.codegist.crest.metrics.Stage.BODY_READ;
+
+/**
+ * HttpChannel's response timing and counting the reads of its entity, notifying the metrics collector of the body read start on the first one, and reporting them along with the exchange status code and the amount of bytes sent to the metrics collector once closed, within the metrics context of the call it has been received for. The event listener is notified of the response body end once closed.
+ * @author laurent.gilles@codegist.org
+ */
+class InstrumentedHttpChannelResponse implements HttpChannel.Response {
+
+    private final HttpChannel.Response delegate;
+    private final MetricsCollector metricsCollector;
+    private final CRestEventListener eventListener;
+    private final Request request;
+    private final MethodConfig methodConfig;
+    private final MetricsContext metricsContext;
+    private final long bytesOut;
+    private long readNanos = -1;
+    private long bytesIn;
+    private boolean reading;
+    private boolean closed;
+
+    InstrumentedHttpChannelResponse(HttpChannel.Response delegate, MetricsCollector metricsCollector, CRestEventListener eventListener, Request request, long bytesOut) {
+        this.delegate = delegate;
+        this.metricsCollector = metricsCollector;
+        this.eventListener = eventListener;
+        this.request = request;
+        this.methodConfig = request.getMethodConfig();
+        this.metricsContext = MetricsContext.get();
+        this.bytesOut = bytesOut;
+    }
+
+    public InputStream getEntity() throws IOException {
+        InputStream entity = delegate.getEntity();
+        if(entity == null) {
+            return null;
+        }
+        readNanos = Math.max(readNanos, 0);
+        return new TimedInputStream(entity);
+    }
+
+    public int getStatusCode() throws IOException {
+        return delegate.getStatusCode();
+    }
+
+    public String getStatusMessage() throws IOException {
+        return delegate.getStatusMessage();
+    }
+
+    public String getContentType() throws IOException {
+        return delegate.getContentType();
+    }
+
+    public String getContentEncoding() throws IOException {
+        return delegate.getContentEncoding();
+    }
+
+    public String getHeader(String name) throws IOException {
+        return delegate.getHeader(name);
+    }
+
+    public void close() throws IOException {
+        int statusCode = closed ? -1 : getStatusCodeQuietly();
+        try {
+            delegate.close();
+        } finally {
+            if(!closed) {
+                closed = true;
+                report(statusCode);
+                eventListener.responseBodyEnd(request, System.nanoTime());
+            }
+        }
+    }
+
+    private void startReading() {
+        if(reading) {
+            return;
+        }
+        reading = true;
+        MetricsContext current = MetricsContext.get();
+        MetricsContext.set(metricsContext);
+        try {
+            metricsCollector.onStageStart(methodConfig, BODY_READ);
+        } finally {
+            MetricsContext.set(current);
+        }
+    }
+
+    private void report(int statusCode) {
+        /* the entity may be read by another thread, or once the call has returned */
+        MetricsContext current = MetricsContext.get();
+        MetricsContext.set(metricsContext);
+        try {
+            if(readNanos >= 0) {
+                metricsCollector.onStage(methodConfig, BODY_READ, readNanos);
+            }
+            metricsCollector.onExchange(methodConfig, statusCode, bytesOut, bytesIn);
+        } finally {
+            MetricsContext.set(current);
+        }
+    }
+
+    private int getStatusCodeQuietly() {
+        try {
+            return delegate.getStatusCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private final class TimedInputStream extends FilterInputStream {
+
+        private TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            startReading();
+            long start = System.nanoTime();
+            int read = -1;
+            try {
+                return read = super.read();
+            } finally {
+                readNanos += System.nanoTime() - start;
+                bytesIn += read >= 0 ? 1 : 0;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            startReading();
+            long start = System.nanoTime();
+            int read = -1;
+            try {
+                return read = super.read(b, off, len);
+            } finally {
+                readNanos += System.nanoTime() - start;
+                bytesIn += Math.max(read, 0);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            startReading();
+            long start = System.nanoTime();
+            long skipped = 0;
+            try {
+                return skipped = super.skip(n);
+            } finally {
+                readNanos += System.nanoTime() - start;
+                bytesIn += skipped;
+            }
+        }
+    }
+}
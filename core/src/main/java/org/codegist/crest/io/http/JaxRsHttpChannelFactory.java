@@ -0,0 +1,231 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.MethodType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import static org.codegist.crest.io.http.HttpConstants.HTTP_METHOD_NOT_ALLOWED;
+import static org.codegist.crest.io.http.HttpConstants.HTTP_NOT_FOUND;
+
+/**
+ * <p>HttpChannelFactory dispatching the requests straight to JAX-RS resource instances living in the same JVM, no socket nor HTTP message involved.</p>
+ * <p>The client side is left untouched: the request URL, headers, cookies and entity are still built and written as declared by the interface, and are then bound to the matching resource method parameters following the JAX-RS rules (path templates, {@link javax.ws.rs.PathParam}, {@link javax.ws.rs.QueryParam}, {@link javax.ws.rs.MatrixParam}, url-encoded {@link javax.ws.rs.FormParam}, {@link javax.ws.rs.HeaderParam}, {@link javax.ws.rs.CookieParam}, {@link javax.ws.rs.DefaultValue} and {@link javax.ws.rs.Encoded}).</p>
+ * <p>Resource methods can return String, byte[], InputStream, primitive wrappers or a {@link javax.ws.rs.core.Response} holding one of those, its content type being either the response's or the first one declared with {@link javax.ws.rs.Produces}. Entity parameters can be of type String, byte[], InputStream or Reader. No MessageBodyReader/Writer lookup is performed, other types respectively lead to a 500 and a 415 response. {@link javax.ws.rs.core.Context} parameters are given null.</p>
+ * <p>Requests whose path match no resource method get a 404 response, or a 405 response if the path matches but the method type does not. HEAD requests fall back to the GET resource method, with no entity.</p>
+ * <p>Resource instances are shared by all the requests and must therefore be thread-safe, as singleton resources would be in a JAX-RS container.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class JaxRsHttpChannelFactory implements HttpChannelFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(JaxRsHttpChannelFactory.class);
+
+    private final String baseUrl;
+    private final List<JaxRsResourceMethod> resourceMethods = new ArrayList<JaxRsResourceMethod>();
+
+    /**
+     * @param baseUrl URL the resources are deployed under, ie the application's root URL
+     * @param resources root resource instances, their classes must be annotated with {@link javax.ws.rs.Path}
+     */
+    public JaxRsHttpChannelFactory(String baseUrl, Object... resources) {
+        this.baseUrl = JaxRsResourceMethod.trim(baseUrl);
+        for (Object resource : resources) {
+            resourceMethods.addAll(JaxRsResourceMethod.of(resource));
+        }
+        JaxRsResourceMethod.sort(resourceMethods);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+        return new JaxRsHttpChannel(methodType, url, charset);
+    }
+
+    private JaxRsResourceMethod.Result dispatch(String httpMethod, String url, Map<String, List<String>> headers, String contentType, Charset charset, byte[] entity) {
+        String location = JaxRsResourceMethod.trim(url);
+        if(!location.startsWith(baseUrl) || (location.length() > baseUrl.length() && "/?;".indexOf(location.charAt(baseUrl.length())) < 0)) {
+            return JaxRsResourceMethod.Result.of(HTTP_NOT_FOUND, null);
+        }
+        location = location.substring(baseUrl.length());
+
+        String query = null;
+        int queryStart = location.indexOf('?');
+        if(queryStart >= 0) {
+            query = location.substring(queryStart + 1);
+            location = location.substring(0, queryStart);
+        }
+
+        Map<String, List<String>> matrix = new HashMap<String, List<String>>();
+        StringBuilder path = new StringBuilder();
+        for (String segment : JaxRsResourceMethod.trim(location).split("/")) {
+            int matrixStart = segment.indexOf(';');
+            if(matrixStart >= 0) {
+                for (Map.Entry<String, List<String>> param : JaxRsResourceMethod.Call.parse(segment.substring(matrixStart + 1), ';').entrySet()) {
+                    JaxRsResourceMethod.Call.values(matrix, param.getKey()).addAll(param.getValue());
+                }
+                segment = segment.substring(0, matrixStart);
+            }
+            if(path.length() > 0) {
+                path.append('/');
+            }
+            path.append(segment);
+        }
+
+        JaxRsResourceMethod.Call call = new JaxRsResourceMethod.Call(query, matrix, headers, contentType, charset, entity);
+        JaxRsResourceMethod.Result result = dispatch(httpMethod, path.toString(), call);
+        if(result == null && "HEAD".equals(httpMethod)) {
+            result = dispatch("GET", path.toString(), call);
+            if(result != null) {
+                result = new JaxRsResourceMethod.Result(result.getStatus(), result.getContentType(), Collections.<String, String>emptyMap(), null);
+            }
+        }
+        if(result == null) {
+            boolean pathMatches = false;
+            for (JaxRsResourceMethod resourceMethod : resourceMethods) {
+                if(resourceMethod.match(path.toString()) != null) {
+                    pathMatches = true;
+                    break;
+                }
+            }
+            result = JaxRsResourceMethod.Result.of(pathMatches ? HTTP_METHOD_NOT_ALLOWED : HTTP_NOT_FOUND, null);
+        }
+        return result;
+    }
+
+    private JaxRsResourceMethod.Result dispatch(String httpMethod, String path, JaxRsResourceMethod.Call call) {
+        for (JaxRsResourceMethod resourceMethod : resourceMethods) {
+            if(!resourceMethod.getHttpMethod().equals(httpMethod)) {
+                continue;
+            }
+            Map<String, String> pathParams = resourceMethod.match(path);
+            if(pathParams != null) {
+                LOGGER.debug("Dispatching %s %s to %s", httpMethod, path, resourceMethod);
+                return resourceMethod.invoke(call, pathParams);
+            }
+        }
+        return null;
+    }
+
+    private final class JaxRsHttpChannel implements HttpChannel {
+
+        private final MethodType methodType;
+        private final String url;
+        private final Charset charset;
+        private final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        private String contentType;
+        private HttpEntityWriter httpEntityWriter;
+
+        private JaxRsHttpChannel(MethodType methodType, String url, Charset charset) {
+            this.methodType = methodType;
+            this.url = url;
+            this.charset = charset;
+        }
+
+        public void setSocketTimeout(int timeout) {
+        }
+
+        public void setConnectionTimeout(int timeout) {
+        }
+
+        public void addHeader(String name, String value) {
+            JaxRsResourceMethod.Call.values(headers, name.toLowerCase()).add(value);
+        }
+
+        public void setHeader(String name, String value) {
+            headers.remove(name.toLowerCase());
+            addHeader(name, value);
+        }
+
+        public void setContentType(String value) {
+            this.contentType = value;
+            setHeader("Content-Type", value);
+        }
+
+        public void setAccept(String value) {
+            setHeader("Accept", value);
+        }
+
+        public void writeEntityWith(HttpEntityWriter httpEntityWriter) {
+            this.httpEntityWriter = httpEntityWriter;
+        }
+
+        public Response send() throws IOException {
+            byte[] entity = null;
+            if(httpEntityWriter != null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                httpEntityWriter.writeEntityTo(out);
+                entity = out.toByteArray();
+            }
+            return new JaxRsChannelResponse(dispatch(methodType.name(), url, headers, contentType, charset, entity));
+        }
+
+        public void abort() {
+        }
+    }
+
+    private static final class JaxRsChannelResponse implements HttpChannel.Response {
+
+        private final JaxRsResourceMethod.Result result;
+        private InputStream entity;
+
+        private JaxRsChannelResponse(JaxRsResourceMethod.Result result) {
+            this.result = result;
+        }
+
+        public int getStatusCode() {
+            return result.getStatus();
+        }
+
+        public String getStatusMessage() {
+            return null;
+        }
+
+        public InputStream getEntity() {
+            if(entity == null) {
+                entity = new ByteArrayInputStream(result.getEntity() != null ? result.getEntity() : new byte[0]);
+            }
+            return entity;
+        }
+
+        public String getContentType() {
+            return result.getContentType();
+        }
+
+        public String getContentEncoding() {
+            return result.getHeader("Content-Encoding");
+        }
+
+        public String getHeader(String name) {
+            return result.getHeader(name);
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,650 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.lang.Validate;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.*;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.codegist.crest.io.http.HttpConstants.*;
+
+/**
+ * <p>JAX-RS resource method, as dispatched to by the {@link org.codegist.crest.io.http.JaxRsHttpChannelFactory}.</p>
+ * <p>Holds the method's path template compiled to a regular expression along with its parameters binders, so that matching and binding a call does not involve any further reflection.</p>
+ * @author laurent.gilles@codegist.org
+ */
+final class JaxRsResourceMethod {
+
+    private static final Pattern TEMPLATE_PARAM = Pattern.compile("\\{\\s*(\\w[\\w\\.-]*)\\s*(?::\\s*((?:[^{}]|\\{[^{}]*\\})*))?\\}");
+    private static final String DEFAULT_TEMPLATE_REGEX = "[^/]+?";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Object resource;
+    private final Method method;
+    private final String httpMethod;
+    private final Pattern pattern;
+    private final String[] templateNames;
+    private final int[] templateGroups;
+    private final int literalLength;
+    private final String produces;
+    private final Binder[] binders;
+
+    private JaxRsResourceMethod(Object resource, Method method, String httpMethod, String path) {
+        this.resource = resource;
+        this.method = method;
+        this.httpMethod = httpMethod;
+
+        StringBuilder regex = new StringBuilder();
+        List<String> names = new ArrayList<String>();
+        List<Integer> groups = new ArrayList<Integer>();
+        Matcher matcher = TEMPLATE_PARAM.matcher(path);
+        int last = 0;
+        int group = 1;
+        int literals = 0;
+        while(matcher.find()) {
+            String literal = path.substring(last, matcher.start());
+            String custom = matcher.group(2);
+            String templateRegex = custom != null ? custom.trim() : DEFAULT_TEMPLATE_REGEX;
+            regex.append(Pattern.quote(literal)).append('(').append(templateRegex).append(')');
+            literals += literal.length();
+            names.add(matcher.group(1));
+            groups.add(group);
+            group += 1 + Pattern.compile(templateRegex).matcher("").groupCount();
+            last = matcher.end();
+        }
+        String tail = path.substring(last);
+        regex.append(Pattern.quote(tail)).append("/?");
+        literals += tail.length();
+
+        this.pattern = Pattern.compile(regex.toString());
+        this.templateNames = names.toArray(new String[names.size()]);
+        this.templateGroups = new int[groups.size()];
+        for (int i = 0; i < templateGroups.length; i++) {
+            templateGroups[i] = groups.get(i);
+        }
+        this.literalLength = literals;
+
+        Produces produces = method.getAnnotation(Produces.class);
+        if(produces == null) {
+            produces = method.getDeclaringClass().getAnnotation(Produces.class);
+        }
+        this.produces = produces != null && produces.value().length > 0 ? produces.value()[0].split(",")[0].trim() : null;
+
+        boolean encoded = method.isAnnotationPresent(Encoded.class) || method.getDeclaringClass().isAnnotationPresent(Encoded.class);
+        Type[] types = method.getGenericParameterTypes();
+        Annotation[][] annotations = method.getParameterAnnotations();
+        this.binders = new Binder[types.length];
+        for (int i = 0; i < types.length; i++) {
+            binders[i] = new Binder(types[i], annotations[i], encoded);
+        }
+    }
+
+    /**
+     * Collects the given resource's methods, ordered the way JAX-RS selects them: the more literal characters in the path template, then the more template parameters, the higher the precedence.
+     * @param resource root resource instance, its class must be annotated with {@link javax.ws.rs.Path}
+     * @return the resource methods
+     */
+    static List<JaxRsResourceMethod> of(Object resource) {
+        Path root = resource.getClass().getAnnotation(Path.class);
+        Validate.isTrue(root != null, "Resource %s is not a root resource, its class must be annotated with @Path", resource.getClass());
+        List<JaxRsResourceMethod> methods = new ArrayList<JaxRsResourceMethod>();
+        for (Method method : resource.getClass().getMethods()) {
+            String httpMethod = httpMethodOf(method);
+            if(httpMethod == null) {
+                continue;
+            }
+            Path path = method.getAnnotation(Path.class);
+            String template = trim(root.value());
+            if(path != null && trim(path.value()).length() > 0) {
+                template = template + "/" + trim(path.value());
+            }
+            methods.add(new JaxRsResourceMethod(resource, method, httpMethod, template));
+        }
+        return methods;
+    }
+
+    static void sort(List<JaxRsResourceMethod> methods) {
+        Collections.sort(methods, new Comparator<JaxRsResourceMethod>() {
+            public int compare(JaxRsResourceMethod o1, JaxRsResourceMethod o2) {
+                if(o1.literalLength != o2.literalLength) {
+                    return o2.literalLength - o1.literalLength;
+                }
+                return o2.templateNames.length - o1.templateNames.length;
+            }
+        });
+    }
+
+    String getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * @param path request path, without leading slash nor matrix parameters
+     * @return the encoded path parameters values, null if the path does not match this method's template
+     */
+    Map<String, String> match(String path) {
+        Matcher matcher = pattern.matcher(path);
+        if(!matcher.matches()) {
+            return null;
+        }
+        Map<String, String> params = new HashMap<String, String>();
+        for (int i = 0; i < templateNames.length; i++) {
+            params.put(templateNames[i], matcher.group(templateGroups[i]));
+        }
+        return params;
+    }
+
+    /**
+     * Binds the call to the method parameters and invokes it
+     * @param call call to dispatch
+     * @param pathParams encoded path parameters values, as matched
+     * @return the invocation result
+     */
+    Result invoke(Call call, Map<String, String> pathParams) {
+        Object[] args = new Object[binders.length];
+        try {
+            for (int i = 0; i < binders.length; i++) {
+                args[i] = binders[i].bind(call, pathParams);
+            }
+        } catch (StatusException e) {
+            return Result.of(e.getStatus(), e.getMessage());
+        }
+
+        Object entity;
+        try {
+            entity = method.invoke(resource, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof WebApplicationException && ((WebApplicationException) cause).getResponse() != null) {
+                return toResult(((WebApplicationException) cause).getResponse());
+            }
+            return Result.of(HTTP_INTERNAL_SERVER_ERROR, String.valueOf(cause));
+        } catch (IllegalAccessException e) {
+            return Result.of(HTTP_INTERNAL_SERVER_ERROR, String.valueOf(e));
+        }
+
+        if(entity instanceof javax.ws.rs.core.Response) {
+            return toResult((javax.ws.rs.core.Response) entity);
+        }
+        return toResult(entity == null ? HTTP_NO_CONTENT : HTTP_OK, entity, produces, Collections.<String, String>emptyMap());
+    }
+
+    private Result toResult(javax.ws.rs.core.Response response) {
+        Map<String, String> headers = new HashMap<String, String>();
+        String contentType = produces;
+        if(response.getMetadata() != null) {
+            for (Map.Entry<String, List<Object>> header : response.getMetadata().entrySet()) {
+                if(header.getValue() == null || header.getValue().isEmpty()) {
+                    continue;
+                }
+                String name = header.getKey().toLowerCase();
+                String value = String.valueOf(header.getValue().get(0));
+                if("content-type".equals(name)) {
+                    contentType = value;
+                } else {
+                    headers.put(name, value);
+                }
+            }
+        }
+        return toResult(response.getStatus(), response.getEntity(), contentType, headers);
+    }
+
+    private static Result toResult(int status, Object entity, String contentType, Map<String, String> headers) {
+        if(entity == null) {
+            return new Result(status, contentType, headers, null);
+        }
+        String type = contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+        try {
+            if(entity instanceof byte[]) {
+                return new Result(status, type, headers, (byte[]) entity);
+            } else if(entity instanceof InputStream) {
+                return new Result(status, type, headers, toBytes((InputStream) entity));
+            } else if(entity instanceof String || entity instanceof Number || entity instanceof Boolean || entity instanceof Character) {
+                return new Result(status, type, headers, String.valueOf(entity).getBytes(charsetOf(type, UTF8).name()));
+            }
+        } catch (IOException e) {
+            return Result.of(HTTP_INTERNAL_SERVER_ERROR, String.valueOf(e));
+        }
+        return Result.of(HTTP_INTERNAL_SERVER_ERROR, "No writer available for entity of type " + entity.getClass().getName());
+    }
+
+    private static byte[] toBytes(InputStream stream) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+
+    static Charset charsetOf(String contentType, Charset defaultCharset) {
+        if(contentType != null) {
+            for (String param : contentType.split(";")) {
+                String[] pair = param.split("=", 2);
+                if(pair.length == 2 && "charset".equalsIgnoreCase(pair[0].trim())) {
+                    try {
+                        return Charset.forName(pair[1].trim().replace("\"", ""));
+                    } catch (IllegalArgumentException e) {
+                        return defaultCharset;
+                    }
+                }
+            }
+        }
+        return defaultCharset;
+    }
+
+    private static String httpMethodOf(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if(httpMethod != null) {
+                return httpMethod.value();
+            }
+        }
+        return null;
+    }
+
+    static String trim(String path) {
+        int start = 0;
+        int end = path.length();
+        while(start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while(end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return httpMethod + " " + method.toGenericString();
+    }
+
+    /**
+     * Request as received by the resource, values are kept encoded as they were sent and decoded on binding, unless the parameter is {@link javax.ws.rs.Encoded}.
+     */
+    static final class Call {
+        private final Map<String, List<String>> query;
+        private final Map<String, List<String>> matrix;
+        private final Map<String, List<String>> headers;
+        private final Map<String, List<String>> cookies;
+        private final String contentType;
+        private final Charset charset;
+        private final byte[] entity;
+        private Map<String, List<String>> form;
+
+        /**
+         * @param query query string, null if none
+         * @param matrix matrix parameters, as found in the path
+         * @param headers headers, header names in lower case
+         * @param contentType request content type, null if none
+         * @param charset charset to decode the parameters with
+         * @param entity request entity, null if none
+         */
+        Call(String query, Map<String, List<String>> matrix, Map<String, List<String>> headers, String contentType, Charset charset, byte[] entity) {
+            this.query = parse(query, '&');
+            this.matrix = matrix;
+            this.headers = headers;
+            this.cookies = new HashMap<String, List<String>>();
+            List<String> cookieHeaders = headers.get("cookie");
+            if(cookieHeaders != null) {
+                for (String cookieHeader : cookieHeaders) {
+                    for (Map.Entry<String, List<String>> cookie : parse(cookieHeader, ';').entrySet()) {
+                        values(cookies, cookie.getKey()).addAll(cookie.getValue());
+                    }
+                }
+            }
+            this.contentType = contentType;
+            this.charset = charset;
+            this.entity = entity;
+        }
+
+        static Map<String, List<String>> parse(String encoded, char separator) {
+            Map<String, List<String>> params = new LinkedHashMap<String, List<String>>();
+            if(encoded == null) {
+                return params;
+            }
+            int start = 0;
+            while(start <= encoded.length()) {
+                int end = encoded.indexOf(separator, start);
+                if(end < 0) {
+                    end = encoded.length();
+                }
+                String pair = encoded.substring(start, end).trim();
+                if(pair.length() > 0) {
+                    int equal = pair.indexOf('=');
+                    String name = equal >= 0 ? pair.substring(0, equal).trim() : pair;
+                    String value = equal >= 0 ? pair.substring(equal + 1).trim() : "";
+                    values(params, name).add(value);
+                }
+                start = end + 1;
+            }
+            return params;
+        }
+
+        static List<String> values(Map<String, List<String>> params, String name) {
+            List<String> values = params.get(name);
+            if(values == null) {
+                values = new ArrayList<String>();
+                params.put(name, values);
+            }
+            return values;
+        }
+
+        private Map<String, List<String>> getForm() {
+            if(form == null) {
+                boolean urlEncoded = contentType != null && contentType.toLowerCase().startsWith("application/x-www-form-urlencoded");
+                form = urlEncoded && entity != null ? parse(new String(entity, charsetOf(contentType, charset)), '&') : Collections.<String, List<String>>emptyMap();
+            }
+            return form;
+        }
+    }
+
+    /**
+     * Outcome of a dispatched call
+     */
+    static final class Result {
+        private final int status;
+        private final String contentType;
+        private final Map<String, String> headers;
+        private final byte[] entity;
+
+        Result(int status, String contentType, Map<String, String> headers, byte[] entity) {
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.entity = entity;
+        }
+
+        static Result of(int status, String message) {
+            try {
+                return new Result(status, "text/plain;charset=UTF-8", Collections.<String, String>emptyMap(), message != null ? message.getBytes("UTF-8") : null);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        String getHeader(String name) {
+            return headers.get(name.toLowerCase());
+        }
+
+        byte[] getEntity() {
+            return entity;
+        }
+    }
+
+    private static final class StatusException extends Exception {
+        private final int status;
+
+        private StatusException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        private int getStatus() {
+            return status;
+        }
+    }
+
+    private enum Source {
+        PATH(HTTP_NOT_FOUND), QUERY(HTTP_NOT_FOUND), MATRIX(HTTP_NOT_FOUND), FORM(HTTP_BAD_REQUEST), HEADER(HTTP_BAD_REQUEST), COOKIE(HTTP_BAD_REQUEST), ENTITY(HTTP_UNSUPPORTED_MEDIA_TYPE), CONTEXT(0);
+
+        private final int invalidStatus;
+
+        Source(int invalidStatus) {
+            this.invalidStatus = invalidStatus;
+        }
+    }
+
+    /**
+     * Binds a call to a method parameter, following the JAX-RS conversion rules: primitive types, types with a String constructor or a static valueOf or fromString method taking a String, and List, Set or SortedSet of those.
+     */
+    private static final class Binder {
+
+        private final Source source;
+        private final String name;
+        private final String defaultValue;
+        private final boolean encoded;
+        private final Class<?> type;
+        private final Class<?> collectionType;
+        private final Constructor<?> constructor;
+        private final Method factory;
+
+        private Binder(Type genericType, Annotation[] annotations, boolean methodEncoded) {
+            Source source = Source.ENTITY;
+            String name = null;
+            String defaultValue = null;
+            boolean encoded = methodEncoded;
+            for (Annotation annotation : annotations) {
+                if(annotation instanceof PathParam) {
+                    source = Source.PATH;
+                    name = ((PathParam) annotation).value();
+                } else if(annotation instanceof QueryParam) {
+                    source = Source.QUERY;
+                    name = ((QueryParam) annotation).value();
+                } else if(annotation instanceof MatrixParam) {
+                    source = Source.MATRIX;
+                    name = ((MatrixParam) annotation).value();
+                } else if(annotation instanceof FormParam) {
+                    source = Source.FORM;
+                    name = ((FormParam) annotation).value();
+                } else if(annotation instanceof HeaderParam) {
+                    source = Source.HEADER;
+                    name = ((HeaderParam) annotation).value().toLowerCase();
+                } else if(annotation instanceof CookieParam) {
+                    source = Source.COOKIE;
+                    name = ((CookieParam) annotation).value();
+                } else if(annotation instanceof Context) {
+                    source = Source.CONTEXT;
+                } else if(annotation instanceof DefaultValue) {
+                    defaultValue = ((DefaultValue) annotation).value();
+                } else if(annotation instanceof Encoded) {
+                    encoded = true;
+                }
+            }
+            this.source = source;
+            this.name = name;
+            this.defaultValue = defaultValue;
+            this.encoded = encoded;
+
+            Class<?> raw = rawTypeOf(genericType);
+            if(source != Source.ENTITY && (raw == List.class || raw == Set.class || raw == SortedSet.class)) {
+                this.collectionType = raw;
+                this.type = genericType instanceof ParameterizedType ? rawTypeOf(((ParameterizedType) genericType).getActualTypeArguments()[0]) : String.class;
+            } else {
+                this.collectionType = null;
+                this.type = raw;
+            }
+            Class<?> boxed = box(type);
+            this.constructor = constructorOf(boxed);
+            this.factory = constructor == null ? factoryOf(boxed) : null;
+        }
+
+        private Object bind(Call call, Map<String, String> pathParams) throws StatusException {
+            switch (source) {
+                case CONTEXT:
+                    return null;
+                case ENTITY:
+                    return toEntity(call);
+                default:
+                    List<String> values = valuesOf(call, pathParams);
+                    if(values == null || values.isEmpty()) {
+                        values = defaultValue != null ? Collections.singletonList(defaultValue) : Collections.<String>emptyList();
+                    }
+                    if(collectionType != null) {
+                        Collection<Object> collection = collectionType == List.class ? new ArrayList<Object>() : collectionType == Set.class ? new LinkedHashSet<Object>() : new TreeSet<Object>();
+                        for (String value : values) {
+                            collection.add(convert(decode(value, call.charset)));
+                        }
+                        return collection;
+                    }
+                    return convert(values.isEmpty() ? null : decode(values.get(0), call.charset));
+            }
+        }
+
+        private List<String> valuesOf(Call call, Map<String, String> pathParams) {
+            switch (source) {
+                case PATH:
+                    String value = pathParams.get(name);
+                    return value != null ? Collections.singletonList(value) : null;
+                case QUERY:
+                    return call.query.get(name);
+                case MATRIX:
+                    return call.matrix.get(name);
+                case FORM:
+                    return call.getForm().get(name);
+                case HEADER:
+                    return call.headers.get(name);
+                default:
+                    return call.cookies.get(name);
+            }
+        }
+
+        private String decode(String value, Charset charset) throws StatusException {
+            if(encoded || source == Source.HEADER || source == Source.COOKIE) {
+                return value;
+            }
+            try {
+                String plusAware = source == Source.PATH || source == Source.MATRIX ? value.replace("+", "%2B") : value;
+                return URLDecoder.decode(plusAware, charset.name());
+            } catch (UnsupportedEncodingException e) {
+                throw new StatusException(HTTP_BAD_REQUEST, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                throw new StatusException(source.invalidStatus, e.getMessage());
+            }
+        }
+
+        private Object convert(String value) throws StatusException {
+            if(value == null) {
+                return type.isPrimitive() ? defaultOf(type) : null;
+            }
+            if(type == String.class) {
+                return value;
+            }
+            try {
+                if(type == char.class || type == Character.class) {
+                    return value.charAt(0);
+                } else if(constructor != null) {
+                    return constructor.newInstance(value);
+                } else if(factory != null) {
+                    return factory.invoke(null, value);
+                }
+            } catch (Exception e) {
+                throw new StatusException(source.invalidStatus, "Invalid value '" + value + "' for parameter " + name + " of type " + type.getName());
+            }
+            throw new StatusException(HTTP_INTERNAL_SERVER_ERROR, "No conversion available for parameter " + name + " of type " + type.getName());
+        }
+
+        private Object toEntity(Call call) throws StatusException {
+            byte[] entity = call.entity != null ? call.entity : new byte[0];
+            if(type == byte[].class) {
+                return entity;
+            } else if(type == InputStream.class) {
+                return new ByteArrayInputStream(entity);
+            } else if(type == String.class) {
+                return new String(entity, charsetOf(call.contentType, call.charset));
+            } else if(type == Reader.class) {
+                return new InputStreamReader(new ByteArrayInputStream(entity), charsetOf(call.contentType, call.charset));
+            }
+            throw new StatusException(HTTP_UNSUPPORTED_MEDIA_TYPE, "No reader available for entity of type " + type.getName());
+        }
+
+        private static Class<?> rawTypeOf(Type type) {
+            if(type instanceof Class) {
+                return (Class<?>) type;
+            } else if(type instanceof ParameterizedType) {
+                return rawTypeOf(((ParameterizedType) type).getRawType());
+            }
+            return Object.class;
+        }
+
+        private static Constructor<?> constructorOf(Class<?> type) {
+            try {
+                return type.getConstructor(String.class);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private static Method factoryOf(Class<?> type) {
+            for (String name : new String[]{"valueOf", "fromString"}) {
+                try {
+                    Method method = type.getMethod(name, String.class);
+                    if(Modifier.isStatic(method.getModifiers())) {
+                        return method;
+                    }
+                } catch (NoSuchMethodException e) {
+                    // try next
+                }
+            }
+            return null;
+        }
+
+        private static Class<?> box(Class<?> type) {
+            if(!type.isPrimitive()) {
+                return type;
+            }
+            return defaultOf(type).getClass();
+        }
+
+        private static Object defaultOf(Class<?> type) {
+            if(type == boolean.class) {
+                return false;
+            } else if(type == char.class) {
+                return '\0';
+            } else if(type == byte.class) {
+                return (byte) 0;
+            } else if(type == short.class) {
+                return (short) 0;
+            } else if(type == int.class) {
+                return 0;
+            } else if(type == long.class) {
+                return 0l;
+            } else if(type == float.class) {
+                return 0f;
+            }
+            return 0d;
+        }
+    }
+}
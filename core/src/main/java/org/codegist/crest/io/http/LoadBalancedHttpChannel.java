@@ -0,0 +1,180 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.io.balancing.EndPointGroup;
+import org.codegist.crest.io.balancing.Member;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HttpChannel reporting the request outcome to the end-point group it has been balanced by. The outcome is reported exactly once, as a failure if the channel is aborted or if any of its operations fails.
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.http.LoadBalancingHttpChannelFactory
+ */
+class LoadBalancedHttpChannel implements HttpChannel {
+
+    private static final int MIN_SERVER_ERROR_STATUS_CODE = 500;
+
+    private final HttpChannel delegate;
+    private final EndPointGroup group;
+    private final Member member;
+    private final long start;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    LoadBalancedHttpChannel(HttpChannel delegate, EndPointGroup group, Member member, long start) {
+        this.delegate = delegate;
+        this.group = group;
+        this.member = member;
+        this.start = start;
+    }
+
+    public Response send() throws IOException {
+        Response response;
+        int status;
+        boolean done = false;
+        try {
+            response = delegate.send();
+            status = response.getStatusCode();
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+        complete(status >= MIN_SERVER_ERROR_STATUS_CODE);
+        return response;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void writeEntityWith(HttpEntityWriter httpEntityWriter) throws IOException {
+        boolean done = false;
+        try {
+            delegate.writeEntityWith(httpEntityWriter);
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setSocketTimeout(int timeout) throws IOException {
+        boolean done = false;
+        try {
+            delegate.setSocketTimeout(timeout);
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setConnectionTimeout(int timeout) throws IOException {
+        boolean done = false;
+        try {
+            delegate.setConnectionTimeout(timeout);
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void addHeader(String name, String value) throws IOException {
+        boolean done = false;
+        try {
+            delegate.addHeader(name, value);
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setHeader(String name, String value) throws IOException {
+        boolean done = false;
+        try {
+            delegate.setHeader(name, value);
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setContentType(String value) throws IOException {
+        boolean done = false;
+        try {
+            delegate.setContentType(value);
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setAccept(String value) throws IOException {
+        boolean done = false;
+        try {
+            delegate.setAccept(value);
+            done = true;
+        } finally {
+            failUnless(done);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void abort() {
+        try {
+            delegate.abort();
+        } finally {
+            complete(true);
+        }
+    }
+
+    private void failUnless(boolean done) {
+        if(!done) {
+            complete(true);
+        }
+    }
+
+    /* runs once, whichever thread gets there first, ie a deadline abort racing the send */
+    private void complete(boolean failed) {
+        if(completed.compareAndSet(false, true)) {
+            group.onResponse(member, System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.MethodType;
+import org.codegist.crest.io.ConcurrencyLimitListener;
+import org.codegist.crest.io.balancing.EndPointGroup;
+import org.codegist.crest.io.balancing.Member;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+/**
+ * <p>HttpChannelFactory that balances the requests of logical end-points across the members of their {@link org.codegist.crest.io.balancing.EndPointGroup}.</p>
+ * <p>The urls starting with a group's logical end-point get it replaced by the base url of the member chosen by the group, before being delegated. Each request outcome is reported back to the group: a request fails if it can't be sent or if it gets a server error status code (&gt;= 500).</p>
+ * <p>Requests carrying a shard key are routed to the member owning the key in the group.</p>
+ * <p>Urls that don't belong to any group are directly delegated.</p>
+ * <p>Concurrency limit changes of a logical end-point are applied to the route of each of its members.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRestBuilder#loadBalance(String, String...)
+ */
+public class LoadBalancingHttpChannelFactory implements ShardAwareHttpChannelFactory, ConcurrencyLimitListener, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(LoadBalancingHttpChannelFactory.class);
+
+    private final HttpChannelFactory delegate;
+    private final EndPointGroup[] groups;
+    private final ConcurrencyLimitListener limitListener;
+
+    /**
+     * @param delegate The HttpChannelFactory to delegate the calls to
+     * @param groups end-point groups to balance
+     */
+    public LoadBalancingHttpChannelFactory(HttpChannelFactory delegate, Collection<EndPointGroup> groups) {
+        this(delegate, groups, null);
+    }
+
+    /**
+     * @param delegate The HttpChannelFactory to delegate the calls to
+     * @param groups end-point groups to balance
+     * @param limitListener listener to notify of the limit changes of the members routes, can be null
+     */
+    public LoadBalancingHttpChannelFactory(HttpChannelFactory delegate, Collection<EndPointGroup> groups, ConcurrencyLimitListener limitListener) {
+        this.delegate = delegate;
+        this.groups = groups.toArray(new EndPointGroup[groups.size()]);
+        this.limitListener = limitListener;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+        return open(methodType, url, charset, null);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset, String shardKey) throws IOException {
+        EndPointGroup group = groupOf(url);
+        if(group == null) {
+            return delegate.open(methodType, url, charset);
+        }
+        Member member = group.choose(shardKey);
+        String memberUrl = member.getUrl() + url.substring(group.getName().length());
+        LOGGER.debug("Balancing %s to %s", url, memberUrl);
+        long start = System.nanoTime();
+        try {
+            return new LoadBalancedHttpChannel(delegate.open(methodType, memberUrl, charset), group, member, start);
+        } catch (IOException e) {
+            group.onResponse(member, System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    public void onLimitChange(String endPoint, int limit) {
+        if(limitListener == null) {
+            return;
+        }
+        EndPointGroup group = groupOf(endPoint);
+        if(group == null) {
+            limitListener.onLimitChange(endPoint, limit);
+            return;
+        }
+        for(Member member : group.getMembers()) {
+            LOGGER.debug("Applying limit %d of %s to %s", limit, endPoint, member.getUrl());
+            limitListener.onLimitChange(member.getUrl(), limit);
+        }
+    }
+
+    private EndPointGroup groupOf(String url) {
+        for(EndPointGroup group : groups) {
+            String name = group.getName();
+            if(url.startsWith(name) && (url.length() == name.length() || isDelimiter(url.charAt(name.length())))) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '/' || c == '?' || c == ';' || c == '#';
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+}
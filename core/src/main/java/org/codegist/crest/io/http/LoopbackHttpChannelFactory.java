@@ -0,0 +1,246 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>HttpChannelFactory serving responses from memory, no socket involved.</p>
+ * <p>Responses are looked up by method type and URL, then by method type and URL without its query string. Routes given several responses serve them in turn, in the order they have been added. Requests matching no route get an empty 404 response.</p>
+ * <p>The route table is either built programmatically, ie to isolate CRest's own overhead in benchmarks, or loaded from a {@link org.codegist.crest.io.http.HttpJournal} of real exchanges recorded with the {@link org.codegist.crest.io.http.RecordingHttpChannelFactory}, optionally replaying their recorded latencies.</p>
+ * <p>Request entities are written to a discarding stream, so that their serialization is still performed.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.http.LoopbackResponse
+ */
+public class LoopbackHttpChannelFactory implements HttpChannelFactory {
+
+    private static final LoopbackResponse NOT_FOUND = new LoopbackResponse(404, "Not Found", null, null, Collections.<String, String>emptyMap(), null);
+    private static final long MILLISECOND = 1000000l;
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<String, Route>();
+    private final boolean replayLatency;
+
+    /**
+     * Creates a factory with an empty route table
+     */
+    public LoopbackHttpChannelFactory() {
+        this.replayLatency = false;
+    }
+
+    /**
+     * Creates a factory replaying the given journal's exchanges
+     * @param journal journal to load the routes from
+     * @param replayLatency whether to delay each response by its recorded latency
+     */
+    public LoopbackHttpChannelFactory(HttpJournal journal, boolean replayLatency) {
+        this.replayLatency = replayLatency;
+        for (HttpJournal.Entry entry : journal.getEntries()) {
+            routeFor(entry.getMethodType(), entry.getUrl()).add(new Served(entry.getResponse(), entry.getLatency()));
+        }
+    }
+
+    /**
+     * Adds a response to serve for the given method type and URL, served in turn with any other added to the same route
+     * @param methodType request method type
+     * @param url request URL, with or without query string
+     * @param response response to serve
+     * @return current factory
+     */
+    public LoopbackHttpChannelFactory addRoute(MethodType methodType, String url, LoopbackResponse response) {
+        routeFor(methodType, url).add(new Served(response, 0));
+        return this;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+        Route route = routes.get(key(methodType, url));
+        int query = url.indexOf('?');
+        if(route == null && query >= 0) {
+            route = routes.get(key(methodType, url.substring(0, query)));
+        }
+        return new LoopbackHttpChannel(route != null ? route.next() : new Served(NOT_FOUND, 0));
+    }
+
+    private Route routeFor(MethodType methodType, String url) {
+        String key = key(methodType, url);
+        Route route = routes.get(key);
+        if(route == null) {
+            Route newRoute = new Route();
+            route = routes.putIfAbsent(key, newRoute);
+            if(route == null) {
+                route = newRoute;
+            }
+        }
+        return route;
+    }
+
+    private static String key(MethodType methodType, String url) {
+        return methodType.name() + " " + url;
+    }
+
+    private static final class Route {
+        private final List<Served> responses = new CopyOnWriteArrayList<Served>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        void add(Served served) {
+            responses.add(served);
+        }
+
+        Served next() {
+            return responses.get((next.getAndIncrement() & Integer.MAX_VALUE) % responses.size());
+        }
+    }
+
+    private static final class Served {
+        private final LoopbackResponse response;
+        private final long latency;
+
+        private Served(LoopbackResponse response, long latency) {
+            this.response = response;
+            this.latency = latency;
+        }
+    }
+
+    private final class LoopbackHttpChannel implements HttpChannel {
+
+        private final Served served;
+        private HttpEntityWriter httpEntityWriter;
+        private int socketTimeout;
+
+        private LoopbackHttpChannel(Served served) {
+            this.served = served;
+        }
+
+        public void setSocketTimeout(int timeout) {
+            this.socketTimeout = timeout;
+        }
+
+        public void setConnectionTimeout(int timeout) {
+        }
+
+        public void addHeader(String name, String value) {
+        }
+
+        public void setHeader(String name, String value) {
+        }
+
+        public void setContentType(String value) {
+        }
+
+        public void setAccept(String value) {
+        }
+
+        public void writeEntityWith(HttpEntityWriter httpEntityWriter) {
+            this.httpEntityWriter = httpEntityWriter;
+        }
+
+        public Response send() throws IOException {
+            if(httpEntityWriter != null) {
+                httpEntityWriter.writeEntityTo(DISCARD);
+            }
+            if(replayLatency && served.latency > 0) {
+                long timeout = socketTimeout > 0 ? socketTimeout * MILLISECOND : Long.MAX_VALUE;
+                sleep(Math.min(served.latency, timeout));
+                if(served.latency > timeout) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+            }
+            return new LoopbackChannelResponse(served.response);
+        }
+
+        public void abort() {
+        }
+
+        private void sleep(long nanos) throws InterruptedIOException {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private static final class LoopbackChannelResponse implements HttpChannel.Response {
+
+        private final LoopbackResponse response;
+        private InputStream entity;
+
+        private LoopbackChannelResponse(LoopbackResponse response) {
+            this.response = response;
+        }
+
+        public int getStatusCode() {
+            return response.getStatusCode();
+        }
+
+        public String getStatusMessage() {
+            return response.getStatusMessage();
+        }
+
+        public InputStream getEntity() {
+            if(entity == null) {
+                entity = response.getEntity();
+            }
+            return entity;
+        }
+
+        public String getContentType() {
+            return response.getContentType();
+        }
+
+        public String getContentEncoding() {
+            return response.getContentEncoding();
+        }
+
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        public void close() {
+        }
+    }
+}
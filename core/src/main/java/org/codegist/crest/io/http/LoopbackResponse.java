@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Immutable HTTP response served by the {@link org.codegist.crest.io.http.LoopbackHttpChannelFactory}.</p>
+ * <p>The entity is preloaded once into a read-only direct buffer, each served response reading from its own view of it, so serving a response neither copies nor allocates the entity.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public final class LoopbackResponse {
+
+    private static final byte[] NO_ENTITY = new byte[0];
+
+    private final int statusCode;
+    private final String statusMessage;
+    private final String contentType;
+    private final String contentEncoding;
+    private final Map<String, String> headers;
+    private final ByteBuffer entity;
+
+    /**
+     * @param statusCode response status code
+     * @param contentType response content type, null if none
+     * @param entity response entity, null if none
+     */
+    public LoopbackResponse(int statusCode, String contentType, byte[] entity) {
+        this(statusCode, null, contentType, null, Collections.<String, String>emptyMap(), entity);
+    }
+
+    /**
+     * @param statusCode response status code
+     * @param statusMessage response status message, null if none
+     * @param contentType response content type, null if none
+     * @param contentEncoding response content encoding, null if none
+     * @param headers response headers, header names are case insensitive
+     * @param entity response entity, null if none
+     */
+    public LoopbackResponse(int statusCode, String statusMessage, String contentType, String contentEncoding, Map<String, String> headers, byte[] entity) {
+        byte[] bytes = entity != null ? entity : NO_ENTITY;
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+        this.headers = new HashMap<String, String>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            this.headers.put(header.getKey().toLowerCase(), header.getValue());
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        this.entity = buffer.asReadOnlyBuffer();
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * @param name header name, case insensitive
+     * @return the header value, null if not set
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    /**
+     * @return the response headers, keyed by lower cased header names
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * @return the entity length in bytes
+     */
+    public int getContentLength() {
+        return entity.limit();
+    }
+
+    /**
+     * @return a new input stream over the entity
+     */
+    public InputStream getEntity() {
+        return new ByteBufferInputStream(entity.duplicate());
+    }
+
+    /**
+     * @return a copy of the entity bytes
+     */
+    public byte[] getEntityBytes() {
+        byte[] bytes = new byte[entity.limit()];
+        entity.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if(len == 0) {
+                return 0;
+            }
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.min(Math.max(n, 0), buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
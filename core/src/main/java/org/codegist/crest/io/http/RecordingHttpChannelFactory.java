@@ -0,0 +1,239 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.crest.config.MethodType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>HttpChannelFactory decorator recording the exchanges of any other channel factory into a {@link org.codegist.crest.io.http.HttpJournal}, to be replayed later by the {@link org.codegist.crest.io.http.LoopbackHttpChannelFactory}.</p>
+ * <p>Exchanges are recorded once their response is closed, with their full entity, the response being read to its end if needed. As channel responses can't enumerate their headers, only the content type, content encoding and the given headers are recorded.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class RecordingHttpChannelFactory implements HttpChannelFactory, Disposable {
+
+    private final HttpChannelFactory delegate;
+    private final HttpJournal journal;
+    private final String[] headerNames;
+
+    /**
+     * @param delegate the HttpChannelFactory to delegate the channels opening to
+     * @param journal journal to record the exchanges to
+     * @param headerNames names of the response headers to record
+     */
+    public RecordingHttpChannelFactory(HttpChannelFactory delegate, HttpJournal journal, String... headerNames) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.headerNames = headerNames.clone();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+        return new RecordingHttpChannel(delegate.open(methodType, url, charset), methodType, url);
+    }
+
+    public void dispose() {
+        Disposables.dispose(delegate);
+    }
+
+    private final class RecordingHttpChannel implements HttpChannel {
+
+        private final HttpChannel delegate;
+        private final MethodType methodType;
+        private final String url;
+
+        private RecordingHttpChannel(HttpChannel delegate, MethodType methodType, String url) {
+            this.delegate = delegate;
+            this.methodType = methodType;
+            this.url = url;
+        }
+
+        public void setSocketTimeout(int timeout) throws IOException {
+            delegate.setSocketTimeout(timeout);
+        }
+
+        public void setConnectionTimeout(int timeout) throws IOException {
+            delegate.setConnectionTimeout(timeout);
+        }
+
+        public void addHeader(String name, String value) throws IOException {
+            delegate.addHeader(name, value);
+        }
+
+        public void setHeader(String name, String value) throws IOException {
+            delegate.setHeader(name, value);
+        }
+
+        public void setContentType(String value) throws IOException {
+            delegate.setContentType(value);
+        }
+
+        public void setAccept(String value) throws IOException {
+            delegate.setAccept(value);
+        }
+
+        public void writeEntityWith(HttpEntityWriter httpEntityWriter) throws IOException {
+            delegate.writeEntityWith(httpEntityWriter);
+        }
+
+        public Response send() throws IOException {
+            long start = System.nanoTime();
+            Response response = delegate.send();
+            return new RecordingResponse(response, methodType, url, System.nanoTime() - start);
+        }
+
+        public void abort() {
+            delegate.abort();
+        }
+    }
+
+    private final class RecordingResponse implements HttpChannel.Response {
+
+        private final HttpChannel.Response delegate;
+        private final MethodType methodType;
+        private final String url;
+        private final long latency;
+        private final ByteArrayOutputStream entityCopy = new ByteArrayOutputStream();
+        private CopyingInputStream entity;
+        private boolean closed;
+
+        private RecordingResponse(HttpChannel.Response delegate, MethodType methodType, String url, long latency) {
+            this.delegate = delegate;
+            this.methodType = methodType;
+            this.url = url;
+            this.latency = latency;
+        }
+
+        public int getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        public String getStatusMessage() throws IOException {
+            return delegate.getStatusMessage();
+        }
+
+        public InputStream getEntity() throws IOException {
+            if(entity == null) {
+                InputStream in = delegate.getEntity();
+                entity = in != null ? new CopyingInputStream(in, entityCopy) : null;
+            }
+            return entity;
+        }
+
+        public String getContentType() throws IOException {
+            return delegate.getContentType();
+        }
+
+        public String getContentEncoding() throws IOException {
+            return delegate.getContentEncoding();
+        }
+
+        public String getHeader(String name) throws IOException {
+            return delegate.getHeader(name);
+        }
+
+        public void close() throws IOException {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            try {
+                getEntity();
+                if(entity != null) {
+                    entity.drain();
+                }
+                Map<String, String> headers = new HashMap<String, String>();
+                for (String headerName : headerNames) {
+                    String value = delegate.getHeader(headerName);
+                    if(value != null) {
+                        headers.put(headerName, value);
+                    }
+                }
+                journal.record(methodType, url, latency, new LoopbackResponse(delegate.getStatusCode(), delegate.getStatusMessage(), delegate.getContentType(), delegate.getContentEncoding(), headers, entityCopy.toByteArray()));
+            } finally {
+                delegate.close();
+            }
+        }
+    }
+
+    private static final class CopyingInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream copy;
+        private boolean closed;
+
+        private CopyingInputStream(InputStream in, ByteArrayOutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if(b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if(n > 0) {
+                copy.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+
+        /**
+         * Reads the remaining entity into the copy, unless the stream has already been closed
+         */
+        void drain() throws IOException {
+            if(closed) {
+                return;
+            }
+            byte[] buffer = new byte[4096];
+            while(read(buffer, 0, buffer.length) >= 0) {
+                /* copied by read */
+            }
+        }
+    }
+}
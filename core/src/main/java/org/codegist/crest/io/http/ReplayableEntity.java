@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>Copy of a request entity captured the first time it is written, so that retries, redirects and authentication challenges can send it again without serializing it again. Entities read from an InputStream can only be serialized once.</p>
+ * <p>The entity is kept in a pooled {@link org.codegist.crest.io.http.EntityBuffer} up to the given threshold, and spilled to a temporary file above it. The file is deleted once the entity is released.</p>
+ * @author laurent.gilles@codegist.org
+ */
+final class ReplayableEntity extends OutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int memoryThreshold;
+    private EntityBuffer buffer = new EntityBuffer();
+    private File file;
+    private OutputStream fileOut;
+    private long size;
+    private boolean captured;
+    private boolean released;
+
+    /**
+     * @param memoryThreshold maximum amount of bytes kept in memory, bigger entities are spilled to a temporary file
+     */
+    ReplayableEntity(int memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        target(1).write(b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        target(len).write(b, off, len);
+        size += len;
+    }
+
+    /**
+     * Ends the capture, the entity can then be written out.
+     */
+    @Override
+    public void close() throws IOException {
+        if(fileOut != null) {
+            fileOut.close();
+            fileOut = null;
+        }
+        captured = true;
+    }
+
+    /**
+     * @return whether the entity has been fully captured
+     */
+    boolean isCaptured() {
+        return captured;
+    }
+
+    /**
+     * @return whether the entity has been spilled to a temporary file
+     */
+    boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * @return the amount of bytes captured
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Writes the captured entity to the given stream, can be called any number of times until the entity is released.
+     * @param out stream to write the entity to
+     * @throws IOException Any IO exception thrown while reading the temporary file or writing to the given stream
+     */
+    void writeTo(OutputStream out) throws IOException {
+        if(!captured || released) {
+            throw new IllegalStateException("Entity not captured or already released");
+        }
+        if(file == null) {
+            buffer.writeTo(out);
+            return;
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] chunk = new byte[BUFFER_SIZE];
+            int read;
+            while((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Gives the buffer back to the pool and deletes the temporary file. The entity must not be used anymore.
+     */
+    void release() {
+        if(released) {
+            return;
+        }
+        released = true;
+        if(buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        if(fileOut != null) {
+            try {
+                fileOut.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            fileOut = null;
+        }
+        if(file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private OutputStream target(int len) throws IOException {
+        if(captured || released) {
+            throw new IllegalStateException("Entity already captured");
+        }
+        if(fileOut == null && size + len > memoryThreshold) {
+            spill();
+        }
+        return fileOut != null ? fileOut : buffer;
+    }
+
+    private void spill() throws IOException {
+        file = File.createTempFile("crest-entity", null);
+        fileOut = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        buffer.writeTo(fileOut);
+        buffer.release();
+        buffer = null;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * HTTP Channel's factory able to route requests by shard key
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.annotate.ShardKey
+ */
+public interface ShardAwareHttpChannelFactory extends HttpChannelFactory {
+
+    /**
+     * Opens a new HTTP Channel for a request carrying the given shard key. Requests carrying the same key are pointed to the same destination.
+     * @param methodType the HTTP method type of the HTTP channel
+     * @param url the URL to point the HTTP channel to
+     * @param charset the charset used to write to the HTTP channel
+     * @param shardKey the request shard key, null if the request has none
+     * @return a new HTTP Channel
+     * @throws IOException
+     */
+    HttpChannel open(MethodType methodType, String url, Charset charset, String shardKey) throws IOException;
+
+}
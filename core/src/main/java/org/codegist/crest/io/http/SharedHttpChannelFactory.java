@@ -0,0 +1,65 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * <p>HttpChannelFactory shared with other <b>CRest</b> instances, ie by the instances derived from the one owning it.</p>
+ * <p>Channels opening is delegated, but the delegate isn't disposed along with the sharing instance, leaving it to its owner.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRest#derive()
+ */
+public class SharedHttpChannelFactory implements ShardAwareHttpChannelFactory {
+
+    private final HttpChannelFactory delegate;
+
+    /**
+     * @param delegate the shared HttpChannelFactory
+     */
+    public SharedHttpChannelFactory(HttpChannelFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+        return delegate.open(methodType, url, charset);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset, String shardKey) throws IOException {
+        return delegate instanceof ShardAwareHttpChannelFactory ? ((ShardAwareHttpChannelFactory) delegate).open(methodType, url, charset, shardKey) : delegate.open(methodType, url, charset);
+    }
+
+    /**
+     * @return the shared HttpChannelFactory
+     */
+    public HttpChannelFactory getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Validate;
+import org.codegist.common.log.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Bounded, sampled and asynchronous HTTP wire logger.</p>
+ * <p>Only the configured fraction of the exchanges is sampled, and only the first bytes of their entities are captured, so logging never buffers a whole body nor slows down the calls not sampled. Sampling is deterministic and lock-free: out of every N exchanges, exactly N x rate are sampled, evenly spread.</p>
+ * <p>Completed records are handed over to a single daemon writer thread through a bounded queue. When the queue is full, the record is dropped rather than blocking the invocation thread, and counted as such.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.http.WireLoggingHttpChannelFactory
+ */
+public class WireLogger implements Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(WireLogger.class);
+    private static final int DEFAULT_MAX_ENTITY_SIZE = 4096;
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final float sampleRate;
+    private final int maxEntitySize;
+    private final BlockingQueue<WireRecord> queue;
+    private final AtomicLong exchangeCount = new AtomicLong();
+    private final AtomicLong loggedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Thread writer;
+
+    /**
+     * @param sampleRate fraction of the exchanges to log, between 0 and 1
+     */
+    public WireLogger(float sampleRate) {
+        this(sampleRate, DEFAULT_MAX_ENTITY_SIZE);
+    }
+
+    /**
+     * @param sampleRate fraction of the exchanges to log, between 0 and 1
+     * @param maxEntitySize maximum amount of bytes of each request and response entity to log
+     */
+    public WireLogger(float sampleRate, int maxEntitySize) {
+        this(sampleRate, maxEntitySize, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param sampleRate fraction of the exchanges to log, between 0 and 1
+     * @param maxEntitySize maximum amount of bytes of each request and response entity to log
+     * @param capacity maximum amount of records pending to be written, records are dropped beyond
+     */
+    public WireLogger(float sampleRate, int maxEntitySize, int capacity) {
+        Validate.isTrue(sampleRate >= 0 && sampleRate <= 1, "Sample rate must be between 0 and 1");
+        Validate.isTrue(maxEntitySize >= 0, "Max entity size must be positive");
+        Validate.isTrue(capacity > 0, "Capacity must be strictly positive");
+        this.sampleRate = sampleRate;
+        this.maxEntitySize = maxEntitySize;
+        this.queue = new ArrayBlockingQueue<WireRecord>(capacity);
+    }
+
+    /**
+     * @return the maximum amount of bytes of each entity to log
+     */
+    public int getMaxEntitySize() {
+        return maxEntitySize;
+    }
+
+    /**
+     * @return the amount of exchanges logged so far
+     */
+    public long getLoggedCount() {
+        return loggedCount.get();
+    }
+
+    /**
+     * @return the amount of sampled exchanges dropped as the writer couldn't keep up
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return whether the next exchange must be logged
+     */
+    boolean sample() {
+        if(sampleRate <= 0) {
+            return false;
+        }
+        long n = exchangeCount.incrementAndGet();
+        return (long) (n * (double) sampleRate) != (long) ((n - 1) * (double) sampleRate);
+    }
+
+    /**
+     * Hands the given completed record over to the writer thread, or drops it if too many are pending
+     * @param record record to log
+     */
+    void publish(WireRecord record) {
+        if(queue.offer(record)) {
+            startWriter();
+        } else {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the given record, called by the writer thread
+     * @param record record to write
+     */
+    void write(WireRecord record) {
+        LOGGER.info(record.format());
+        loggedCount.incrementAndGet();
+    }
+
+    private void startWriter() {
+        if(started.compareAndSet(false, true)) {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while(!Thread.currentThread().isInterrupted()) {
+                            WireRecord record = queue.take();
+                            try {
+                                write(record);
+                            } catch (RuntimeException e) {
+                                LOGGER.warn(e, "Failed to log HTTP exchange");
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "CRest-WireLogger");
+            thread.setDaemon(true);
+            thread.start();
+            writer = thread;
+        }
+    }
+
+    public void dispose() {
+        started.set(true);
+        Thread thread = writer;
+        if(thread != null) {
+            thread.interrupt();
+        }
+        queue.clear();
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * HttpChannel decorator recording the exchange into a {@link org.codegist.crest.io.http.WireRecord}, published to the wire logger once the response is closed.
+ * @author laurent.gilles@codegist.org
+ */
+class WireLoggingHttpChannel implements HttpChannel {
+
+    private final HttpChannel delegate;
+    private final WireLogger wireLogger;
+    private final WireRecord record;
+
+    WireLoggingHttpChannel(HttpChannel delegate, WireLogger wireLogger, WireRecord record) {
+        this.delegate = delegate;
+        this.wireLogger = wireLogger;
+        this.record = record;
+    }
+
+    public void setSocketTimeout(int timeout) throws IOException {
+        delegate.setSocketTimeout(timeout);
+    }
+
+    public void setConnectionTimeout(int timeout) throws IOException {
+        delegate.setConnectionTimeout(timeout);
+    }
+
+    public void addHeader(String name, String value) throws IOException {
+        record.addRequestHeader(name, value);
+        delegate.addHeader(name, value);
+    }
+
+    public void setHeader(String name, String value) throws IOException {
+        record.addRequestHeader(name, value);
+        delegate.setHeader(name, value);
+    }
+
+    public void setContentType(String value) throws IOException {
+        record.addRequestHeader("Content-Type", value);
+        delegate.setContentType(value);
+    }
+
+    public void setAccept(String value) throws IOException {
+        record.addRequestHeader("Accept", value);
+        delegate.setAccept(value);
+    }
+
+    public void writeEntityWith(final HttpEntityWriter httpEntityWriter) throws IOException {
+        delegate.writeEntityWith(new HttpEntityWriter() {
+            public void writeEntityTo(OutputStream out) throws IOException {
+                /* decorated channels may write the entity more than once, only the last write goes on the wire */
+                WireRecord.Capture capture = record.getRequestEntity();
+                capture.reset();
+                httpEntityWriter.writeEntityTo(new CapturingOutputStream(out, capture));
+            }
+
+            public int getContentLength() {
+                return httpEntityWriter.getContentLength();
+            }
+
+            public boolean isRepeatable() {
+                return httpEntityWriter.isRepeatable();
+            }
+        });
+    }
+
+    public Response send() throws IOException {
+        try {
+            return new WireLoggingResponse(delegate.send());
+        } catch (IOException e) {
+            record.setFailure(e);
+            record.complete();
+            wireLogger.publish(record);
+            throw e;
+        }
+    }
+
+    public void abort() {
+        delegate.abort();
+    }
+
+    private final class WireLoggingResponse implements Response {
+
+        private final Response delegate;
+        private InputStream entity;
+        private boolean closed;
+
+        private WireLoggingResponse(Response delegate) {
+            this.delegate = delegate;
+        }
+
+        public int getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        public String getStatusMessage() throws IOException {
+            return delegate.getStatusMessage();
+        }
+
+        public InputStream getEntity() throws IOException {
+            if(entity == null) {
+                InputStream in = delegate.getEntity();
+                entity = in != null ? new CapturingInputStream(in, record.getResponseEntity()) : null;
+            }
+            return entity;
+        }
+
+        public String getContentType() throws IOException {
+            return delegate.getContentType();
+        }
+
+        public String getContentEncoding() throws IOException {
+            return delegate.getContentEncoding();
+        }
+
+        public String getHeader(String name) throws IOException {
+            return delegate.getHeader(name);
+        }
+
+        public void close() throws IOException {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            try {
+                record.setResponse(delegate.getStatusCode(), delegate.getStatusMessage(), delegate.getContentType(), delegate.getContentEncoding());
+            } catch (IOException e) {
+                record.setFailure(e);
+            }
+            try {
+                delegate.close();
+            } finally {
+                record.complete();
+                wireLogger.publish(record);
+            }
+        }
+    }
+
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final WireRecord.Capture capture;
+
+        private CapturingOutputStream(OutputStream out, WireRecord.Capture capture) {
+            super(out);
+            this.capture = capture;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            capture.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            capture.write(b, off, len);
+        }
+    }
+
+    private static final class CapturingInputStream extends FilterInputStream {
+        private final WireRecord.Capture capture;
+
+        private CapturingInputStream(InputStream in, WireRecord.Capture capture) {
+            super(in);
+            this.capture = capture;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if(b >= 0) {
+                capture.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if(n > 0) {
+                capture.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.crest.config.MethodType;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * <p>HttpChannelFactory decorator logging a sample of the HTTP exchanges through the given {@link org.codegist.crest.io.http.WireLogger}.</p>
+ * <p>Channels of the exchanges not sampled are returned undecorated, and sampled ones only capture the first bytes of their entities, formatting being left to the wire logger's writer thread.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.io.http.WireLogger
+ */
+public class WireLoggingHttpChannelFactory implements ShardAwareHttpChannelFactory, Disposable {
+
+    private final HttpChannelFactory delegate;
+    private final WireLogger wireLogger;
+    private final boolean sharedWireLogger;
+
+    /**
+     * @param delegate the HttpChannelFactory to delegate the channels opening to
+     * @param wireLogger the wire logger to log the sampled exchanges with
+     */
+    public WireLoggingHttpChannelFactory(HttpChannelFactory delegate, WireLogger wireLogger) {
+        this(delegate, wireLogger, false);
+    }
+
+    /**
+     * @param delegate the HttpChannelFactory to delegate the channels opening to
+     * @param wireLogger the wire logger to log the sampled exchanges with
+     * @param sharedWireLogger whether the wire logger is shared with other factories, in which case it isn't disposed along with this one
+     */
+    public WireLoggingHttpChannelFactory(HttpChannelFactory delegate, WireLogger wireLogger, boolean sharedWireLogger) {
+        this.delegate = delegate;
+        this.wireLogger = wireLogger;
+        this.sharedWireLogger = sharedWireLogger;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+        return open(methodType, url, charset, null);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset, String shardKey) throws IOException {
+        HttpChannel channel = delegate instanceof ShardAwareHttpChannelFactory ? ((ShardAwareHttpChannelFactory) delegate).open(methodType, url, charset, shardKey) : delegate.open(methodType, url, charset);
+        if(!wireLogger.sample()) {
+            return channel;
+        }
+        return new WireLoggingHttpChannel(channel, wireLogger, new WireRecord(methodType, url, charset, wireLogger.getMaxEntitySize()));
+    }
+
+    public void dispose() {
+        try {
+            if(!sharedWireLogger) {
+                wireLogger.dispose();
+            }
+        } finally {
+            Disposables.dispose(delegate);
+        }
+    }
+}
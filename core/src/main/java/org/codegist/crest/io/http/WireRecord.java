@@ -0,0 +1,183 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Record of a sampled HTTP exchange, capturing its request and response headers and the beginning of their entities. Captures are filled by the invocation thread and formatted by the wire logger's writer thread once published.
+ * @author laurent.gilles@codegist.org
+ */
+final class WireRecord {
+
+    private static final Pattern CHARSET = Pattern.compile("charset=([^;\\s]+)", Pattern.CASE_INSENSITIVE);
+    private static final Charset DEFAULT_CHARSET = Charset.forName("ISO-8859-1");
+
+    private final MethodType methodType;
+    private final String url;
+    private final Charset charset;
+    private final long start = System.nanoTime();
+    private final List<String> requestHeaders = new ArrayList<String>();
+    private final Capture requestEntity;
+    private final Capture responseEntity;
+    private volatile long duration = -1;
+    private volatile int statusCode = -1;
+    private volatile String statusMessage;
+    private volatile String responseContentType;
+    private volatile String responseContentEncoding;
+    private volatile String failure;
+
+    WireRecord(MethodType methodType, String url, Charset charset, int maxEntitySize) {
+        this.methodType = methodType;
+        this.url = url;
+        this.charset = charset;
+        this.requestEntity = new Capture(maxEntitySize);
+        this.responseEntity = new Capture(maxEntitySize);
+    }
+
+    void addRequestHeader(String name, String value) {
+        requestHeaders.add(name + ": " + value);
+    }
+
+    Capture getRequestEntity() {
+        return requestEntity;
+    }
+
+    Capture getResponseEntity() {
+        return responseEntity;
+    }
+
+    void setResponse(int statusCode, String statusMessage, String contentType, String contentEncoding) {
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.responseContentType = contentType;
+        this.responseContentEncoding = contentEncoding;
+    }
+
+    void setFailure(Throwable failure) {
+        this.failure = String.valueOf(failure);
+    }
+
+    void complete() {
+        this.duration = System.nanoTime() - start;
+    }
+
+    String format() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(methodType).append(' ').append(url).append(" (").append(duration / 1000000l).append("ms)");
+        for (String header : requestHeaders) {
+            sb.append("\n> ").append(header);
+        }
+        requestEntity.appendTo(sb.append("\n> "), charset);
+        if(failure != null) {
+            return sb.append("\n< ").append(failure).toString();
+        }
+        sb.append("\n< ").append(statusCode).append(' ').append(statusMessage);
+        if(responseContentType != null) {
+            sb.append("\n< Content-Type: ").append(responseContentType);
+        }
+        if(responseContentEncoding != null) {
+            sb.append("\n< Content-Encoding: ").append(responseContentEncoding);
+        }
+        responseEntity.appendTo(sb.append("\n< "), charsetOf(responseContentType));
+        return sb.toString();
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if(contentType == null) {
+            return DEFAULT_CHARSET;
+        }
+        Matcher matcher = CHARSET.matcher(contentType);
+        try {
+            return matcher.find() ? Charset.forName(matcher.group(1).replace("\"", "")) : DEFAULT_CHARSET;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_CHARSET;
+        }
+    }
+
+    /**
+     * Bounded capture of an entity, keeping its first bytes and counting the rest
+     */
+    static final class Capture {
+        private final int max;
+        private byte[] bytes;
+        private int size;
+        private long total;
+
+        Capture(int max) {
+            this.max = max;
+        }
+
+        void reset() {
+            size = 0;
+            total = 0;
+        }
+
+        void write(int b) {
+            total++;
+            if(size < max) {
+                ensureCapacity(size + 1);
+                bytes[size++] = (byte) b;
+            }
+        }
+
+        void write(byte[] b, int off, int len) {
+            total += len;
+            int n = Math.min(len, max - size);
+            if(n > 0) {
+                ensureCapacity(size + n);
+                System.arraycopy(b, off, bytes, size, n);
+                size += n;
+            }
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if(bytes == null) {
+                bytes = new byte[Math.min(Math.max(capacity, 256), max)];
+            } else if(capacity > bytes.length) {
+                byte[] grown = new byte[Math.min(Math.max(capacity, bytes.length * 2), max)];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+        }
+
+        void appendTo(StringBuilder sb, Charset charset) {
+            if(total == 0) {
+                sb.append("(no entity)");
+                return;
+            }
+            sb.append(new String(bytes, 0, size, charset));
+            if(total > size) {
+                sb.append("... (").append(total - size).append(" more bytes, ").append(total).append(" total)");
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.crest.config.MethodConfig;
+
+/**
+ * Metrics collector notifying several collectors in turn, ie to both publish the metrics over JMX and record them as JFR events.
+ * @author laurent.gilles@codegist.org
+ */
+public class CompositeMetricsCollector implements MetricsCollector, Disposable {
+
+    private final MetricsCollector[] delegates;
+
+    /**
+     * @param delegates collectors to notify, in the given order
+     */
+    public CompositeMetricsCollector(MetricsCollector... delegates) {
+        this.delegates = delegates.clone();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onStageStart(MethodConfig methodConfig, Stage stage) {
+        for (MetricsCollector delegate : delegates) {
+            delegate.onStageStart(methodConfig, stage);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onStage(MethodConfig methodConfig, Stage stage, long nanos) {
+        for (MetricsCollector delegate : delegates) {
+            delegate.onStage(methodConfig, stage, nanos);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onExchange(MethodConfig methodConfig, int statusCode, long bytesOut, long bytesIn) {
+        for (MetricsCollector delegate : delegates) {
+            delegate.onExchange(methodConfig, statusCode, bytesOut, bytesIn);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onRetry(MethodConfig methodConfig, int attemptNumber) {
+        for (MetricsCollector delegate : delegates) {
+            delegate.onRetry(methodConfig, attemptNumber);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onError(MethodConfig methodConfig, Exception error) {
+        for (MetricsCollector delegate : delegates) {
+            delegate.onError(methodConfig, error);
+        }
+    }
+
+    public void dispose() {
+        for (MetricsCollector delegate : delegates) {
+            Disposables.dispose(delegate);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.MethodConfig;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Default metrics collector, keeping a {@link org.codegist.crest.metrics.MethodMetrics} per method and publishing them over JMX.</p>
+ * <p>Collection is lock-free and does not allocate once a method's metrics exist: counters are striped and the stage histograms have fixed buckets.</p>
+ * <p>Each method's metrics are registered on their first notification under the name <code>org.codegist.crest:type=Metrics,name=&lt;collector name&gt;,interface=&lt;interface name&gt;,method=&lt;method signature&gt;,endpoint=&lt;end-point&gt;</code>, suffixed with <code>,instance=&lt;n&gt;</code> if the same method has been built more than once for the same end-point, and unregistered when the collector gets disposed, which the {@link org.codegist.crest.CRest} it has been given to does on its own disposal. Failing to register them is logged and does not prevent their collection.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class DefaultMetricsCollector implements MetricsCollector, Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(DefaultMetricsCollector.class);
+    private static final String DOMAIN = "org.codegist.crest";
+    private static final String DEFAULT_NAME = "default";
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final ConcurrentMap<MethodConfig, MethodMetrics> metrics = new ConcurrentHashMap<MethodConfig, MethodMetrics>();
+    private final ConcurrentMap<MethodMetrics, ObjectName> registrations = new ConcurrentHashMap<MethodMetrics, ObjectName>();
+    private final MBeanServer mBeanServer;
+    private final String name;
+
+    /**
+     * Creates a collector publishing to the platform MBean server under a name unique to this instance, ie "default-1"
+     */
+    public DefaultMetricsCollector() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_NAME + "-" + INSTANCES.incrementAndGet());
+    }
+
+    /**
+     * @param mBeanServer MBean server to publish the metrics to, null not to publish them
+     * @param name collector name, distinguishing the metrics of several collectors published to the same MBean server, thus expected to be unique
+     */
+    public DefaultMetricsCollector(MBeanServer mBeanServer, String name) {
+        this.mBeanServer = mBeanServer;
+        this.name = name;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onStageStart(MethodConfig methodConfig, Stage stage) {
+        /* only the durations are recorded */
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onStage(MethodConfig methodConfig, Stage stage, long nanos) {
+        metricsFor(methodConfig).getTimer(stage).record(nanos);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onExchange(MethodConfig methodConfig, int statusCode, long bytesOut, long bytesIn) {
+        metricsFor(methodConfig).onExchange(bytesOut, bytesIn);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onRetry(MethodConfig methodConfig, int attemptNumber) {
+        metricsFor(methodConfig).onRetry();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onError(MethodConfig methodConfig, Exception error) {
+        metricsFor(methodConfig).onError();
+    }
+
+    /**
+     * @param methodConfig method config to get the metrics of
+     * @return the metrics of the given method, null if it hasn't been invoked yet
+     */
+    public MethodMetrics get(MethodConfig methodConfig) {
+        return metrics.get(methodConfig);
+    }
+
+    /**
+     * @return the metrics of all the methods invoked so far
+     */
+    public Collection<MethodMetrics> getAll() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+    private MethodMetrics metricsFor(MethodConfig methodConfig) {
+        MethodMetrics methodMetrics = metrics.get(methodConfig);
+        if(methodMetrics == null) {
+            MethodMetrics newMetrics = new MethodMetrics(methodConfig);
+            methodMetrics = metrics.putIfAbsent(methodConfig, newMetrics);
+            if(methodMetrics == null) {
+                methodMetrics = newMetrics;
+                register(methodMetrics);
+            }
+        }
+        return methodMetrics;
+    }
+
+    private void register(MethodMetrics methodMetrics) {
+        if(mBeanServer == null) {
+            return;
+        }
+        try {
+            String baseName = DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name) + ",interface=" + ObjectName.quote(methodMetrics.getInterface()) + ",method=" + ObjectName.quote(methodMetrics.getMethod()) + ",endpoint=" + ObjectName.quote(String.valueOf(methodMetrics.getEndPoint()));
+            ObjectName objectName = new ObjectName(baseName);
+            for (int i = 2; mBeanServer.isRegistered(objectName); i++) {
+                objectName = new ObjectName(baseName + ",instance=" + i);
+            }
+            mBeanServer.registerMBean(methodMetrics, objectName);
+            registrations.put(methodMetrics, objectName);
+            LOGGER.debug("Registered metrics MBean %s", objectName);
+        } catch (Exception e) {
+            LOGGER.warn(e, "Failed to register %s", methodMetrics);
+        }
+    }
+
+    /**
+     * Unregisters all the published metrics
+     */
+    public void dispose() {
+        for (ObjectName objectName : registrations.values()) {
+            try {
+                mBeanServer.unregisterMBean(objectName);
+            } catch (Exception e) {
+                LOGGER.debug(e, "Failed to unregister %s", objectName);
+            }
+        }
+        registrations.clear();
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.util.StripedCounter;
+
+import javax.management.*;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Metrics of a method, tagged by its interface, method and end-point.</p>
+ * <p>Instances are published over JMX as read-only dynamic MBeans. Besides the tags, the retry and error counts and the amount of bytes sent and received, each stage exposes the following attributes, prefixed by the stage name in camel case (ie FirstByteCount): Count, MeanMicros, MaxMicros, P50Micros, P99Micros and P999Micros. A reset operation clears all the metrics.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.metrics.DefaultMetricsCollector
+ */
+public final class MethodMetrics implements DynamicMBean {
+
+    private static final String[] STAGE_ATTRIBUTES = {"Count", "MeanMicros", "MaxMicros", "P50Micros", "P99Micros", "P999Micros"};
+    private static final String RESET = "reset";
+    private static final MBeanInfo MBEAN_INFO = buildMBeanInfo();
+
+    private final String interfaceName;
+    private final String methodName;
+    private final String endPoint;
+    private final StageTimer[] timers = new StageTimer[Stage.values().length];
+    private final StripedCounter retryCount = new StripedCounter();
+    private final StripedCounter errorCount = new StripedCounter();
+    private final StripedCounter bytesOut = new StripedCounter();
+    private final StripedCounter bytesIn = new StripedCounter();
+
+    /**
+     * @param methodConfig method config to build the metrics tags from
+     */
+    public MethodMetrics(MethodConfig methodConfig) {
+        Method method = methodConfig.getMethod();
+        this.interfaceName = method.getDeclaringClass().getName();
+        this.methodName = signatureOf(method);
+        this.endPoint = methodConfig.getEndPoint();
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new StageTimer();
+        }
+    }
+
+    /**
+     * @param stage stage to get the timer of
+     * @return the timer of the given stage
+     */
+    public StageTimer getTimer(Stage stage) {
+        return timers[stage.ordinal()];
+    }
+
+    /**
+     * @return the interface name tag
+     */
+    public String getInterface() {
+        return interfaceName;
+    }
+
+    /**
+     * @return the method tag, as its name followed by its parameters simple type names, ie get(String,int)
+     */
+    public String getMethod() {
+        return methodName;
+    }
+
+    /**
+     * @return the end-point tag
+     */
+    public String getEndPoint() {
+        return endPoint;
+    }
+
+    /**
+     * @return the amount of retries
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * @return the amount of failed invocations
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * @return the amount of request entity bytes sent
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * @return the amount of response entity bytes read
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    void onExchange(long bytesOut, long bytesIn) {
+        this.bytesOut.add(bytesOut);
+        this.bytesIn.add(bytesIn);
+    }
+
+    void onRetry() {
+        retryCount.increment();
+    }
+
+    void onError() {
+        errorCount.increment();
+    }
+
+    /**
+     * Resets all the metrics
+     */
+    public void reset() {
+        for (StageTimer timer : timers) {
+            timer.reset();
+        }
+        retryCount.reset();
+        errorCount.reset();
+        bytesOut.reset();
+        bytesIn.reset();
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if("Interface".equals(attribute)) {
+            return interfaceName;
+        } else if("Method".equals(attribute)) {
+            return methodName;
+        } else if("EndPoint".equals(attribute)) {
+            return endPoint;
+        } else if("RetryCount".equals(attribute)) {
+            return getRetryCount();
+        } else if("ErrorCount".equals(attribute)) {
+            return getErrorCount();
+        } else if("BytesOut".equals(attribute)) {
+            return getBytesOut();
+        } else if("BytesIn".equals(attribute)) {
+            return getBytesIn();
+        }
+        for (Stage stage : Stage.values()) {
+            String prefix = prefixOf(stage);
+            if(attribute.startsWith(prefix)) {
+                return getStageAttribute(getTimer(stage), attribute, attribute.substring(prefix.length()));
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    private static Object getStageAttribute(StageTimer timer, String attribute, String name) throws AttributeNotFoundException {
+        if("Count".equals(name)) {
+            return timer.getCount();
+        } else if("MeanMicros".equals(name)) {
+            return timer.getMeanMicros();
+        } else if("MaxMicros".equals(name)) {
+            return timer.getMaxNanos() / 1000l;
+        } else if("P50Micros".equals(name)) {
+            return timer.getPercentileMicros(0.5f);
+        } else if("P99Micros".equals(name)) {
+            return timer.getPercentileMicros(0.99f);
+        } else if("P999Micros".equals(name)) {
+            return timer.getPercentileMicros(0.999f);
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // ignored as per DynamicMBean contract
+            }
+        }
+        return list;
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Read-only attribute: " + attribute.getName());
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if(RESET.equals(actionName)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        return MBEAN_INFO;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodMetrics[interface=" + interfaceName + ", method=" + methodName + ", endPoint=" + endPoint + "]";
+    }
+
+    static String signatureOf(Method method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append("(");
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            sb.append(i > 0 ? "," : "").append(types[i].getSimpleName());
+        }
+        return sb.append(")").toString();
+    }
+
+    private static String prefixOf(Stage stage) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : stage.name().split("_")) {
+            sb.append(word.charAt(0)).append(word.substring(1).toLowerCase());
+        }
+        return sb.toString();
+    }
+
+    private static MBeanInfo buildMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        attributes.add(new MBeanAttributeInfo("Interface", String.class.getName(), "Interface name", true, false, false));
+        attributes.add(new MBeanAttributeInfo("Method", String.class.getName(), "Method signature", true, false, false));
+        attributes.add(new MBeanAttributeInfo("EndPoint", String.class.getName(), "End-point", true, false, false));
+        attributes.add(new MBeanAttributeInfo("RetryCount", Long.class.getName(), "Amount of retries", true, false, false));
+        attributes.add(new MBeanAttributeInfo("ErrorCount", Long.class.getName(), "Amount of failed invocations", true, false, false));
+        attributes.add(new MBeanAttributeInfo("BytesOut", Long.class.getName(), "Amount of request entity bytes sent", true, false, false));
+        attributes.add(new MBeanAttributeInfo("BytesIn", Long.class.getName(), "Amount of response entity bytes read", true, false, false));
+        for (Stage stage : Stage.values()) {
+            String prefix = prefixOf(stage);
+            for (String name : STAGE_ATTRIBUTES) {
+                attributes.add(new MBeanAttributeInfo(prefix + name, Long.class.getName(), stage + " " + name, true, false, false));
+            }
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "Resets all the metrics", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(MethodMetrics.class.getName(), "CRest method metrics", attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, new MBeanOperationInfo[]{reset}, null);
+    }
+}
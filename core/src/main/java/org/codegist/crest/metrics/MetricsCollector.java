@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.crest.config.MethodConfig;
+
+/**
+ * <p>Metrics SPI, notified at each stage of the invocation pipeline.</p>
+ * <p>Notifications are tagged by the method config, giving access to the interface, method and end-point the invocation has been made for. Implementations are called from the invocation threads, from the hedged attempts' threads and from the threads reading the response entities, and must be thread-safe and as cheap as possible. State kept across the notifications of a call must be attached to its {@link org.codegist.crest.metrics.MetricsContext} rather than to the notifying thread.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.CRestBuilder#setMetricsCollector(MetricsCollector)
+ */
+public interface MetricsCollector {
+
+    /**
+     * Notified when a stage of an invocation starts, on the thread running it. A stage may be notified as started more than once, ie the response wait restarting once the request entity has been written, the last notification being the one its completion is reported for. A started stage may never be reported as completed, if it fails or if there is nothing to time.
+     * @param methodConfig method config of the invocation
+     * @param stage starting stage
+     */
+    void onStageStart(MethodConfig methodConfig, Stage stage);
+
+    /**
+     * Notified when a stage of an invocation completes, on the thread it has been started from
+     * @param methodConfig method config of the invocation
+     * @param stage completed stage
+     * @param nanos stage duration in nanoseconds
+     */
+    void onStage(MethodConfig methodConfig, Stage stage, long nanos);
+
+    /**
+     * Notified when a request/response exchange completes, once its response gets closed
+     * @param methodConfig method config of the invocation
+     * @param statusCode response status code, -1 if unknown
+     * @param bytesOut amount of request entity bytes sent
+     * @param bytesIn amount of response entity bytes read
+     */
+    void onExchange(MethodConfig methodConfig, int statusCode, long bytesOut, long bytesIn);
+
+    /**
+     * Notified when a request is about to be retried
+     * @param methodConfig method config of the invocation
+     * @param attemptNumber number of the attempt about to be made
+     */
+    void onRetry(MethodConfig methodConfig, int attemptNumber);
+
+    /**
+     * Notified when an invocation fails, before the method's error handler gets called
+     * @param methodConfig method config of the invocation
+     * @param error invocation failure
+     */
+    void onError(MethodConfig methodConfig, Exception error);
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Context of the call the metrics notified by the current thread are for.</p>
+ * <p>A call's stages are not all notified by the thread that made it: hedged attempts run on their own thread, and a response entity can be read once the call has returned. A new context is set for each call made while a metrics collector is configured, and carried along to the threads working on its behalf, so that {@link org.codegist.crest.metrics.MetricsCollector} implementations can attach their per-call state to it rather than to the notifying thread.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public final class MetricsContext {
+
+    private static final ThreadLocal<MetricsContext> CURRENT = new ThreadLocal<MetricsContext>();
+
+    private final ConcurrentMap<Object, Object> attachments = new ConcurrentHashMap<Object, Object>();
+
+    /**
+     * Sets the context of the calls made by the current thread
+     * @param context context, null to clear it
+     */
+    public static void set(MetricsContext context) {
+        if(context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    /**
+     * @return the context of the call the current thread is working on, null if none
+     */
+    public static MetricsContext get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Clears the context of the current thread
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @param key attachment key
+     * @return the object attached with the given key, null if none
+     */
+    public Object getAttachment(Object key) {
+        return attachments.get(key);
+    }
+
+    /**
+     * Attaches the given object unless one is already attached with the given key
+     * @param key attachment key
+     * @param value object to attach
+     * @return the object attached with the given key, either the given one or the one attached before
+     */
+    public Object attach(Object key, Object value) {
+        Object previous = attachments.putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+}
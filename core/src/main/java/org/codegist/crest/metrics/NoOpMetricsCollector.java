@@ -0,0 +1,65 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.crest.config.MethodConfig;
+
+/**
+ * Empty metrics collector. Does nothing.
+ * @author laurent.gilles@codegist.org
+ */
+public class NoOpMetricsCollector implements MetricsCollector {
+
+    /**
+     * @inheritDoc
+     */
+    public void onStageStart(MethodConfig methodConfig, Stage stage) {
+
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onStage(MethodConfig methodConfig, Stage stage, long nanos) {
+
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onExchange(MethodConfig methodConfig, int statusCode, long bytesOut, long bytesIn) {
+
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onRetry(MethodConfig methodConfig, int attemptNumber) {
+
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onError(MethodConfig methodConfig, Exception error) {
+
+    }
+}
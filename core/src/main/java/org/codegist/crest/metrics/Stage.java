@@ -0,0 +1,56 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+/**
+ * Stages of a method invocation timed by the {@link org.codegist.crest.metrics.MetricsCollector}.
+ * @author laurent.gilles@codegist.org
+ */
+public enum Stage {
+    /**
+     * Whole invocation, from the request building to the response handling, including the retries
+     */
+    CALL,
+    /**
+     * Request building out of the method arguments
+     */
+    REQUEST_BUILDING,
+    /**
+     * Serialization of the request entity to the channel
+     */
+    SERIALIZATION,
+    /**
+     * Channel opening, including the connection acquisition if the channel factory pools them
+     */
+    CONNECTION,
+    /**
+     * Time from the request being sent, excluding the entity serialization, to the response status being received
+     */
+    FIRST_BYTE,
+    /**
+     * Time spent reading the response entity from the channel
+     */
+    BODY_READ,
+    /**
+     * Response handling, including the deserialization of the response entity and the time spent reading it
+     */
+    DESERIALIZATION
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.crest.util.StripedCounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lock-free, fixed-memory timer of a stage, holding the amount of recordings, their total and maximum duration, and a histogram of their durations.</p>
+ * <p>The histogram buckets are powers of two in microseconds, from 1&micro;s to about 36 minutes. Percentiles are therefore reported as the upper bound of their bucket, overestimating them by at most a factor of two. Recording does not allocate.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public final class StageTimer {
+
+    static final int BUCKET_COUNT = 32;
+    private static final long MICROSECOND = 1000l;
+
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter totalNanos = new StripedCounter();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Records a duration
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if(nanos < 0) {
+            return;
+        }
+        count.increment();
+        totalNanos.add(nanos);
+        buckets.incrementAndGet(indexOf(nanos / MICROSECOND));
+        long max;
+        while(nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos));
+    }
+
+    /**
+     * @return the amount of recorded durations
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the total of the recorded durations in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return the maximum recorded duration in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return the mean of the recorded durations in microseconds, 0 if none has been recorded
+     */
+    public long getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotalNanos() / count / MICROSECOND;
+    }
+
+    /**
+     * @param percentile percentile to get, between 0 and 1, ie 0.99
+     * @return the upper bound in microseconds of the bucket the given percentile falls in, 0 if no duration has been recorded
+     */
+    public long getPercentileMicros(float percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if(total == 0) {
+            return 0;
+        }
+        /* tolerates the float representation error, ie 0.99f being slightly above 0.99 */
+        long rank = Math.max((long) Math.ceil(total * (double) percentile - 1e-6), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return 1l << i;
+            }
+        }
+        return 1l << (BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Resets the timer
+     */
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    /* bucket i holds the durations within ]2^(i-1),2^i] microseconds */
+    static int indexOf(long micros) {
+        if(micros <= 1) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(micros - 1), BUCKET_COUNT - 1);
+    }
+}
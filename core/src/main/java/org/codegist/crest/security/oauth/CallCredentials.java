@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.security.oauth;
+
+/**
+ * <p>Access token of calls, overriding the one the {@link org.codegist.crest.security.oauth.OAuthorization} has been created with, so that a single CRest instance can sign requests on behalf of multiple users or tenants.</p>
+ * <p>A token can be given to the calls made by the current thread as follow:</p>
+ * <code><pre>
+ * CallCredentials.set(tenantAccessToken);
+ * try {
+ *     myApi.getSomething();
+ *     myApi.getSomethingElse();
+ * } finally {
+ *     CallCredentials.clear();
+ * }
+ * </pre></code>
+ * <p>The token is looked up when the request is signed, right before it is sent, and applies to all the calls made until cleared. Call tokens are owned by the caller and are never refreshed: {@link org.codegist.crest.security.oauth.OAuthorization#refresh()} leaves them untouched.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.security.oauth.OAuthorization
+ */
+public final class CallCredentials {
+
+    private static final ThreadLocal<OAuthToken> CURRENT = new ThreadLocal<OAuthToken>();
+
+    private CallCredentials() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Sets the access token of the calls made by the current thread
+     * @param accessOAuthToken access token, null to clear it
+     */
+    public static void set(OAuthToken accessOAuthToken) {
+        if(accessOAuthToken == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(accessOAuthToken);
+        }
+    }
+
+    /**
+     * @return the access token of the calls made by the current thread, null if none
+     */
+    public static OAuthToken get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Clears the access token of the calls made by the current thread
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -21,10 +21,12 @@
 package org.codegist.crest.security.oauth;
 
 import org.codegist.common.lang.State;
+import org.codegist.common.log.Logger;
 import org.codegist.crest.config.MethodType;
 import org.codegist.crest.param.EncodedPair;
 import org.codegist.crest.security.Authorization;
 import org.codegist.crest.security.AuthorizationToken;
+import org.codegist.crest.util.TimerWheel;
 
 import java.util.List;
 
@@ -32,13 +34,26 @@ import static org.codegist.crest.util.Pairs.join;
 
 /**
  * <p>OAuth implementation of the {@link org.codegist.crest.security.Authorization} interface.</p>
+ * <p>Requests are signed with the access token given for the current thread's calls by {@link org.codegist.crest.security.oauth.CallCredentials}, if any, or with the one the authorization has been created with otherwise.</p>
+ * <p>Access token refreshes are coalesced: a single refresh runs per access token, concurrent callers waiting for it to complete. Callers whose request was signed with an access token that has already been refreshed don't refresh it again, their request just needs to be signed again with the new one.</p>
+ * <p>When given a timer wheel, access tokens with a known lifetime, as given by the <code>oauth_expires_in</code> attribute of the OAuth Session extension, are refreshed in the background ahead of their expiry, so that requests rarely get to find them expired.</p>
  * @author Laurent Gilles (laurent.gilles@codegist.org)
+ * @see <a href="http://oauth.googlecode.com/svn/spec/ext/session/1.0/drafts/1/spec.html">OAuth Session 1.0 Draft 1</a>
  */
 public class OAuthorization implements Authorization {
 
+    static final String EXPIRES_IN = "oauth_expires_in";
+    static final long MIN_REFRESH_DELAY = 1000l;
+    private static final Logger LOGGER = Logger.getLogger(OAuthorization.class);
+
     private final OAuthenticator oauth;
     private final OAuthApi oauthApi;
+    private final TimerWheel timerWheel;
+    private final long refreshAhead;
+    private final Object refreshLock = new Object();
+    private final ThreadLocal<OAuthToken> signedWith = new ThreadLocal<OAuthToken>();
     private volatile OAuthToken accessOAuthToken;
+    private TimerWheel.Timeout scheduledRefresh;
 
     /**
      * @param accessOAuthToken Access token to use to authentify requests
@@ -55,22 +70,111 @@ public class OAuthorization implements Authorization {
      * @param oauthApi oauth api to use to refresh access token if it expires
      */
     public OAuthorization(OAuthToken accessOAuthToken, OAuthenticator oauth, OAuthApi oauthApi) {
+        this(accessOAuthToken, oauth, oauthApi, null, 0);
+    }
+
+    /**
+     *
+     * @param accessOAuthToken Access token to use to authentify requests
+     * @param oauth oauthenticator instance
+     * @param oauthApi oauth api to use to refresh access token if it expires
+     * @param timerWheel timer wheel to schedule the access token refreshes ahead of their expiry with, null to only refresh them once expired
+     * @param refreshAhead time in milliseconds before the access token expiry to refresh it at
+     */
+    public OAuthorization(OAuthToken accessOAuthToken, OAuthenticator oauth, OAuthApi oauthApi, TimerWheel timerWheel, long refreshAhead) {
         this.oauth = oauth;
         this.oauthApi = oauthApi;
+        this.timerWheel = oauthApi != null ? timerWheel : null;
+        this.refreshAhead = refreshAhead;
         this.accessOAuthToken = accessOAuthToken;
+        synchronized (refreshLock) {
+            scheduleRefresh(accessOAuthToken);
+        }
     }
 
     /**
      * @inheritDoc
      */
     public AuthorizationToken authorize(MethodType methodType, String url, EncodedPair... parameters)  throws Exception{
-        List<EncodedPair> oauthParams = oauth.oauth(this.accessOAuthToken, methodType, url, parameters);
+        OAuthToken token = CallCredentials.get();
+        if(token == null) {
+            token = this.accessOAuthToken;
+        }
+        /* overwritten on each signing, so that a refresh only ever considers the current thread's last request */
+        signedWith.set(token);
+        List<EncodedPair> oauthParams = oauth.oauth(token, methodType, url, parameters);
         return new AuthorizationToken("OAuth", join(oauthParams, ',', '=', false, true));
     }
 
+    /**
+     * Refreshes the access token the authorization has been created with, unless the current thread's last request has been signed with an access token that has already been refreshed since. Waits for the completion of any refresh in progress. Does nothing for the calls made with their own access token, as given by {@link org.codegist.crest.security.oauth.CallCredentials}.
+     * @inheritDoc
+     */
     public void refresh()  throws Exception{
+        OAuthToken stale = signedWith.get();
+        signedWith.remove();
+        if(CallCredentials.get() != null) {
+            LOGGER.debug("Call credentials in use, skipping access token refresh");
+            return;
+        }
         State.notNull(oauthApi, "AccessToken refresh impossible, you must specify the oauth_session_handle and refresh access token url, see CRestBuilder.");
-        this.accessOAuthToken = oauthApi.refreshAccessToken(this.accessOAuthToken);
+        refresh(stale != null ? stale : this.accessOAuthToken);
+    }
+
+    private void refresh(OAuthToken stale) throws Exception {
+        synchronized (refreshLock) {
+            if(stale != this.accessOAuthToken) {
+                LOGGER.debug("Access token already refreshed, skipping refresh");
+                return;
+            }
+            OAuthToken refreshed = oauthApi.refreshAccessToken(stale);
+            this.accessOAuthToken = refreshed;
+            scheduleRefresh(refreshed);
+        }
+    }
+
+    private void scheduleRefresh(final OAuthToken token) {
+        if(scheduledRefresh != null) {
+            scheduledRefresh.cancel();
+            scheduledRefresh = null;
+        }
+        String expiresIn = timerWheel != null && token != null ? token.getAttributes().get(EXPIRES_IN) : null;
+        if(expiresIn == null) {
+            return;
+        }
+        long delay;
+        try {
+            delay = Long.parseLong(expiresIn.trim()) * 1000l - refreshAhead;
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid %s attribute \"%s\", access token won't be refreshed ahead of its expiry", EXPIRES_IN, expiresIn);
+            return;
+        }
+        if(delay < MIN_REFRESH_DELAY) {
+            /* a lifetime shorter than the refresh ahead time would otherwise refresh in a tight loop */
+            LOGGER.warn("Access token lifetime of %ss too short to be refreshed %dms ahead of its expiry, refreshing it in %dms", expiresIn.trim(), refreshAhead, MIN_REFRESH_DELAY);
+            delay = MIN_REFRESH_DELAY;
+        }
+        LOGGER.debug("Access token to be refreshed in %dms", delay);
+        try {
+            scheduledRefresh = timerWheel.schedule(new Runnable() {
+                public void run() {
+                    // the refresh is a remote call, timer wheel tasks must not block
+                    Thread thread = new Thread(new Runnable() {
+                        public void run() {
+                            try {
+                                refresh(token);
+                            } catch (Exception e) {
+                                LOGGER.warn(e, "Access token refresh ahead of expiry failed, will be refreshed once expired");
+                            }
+                        }
+                    }, "crest-oauth-refresh");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }, delay);
+        } catch (IllegalStateException e) {
+            LOGGER.debug("Timer wheel disposed, access token won't be refreshed ahead of its expiry");
+        }
     }
 
 }
@@ -23,15 +23,32 @@ package org.codegist.crest.security.oauth.v1;
 import java.security.SecureRandom;
 import java.util.Random;
 
+/**
+ * Default {@link org.codegist.crest.security.oauth.v1.VariantProvider}, drawing the nonces from a random generator confined to the calling thread, as a single SecureRandom shared by all the threads signing requests becomes a point of contention.
+ */
 class DefaultVariantProvider implements VariantProvider {
 
-    static final DefaultVariantProvider INSTANCE = new DefaultVariantProvider(new SecureRandom());
+    static final DefaultVariantProvider INSTANCE = new DefaultVariantProvider();
     
-    private final Random rdm;
+    private final ThreadLocal<Random> rdm;
     private static final long SECONDS = 1000l;
 
-    DefaultVariantProvider(Random rdm){
-        this.rdm = rdm;
+    DefaultVariantProvider(){
+        this.rdm = new ThreadLocal<Random>() {
+            @Override
+            protected Random initialValue() {
+                return new SecureRandom();
+            }
+        };
+    }
+
+    DefaultVariantProvider(final Random rdm){
+        this.rdm = new ThreadLocal<Random>() {
+            @Override
+            protected Random initialValue() {
+                return rdm;
+            }
+        };
     }
 
     public String timestamp() {
@@ -39,6 +56,6 @@ class DefaultVariantProvider implements VariantProvider {
     }
 
     public String nonce() {
-        return String.valueOf(System.currentTimeMillis() + rdm.nextLong());
+        return String.valueOf(System.currentTimeMillis() + rdm.get().nextLong());
     }
-}
\ No newline at end of file
+}
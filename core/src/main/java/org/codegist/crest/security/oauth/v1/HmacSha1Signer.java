@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.security.oauth.v1;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>HMAC-SHA1 signer bound to a single key.</p>
+ * <p>Looking up a Mac from the security providers and initializing it with a key both cost far more than signing an OAuth base string, so the Mac is initialized once and cloned for each signature, the clone starting from the initialized state. Clones are never shared, the signer can be used by concurrent threads. Providers whose Mac can not be cloned get a new Mac initialized for each signature.</p>
+ * @author laurent.gilles@codegist.org
+ */
+final class HmacSha1Signer {
+
+    static final String ALGORITHM = "HmacSHA1";
+
+    private final SecretKeySpec key;
+    private final Mac prototype;
+
+    HmacSha1Signer(SecretKeySpec key) throws NoSuchAlgorithmException, InvalidKeyException {
+        this.key = key;
+        Mac mac = newMac(key);
+        Mac cloneable;
+        try {
+            mac.clone();
+            cloneable = mac;
+        } catch (CloneNotSupportedException e) {
+            cloneable = null;
+        }
+        this.prototype = cloneable;
+    }
+
+    /**
+     * @param data data to sign
+     * @param offset offset of the first byte to sign
+     * @param length amount of bytes to sign
+     * @return the signature
+     */
+    byte[] sign(byte[] data, int offset, int length) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = mac();
+        mac.update(data, offset, length);
+        return mac.doFinal();
+    }
+
+    private Mac mac() throws NoSuchAlgorithmException, InvalidKeyException {
+        if(prototype != null) {
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                // checked on construction
+            }
+        }
+        return newMac(key);
+    }
+
+    private static Mac newMac(SecretKeySpec key) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(key);
+        return mac;
+    }
+}
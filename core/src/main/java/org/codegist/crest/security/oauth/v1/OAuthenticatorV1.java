@@ -20,6 +20,7 @@
 
 package org.codegist.crest.security.oauth.v1;
 
+import org.codegist.common.lang.Validate;
 import org.codegist.crest.config.MethodType;
 import org.codegist.crest.param.EncodedPair;
 import org.codegist.crest.security.oauth.OAuthToken;
@@ -31,31 +32,53 @@ import java.security.NoSuchAlgorithmException;
 import java.util.List;
 
 /**
- * OAuth V1.0 implementation of {@link org.codegist.crest.security.oauth.OAuthenticator}
+ * OAuth V1.0 implementation of {@link org.codegist.crest.security.oauth.OAuthenticator}.
+ * The signing keys derived from the access tokens are cached, up to the given maximum amount of tokens, so that requests signed on behalf of multiple users don't derive them on every call.
  * @author Laurent Gilles (laurent.gilles@codegist.org)
  */
 public class OAuthenticatorV1 implements OAuthenticator {
 
+    /**
+     * Default maximum amount of access tokens the signing keys are cached for
+     */
+    public static final int DEFAULT_MAX_SIGNING_KEYS = 256;
+
     private final VariantProvider variantProvider;
     private final OAuthToken consumerOAuthToken;
+    private final SignerCache signers;
 
     /**
      *
      * @param consumerOAuthToken Consumer token to use
      */
     public OAuthenticatorV1(OAuthToken consumerOAuthToken) {
-        this(consumerOAuthToken, DefaultVariantProvider.INSTANCE);
+        this(consumerOAuthToken, DEFAULT_MAX_SIGNING_KEYS);
+    }
+
+    /**
+     *
+     * @param consumerOAuthToken Consumer token to use
+     * @param maxSigningKeys maximum amount of access tokens the signing keys are cached for
+     */
+    public OAuthenticatorV1(OAuthToken consumerOAuthToken, int maxSigningKeys) {
+        this(consumerOAuthToken, DefaultVariantProvider.INSTANCE, maxSigningKeys);
     }
 
     OAuthenticatorV1(OAuthToken consumerOAuthToken, VariantProvider variantProvider) {
+        this(consumerOAuthToken, variantProvider, DEFAULT_MAX_SIGNING_KEYS);
+    }
+
+    OAuthenticatorV1(OAuthToken consumerOAuthToken, VariantProvider variantProvider, int maxSigningKeys) {
+        Validate.isTrue(maxSigningKeys > 0, "maxSigningKeys must be strictly positive");
         this.variantProvider = variantProvider;
         this.consumerOAuthToken = consumerOAuthToken;
+        this.signers = new SignerCache(consumerOAuthToken, maxSigningKeys);
     }
 
     /**
      * @inheritDoc
      */
     public List<EncodedPair> oauth(OAuthToken accessOAuthToken, MethodType methodType, String url, EncodedPair... parameters) throws InvalidKeyException, NoSuchAlgorithmException, UnsupportedEncodingException {
-        return OAuthsV1.oauth(variantProvider, consumerOAuthToken, accessOAuthToken, methodType, url, parameters);
+        return OAuthsV1.oauth(variantProvider, consumerOAuthToken, accessOAuthToken, signers.get(accessOAuthToken), methodType, url, parameters);
     }
 }
@@ -20,14 +20,12 @@
 
 package org.codegist.crest.security.oauth.v1;
 
-import org.codegist.common.codec.Base64;
 import org.codegist.common.log.Logger;
 import org.codegist.crest.config.MethodType;
 import org.codegist.crest.param.EncodedPair;
 import org.codegist.crest.security.oauth.OAuthToken;
 import org.codegist.crest.util.Pairs;
 
-import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
@@ -37,8 +35,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Arrays.asList;
-import static org.codegist.common.net.Urls.encode;
-import static org.codegist.crest.util.Pairs.join;
 import static org.codegist.crest.util.Pairs.sortByNameAndValues;
 
 /**
@@ -55,7 +51,10 @@ final class OAuthsV1 {
     private static final Logger LOGGER = Logger.getLogger(OAuthsV1.class);
     private static final OAuthToken IGNORE_POISON = new OAuthToken("","");
     private static final String SIGN_METH = "HMAC-SHA1";
-    private static final String SIGN_METH_4_J = "HmacSHA1";
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int BASE_STRING_CAPACITY = 512;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
     private static final int AFTER_PROTOCOL_INDEX = 8;
 
     /**
@@ -110,34 +109,180 @@ final class OAuthsV1 {
                                    MethodType methodType, String url,
                                    EncodedPair[] parameters,
                                    EncodedPair... extrasOAuthParams) throws UnsupportedEncodingException, InvalidKeyException, NoSuchAlgorithmException {
+        return oauth(variant, consumerOAuthToken, accessOAuthToken, signer(consumerOAuthToken, accessOAuthToken), methodType, url, parameters, extrasOAuthParams);
+    }
+
+    static List<EncodedPair> oauth(VariantProvider variant,
+                                   OAuthToken consumerOAuthToken,
+                                   OAuthToken accessOAuthToken,
+                                   HmacSha1Signer signer,
+                                   MethodType methodType, String url,
+                                   EncodedPair[] parameters,
+                                   EncodedPair... extrasOAuthParams) throws UnsupportedEncodingException, InvalidKeyException, NoSuchAlgorithmException {
         List<EncodedPair> oauthParams = oauthParamsFor(variant, consumerOAuthToken, accessOAuthToken, extrasOAuthParams); // generate base oauth params
-        List<EncodedPair> toSign = new ArrayList<EncodedPair>(oauthParams);
-        toSign.addAll(asList(parameters));
-        String signature = sign(consumerOAuthToken, accessOAuthToken, methodType , url, toSign);
+        EncodedPair[] toSign = oauthParams.toArray(new EncodedPair[oauthParams.size() + parameters.length]);
+        System.arraycopy(parameters, 0, toSign, oauthParams.size(), parameters.length);
+        String signature = sign(signer, methodType , url, toSign);
         oauthParams.add(pair("oauth_signature", signature));
         return oauthParams;
     }
 
-    private static String sign(OAuthToken consumerOAuthToken, OAuthToken accessOAuthToken, MethodType methodType, String url, List<EncodedPair> oauthParams) throws NoSuchAlgorithmException, UnsupportedEncodingException, InvalidKeyException {
-        // first, sort the list without changing the one given
-        List<EncodedPair> sorted = sortByNameAndValues(oauthParams);
-
-        String signUri = constructRequestURL(url);
-        String signParams = join(sorted, '&', '=', false, false);
+    /**
+     * @param consumerOAuthToken consumer token
+     * @param accessOAuthToken access token
+     * @return the signer of the requests signed with the given tokens
+     * @see <a href="http://oauth.net/core/1.0#rfc.section.9.2">OAuth Core - 9.2.  HMAC-SHA1</a>
+     */
+    static HmacSha1Signer signer(OAuthToken consumerOAuthToken, OAuthToken accessOAuthToken) throws NoSuchAlgorithmException, InvalidKeyException {
         String signature = consumerOAuthToken.getSecret() + "&" + accessOAuthToken.getSecret();
+        return new HmacSha1Signer(new SecretKeySpec(signature.getBytes(ENC), HmacSha1Signer.ALGORITHM));
+    }
 
-        Mac mac = Mac.getInstance(SIGN_METH_4_J);
-        mac.init(new SecretKeySpec(signature.getBytes(ENC), SIGN_METH_4_J));
+    private static String sign(HmacSha1Signer signer, MethodType methodType, String url, EncodedPair[] oauthParams) throws NoSuchAlgorithmException, InvalidKeyException {
+        // the array is ours, sort it in place
+        sortByNameAndValues(oauthParams);
 
-        String data = methodType.name() + "&" + encode(signUri, ENC) + "&" + encode(signParams, ENC);
-        String encoded = new String(Base64.encodeToByte(mac.doFinal(data.getBytes(ENC))), ENC);
+        // the pairs are already percent-encoded, so are encoded a second time as a whole, as per the spec
+        BaseString data = new BaseString(BASE_STRING_CAPACITY)
+                .append(methodType.name()).append('&')
+                .appendEncoded(constructRequestURL(url)).append('&');
+        for (int i = 0; i < oauthParams.length; i++) {
+            if(i > 0) {
+                data.appendEncoded('&');
+            }
+            data.appendEncoded(oauthParams[i].getName()).appendEncoded('=').appendEncoded(oauthParams[i].getValue());
+        }
+
+        String encoded = base64(signer.sign(data.bytes(), 0, data.length()));
 
-        LOGGER.debug("Signature[data=\"%s\",signature=\"%s\",result=\"%s\"]", data, signature, encoded);
+        LOGGER.debug("Signature[data=\"%s\",result=\"%s\"]", data, encoded);
         return encoded;
     }
 
+    private static String base64(byte[] bytes) {
+        char[] chars = new char[(bytes.length + 2) / 3 * 4];
+        int c = 0;
+        for (int i = 0; i < bytes.length; i += 3) {
+            int b = (bytes[i] & 0xff) << 16;
+            if(i + 1 < bytes.length) {
+                b |= (bytes[i + 1] & 0xff) << 8;
+            }
+            if(i + 2 < bytes.length) {
+                b |= bytes[i + 2] & 0xff;
+            }
+            chars[c++] = BASE64[(b >>> 18) & 0x3f];
+            chars[c++] = BASE64[(b >>> 12) & 0x3f];
+            chars[c++] = i + 1 < bytes.length ? BASE64[(b >>> 6) & 0x3f] : '=';
+            chars[c++] = i + 2 < bytes.length ? BASE64[b & 0x3f] : '=';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Signature base string, written straight to a byte buffer as it is signed as is, percent-encoding values on the fly.
+     * @see <a href="http://oauth.net/core/1.0#encoding_parameters">OAuth Core - 5.1.  Parameter Encoding</a>
+     */
+    private static final class BaseString {
+        private byte[] bytes;
+        private int length;
 
+        private BaseString(int capacity) {
+            this.bytes = new byte[capacity];
+        }
 
+        /**
+         * @param ascii unreserved ascii characters only
+         */
+        BaseString append(String ascii) {
+            ensureCapacity(ascii.length());
+            for (int i = 0; i < ascii.length(); i++) {
+                bytes[length++] = (byte) ascii.charAt(i);
+            }
+            return this;
+        }
+
+        BaseString append(char ascii) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) ascii;
+            return this;
+        }
+
+        /**
+         * @param ascii ascii character
+         */
+        BaseString appendEncoded(char ascii) {
+            ensureCapacity(3);
+            if(isUnreserved(ascii)) {
+                bytes[length++] = (byte) ascii;
+            } else {
+                appendPercent(ascii);
+            }
+            return this;
+        }
+
+        BaseString appendEncoded(String value) {
+            // worst case is 3 bytes per char, each one encoded as %XX
+            ensureCapacity(value.length() * 9);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if(c < 0x80) {
+                    if(isUnreserved(c)) {
+                        bytes[length++] = (byte) c;
+                    } else {
+                        appendPercent(c);
+                    }
+                } else if(c < 0x800) {
+                    appendPercent(0xc0 | (c >> 6));
+                    appendPercent(0x80 | (c & 0x3f));
+                } else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    appendPercent(0xf0 | (codePoint >> 18));
+                    appendPercent(0x80 | ((codePoint >> 12) & 0x3f));
+                    appendPercent(0x80 | ((codePoint >> 6) & 0x3f));
+                    appendPercent(0x80 | (codePoint & 0x3f));
+                } else if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                    // unpaired surrogate, encoded as '?' as String.getBytes would
+                    appendPercent('?');
+                } else {
+                    appendPercent(0xe0 | (c >> 12));
+                    appendPercent(0x80 | ((c >> 6) & 0x3f));
+                    appendPercent(0x80 | (c & 0x3f));
+                }
+            }
+            return this;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int length() {
+            return length;
+        }
+
+        private void appendPercent(int b) {
+            bytes[length++] = '%';
+            bytes[length++] = (byte) HEX[(b >> 4) & 0xf];
+            bytes[length++] = (byte) HEX[b & 0xf];
+        }
+
+        private void ensureCapacity(int extra) {
+            if(length + extra > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, length + extra)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+
+        private static boolean isUnreserved(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.' || c == '_' || c == '~';
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, ASCII);
+        }
+    }
 
     private static List<EncodedPair> oauthParamsFor(VariantProvider variant,
                                                     OAuthToken consumerOAuthToken,
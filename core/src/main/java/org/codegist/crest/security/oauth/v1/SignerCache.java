@@ -0,0 +1,70 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.security.oauth.v1;
+
+import org.codegist.crest.security.oauth.OAuthToken;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the HMAC-SHA1 signers bound to the keys derived from a consumer token and the access tokens requests are signed with, least recently used signers being evicted first.
+ * @author laurent.gilles@codegist.org
+ */
+final class SignerCache {
+
+    private final OAuthToken consumerOAuthToken;
+    private final Map<String, HmacSha1Signer> signers;
+
+    SignerCache(OAuthToken consumerOAuthToken, final int maxSize) {
+        this.consumerOAuthToken = consumerOAuthToken;
+        this.signers = new LinkedHashMap<String, HmacSha1Signer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HmacSha1Signer> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param accessOAuthToken access token requests are signed with
+     * @return the signer for the given access token
+     */
+    HmacSha1Signer get(OAuthToken accessOAuthToken) throws NoSuchAlgorithmException, InvalidKeyException {
+        String secret = accessOAuthToken.getSecret();
+        synchronized (signers) {
+            HmacSha1Signer signer = signers.get(secret);
+            if(signer == null) {
+                signer = OAuthsV1.signer(consumerOAuthToken, accessOAuthToken);
+                signers.put(secret, signer);
+            }
+            return signer;
+        }
+    }
+
+    int size() {
+        synchronized (signers) {
+            return signers.size();
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.codegist.crest.CRestException;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -98,6 +99,14 @@ public final class ComponentRegistry<K,T> {
             this.config = config;
         }
 
+        boolean describes(Class<?> clazz, Map<String, Object> config) {
+            return this.clazz.equals(clazz) && this.config.equals(config);
+        }
+
+        ItemDescriptor<T> copy() {
+            return new ItemDescriptor<T>(clazz, config);
+        }
+
         T instanciate(CRestConfig crestConfig) {
             T instance = instanceRef.get();
             if(instance != null) {
@@ -142,7 +151,8 @@ public final class ComponentRegistry<K,T> {
         }
 
         /**
-         * Registers a component class for the given key list
+         * <p>Registers a component class for the given key list.</p>
+         * <p>Keys already mapped to the same component class with the same config keep their current mapping, and therefore the component instance it may have already created.</p>
          * @param item component class, can be any class as long as it follow the rules of {@link org.codegist.crest.annotate.CRestComponent}.
          * @param keys key to map the crest component to
          * @param itemConfig the component config/state. Will be merged with the CRestConfig and passed into the CRestConfig aware constructor of the component
@@ -152,11 +162,38 @@ public final class ComponentRegistry<K,T> {
         public Builder<K,T> register(Class<? extends T> item, K[] keys, Map<String, Object> itemConfig) {
             ItemDescriptor descriptor = new ItemDescriptor<T>(item, itemConfig);
             for (K mt : keys) {
-                mapping.put(mt, descriptor);
+                ItemDescriptor<T> current = mapping.get(mt);
+                mapping.put(mt, current != null && current.describes(item, itemConfig) ? current : descriptor);
+            }
+            return this;
+        }
+
+        /**
+         * Registers all the component classes of the given builder. The components are instantiated again, against the CRestConfig this builder is built with.
+         * @param builder builder to register the components of
+         * @return current builder
+         */
+        public Builder<K,T> registerAll(Builder<K,T> builder) {
+            /* keys sharing a descriptor keep sharing its copy */
+            Map<ItemDescriptor<T>, ItemDescriptor<T>> copies = new IdentityHashMap<ItemDescriptor<T>, ItemDescriptor<T>>();
+            for (Map.Entry<K, ItemDescriptor<T>> entry : builder.mapping.entrySet()) {
+                this.mapping.put(entry.getKey(), copyOf(entry.getValue(), copies));
+            }
+            if(builder.defaultIfNotFoundDescriptor != null) {
+                this.defaultIfNotFoundDescriptor = copyOf(builder.defaultIfNotFoundDescriptor, copies);
             }
             return this;
         }
 
+        private static <T> ItemDescriptor<T> copyOf(ItemDescriptor<T> descriptor, Map<ItemDescriptor<T>, ItemDescriptor<T>> copies) {
+            ItemDescriptor<T> copy = copies.get(descriptor);
+            if(copy == null) {
+                copy = descriptor.copy();
+                copies.put(descriptor, copy);
+            }
+            return copy;
+        }
+
         /**
          * Registers a map of Keys/Components classes
          * @param mapping map of Keys/Components classes
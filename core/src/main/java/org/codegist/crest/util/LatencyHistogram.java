@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+/**
+ * <p>Lock-free, fixed-memory latency histogram over a sliding time window.</p>
+ * <p>Latencies are recorded in milliseconds into exponentially growing buckets (each bucket upper bound is about 25% greater than the previous one, up to 10 minutes), so that percentiles are reported with a bounded relative error whatever the latency magnitude.</p>
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.util.SlidingWindowCounter
+ */
+public final class LatencyHistogram {
+
+    private static final long MAX_BOUND = 600000l;
+    private static final float GROWTH = 1.25f;
+    private static final long[] BOUNDS = bounds();
+
+    private final SlidingWindowCounter window;
+
+    /**
+     * Creates a histogram over a 10 seconds sliding window
+     */
+    public LatencyHistogram() {
+        this(10, 1000);
+    }
+
+    /**
+     * @param bucketCount number of time buckets the window is made of
+     * @param bucketMillis duration of a time bucket in milliseconds
+     */
+    public LatencyHistogram(int bucketCount, long bucketMillis) {
+        this.window = new SlidingWindowCounter(BOUNDS.length, bucketCount, bucketMillis);
+    }
+
+    /**
+     * Records a latency
+     * @param millis latency in milliseconds
+     */
+    public void record(long millis) {
+        window.add(indexOf(millis), 1);
+    }
+
+    /**
+     * @return the amount of latencies recorded within the window
+     */
+    public long getCount() {
+        long count = 0;
+        for (long c : window.sums()) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile percentile to look for, between 0 and 1, ie 0.95 for the 95th percentile
+     * @return the upper bound of the bucket the given percentile falls into, -1 if nothing has been recorded within the window
+     */
+    public long getPercentile(float percentile) {
+        return percentile(window.sums(), percentile);
+    }
+
+    long getPercentile(float percentile, long now) {
+        return percentile(window.sums(now), percentile);
+    }
+
+    void record(long millis, long now) {
+        window.add(indexOf(millis), 1, now);
+    }
+
+    /**
+     * Clears all the recorded latencies
+     */
+    public void reset() {
+        window.reset();
+    }
+
+    private static long percentile(long[] counts, float percentile) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(total * (double) percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return BOUNDS[i];
+            }
+        }
+        return BOUNDS[BOUNDS.length - 1];
+    }
+
+    static int indexOf(long millis) {
+        int low = 0;
+        int high = BOUNDS.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BOUNDS[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long[] bounds() {
+        long[] bounds = new long[128];
+        int count = 0;
+        long bound = 1;
+        while (bound < MAX_BOUND) {
+            bounds[count++] = bound;
+            bound = Math.max(bound + 1, Math.round(bound * GROWTH));
+        }
+        bounds[count++] = MAX_BOUND;
+        long[] trimmed = new long[count];
+        System.arraycopy(bounds, 0, trimmed, 0, count);
+        return trimmed;
+    }
+}
@@ -118,6 +118,15 @@ public final class Pairs {
        return sorted;
     }
 
+    /**
+     * <p>Sort the given array of encoded pairs by name and by values.</p>
+     * <p>The array is sorted in place.</p>
+     * @param pairs array of encoded pair objects to order by
+     */
+    public static void sortByNameAndValues(EncodedPair[] pairs){
+       Arrays.sort(pairs, PAIR_NAME_VALUE_COMPARATOR);
+    }
+
     /**
      * Joins the given list of encoded pairs using "=" for name/value separator and pairSep for pair separator.
      * @param pairs list of encoded pair to join
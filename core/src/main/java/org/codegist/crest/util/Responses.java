@@ -0,0 +1,70 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.codegist.common.log.Logger;
+import org.codegist.crest.io.Response;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * <p>Set of utility functions for dealing with {@link org.codegist.crest.io.Response} types.</p>
+ * @see org.codegist.crest.io.Response
+ * @author laurent.gilles@codegist.org
+ */
+public final class Responses {
+
+    private static final Logger LOGGER = Logger.getLogger(Responses.class);
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final long SECOND = 1000l;
+
+    private Responses(){
+        throw new IllegalStateException();
+    }
+
+    /**
+     * <p>Reads the delay the server asked to wait for before the next request from the given response's Retry-After header.</p>
+     * <p>The header value can either be an amount of seconds or an HTTP date, a date in the past meaning no delay.</p>
+     * @param response response to read the header from
+     * @return the delay in milliseconds, -1 if the header is absent or invalid
+     * @throws Exception Any exception thrown while reading the response headers
+     */
+    public static long getRetryAfter(Response response) throws Exception {
+        String value = response.getHeader(RETRY_AFTER);
+        if(value == null) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(Long.parseLong(value) * SECOND, 0);
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US).parse(value).getTime() - System.currentTimeMillis(), 0);
+            } catch (ParseException e1) {
+                LOGGER.debug("Ignoring invalid %s header value: %s", RETRY_AFTER, value);
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.codegist.crest.config.ParamConfig;
+import org.codegist.crest.config.ParamType;
+import org.codegist.crest.io.Request;
+import org.codegist.crest.param.Param;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Set of utility function to deal with {@link org.codegist.crest.config.ParamConfigBuilder#setMetaDatas(java.util.Map)} and {@link org.codegist.crest.config.ParamConfig#getMetaDatas()} for shard keys.
+ * @author laurent.gilles@codegist.org
+ * @see org.codegist.crest.annotate.ShardKey
+ */
+public final class ShardKeys {
+
+    private static final String SHARD_KEY_FLAG = "shard-key.flag";
+    private static final char SEPARATOR = '/';
+
+    private ShardKeys(){
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Checks if the given param config is a shard key
+     * @param paramConfig param config to check
+     * @return true if shard key metadata found
+     */
+    public static boolean isShardKey(ParamConfig paramConfig){
+        return paramConfig.getMetaDatas().containsKey(SHARD_KEY_FLAG);
+    }
+
+    /**
+     * Checks if the given param is a shard key
+     * @param param param to check
+     * @return true if shard key metadata found
+     */
+    public static boolean isShardKey(Param param){
+        return isShardKey(param.getParamConfig());
+    }
+
+    /**
+     * Extracts the shard key of the given request from its params. Values of multiple shard key params are joined in param type order.
+     * @param request request to extract the shard key from
+     * @return the shard key, or null if the request has no shard key param or none of them has a value
+     */
+    public static String getShardKey(Request request){
+        StringBuilder key = null;
+        for(ParamType type : ParamType.values()){
+            for(Param param : request.getParams(type)){
+                if(!isShardKey(param)) {
+                    continue;
+                }
+                for(Object value : param.getValue()){
+                    if(value == null) {
+                        continue;
+                    }
+                    if(key == null) {
+                        key = new StringBuilder();
+                    } else {
+                        key.append(SEPARATOR);
+                    }
+                    key.append(value);
+                }
+            }
+        }
+        return key != null ? key.toString() : null;
+    }
+
+    /**
+     * Returns a shard key metadata map
+     */
+    public static Map<String,Object> toMetaDatas(){
+        Map<String,Object> metadatas = new HashMap<String, Object>();
+        metadatas.put(SHARD_KEY_FLAG, true);
+        return metadatas;
+    }
+}
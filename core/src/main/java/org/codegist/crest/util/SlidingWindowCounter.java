@@ -0,0 +1,160 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lock-free, fixed-memory, time based sliding window of counters.</p>
+ * <p>The window is split in a ring of buckets of equal duration, each bucket holding one counter per metric. Buckets are lazily recycled when the window slides over them.</p>
+ * <p>Sums are approximate: an increment racing with the recycling of its bucket can be lost, which is acceptable for the statistical usage this class is meant for.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public final class SlidingWindowCounter {
+
+    private final int metricCount;
+    private final int bucketCount;
+    private final long bucketMillis;
+    private final AtomicLongArray stamps;
+    private final AtomicLongArray counts;
+
+    /**
+     * @param metricCount number of distinct metrics to count
+     * @param bucketCount number of buckets the window is made of
+     * @param bucketMillis duration of a bucket in milliseconds
+     */
+    public SlidingWindowCounter(int metricCount, int bucketCount, long bucketMillis) {
+        this.metricCount = metricCount;
+        this.bucketCount = bucketCount;
+        this.bucketMillis = bucketMillis;
+        this.stamps = new AtomicLongArray(bucketCount);
+        this.counts = new AtomicLongArray(bucketCount * metricCount);
+        for (int i = 0; i < bucketCount; i++) {
+            stamps.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * @return the window duration in milliseconds
+     */
+    public long getWindowMillis() {
+        return bucketCount * bucketMillis;
+    }
+
+    /**
+     * Adds the given delta to the given metric in the current bucket
+     * @param metric metric index
+     * @param delta value to add
+     */
+    public void add(int metric, long delta) {
+        add(metric, delta, System.currentTimeMillis());
+    }
+
+    /**
+     * Sums the given metric over the whole window
+     * @param metric metric index
+     * @return the sum of the given metric over the window
+     */
+    public long sum(int metric) {
+        return sum(metric, System.currentTimeMillis());
+    }
+
+    /**
+     * Sums all the metrics over the whole window in a single pass
+     * @return the sums indexed by metric
+     */
+    public long[] sums() {
+        return sums(System.currentTimeMillis());
+    }
+
+    /**
+     * Clears all the buckets
+     */
+    public void reset() {
+        for (int i = 0; i < bucketCount; i++) {
+            stamps.set(i, Long.MIN_VALUE);
+            for (int m = 0; m < metricCount; m++) {
+                counts.set(i * metricCount + m, 0);
+            }
+        }
+    }
+
+    /**
+     * Adds the given delta to the given metric in the bucket of the given time
+     * @param metric metric index
+     * @param delta value to add
+     * @param now current time in milliseconds
+     */
+    public void add(int metric, long delta, long now) {
+        counts.addAndGet(bucketFor(now) * metricCount + metric, delta);
+    }
+
+    /**
+     * Sums the given metric over the window ending at the given time
+     * @param metric metric index
+     * @param now current time in milliseconds
+     * @return the sum of the given metric over the window
+     */
+    public long sum(int metric, long now) {
+        long epoch = now / bucketMillis;
+        long oldest = epoch - bucketCount;
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long stamp = stamps.get(i);
+            if (stamp <= epoch && stamp > oldest) {
+                total += counts.get(i * metricCount + metric);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums all the metrics over the window ending at the given time in a single pass
+     * @param now current time in milliseconds
+     * @return the sums indexed by metric
+     */
+    public long[] sums(long now) {
+        long epoch = now / bucketMillis;
+        long oldest = epoch - bucketCount;
+        long[] totals = new long[metricCount];
+        for (int i = 0; i < bucketCount; i++) {
+            long stamp = stamps.get(i);
+            if (stamp <= epoch && stamp > oldest) {
+                for (int m = 0; m < metricCount; m++) {
+                    totals[m] += counts.get(i * metricCount + m);
+                }
+            }
+        }
+        return totals;
+    }
+
+    private int bucketFor(long now) {
+        long epoch = now / bucketMillis;
+        int index = (int) (epoch % bucketCount);
+        long stamp = stamps.get(index);
+        if (stamp != epoch && stamps.compareAndSet(index, stamp, epoch)) {
+            for (int m = 0; m < metricCount; m++) {
+                counts.set(index * metricCount + m, 0);
+            }
+        }
+        return index;
+    }
+}
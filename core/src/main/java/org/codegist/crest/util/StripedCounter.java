@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lock-free counter spreading its updates over several cache-line padded cells, to avoid the contention a single atomic counter suffers from when heavily updated by concurrent threads.</p>
+ * <p>Threads are assigned a cell by their id. Updates do not allocate, reads sum all the cells and are therefore slower and not an atomic snapshot.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public final class StripedCounter {
+
+    /* longs per 64 bytes cache line */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    /**
+     * Creates a counter striped by the amount of available processors
+     */
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes minimum amount of cells, rounded up to the next power of two
+     */
+    public StripedCounter(int stripes) {
+        int size = 1;
+        while(size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * PADDING);
+    }
+
+    /**
+     * Adds the given delta
+     * @param delta value to add
+     */
+    public void add(long delta) {
+        cells.addAndGet(((int) Thread.currentThread().getId() & mask) * PADDING, delta);
+    }
+
+    /**
+     * Adds one
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * @return the sum of all the cells
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Resets all the cells to zero
+     */
+    public void reset() {
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            cells.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(sum());
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Validate;
+import org.codegist.common.log.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Hashed timer wheel, running any amount of timeouts on a single daemon thread.</p>
+ * <p>The wheel is made of a fixed amount of buckets, each one standing for a tick. A timeout goes to the bucket of the tick it expires at, along with the amount of full turns of the wheel left before it expires. At each tick, the current bucket's expired timeouts are run, while the other ones get one turn closer. Scheduling and cancelling a timeout are thus constant time, and cost nothing to the worker thread until their bucket comes up, which suits timeouts that are mostly cancelled before they expire.</p>
+ * <p>Timeouts are run on the worker thread, at most one tick late. They must be short and must not block.</p>
+ * <p>The worker thread is started on the first scheduled timeout, and stopped once disposed.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class TimerWheel implements Disposable {
+
+    private static final Logger LOGGER = Logger.getLogger(TimerWheel.class);
+    private static final long MILLISECOND = 1000000l;
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private final long tickDuration;
+    private final List<Entry>[] wheel;
+    private final int mask;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private volatile boolean started = false;
+    private volatile boolean disposed = false;
+    private long startTime;
+    private Thread worker;
+
+    /**
+     * Creates a timer wheel ticking every 10 milliseconds, with 512 buckets
+     */
+    public TimerWheel() {
+        this(10, 512);
+    }
+
+    /**
+     * @param tickDuration tick duration in milliseconds, ie the timeouts precision
+     * @param ticksPerWheel amount of buckets, rounded up to the next power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickDuration, int ticksPerWheel) {
+        Validate.isTrue(tickDuration > 0, "Tick duration must be positive!");
+        Validate.isTrue(ticksPerWheel > 0, "Ticks per wheel must be positive!");
+        int size = 1;
+        while(size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickDuration = tickDuration * MILLISECOND;
+        this.mask = size - 1;
+        this.wheel = new List[size];
+        for(int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<Entry>();
+        }
+    }
+
+    /**
+     * Schedules the given task to run once the given delay has elapsed.
+     * @param task task to run
+     * @param delay delay in milliseconds
+     * @return the timeout, to cancel it if not needed anymore
+     * @throws IllegalStateException if the timer wheel has been disposed
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        if(disposed) {
+            throw new IllegalStateException("Timer wheel has been disposed");
+        }
+        start();
+        Entry entry = new Entry(task, System.nanoTime() - startTime + Math.max(delay, 0) * MILLISECOND);
+        pending.add(entry);
+        pendingCount.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * @return the amount of timeouts scheduled and neither expired nor cancelled yet
+     */
+    public long getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Stops the worker thread. Pending timeouts are never run.
+     */
+    public void dispose() {
+        disposed = true;
+        Thread worker;
+        synchronized (this) {
+            worker = this.worker;
+        }
+        if(worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void start() {
+        if(started) {
+            return;
+        }
+        synchronized (this) {
+            if(started) {
+                return;
+            }
+            startTime = System.nanoTime();
+            worker = new Thread(new Worker(), "crest-timer-wheel-" + COUNT.incrementAndGet());
+            worker.setDaemon(true);
+            worker.start();
+            started = true;
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick = 0;
+
+        public void run() {
+            while(!disposed) {
+                if(!waitForNextTick()) {
+                    break;
+                }
+                transferPending();
+                expire(wheel[(int) (tick & mask)]);
+                tick++;
+            }
+            LOGGER.debug("Timer wheel stopped");
+        }
+
+        private boolean waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+            while(true) {
+                long sleep = deadline - (System.nanoTime() - startTime);
+                if(sleep <= 0) {
+                    return true;
+                }
+                try {
+                    Thread.sleep(sleep / MILLISECOND, (int) (sleep % MILLISECOND));
+                } catch (InterruptedException e) {
+                    if(disposed) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        private void transferPending() {
+            Entry entry;
+            while((entry = pending.poll()) != null) {
+                if(entry.isCancelled()) {
+                    continue;
+                }
+                long expiresAtTick = entry.deadline / tickDuration;
+                entry.remainingRounds = (expiresAtTick - tick) / wheel.length;
+                wheel[(int) (Math.max(expiresAtTick, tick) & mask)].add(entry);
+            }
+        }
+
+        private void expire(List<Entry> bucket) {
+            long now = System.nanoTime() - startTime;
+            for(Iterator<Entry> iterator = bucket.iterator(); iterator.hasNext();) {
+                Entry entry = iterator.next();
+                if(entry.isCancelled()) {
+                    iterator.remove();
+                } else if(entry.remainingRounds <= 0 && entry.deadline <= now) {
+                    iterator.remove();
+                    entry.expire();
+                } else if(entry.remainingRounds > 0) {
+                    entry.remainingRounds--;
+                }
+            }
+        }
+    }
+
+    private final class Entry implements Timeout {
+
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        private long remainingRounds;
+
+        private Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public boolean cancel() {
+            if(!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            pendingCount.decrementAndGet();
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if(!state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                LOGGER.warn(e, "Timeout task %s failed", task);
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task
+     */
+    public interface Timeout {
+
+        /**
+         * Cancels the task if it has not run yet
+         * @return true if cancelled, false if it has already run or been cancelled
+         */
+        boolean cancel();
+
+        /**
+         * @return whether the task has been run
+         */
+        boolean isExpired();
+    }
+}
@@ -20,17 +20,34 @@
 
 package org.codegist.crest;
 
+import org.codegist.common.lang.Disposable;
 import org.codegist.common.reflect.InvocationHandler;
 import org.codegist.common.reflect.JdkProxyFactory;
 import org.codegist.common.reflect.ProxyFactory;
+import org.codegist.crest.annotate.Bulkhead;
+import org.codegist.crest.annotate.EndPoint;
+import org.codegist.crest.annotate.GET;
+import org.codegist.crest.annotate.Path;
+import org.codegist.crest.annotate.PathParam;
+import org.codegist.crest.annotate.ResponseHandler;
 import org.codegist.crest.config.*;
 import org.codegist.crest.config.annotate.AnnotationHandler;
 import org.codegist.crest.config.annotate.CRestAnnotations;
 import org.codegist.crest.config.annotate.jaxrs.JaxRsAnnotations;
 import org.codegist.crest.handler.DefaultResponseHandler;
+import org.codegist.crest.io.BulkheadRequestExecutor;
+import org.codegist.crest.io.CircuitBreakerRequestExecutor;
+import org.codegist.crest.io.DeadlineRequestExecutor;
+import org.codegist.crest.io.HedgingRequestExecutor;
+import org.codegist.crest.io.RateLimitRequestExecutor;
 import org.codegist.crest.io.RequestExecutor;
+import org.codegist.crest.io.Response;
 import org.codegist.crest.io.RetryingRequestExecutor;
+import org.codegist.crest.io.balancing.EndPointGroup;
+import org.codegist.crest.io.balancing.LeastOutstandingLoadBalancer;
 import org.codegist.crest.io.http.*;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.MetricsContext;
 import org.codegist.crest.serializer.Deserializer;
 import org.codegist.crest.test.util.Classes;
 import org.codegist.crest.util.ComponentFactory;
@@ -42,12 +59,18 @@ import org.mockito.ArgumentCaptor;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 
 import static org.codegist.crest.CRestConfig.*;
@@ -55,6 +78,8 @@ import static org.codegist.crest.test.util.Classes.getFieldValue;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.*;
 
@@ -107,10 +132,22 @@ public class CRestBuilderTest {
 
         CRest actual = toTest.build();
 
-        RequestExecutor retryingRequestExecutor = getFieldValue(actual, "requestExecutor");
+        RequestExecutor deadlineRequestExecutor = getFieldValue(actual, "requestExecutor");
+        assertEquals(DeadlineRequestExecutor.class, deadlineRequestExecutor.getClass());
+
+        RequestExecutor retryingRequestExecutor = getFieldValue(deadlineRequestExecutor, "delegate");
         assertEquals(RetryingRequestExecutor.class, retryingRequestExecutor.getClass());
 
-        RequestExecutor httpRequestExecutor = getFieldValue(retryingRequestExecutor, "delegate");
+        RequestExecutor rateLimitRequestExecutor = getFieldValue(retryingRequestExecutor, "delegate");
+        assertSame(RateLimitRequestExecutor.class, rateLimitRequestExecutor.getClass());
+
+        RequestExecutor bulkheadRequestExecutor = getFieldValue(rateLimitRequestExecutor, "delegate");
+        assertSame(BulkheadRequestExecutor.class, bulkheadRequestExecutor.getClass());
+
+        RequestExecutor circuitBreakerRequestExecutor = getFieldValue(bulkheadRequestExecutor, "delegate");
+        assertSame(CircuitBreakerRequestExecutor.class, circuitBreakerRequestExecutor.getClass());
+
+        RequestExecutor httpRequestExecutor = getFieldValue(circuitBreakerRequestExecutor, "delegate");
         assertSame(HttpRequestExecutor.class, httpRequestExecutor.getClass());
 
         HttpChannelFactory channelFactory = getFieldValue(httpRequestExecutor, "channelFactory");
@@ -128,10 +165,22 @@ public class CRestBuilderTest {
 
         CRest actual = toTest.setHttpChannelFactory(TestHttpChannelFactory.class).build();
 
-        RequestExecutor retryingRequestExecutor = getFieldValue(actual, "requestExecutor");
+        RequestExecutor deadlineRequestExecutor = getFieldValue(actual, "requestExecutor");
+        assertEquals(DeadlineRequestExecutor.class, deadlineRequestExecutor.getClass());
+
+        RequestExecutor retryingRequestExecutor = getFieldValue(deadlineRequestExecutor, "delegate");
         assertEquals(RetryingRequestExecutor.class, retryingRequestExecutor.getClass());
 
-        RequestExecutor httpRequestExecutor = getFieldValue(retryingRequestExecutor, "delegate");
+        RequestExecutor rateLimitRequestExecutor = getFieldValue(retryingRequestExecutor, "delegate");
+        assertSame(RateLimitRequestExecutor.class, rateLimitRequestExecutor.getClass());
+
+        RequestExecutor bulkheadRequestExecutor = getFieldValue(rateLimitRequestExecutor, "delegate");
+        assertSame(BulkheadRequestExecutor.class, bulkheadRequestExecutor.getClass());
+
+        RequestExecutor circuitBreakerRequestExecutor = getFieldValue(bulkheadRequestExecutor, "delegate");
+        assertSame(CircuitBreakerRequestExecutor.class, circuitBreakerRequestExecutor.getClass());
+
+        RequestExecutor httpRequestExecutor = getFieldValue(circuitBreakerRequestExecutor, "delegate");
         assertSame(HttpRequestExecutor.class, httpRequestExecutor.getClass());
 
         HttpChannelFactory channelFactory = getFieldValue(httpRequestExecutor, "channelFactory");
@@ -145,16 +194,55 @@ public class CRestBuilderTest {
 
         CRest actual = toTest.setHttpChannelFactory(expected).build();
 
-        RequestExecutor retryingRequestExecutor = getFieldValue(actual, "requestExecutor");
+        RequestExecutor deadlineRequestExecutor = getFieldValue(actual, "requestExecutor");
+        assertEquals(DeadlineRequestExecutor.class, deadlineRequestExecutor.getClass());
+
+        RequestExecutor retryingRequestExecutor = getFieldValue(deadlineRequestExecutor, "delegate");
         assertEquals(RetryingRequestExecutor.class, retryingRequestExecutor.getClass());
 
-        RequestExecutor httpRequestExecutor = getFieldValue(retryingRequestExecutor, "delegate");
+        RequestExecutor rateLimitRequestExecutor = getFieldValue(retryingRequestExecutor, "delegate");
+        assertSame(RateLimitRequestExecutor.class, rateLimitRequestExecutor.getClass());
+
+        RequestExecutor bulkheadRequestExecutor = getFieldValue(rateLimitRequestExecutor, "delegate");
+        assertSame(BulkheadRequestExecutor.class, bulkheadRequestExecutor.getClass());
+
+        RequestExecutor circuitBreakerRequestExecutor = getFieldValue(bulkheadRequestExecutor, "delegate");
+        assertSame(CircuitBreakerRequestExecutor.class, circuitBreakerRequestExecutor.getClass());
+
+        RequestExecutor httpRequestExecutor = getFieldValue(circuitBreakerRequestExecutor, "delegate");
         assertSame(HttpRequestExecutor.class, httpRequestExecutor.getClass());
 
         HttpChannelFactory channelFactory = getFieldValue(httpRequestExecutor, "channelFactory");
         assertSame(expected, channelFactory);
     }
 
+    @Test
+    public void loadBalanceShouldBalanceChannelFactory() throws Exception{
+        TestHttpChannelFactory expected = mock(TestHttpChannelFactory.class);
+
+        CRest actual = toTest.setHttpChannelFactory(expected)
+                .loadBalance("http://logical", "http://a", "http://b")
+                .setLoadBalancer(LeastOutstandingLoadBalancer.class)
+                .build();
+
+        RequestExecutor deadlineRequestExecutor = getFieldValue(actual, "requestExecutor");
+        RequestExecutor retryingRequestExecutor = getFieldValue(deadlineRequestExecutor, "delegate");
+        RequestExecutor rateLimitRequestExecutor = getFieldValue(retryingRequestExecutor, "delegate");
+        RequestExecutor bulkheadRequestExecutor = getFieldValue(rateLimitRequestExecutor, "delegate");
+        RequestExecutor circuitBreakerRequestExecutor = getFieldValue(bulkheadRequestExecutor, "delegate");
+        RequestExecutor httpRequestExecutor = getFieldValue(circuitBreakerRequestExecutor, "delegate");
+
+        HttpChannelFactory channelFactory = getFieldValue(httpRequestExecutor, "channelFactory");
+        assertSame(LoadBalancingHttpChannelFactory.class, channelFactory.getClass());
+        assertSame(expected, getFieldValue(channelFactory, "delegate"));
+
+        EndPointGroup[] groups = getFieldValue(channelFactory, "groups");
+        assertEquals(1, groups.length);
+        assertEquals("http://logical", groups[0].getName());
+        assertEquals(2, groups[0].getMembers().size());
+        assertSame(LeastOutstandingLoadBalancer.class, getFieldValue(groups[0], "loadBalancer").getClass());
+    }
+
     @Test
     public void defaultBuildShouldUseDefaultCRestConfig() throws Exception{
         mockCRestConfig();
@@ -324,6 +412,126 @@ public class CRestBuilderTest {
         }
         return map;
     }
+    @Test
+    public void deriveShouldShareTransportAndComponents() throws Exception {
+        HttpChannelFactory channelFactory = mock(HttpChannelFactory.class);
+        CRest parent = toTest.setHttpChannelFactory(channelFactory).build();
+        CRest derived = parent.derive().endpoint("http://other").build();
+
+        assertSame(getFieldValue(parent, "proxyFactory"), getFieldValue(derived, "proxyFactory"));
+        assertNotSame(getFieldValue(parent, "requestExecutor"), getFieldValue(derived, "requestExecutor"));
+        assertSame(channelFactory, getFieldValue(httpRequestExecutorOf(parent), "channelFactory"));
+        assertSame(channelFactory, ((SharedHttpChannelFactory) getFieldValue(httpRequestExecutorOf(derived), "channelFactory")).getDelegate());
+        assertSame(getFieldValue(httpRequestExecutorOf(parent), "timerWheel"), getFieldValue(httpRequestExecutorOf(derived), "timerWheel"));
+        assertFalse((Boolean) getFieldValue(httpRequestExecutorOf(parent), "sharedTimerWheel"));
+        assertTrue((Boolean) getFieldValue(httpRequestExecutorOf(derived), "sharedTimerWheel"));
+    }
+
+    @Test
+    public void deriveShouldShareInstantiatedTransport() throws Exception {
+        CRest parent = toTest.build();
+        CRest derived = parent.derive().build().derive().build();
+        assertSame(getFieldValue(httpRequestExecutorOf(parent), "channelFactory"), ((SharedHttpChannelFactory) getFieldValue(httpRequestExecutorOf(derived), "channelFactory")).getDelegate());
+    }
+
+    @Test
+    public void disposingADerivedInstanceShouldLeaveTheParentUsable() throws Exception {
+        DisposableHttpChannelFactory channelFactory = new DisposableHttpChannelFactory();
+        WireLogger wireLogger = mock(WireLogger.class);
+        CRest parent = toTest.setHttpChannelFactory(channelFactory).setWireLogger(wireLogger).build();
+        CRest derived = parent.derive().endpoint("http://other").build();
+        HttpRequestExecutor derivedExecutor = (HttpRequestExecutor) httpRequestExecutorOf(derived);
+        derivedExecutor.dispose();
+
+        assertFalse(channelFactory.disposed);
+        assertFalse((Boolean) getFieldValue(getFieldValue(httpRequestExecutorOf(parent), "timerWheel"), "disposed"));
+        verify(wireLogger, never()).dispose();
+        assertEquals("ok", parent.build(DerivedApi.class).get());
+
+        ((HttpRequestExecutor) httpRequestExecutorOf(parent)).dispose();
+        assertTrue(channelFactory.disposed);
+    }
+
+    @Test
+    public void disposeShouldUnpublishTheMetricsOfTheInstanceOwningThem() throws Exception {
+        DisposableHttpChannelFactory channelFactory = new DisposableHttpChannelFactory();
+        CRest parent = toTest.setHttpChannelFactory(channelFactory).enableJmxMetrics().build();
+        CRest derived = parent.derive().build();
+        ObjectName published = new ObjectName("org.codegist.crest:type=Metrics,name=" + ObjectName.quote((String) getFieldValue(getFieldValue(parent, "metricsCollector"), "name")) + ",*");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        assertEquals("ok", parent.build(DerivedApi.class).get());
+        assertEquals("ok", derived.build(DerivedApi.class).get());
+        assertEquals(2, mBeanServer.queryNames(published, null).size());
+
+        derived.dispose();
+        assertEquals(2, mBeanServer.queryNames(published, null).size());
+        assertFalse(channelFactory.disposed);
+
+        parent.dispose();
+        assertEquals(0, mBeanServer.queryNames(published, null).size());
+        assertTrue(channelFactory.disposed);
+    }
+
+    @Test
+    public void shouldOnlySetAMetricsContextIfMetricsAreCollected() throws Exception {
+        RecordingHttpChannelFactory channelFactory = new RecordingHttpChannelFactory();
+        assertEquals("ok", toTest.setHttpChannelFactory(channelFactory).build().build(DerivedApi.class).get());
+        assertEquals("ok", new CRestBuilder().setHttpChannelFactory(channelFactory).setMetricsCollector(mock(MetricsCollector.class)).build().build(DerivedApi.class).get());
+
+        assertNull(channelFactory.contexts.get(0));
+        assertNotNull(channelFactory.contexts.get(1));
+        assertNull(MetricsContext.get());
+    }
+
+    @Test
+    public void enableHedgingShouldHedgeAboveTheBulkheads() throws Exception {
+        CRest actual = toTest.enableHedging(0.95f, 0.05f).build();
+        RequestExecutor rateLimitRequestExecutor = getFieldValue(getFieldValue(getFieldValue(actual, "requestExecutor"), "delegate"), "delegate");
+        assertSame(RateLimitRequestExecutor.class, rateLimitRequestExecutor.getClass());
+        RequestExecutor hedgingRequestExecutor = getFieldValue(rateLimitRequestExecutor, "delegate");
+        assertSame(HedgingRequestExecutor.class, hedgingRequestExecutor.getClass());
+        RequestExecutor bulkheadRequestExecutor = getFieldValue(hedgingRequestExecutor, "delegate");
+        assertSame(BulkheadRequestExecutor.class, bulkheadRequestExecutor.getClass());
+        actual.dispose();
+    }
+
+    @Test
+    public void shouldReleaseTheBulkheadSlotOfResponsesTheHandlerDoesNotConsume() throws Exception {
+        StatusApi api = toTest.setHttpChannelFactory(new DisposableHttpChannelFactory()).build().build(StatusApi.class);
+        assertEquals(200, api.status());
+        assertEquals(200, api.status());
+    }
+
+    @Test
+    public void deriveShouldNotShareOverriddenTransport() throws Exception {
+        CRest parent = toTest.build();
+        CRest derived = parent.derive().setHttpChannelFactory(TestHttpChannelFactory.class).build();
+        assertEquals(TestHttpChannelFactory.class, getFieldValue(httpRequestExecutorOf(derived), "channelFactory").getClass());
+    }
+
+    @Test
+    public void deriveShouldResolvePlaceholdersWithItsOwnConfiguration() throws Exception {
+        RecordingHttpChannelFactory channelFactory = new RecordingHttpChannelFactory();
+        CRest parent = toTest.setHttpChannelFactory(channelFactory).placeholder("host", "parent.com").placeholder("tenant", "parent").build();
+        assertEquals("ok", parent.build(TenantApi.class).get("1"));
+
+        CRest derived = parent.derive().placeholder("host", "acme.com").placeholder("tenant", "acme").build();
+        assertEquals("ok", derived.build(TenantApi.class).get("2"));
+        assertEquals("ok", parent.build(TenantApi.class).get("3"));
+
+        assertEquals("http://parent.com/parent/1", channelFactory.urls.get(0));
+        assertEquals("http://acme.com/acme/2", channelFactory.urls.get(1));
+        assertEquals("http://parent.com/parent/3", channelFactory.urls.get(2));
+    }
+
+    private static RequestExecutor httpRequestExecutorOf(CRest crest) throws Exception {
+        RequestExecutor requestExecutor = getFieldValue(crest, "requestExecutor");
+        while(!(requestExecutor instanceof HttpRequestExecutor)) {
+            requestExecutor = getFieldValue(requestExecutor, "delegate");
+        }
+        return requestExecutor;
+    }
+
     private CRestConfig mockCRestConfig() throws Exception {
         return mockCRestConfig(true);
     }
@@ -338,6 +546,67 @@ public class CRestBuilderTest {
         return config;
     }
 
+    @EndPoint("http://localhost")
+    public interface DerivedApi {
+        @GET
+        String get();
+    }
+
+    @EndPoint("http://{host}")
+    @Path("/{tenant}")
+    public interface TenantApi {
+        @GET
+        @Path("/{id}")
+        String get(@PathParam("id") String id);
+    }
+
+    @EndPoint("http://localhost")
+    @Bulkhead(maxConcurrent = 1)
+    public interface StatusApi {
+        @GET
+        @ResponseHandler(StatusResponseHandler.class)
+        int status();
+    }
+
+    public static class StatusResponseHandler implements org.codegist.crest.handler.ResponseHandler {
+        public Object handle(Response response) throws Exception {
+            return response.getStatusCode();
+        }
+    }
+
+    public static class RecordingHttpChannelFactory extends DisposableHttpChannelFactory {
+        private final List<String> urls = new CopyOnWriteArrayList<String>();
+        private final List<MetricsContext> contexts = new CopyOnWriteArrayList<MetricsContext>();
+
+        @Override
+        public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+            urls.add(url);
+            contexts.add(MetricsContext.get());
+            return super.open(methodType, url, charset);
+        }
+    }
+
+    public static class DisposableHttpChannelFactory implements HttpChannelFactory, Disposable {
+        private volatile boolean disposed;
+
+        public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+            if(disposed) {
+                throw new IOException("disposed");
+            }
+            HttpChannel.Response response = mock(HttpChannel.Response.class);
+            when(response.getStatusCode()).thenReturn(200);
+            when(response.getContentType()).thenReturn("plain/text");
+            when(response.getEntity()).thenReturn(new ByteArrayInputStream("ok".getBytes()));
+            HttpChannel channel = mock(HttpChannel.class);
+            when(channel.send()).thenReturn(response);
+            return channel;
+        }
+
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
     public static class TestHttpChannelFactory implements HttpChannelFactory {
         public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
             return null;
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest;
+
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.io.Request;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class CompositeCRestEventListenerTest {
+
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final Request request = mock(Request.class);
+    private final CRestEventListener delegate1 = mock(CRestEventListener.class);
+    private final CRestEventListener delegate2 = mock(CRestEventListener.class);
+    private final CompositeCRestEventListener toTest = new CompositeCRestEventListener(delegate1, delegate2);
+
+    @Test
+    public void shouldNotifyAllDelegates() {
+        Exception error = new Exception();
+        toTest.callStart(methodConfig, 1);
+        toTest.requestBuilt(request, 2);
+        toTest.connectionAcquired(request, 3);
+        toTest.requestHeadersSent(request, 4);
+        toTest.requestBodySent(request, 5);
+        toTest.responseHeadersReceived(request, 200, 6);
+        toTest.responseBodyEnd(request, 7);
+        toTest.deserialized(request, 8);
+        toTest.retryScheduled(request, 2, 9);
+        toTest.callEnd(methodConfig, request, error, 10);
+        for (CRestEventListener delegate : new CRestEventListener[]{delegate1, delegate2}) {
+            verify(delegate).callStart(methodConfig, 1);
+            verify(delegate).requestBuilt(request, 2);
+            verify(delegate).connectionAcquired(request, 3);
+            verify(delegate).requestHeadersSent(request, 4);
+            verify(delegate).requestBodySent(request, 5);
+            verify(delegate).responseHeadersReceived(request, 200, 6);
+            verify(delegate).responseBodyEnd(request, 7);
+            verify(delegate).deserialized(request, 8);
+            verify(delegate).retryScheduled(request, 2, 9);
+            verify(delegate).callEnd(methodConfig, request, error, 10);
+        }
+    }
+}
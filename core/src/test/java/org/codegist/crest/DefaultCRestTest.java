@@ -20,6 +20,7 @@
 
 package org.codegist.crest;
 
+import org.codegist.common.lang.Disposable;
 import org.codegist.common.lang.Disposables;
 import org.codegist.common.reflect.InvocationHandler;
 import org.codegist.common.reflect.ObjectMethodsAwareInvocationHandler;
@@ -33,16 +34,23 @@ import org.codegist.crest.io.Request;
 import org.codegist.crest.io.RequestBuilderFactory;
 import org.codegist.crest.io.RequestExecutor;
 import org.codegist.crest.io.Response;
+import org.codegist.crest.metrics.DefaultMetricsCollector;
+import org.codegist.crest.metrics.MetricsCollector;
 import org.codegist.crest.test.util.Classes;
 import org.codegist.crest.util.Requests;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.InputStream;
 import java.lang.reflect.Method;
 
+import static org.codegist.crest.metrics.Stage.CALL;
+import static org.codegist.crest.metrics.Stage.DESERIALIZATION;
+import static org.codegist.crest.metrics.Stage.REQUEST_BUILDING;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -119,6 +127,49 @@ public class DefaultCRestTest {
         assertSame(expected, actual);
     }
 
+    @Test
+    public void crestInvocationHandlerInvokeShouldDisposeTheResponseOnceHandled() throws Throwable {
+        Object[] args = new Object[0];
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        Request request = mock(Request.class);
+        Response response = mock(Response.class);
+        ResponseHandler responseHandler= mock(ResponseHandler.class);
+
+        when(methodConfig.getResponseHandler()).thenReturn(responseHandler);
+        when(config.getMethodConfig(TestInterface.GET)).thenReturn(methodConfig);
+        mockStatic(Requests.class);
+        when(Requests.from(requestBuilderFactory, methodConfig, args)).thenReturn(request);
+        when(requestExecutor.execute(request)).thenReturn(response);
+        when(responseHandler.handle(response)).thenReturn(200);
+
+        DefaultCRest.CRestInvocationHandler toTest = new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory).new CRestInvocationHandler(config);
+
+        assertEquals(200, toTest.doInvoke(null, TestInterface.GET, args));
+        verify(response).dispose();
+    }
+
+    @Test
+    public void crestInvocationHandlerInvokeShouldNotDisposeTheResponseIfItsStreamIsHandedOver() throws Throwable {
+        InputStream expected = mock(InputStream.class);
+        Object[] args = new Object[0];
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        Request request = mock(Request.class);
+        Response response = mock(Response.class);
+        ResponseHandler responseHandler= mock(ResponseHandler.class);
+
+        when(methodConfig.getResponseHandler()).thenReturn(responseHandler);
+        when(config.getMethodConfig(TestInterface.GET)).thenReturn(methodConfig);
+        mockStatic(Requests.class);
+        when(Requests.from(requestBuilderFactory, methodConfig, args)).thenReturn(request);
+        when(requestExecutor.execute(request)).thenReturn(response);
+        when(responseHandler.handle(response)).thenReturn(expected);
+
+        DefaultCRest.CRestInvocationHandler toTest = new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory).new CRestInvocationHandler(config);
+
+        assertSame(expected, toTest.doInvoke(null, TestInterface.GET, args));
+        verify(response, never()).dispose();
+    }
+
     @Test
     public void crestInvocationHandlerInvokeBuildARequestExecuteItAndHandleError() throws Throwable {
         Object expected = new Object();
@@ -144,6 +195,123 @@ public class DefaultCRestTest {
         Disposables.dispose(null, e);
     }
 
+    @Test
+    public void crestInvocationHandlerInvokeShouldReportStagesToMetricsCollector() throws Throwable {
+        Object[] args = new Object[0];
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        Request request = mock(Request.class);
+        Response response = mock(Response.class);
+        ResponseHandler responseHandler= mock(ResponseHandler.class);
+        MetricsCollector metricsCollector = mock(MetricsCollector.class);
+
+        when(methodConfig.getResponseHandler()).thenReturn(responseHandler);
+        when(config.getMethodConfig(TestInterface.GET)).thenReturn(methodConfig);
+        mockStatic(Requests.class);
+        when(Requests.from(requestBuilderFactory, methodConfig, args)).thenReturn(request);
+        when(requestExecutor.execute(request)).thenReturn(response);
+
+        DefaultCRest.CRestInvocationHandler toTest = new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, metricsCollector, new NoOpCRestEventListener()).new CRestInvocationHandler(config);
+
+        toTest.doInvoke(null, TestInterface.GET, args);
+        verify(metricsCollector).onStageStart(methodConfig, REQUEST_BUILDING);
+        verify(metricsCollector).onStageStart(methodConfig, DESERIALIZATION);
+        verify(metricsCollector).onStageStart(methodConfig, CALL);
+        verify(metricsCollector).onStage(eq(methodConfig), eq(REQUEST_BUILDING), anyLong());
+        verify(metricsCollector).onStage(eq(methodConfig), eq(DESERIALIZATION), anyLong());
+        verify(metricsCollector).onStage(eq(methodConfig), eq(CALL), anyLong());
+        verify(metricsCollector, never()).onError(any(MethodConfig.class), any(Exception.class));
+    }
+
+    @Test
+    public void crestInvocationHandlerInvokeShouldReportErrorsToMetricsCollector() throws Throwable {
+        Object[] args = new Object[0];
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        Request request = mock(Request.class);
+        ErrorHandler errorHandler = mock(ErrorHandler.class);
+        MetricsCollector metricsCollector = mock(MetricsCollector.class);
+        Exception e = new Exception();
+
+        when(methodConfig.getErrorHandler()).thenReturn(errorHandler);
+        when(config.getMethodConfig(TestInterface.GET)).thenReturn(methodConfig);
+        mockStatic(Requests.class);
+        when(Requests.from(requestBuilderFactory, methodConfig, args)).thenReturn(request);
+        when(requestExecutor.execute(request)).thenThrow(e);
+
+        DefaultCRest.CRestInvocationHandler toTest = new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, metricsCollector, new NoOpCRestEventListener()).new CRestInvocationHandler(config);
+
+        toTest.doInvoke(null, TestInterface.GET, args);
+        verify(metricsCollector).onError(methodConfig, e);
+        verify(metricsCollector).onStage(eq(methodConfig), eq(CALL), anyLong());
+    }
+
+    @Test
+    public void crestInvocationHandlerInvokeShouldNotifyEventListenerOfEachPhase() throws Throwable {
+        Object[] args = new Object[0];
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        Request request = mock(Request.class);
+        Response response = mock(Response.class);
+        ResponseHandler responseHandler= mock(ResponseHandler.class);
+        CRestEventListener eventListener = mock(CRestEventListener.class);
+
+        when(methodConfig.getResponseHandler()).thenReturn(responseHandler);
+        when(config.getMethodConfig(TestInterface.GET)).thenReturn(methodConfig);
+        mockStatic(Requests.class);
+        when(Requests.from(requestBuilderFactory, methodConfig, args)).thenReturn(request);
+        when(requestExecutor.execute(request)).thenReturn(response);
+
+        DefaultCRest.CRestInvocationHandler toTest = new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, mock(MetricsCollector.class), eventListener).new CRestInvocationHandler(config);
+
+        toTest.doInvoke(null, TestInterface.GET, args);
+        InOrder inOrder = inOrder(eventListener);
+        inOrder.verify(eventListener).callStart(eq(methodConfig), anyLong());
+        inOrder.verify(eventListener).requestBuilt(eq(request), anyLong());
+        inOrder.verify(eventListener).deserialized(eq(request), anyLong());
+        inOrder.verify(eventListener).callEnd(eq(methodConfig), eq(request), (Exception) isNull(), anyLong());
+    }
+
+    @Test
+    public void crestInvocationHandlerInvokeShouldNotifyEventListenerOfFailuresToBuildTheRequest() throws Throwable {
+        Object[] args = new Object[0];
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        CRestEventListener eventListener = mock(CRestEventListener.class);
+        RuntimeException e = new RuntimeException();
+
+        when(config.getMethodConfig(TestInterface.GET)).thenReturn(methodConfig);
+        mockStatic(Requests.class);
+        when(Requests.from(requestBuilderFactory, methodConfig, args)).thenThrow(e);
+
+        DefaultCRest.CRestInvocationHandler toTest = new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, mock(MetricsCollector.class), eventListener).new CRestInvocationHandler(config);
+
+        try {
+            toTest.doInvoke(null, TestInterface.GET, args);
+            fail();
+        } catch (RuntimeException actual) {
+            assertSame(e, actual);
+        }
+        verify(eventListener).callStart(eq(methodConfig), anyLong());
+        verify(eventListener, never()).requestBuilt(any(Request.class), anyLong());
+        verify(eventListener).callEnd(eq(methodConfig), (Request) isNull(), eq(e), anyLong());
+    }
+
+    @Test
+    public void disposeShouldDisposeTheRequestExecutorAndTheMetricsCollector() {
+        DisposableRequestExecutor requestExecutor = mock(DisposableRequestExecutor.class);
+        DefaultMetricsCollector metricsCollector = mock(DefaultMetricsCollector.class);
+        new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, metricsCollector, mock(CRestEventListener.class), null, true).dispose();
+        verify(requestExecutor).dispose();
+        verify(metricsCollector).dispose();
+    }
+
+    @Test
+    public void disposeShouldNotDisposeASharedMetricsCollector() {
+        DefaultMetricsCollector metricsCollector = mock(DefaultMetricsCollector.class);
+        new DefaultCRest(proxyFactory, requestExecutor, requestBuilderFactory, configFactory, metricsCollector, mock(CRestEventListener.class), null, false).dispose();
+        verify(metricsCollector, never()).dispose();
+    }
+
+    public static abstract class DisposableRequestExecutor implements RequestExecutor, Disposable {
+    }
+
     public interface TestInterface {
         void get();
         Method GET = Classes.byName(TestInterface.class, "get");
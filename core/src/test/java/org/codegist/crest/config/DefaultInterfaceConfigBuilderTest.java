@@ -104,6 +104,30 @@ public class DefaultInterfaceConfigBuilderTest {
         verify(mockM2MethodConfigBuilder).setSocketTimeout(10);
     }
 
+    @Test
+    public void setMethodsCircuitBreakerShouldSetCircuitBreakerOnAllMethodConfigs(){
+        CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+        assertSame(toTest, toTest.setMethodsCircuitBreaker(circuitBreaker));
+        verify(mockM1MethodConfigBuilder).setCircuitBreaker(circuitBreaker);
+        verify(mockM2MethodConfigBuilder).setCircuitBreaker(circuitBreaker);
+    }
+
+    @Test
+    public void setMethodsRateLimitShouldSetRateLimitOnAllMethodConfigs(){
+        RateLimitConfig rateLimit = new RateLimitConfig(10, 1000);
+        assertSame(toTest, toTest.setMethodsRateLimit(rateLimit));
+        verify(mockM1MethodConfigBuilder).setRateLimit(rateLimit);
+        verify(mockM2MethodConfigBuilder).setRateLimit(rateLimit);
+    }
+
+    @Test
+    public void setMethodsBulkheadShouldSetBulkheadOnAllMethodConfigs(){
+        BulkheadConfig bulkhead = new BulkheadConfig(10);
+        assertSame(toTest, toTest.setMethodsBulkhead(bulkhead));
+        verify(mockM1MethodConfigBuilder).setBulkhead(bulkhead);
+        verify(mockM2MethodConfigBuilder).setBulkhead(bulkhead);
+    }
+
     @Test
     public void setMethodsConnectionTimeoutShouldSetConnectionTimeoutOnAllMethodConfigs(){
         assertSame(toTest, toTest.setMethodsConnectionTimeout(10));
@@ -111,6 +135,13 @@ public class DefaultInterfaceConfigBuilderTest {
         verify(mockM2MethodConfigBuilder).setConnectionTimeout(10);
     }
 
+    @Test
+    public void setMethodsDeadlineShouldSetDeadlineOnAllMethodConfigs(){
+        assertSame(toTest, toTest.setMethodsDeadline(10));
+        verify(mockM1MethodConfigBuilder).setDeadline(10);
+        verify(mockM2MethodConfigBuilder).setDeadline(10);
+    }
+
     @Test
     public void setMethodsRequestInterceptorShouldSetRequestInterceptorOnAllMethodConfigs(){
         assertSame(toTest, toTest.setMethodsRequestInterceptor(RequestInterceptor.class));
@@ -241,6 +241,99 @@ public class DefaultMethodConfigBuilderTest {
     }
 
 
+    @Test
+    public void shouldUseDefaultValueForCircuitBreaker() throws Exception {
+        mockEndpoint();
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertNull(actual.getCircuitBreaker());
+    }
+
+    @Test
+    public void shouldOverrideValueForCircuitBreaker() throws Exception {
+        mockEndpoint();
+        CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+        mockOverride(MethodConfig.METHOD_CONFIG_DEFAULT_CIRCUIT_BREAKER, circuitBreaker);
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertSame(circuitBreaker, actual.getCircuitBreaker());
+    }
+
+    @Test
+    public void shouldUseGivenValueForCircuitBreaker() throws Exception {
+        mockEndpoint();
+        CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.setCircuitBreaker(circuitBreaker).build();
+        assertCommons(actual);
+        assertSame(circuitBreaker, actual.getCircuitBreaker());
+    }
+
+
+    @Test
+    public void shouldUseDefaultValueForRateLimit() throws Exception {
+        mockEndpoint();
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertNull(actual.getRateLimit());
+    }
+
+    @Test
+    public void shouldOverrideValueForRateLimit() throws Exception {
+        mockEndpoint();
+        RateLimitConfig rateLimit = new RateLimitConfig(10, 1000);
+        mockOverride(MethodConfig.METHOD_CONFIG_DEFAULT_RATE_LIMIT, rateLimit);
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertSame(rateLimit, actual.getRateLimit());
+    }
+
+    @Test
+    public void shouldUseGivenValueForRateLimit() throws Exception {
+        mockEndpoint();
+        RateLimitConfig rateLimit = new RateLimitConfig(10, 1000);
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.setRateLimit(rateLimit).build();
+        assertCommons(actual);
+        assertSame(rateLimit, actual.getRateLimit());
+    }
+
+
+    @Test
+    public void shouldUseDefaultValueForBulkhead() throws Exception {
+        mockEndpoint();
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertNull(actual.getBulkhead());
+    }
+
+    @Test
+    public void shouldOverrideValueForBulkhead() throws Exception {
+        mockEndpoint();
+        BulkheadConfig bulkhead = new BulkheadConfig(10);
+        mockOverride(MethodConfig.METHOD_CONFIG_DEFAULT_BULKHEAD, bulkhead);
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertSame(bulkhead, actual.getBulkhead());
+    }
+
+    @Test
+    public void shouldUseGivenValueForBulkhead() throws Exception {
+        mockEndpoint();
+        BulkheadConfig bulkhead = new BulkheadConfig(10);
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.setBulkhead(bulkhead).build();
+        assertCommons(actual);
+        assertSame(bulkhead, actual.getBulkhead());
+    }
+
+
     @Test
     public void shouldUseDefaultValueForConnectionTimeout() throws Exception {
         mockEndpoint();
@@ -260,6 +353,34 @@ public class DefaultMethodConfigBuilderTest {
         assertEquals(10,actual.getConnectionTimeout());
     }
 
+    @Test
+    public void shouldUseDefaultValueForDeadline() throws Exception {
+        mockEndpoint();
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertEquals(0, actual.getDeadline());
+    }
+
+    @Test
+    public void shouldOverrideValueForDeadline() throws Exception {
+        mockEndpoint();
+        mockOverride(MethodConfig.METHOD_CONFIG_DEFAULT_DEADLINE, 10);
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.build();
+        assertCommons(actual);
+        assertEquals(10,actual.getDeadline());
+    }
+
+    @Test
+    public void shouldUseGivenValueForDeadline() throws Exception {
+        mockEndpoint();
+        DefaultMethodConfigBuilder toTest = newToTest();
+        MethodConfig actual = toTest.setDeadline(10).build();
+        assertCommons(actual);
+        assertEquals(10,actual.getDeadline());
+    }
+
     @Test
     public void shouldUseGivenValueForConnectionTimeout() throws Exception {
         mockEndpoint();
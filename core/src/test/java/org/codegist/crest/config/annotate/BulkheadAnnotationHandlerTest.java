@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config.annotate;
+
+import org.codegist.crest.annotate.Bulkhead;
+import org.codegist.crest.config.BulkheadConfig;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class BulkheadAnnotationHandlerTest extends DownToMethodAnnotationBaseTest<Bulkhead> {
+
+    private final BulkheadAnnotationHandler toTest = new BulkheadAnnotationHandler();
+
+    public BulkheadAnnotationHandlerTest() {
+        super(Bulkhead.class);
+        when(mockAnnotation.maxConcurrent()).thenReturn(1);
+        when(mockAnnotation.maxQueue()).thenReturn(2);
+        when(mockAnnotation.maxWait()).thenReturn(3);
+        when(mockAnnotation.perMethod()).thenReturn(true);
+    }
+
+    @Test
+    public void handleInterfaceAnnotationShouldSetMethodsBulkhead() throws Exception {
+        ArgumentCaptor<BulkheadConfig> captor = ArgumentCaptor.forClass(BulkheadConfig.class);
+        toTest.handleInterfaceAnnotation(mockAnnotation, mockInterfaceConfigBuilder);
+        verify(mockInterfaceConfigBuilder).setMethodsBulkhead(captor.capture());
+        assertConfig(captor.getValue());
+    }
+
+    @Test
+    public void handleMethodAnnotationShouldSetBulkhead() throws Exception {
+        ArgumentCaptor<BulkheadConfig> captor = ArgumentCaptor.forClass(BulkheadConfig.class);
+        toTest.handleMethodAnnotation(mockAnnotation, mockMethodConfigBuilder);
+        verify(mockMethodConfigBuilder).setBulkhead(captor.capture());
+        assertConfig(captor.getValue());
+    }
+
+    private void assertConfig(BulkheadConfig actual) {
+        verify(mockAnnotation).maxConcurrent();
+        verify(mockAnnotation).maxQueue();
+        verify(mockAnnotation).maxWait();
+        verify(mockAnnotation).perMethod();
+        assertEquals(1, actual.getMaxConcurrent());
+        assertEquals(2, actual.getMaxQueue());
+        assertEquals(3, actual.getMaxWait());
+        assertTrue(actual.isPerMethod());
+    }
+
+    @Override
+    public AnnotationHandler<Bulkhead> getToTest() {
+        return toTest;
+    }
+}
@@ -43,11 +43,14 @@ public class CRestAnnotationsTest extends NonInstanciableClassTest {
     @Test
     public void mappingShouldContainsAllSupportedJaxRsAnnotations(){
         
-        assertEquals(36, CRestAnnotations.getMapping().size());
+        assertEquals(41, CRestAnnotations.getMapping().size());
+        assertEquals(BulkheadAnnotationHandler.class, CRestAnnotations.getMapping().get(Bulkhead.class));
+        assertEquals(CircuitBreakerAnnotationHandler.class, CRestAnnotations.getMapping().get(CircuitBreaker.class));
         assertEquals(ConnectionTimeoutAnnotationHandler.class, CRestAnnotations.getMapping().get(ConnectionTimeout.class));
         assertEquals(ConsumesAnnotationHandler.class, CRestAnnotations.getMapping().get(Consumes.class));
         assertEquals(CookieParamAnnotationHandler.class, CRestAnnotations.getMapping().get(CookieParam.class));
         assertEquals(CookieParamsAnnotationHandler.class, CRestAnnotations.getMapping().get(CookieParams.class));
+        assertEquals(DeadlineAnnotationHandler.class, CRestAnnotations.getMapping().get(Deadline.class));
         assertEquals(DELETEAnnotationHandler.class, CRestAnnotations.getMapping().get(DELETE.class));
         assertEquals(EncodedAnnotationHandler.class, CRestAnnotations.getMapping().get(Encoded.class));
         assertEquals(EncodingAnnotationHandler.class, CRestAnnotations.getMapping().get(Encoding.class));
@@ -74,10 +77,12 @@ public class CRestAnnotationsTest extends NonInstanciableClassTest {
         assertEquals(PUTAnnotationHandler.class, CRestAnnotations.getMapping().get(PUT.class));
         assertEquals(QueryParamAnnotationHandler.class, CRestAnnotations.getMapping().get(QueryParam.class));
         assertEquals(QueryParamsAnnotationHandler.class, CRestAnnotations.getMapping().get(QueryParams.class));
+        assertEquals(RateLimitAnnotationHandler.class, CRestAnnotations.getMapping().get(RateLimit.class));
         assertEquals(RequestInterceptorAnnotationHandler.class, CRestAnnotations.getMapping().get(RequestInterceptor.class));
         assertEquals(ResponseHandlerAnnotationHandler.class, CRestAnnotations.getMapping().get(ResponseHandler.class));
         assertEquals(RetryHandlerAnnotationHandler.class, CRestAnnotations.getMapping().get(RetryHandler.class));
         assertEquals(SerializerAnnotationHandler.class, CRestAnnotations.getMapping().get(Serializer.class));
+        assertEquals(ShardKeyAnnotationHandler.class, CRestAnnotations.getMapping().get(ShardKey.class));
         assertEquals(SocketTimeoutAnnotationHandler.class, CRestAnnotations.getMapping().get(SocketTimeout.class));
         assertEquals(DeserializerAnnotationHandler.class, CRestAnnotations.getMapping().get(Deserializer.class));
     }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config.annotate;
+
+import org.codegist.crest.annotate.CircuitBreaker;
+import org.codegist.crest.config.CircuitBreakerConfig;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class CircuitBreakerAnnotationHandlerTest extends DownToMethodAnnotationBaseTest<CircuitBreaker> {
+
+    private final CircuitBreakerAnnotationHandler toTest = new CircuitBreakerAnnotationHandler();
+
+    public CircuitBreakerAnnotationHandlerTest() {
+        super(CircuitBreaker.class);
+        when(mockAnnotation.failureRateThreshold()).thenReturn(1);
+        when(mockAnnotation.slowCallRateThreshold()).thenReturn(2);
+        when(mockAnnotation.slowCallDuration()).thenReturn(3);
+        when(mockAnnotation.minimumCalls()).thenReturn(4);
+        when(mockAnnotation.window()).thenReturn(5);
+        when(mockAnnotation.waitInOpen()).thenReturn(6);
+        when(mockAnnotation.halfOpenCalls()).thenReturn(7);
+        when(mockAnnotation.perMethod()).thenReturn(true);
+    }
+
+    @Test
+    public void handleInterfaceAnnotationShouldSetMethodsCircuitBreaker() throws Exception {
+        ArgumentCaptor<CircuitBreakerConfig> captor = ArgumentCaptor.forClass(CircuitBreakerConfig.class);
+        toTest.handleInterfaceAnnotation(mockAnnotation, mockInterfaceConfigBuilder);
+        verify(mockInterfaceConfigBuilder).setMethodsCircuitBreaker(captor.capture());
+        assertConfig(captor.getValue());
+    }
+
+    @Test
+    public void handleMethodAnnotationShouldSetCircuitBreaker() throws Exception {
+        ArgumentCaptor<CircuitBreakerConfig> captor = ArgumentCaptor.forClass(CircuitBreakerConfig.class);
+        toTest.handleMethodAnnotation(mockAnnotation, mockMethodConfigBuilder);
+        verify(mockMethodConfigBuilder).setCircuitBreaker(captor.capture());
+        assertConfig(captor.getValue());
+    }
+
+    private void assertConfig(CircuitBreakerConfig actual) {
+        verify(mockAnnotation).failureRateThreshold();
+        verify(mockAnnotation).slowCallRateThreshold();
+        verify(mockAnnotation).slowCallDuration();
+        verify(mockAnnotation).minimumCalls();
+        verify(mockAnnotation).window();
+        verify(mockAnnotation).waitInOpen();
+        verify(mockAnnotation).halfOpenCalls();
+        verify(mockAnnotation).perMethod();
+        assertEquals(1, actual.getFailureRateThreshold());
+        assertEquals(2, actual.getSlowCallRateThreshold());
+        assertEquals(3, actual.getSlowCallDuration());
+        assertEquals(4, actual.getMinimumCalls());
+        assertEquals(5, actual.getWindow());
+        assertEquals(6, actual.getWaitInOpen());
+        assertEquals(7, actual.getHalfOpenCalls());
+        assertTrue(actual.isPerMethod());
+    }
+
+    @Override
+    public AnnotationHandler<CircuitBreaker> getToTest() {
+        return toTest;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config.annotate;
+
+import org.codegist.crest.annotate.RateLimit;
+import org.codegist.crest.config.RateLimitConfig;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class RateLimitAnnotationHandlerTest extends DownToMethodAnnotationBaseTest<RateLimit> {
+
+    private final RateLimitAnnotationHandler toTest = new RateLimitAnnotationHandler();
+
+    public RateLimitAnnotationHandlerTest() {
+        super(RateLimit.class);
+        when(mockAnnotation.permits()).thenReturn(1);
+        when(mockAnnotation.period()).thenReturn(2);
+        when(mockAnnotation.policy()).thenReturn(RateLimitConfig.Policy.DELAY);
+        when(mockAnnotation.maxDelay()).thenReturn(3);
+        when(mockAnnotation.perMethod()).thenReturn(true);
+    }
+
+    @Test
+    public void handleInterfaceAnnotationShouldSetMethodsRateLimit() throws Exception {
+        ArgumentCaptor<RateLimitConfig> captor = ArgumentCaptor.forClass(RateLimitConfig.class);
+        toTest.handleInterfaceAnnotation(mockAnnotation, mockInterfaceConfigBuilder);
+        verify(mockInterfaceConfigBuilder).setMethodsRateLimit(captor.capture());
+        assertConfig(captor.getValue());
+    }
+
+    @Test
+    public void handleMethodAnnotationShouldSetRateLimit() throws Exception {
+        ArgumentCaptor<RateLimitConfig> captor = ArgumentCaptor.forClass(RateLimitConfig.class);
+        toTest.handleMethodAnnotation(mockAnnotation, mockMethodConfigBuilder);
+        verify(mockMethodConfigBuilder).setRateLimit(captor.capture());
+        assertConfig(captor.getValue());
+    }
+
+    private void assertConfig(RateLimitConfig actual) {
+        verify(mockAnnotation).permits();
+        verify(mockAnnotation).period();
+        verify(mockAnnotation).policy();
+        verify(mockAnnotation).maxDelay();
+        verify(mockAnnotation).perMethod();
+        assertEquals(1, actual.getPermits());
+        assertEquals(2, actual.getPeriod());
+        assertEquals(RateLimitConfig.Policy.DELAY, actual.getPolicy());
+        assertEquals(3, actual.getMaxDelay());
+        assertTrue(actual.isPerMethod());
+    }
+
+    @Override
+    public AnnotationHandler<RateLimit> getToTest() {
+        return toTest;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.config.annotate;
+
+import org.codegist.crest.annotate.ShardKey;
+import org.codegist.crest.util.ShardKeys;
+import org.junit.Test;
+
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class ShardKeyAnnotationHandlerTest extends ParamOnlyAnnotationBaseTest<ShardKey> {
+
+    private final ShardKeyAnnotationHandler toTest = new ShardKeyAnnotationHandler();
+
+    public ShardKeyAnnotationHandlerTest() {
+        super(ShardKey.class);
+    }
+
+    @Test
+    public void handleParamsAnnotationShouldFlagParamAsShardKey() throws Exception {
+        toTest.handleParameterAnnotation(mockAnnotation, mockParamConfigBuilder);
+        verify(mockParamConfigBuilder).setMetaDatas(ShardKeys.toMetaDatas());
+    }
+
+    @Override
+    public AnnotationHandler<ShardKey> getToTest() {
+        return toTest;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.handler;
+
+import org.codegist.crest.CRestConfig;
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.config.MethodType;
+import org.codegist.crest.io.CallDeadline;
+import org.codegist.crest.io.CircuitBreakerOpenException;
+import org.codegist.crest.io.DeadlineExceededException;
+import org.codegist.crest.io.RateLimitExceededException;
+import org.codegist.crest.io.Request;
+import org.codegist.crest.io.RequestException;
+import org.codegist.crest.io.Response;
+import org.junit.Test;
+
+import static org.codegist.crest.handler.BackoffRetryHandler.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class BackoffRetryHandlerTest {
+
+    private final CRestConfig mockCRestConfig = mock(CRestConfig.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final Request request = mock(Request.class);
+    private final Response response = mock(Response.class);
+    private final RequestException exception = mock(RequestException.class);
+
+    {
+        when(mockCRestConfig.getMaxAttempts()).thenReturn(3);
+        when(mockCRestConfig.get(BASE_DELAY_PROP, 100)).thenReturn(1);
+        when(mockCRestConfig.get(MAX_DELAY_PROP, 10000)).thenReturn(8);
+        when(mockCRestConfig.get(JITTER_PROP, Jitter.FULL)).thenReturn(Jitter.NONE);
+        when(mockCRestConfig.get(RETRY_NON_IDEMPOTENT_PROP, false)).thenReturn(false);
+        when(exception.getRequest()).thenReturn(request);
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getType()).thenReturn(MethodType.GET);
+    }
+
+    @Test
+    public void shouldRetryUpToMaxAttempts() throws Exception {
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertTrue(toTest.retry(exception, 2));
+        assertTrue(toTest.retry(exception, 3));
+        assertFalse(toTest.retry(exception, 4));
+        assertEquals(2, toTest.getScheduledRetryCount());
+        assertEquals(1, toTest.getExhaustedCount());
+    }
+
+    @Test
+    public void shouldNotRetryNonIdempotentRequestsByDefault() throws Exception {
+        when(methodConfig.getType()).thenReturn(MethodType.POST);
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertFalse(toTest.retry(exception, 2));
+        assertEquals(1, toTest.getNonIdempotentCount());
+    }
+
+    @Test
+    public void shouldRetryNonIdempotentRequestsIfConfigured() throws Exception {
+        when(methodConfig.getType()).thenReturn(MethodType.POST);
+        when(mockCRestConfig.get(RETRY_NON_IDEMPOTENT_PROP, false)).thenReturn(true);
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertTrue(toTest.retry(exception, 2));
+    }
+
+    @Test
+    public void shouldNotRetryIfCircuitBreakerIsOpen() throws Exception {
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertFalse(toTest.retry(new CircuitBreakerOpenException("circuit", request), 2));
+    }
+
+    @Test
+    public void shouldNotRetryIfRateLimitIsExceeded() throws Exception {
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertFalse(toTest.retry(new RateLimitExceededException(100, request), 2));
+    }
+
+    @Test
+    public void shouldGrowDelayExponentiallyUpToMaxDelay() {
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertEquals(1, toTest.nextDelay(2, 0));
+        assertEquals(2, toTest.nextDelay(3, 0));
+        assertEquals(4, toTest.nextDelay(4, 0));
+        assertEquals(8, toTest.nextDelay(5, 0));
+        assertEquals(8, toTest.nextDelay(6, 0));
+        assertEquals(8, toTest.nextDelay(100, 0));
+    }
+
+    @Test
+    public void fullJitterShouldStayWithinExponentialDelay() {
+        when(mockCRestConfig.get(JITTER_PROP, Jitter.FULL)).thenReturn(Jitter.FULL);
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        for (int i = 0; i < 100; i++) {
+            long delay = toTest.nextDelay(4, 0);
+            assertTrue(delay >= 0 && delay <= 4);
+        }
+    }
+
+    @Test
+    public void decorrelatedJitterShouldStayBetweenBaseAndMaxDelay() {
+        when(mockCRestConfig.get(JITTER_PROP, Jitter.FULL)).thenReturn(Jitter.DECORRELATED);
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        long previous = 0;
+        for (int i = 2; i < 100; i++) {
+            previous = toTest.nextDelay(i, previous);
+            assertTrue(previous >= 1 && previous <= 8);
+        }
+    }
+
+    @Test
+    public void decorrelatedJitterShouldOnlyDependOnThePreviousDelayOfTheSameCall() {
+        when(mockCRestConfig.get(JITTER_PROP, Jitter.FULL)).thenReturn(Jitter.DECORRELATED);
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(toTest.nextDelay(5, 8) >= 1);
+            // another call still at its base delay is not pushed up by the previous one
+            long delay = toTest.nextDelay(3, 1);
+            assertTrue(delay >= 1 && delay <= 3);
+        }
+    }
+
+    @Test
+    public void getRetryDelayShouldNotWait() throws Exception {
+        when(mockCRestConfig.get(BASE_DELAY_PROP, 100)).thenReturn(10000);
+        when(mockCRestConfig.get(MAX_DELAY_PROP, 10000)).thenReturn(10000);
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        long start = System.currentTimeMillis();
+        assertEquals(10000, toTest.getRetryDelay(exception, 2, 0));
+        assertEquals(-1, toTest.getRetryDelay(exception, 4, 10000));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void shouldHonourRetryAfterSecondsOn503() throws Exception {
+        when(mockCRestConfig.get(MAX_DELAY_PROP, 10000)).thenReturn(10000);
+        when(exception.hasResponse()).thenReturn(true);
+        when(exception.getResponse()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(503);
+        when(response.getHeader("Retry-After")).thenReturn("0");
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertTrue(toTest.retry(exception, 2));
+        assertEquals(1, toTest.getRetryAfterCount());
+        assertEquals(0, toTest.getTotalDelay());
+    }
+
+    @Test
+    public void shouldNotRetryIfRetryAfterExceedsMaxDelay() throws Exception {
+        when(exception.hasResponse()).thenReturn(true);
+        when(exception.getResponse()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(429);
+        when(response.getHeader("Retry-After")).thenReturn("Fri, 31 Dec 2100 23:59:59 GMT");
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertFalse(toTest.retry(exception, 2));
+        assertEquals(1, toTest.getRetryAfterExceededCount());
+    }
+
+    @Test
+    public void shouldFailRightAwayIfBackoffExceedsDeadline() throws Exception {
+        when(mockCRestConfig.get(BASE_DELAY_PROP, 100)).thenReturn(10000);
+        when(mockCRestConfig.get(MAX_DELAY_PROP, 10000)).thenReturn(10000);
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        CallDeadline.set(CallDeadline.after(500));
+        long start = System.nanoTime();
+        try {
+            toTest.retry(exception, 2);
+            fail();
+        } catch (DeadlineExceededException e) {
+            assertEquals(500, e.getDeadline());
+            assertSame(request, e.getRequest());
+        } finally {
+            CallDeadline.clear();
+        }
+        assertTrue(System.nanoTime() - start < 500000000l);
+        assertEquals(1, toTest.getDeadlineExceededCount());
+        assertEquals(0, toTest.getScheduledRetryCount());
+    }
+
+    @Test
+    public void shouldRetryIfBackoffEndsBeforeDeadline() throws Exception {
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        CallDeadline.set(CallDeadline.after(5000));
+        try {
+            assertTrue(toTest.retry(exception, 2));
+        } finally {
+            CallDeadline.clear();
+        }
+        assertEquals(0, toTest.getDeadlineExceededCount());
+    }
+
+    @Test
+    public void shouldIgnoreRetryAfterForOtherStatusCodes() throws Exception {
+        when(exception.hasResponse()).thenReturn(true);
+        when(exception.getResponse()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(500);
+        when(response.getHeader("Retry-After")).thenReturn("3600");
+        BackoffRetryHandler toTest = new BackoffRetryHandler(mockCRestConfig);
+        assertTrue(toTest.retry(exception, 2));
+        assertEquals(0, toTest.getRetryAfterCount());
+    }
+}
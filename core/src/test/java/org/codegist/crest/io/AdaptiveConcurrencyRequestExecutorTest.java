@@ -0,0 +1,174 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.MethodConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.codegist.crest.test.util.Classes.getFieldValue;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class AdaptiveConcurrencyRequestExecutorTest {
+
+    private final Request request = mock(Request.class);
+    private final Response response = mock(Response.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final RequestExecutor mockRequestExecutor = mock(RequestExecutor.class);
+    private final ConcurrencyLimitListener listener = mock(ConcurrencyLimitListener.class);
+    private final AdaptiveConcurrencyRequestExecutor toTest = new AdaptiveConcurrencyRequestExecutor(mockRequestExecutor, 10, 100, listener);
+
+    @Before
+    public void setUp() throws Exception {
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getEndPoint()).thenReturn("http://localhost");
+        when(response.getStatusCode()).thenReturn(200);
+    }
+
+    @Test
+    public void shouldReportInitialLimitOnFirstRequest() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertSame(response, toTest.execute(request));
+        assertEquals(10, toTest.getLimiter("http://localhost").getLimit());
+        assertEquals(0, toTest.getLimiter("http://localhost").getInFlight());
+        verify(listener).onLimitChange("http://localhost", 10);
+    }
+
+    @Test
+    public void shouldRejectRequestsOnceLimitIsReached() throws Exception {
+        final AdaptiveConcurrencyRequestExecutor toTest = new AdaptiveConcurrencyRequestExecutor(mockRequestExecutor, 1, 100, null);
+        when(mockRequestExecutor.execute(request)).thenAnswer(new Answer<Response>() {
+            public Response answer(InvocationOnMock invocation) throws Throwable {
+                try {
+                    toTest.execute(request);
+                    fail();
+                } catch (ConcurrencyLimitExceededException e) {
+                    assertEquals(1, e.getLimit());
+                    assertSame(request, e.getRequest());
+                }
+                return response;
+            }
+        });
+        assertSame(response, toTest.execute(request));
+        verify(mockRequestExecutor, times(1)).execute(request);
+        assertEquals(1, toTest.getLimiter("http://localhost").getRejectedCount());
+    }
+
+    @Test
+    public void shouldDecreaseLimitOnFailure() throws Exception {
+        RequestException failure = new RequestException(new Exception());
+        when(mockRequestExecutor.execute(request)).thenThrow(failure);
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RequestException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(9, toTest.getLimiter("http://localhost").getLimit());
+        assertEquals(0, toTest.getLimiter("http://localhost").getInFlight());
+        verify(listener).onLimitChange("http://localhost", 9);
+    }
+
+    @Test
+    public void shouldDecreaseLimitOnServerError() throws Exception {
+        when(response.getStatusCode()).thenReturn(503);
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertEquals(9, toTest.getLimiter("http://localhost").getLimit());
+    }
+
+    @Test
+    public void shouldDecreaseLimitOnTooManyRequests() throws Exception {
+        when(response.getStatusCode()).thenReturn(429);
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertEquals(9, toTest.getLimiter("http://localhost").getLimit());
+    }
+
+    @Test
+    public void shouldNotDecreaseLimitOnClientSideRejection() throws Exception {
+        RejectedRequestException rejection = new ConcurrencyLimitExceededException(1, request);
+        when(mockRequestExecutor.execute(request)).thenThrow(rejection);
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RejectedRequestException e) {
+            assertSame(rejection, e);
+        }
+        assertEquals(10, toTest.getLimiter("http://localhost").getLimit());
+        assertEquals(0, toTest.getLimiter("http://localhost").getInFlight());
+    }
+
+    @Test
+    public void shouldNotSampleClientSideRejections() throws Exception {
+        RejectedRequestException rejection = new CircuitBreakerOpenException("circuit", request);
+        when(mockRequestExecutor.execute(request)).thenAnswer(new Answer<Response>() {
+            public Response answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(5);
+                return response;
+            }
+        }).thenThrow(rejection);
+        toTest.execute(request);
+        AdaptiveLimiter limiter = toTest.getLimiter("http://localhost");
+        long baselineRtt = (Long) getFieldValue(limiter, "baselineRtt");
+        int windowSamples = (Integer) getFieldValue(limiter, "windowSamples");
+        for (int i = 0; i < 3; i++) {
+            try {
+                toTest.execute(request);
+                fail();
+            } catch (RejectedRequestException e) {
+                assertSame(rejection, e);
+            }
+        }
+        assertEquals(baselineRtt, ((Long) getFieldValue(limiter, "baselineRtt")).longValue());
+        assertEquals(windowSamples, ((Integer) getFieldValue(limiter, "windowSamples")).intValue());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void shouldNotSampleFailuresOfCancelledAttempts() throws Exception {
+        RequestException aborted = new RequestException(new Exception());
+        when(mockRequestExecutor.execute(request)).thenReturn(response).thenThrow(aborted);
+        toTest.execute(request);
+        AdaptiveLimiter limiter = toTest.getLimiter("http://localhost");
+        int windowSamples = (Integer) getFieldValue(limiter, "windowSamples");
+        CallCancellation cancellation = new CallCancellation();
+        cancellation.cancel();
+        CallCancellation.set(cancellation);
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RequestException e) {
+            assertSame(aborted, e);
+        } finally {
+            CallCancellation.clear();
+        }
+        assertEquals(windowSamples, ((Integer) getFieldValue(limiter, "windowSamples")).intValue());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
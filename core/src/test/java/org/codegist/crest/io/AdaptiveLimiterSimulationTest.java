@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives an {@link org.codegist.crest.io.AdaptiveLimiter} against a simulated server, in virtual time.
+ * <p>The server serves up to its capacity of concurrent calls at its base latency, each call above it adding a quarter of the base latency to the calls it queues behind. The base latency can shift after the first quarter of the run, ie following a network change. Clients keep calling the server without pause, retrying rejected calls after a millisecond.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class AdaptiveLimiterSimulationTest {
+
+    private static final long MILLISECOND = 1000000l;
+    private static final long BASE_LATENCY = 10 * MILLISECOND;
+    private static final long RETRY_DELAY = MILLISECOND;
+    private static final long DURATION = 60000 * MILLISECOND;
+    private static final int CLIENTS = 200;
+
+    @Test
+    public void limitShouldConvergeToServerCapacity() {
+        assertConvergesTo(20, 5);
+    }
+
+    @Test
+    public void limitShouldConvergeToServerCapacityFromAboveIt() {
+        assertConvergesTo(20, 100);
+    }
+
+    @Test
+    public void limitShouldConvergeToLargeServerCapacity() {
+        assertConvergesTo(100, 10);
+    }
+
+    @Test
+    public void limitShouldConvergeToServerCapacityAfterLatencyShift() {
+        assertConvergesTo(20, 5, 2);
+    }
+
+    private static void assertConvergesTo(int capacity, int initialLimit) {
+        assertConvergesTo(capacity, initialLimit, 1);
+    }
+
+    private static void assertConvergesTo(int capacity, int initialLimit, int latencyShift) {
+        Simulation simulation = new Simulation(capacity, latencyShift, new AdaptiveLimiter("server", initialLimit, 1, 1000, null));
+        simulation.run();
+
+        long baseLatency = BASE_LATENCY * latencyShift;
+        double meanLimit = simulation.getMeanLimit();
+        double meanLatency = simulation.getMeanLatency();
+        assertTrue("mean limit " + meanLimit + " too far from capacity " + capacity, meanLimit >= capacity * 0.8 && meanLimit <= capacity * 1.3);
+        assertTrue("mean latency " + meanLatency + " too far from base latency " + baseLatency, meanLatency <= baseLatency * 1.5);
+    }
+
+    private static final class Simulation {
+
+        private final int capacity;
+        private final int latencyShift;
+        private final AdaptiveLimiter limiter;
+        private final PriorityQueue<Event> events = new PriorityQueue<Event>();
+        private int inFlight;
+        private long limitSum;
+        private long limitSamples;
+        private long latencySum;
+        private long latencySamples;
+
+        private Simulation(int capacity, int latencyShift, AdaptiveLimiter limiter) {
+            this.capacity = capacity;
+            this.latencyShift = latencyShift;
+            this.limiter = limiter;
+        }
+
+        void run() {
+            for (int i = 0; i < CLIENTS; i++) {
+                events.add(new Event(i * 1000l, -1));
+            }
+            while(!events.isEmpty()) {
+                Event event = events.poll();
+                if(event.latency >= 0) {
+                    complete(event);
+                } else if(event.time < DURATION) {
+                    call(event.time);
+                }
+            }
+        }
+
+        private void call(long now) {
+            if(!limiter.tryAcquire()) {
+                events.add(new Event(now + RETRY_DELAY, -1));
+                return;
+            }
+            inFlight++;
+            /* the base latency gets multiplied by the shift from the first quarter of the run on */
+            long baseLatency = now < DURATION / 4 ? BASE_LATENCY : BASE_LATENCY * latencyShift;
+            long latency = baseLatency + Math.max(0, inFlight - capacity) * baseLatency / 4;
+            events.add(new Event(now + latency, latency));
+        }
+
+        private void complete(Event event) {
+            inFlight--;
+            limiter.onSample(event.latency, false, event.time);
+            /* measures the steady state, over the second half of the run */
+            if(event.time >= DURATION / 2) {
+                limitSum += limiter.getLimit();
+                limitSamples++;
+                latencySum += event.latency;
+                latencySamples++;
+            }
+            events.add(new Event(event.time, -1));
+        }
+
+        double getMeanLimit() {
+            return (double) limitSum / limitSamples;
+        }
+
+        double getMeanLatency() {
+            return (double) latencySum / latencySamples;
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        private final long time;
+        private final long latency;
+
+        private Event(long time, long latency) {
+            this.time = time;
+            this.latency = latency;
+        }
+
+        public int compareTo(Event o) {
+            return time < o.time ? -1 : (time == o.time ? 0 : 1);
+        }
+    }
+}
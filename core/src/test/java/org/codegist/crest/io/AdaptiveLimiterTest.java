@@ -0,0 +1,180 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class AdaptiveLimiterTest {
+
+    private static final long RTT = 100;
+
+    private final ConcurrencyLimitListener listener = mock(ConcurrencyLimitListener.class);
+
+    @Test
+    public void shouldRejectOnceLimitIsReached() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 2, 1, 10, listener);
+        assertTrue(toTest.tryAcquire());
+        assertTrue(toTest.tryAcquire());
+        assertFalse(toTest.tryAcquire());
+        assertEquals(2, toTest.getInFlight());
+        assertEquals(1, toTest.getRejectedCount());
+        toTest.onSample(RTT, false, 0);
+        assertEquals(1, toTest.getInFlight());
+        assertTrue(toTest.tryAcquire());
+    }
+
+    @Test
+    public void shouldIncreaseLimitByOnePerRoundTripWhenUsedByAtLeastHalf() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 2, 1, 10, listener);
+        acquire(toTest, 2);
+        toTest.onSample(RTT, false, 0);
+        assertEquals(2, toTest.getLimit());
+        toTest.onSample(RTT, false, 0);
+        assertEquals(2, toTest.getLimit());
+        acquire(toTest, 1);
+        toTest.onSample(RTT, false, 0);
+        assertEquals(3, toTest.getLimit());
+        verify(listener).onLimitChange("limiter", 3);
+    }
+
+    @Test
+    public void shouldNotIncreaseLimitWhenUnderUsed() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 4, 1, 10, listener);
+        acquire(toTest, 1);
+        toTest.onSample(RTT, false, 0);
+        assertEquals(4, toTest.getLimit());
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void shouldNotIncreaseLimitAboveMaximum() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 4, 1, 4, listener);
+        acquire(toTest, 4);
+        toTest.onSample(RTT, false, 0);
+        assertEquals(4, toTest.getLimit());
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void shouldDecreaseLimitOnDrop() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 20, 1, 100, listener);
+        acquire(toTest, 1);
+        toTest.onSample(RTT, true, 0);
+        assertEquals(18, toTest.getLimit());
+        verify(listener).onLimitChange("limiter", 18);
+    }
+
+    @Test
+    public void shouldDecreaseLimitWhenRoundTripTimeExceedsBaseline() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 20, 1, 100, listener);
+        acquire(toTest, 1);
+        toTest.onSample(RTT, false, 0);
+        assertEquals(20, toTest.getLimit());
+        acquire(toTest, 1);
+        toTest.onSample(RTT * 2, false, RTT);
+        assertEquals(20, toTest.getLimit());
+        acquire(toTest, 1);
+        toTest.onSample(RTT * 2 + 1, false, RTT * 2);
+        assertEquals(18, toTest.getLimit());
+    }
+
+    @Test
+    public void shouldDecreaseLimitAtMostOncePerBaselineRoundTrip() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 20, 1, 100, listener);
+        acquire(toTest, 1);
+        toTest.onSample(RTT, false, 0);
+        acquire(toTest, 3);
+        toTest.onSample(RTT, true, RTT);
+        toTest.onSample(RTT, true, RTT + RTT / 2);
+        assertEquals(18, toTest.getLimit());
+        toTest.onSample(RTT, true, RTT * 2);
+        assertEquals(16, toTest.getLimit());
+    }
+
+    @Test
+    public void shouldNotDecreaseLimitBelowMinimum() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 2, 2, 10, listener);
+        acquire(toTest, 1);
+        toTest.onSample(RTT, true, 0);
+        assertEquals(2, toTest.getLimit());
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void shouldHalveLimitThenRaiseBaselineWhenRoundTripTimesStayHigh() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 10, 1, 100, listener);
+        sample(toTest, 100, RTT);
+        sample(toTest, 100, RTT * 3 / 2);
+        assertEquals(5, toTest.getLimit());
+        sample(toTest, 100, RTT * 3 / 2);
+        assertEquals(5, toTest.getLimit());
+        sample(toTest, 1, RTT * 5 / 2);
+        assertEquals(5, toTest.getLimit());
+    }
+
+    @Test
+    public void shouldKeepBaselineWhenRoundTripTimesGoBackDownOnceDrained() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 10, 1, 100, listener);
+        sample(toTest, 100, RTT);
+        sample(toTest, 100, RTT * 3 / 2);
+        assertEquals(5, toTest.getLimit());
+        sample(toTest, 100, RTT);
+        sample(toTest, 1, RTT * 5 / 2);
+        assertEquals(4, toTest.getLimit());
+    }
+
+    @Test
+    public void releaseShouldFreeThePermitWithoutChangingTheLimit() {
+        AdaptiveLimiter toTest = new AdaptiveLimiter("limiter", 1, 1, 10, listener);
+        acquire(toTest, 1);
+        assertFalse(toTest.tryAcquire());
+        toTest.release();
+        assertEquals(0, toTest.getInFlight());
+        assertEquals(1, toTest.getLimit());
+        assertTrue(toTest.tryAcquire());
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void shouldBoundInitialLimit() {
+        assertEquals(2, new AdaptiveLimiter("limiter", 1, 2, 10, null).getLimit());
+        assertEquals(10, new AdaptiveLimiter("limiter", 20, 2, 10, null).getLimit());
+    }
+
+    private static void sample(AdaptiveLimiter limiter, int count, long rtt) {
+        for (int i = 0; i < count; i++) {
+            acquire(limiter, 1);
+            limiter.onSample(rtt, false, 0);
+        }
+    }
+
+    private static void acquire(AdaptiveLimiter limiter, int permits) {
+        for (int i = 0; i < permits; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class AdaptiveTimeoutTest {
+
+    private final AdaptiveTimeout toTest = new AdaptiveTimeout(0.99f, 2, 50, 1000, 10);
+
+    @Test
+    public void shouldUseStaticTimeoutUntilEnoughSamples() {
+        for (int i = 0; i < 9; i++) {
+            toTest.record(100);
+        }
+        assertEquals(20000, toTest.getTimeout(20000, 0));
+    }
+
+    @Test
+    public void shouldDerivePercentileTimesFactor() {
+        for (int i = 0; i < 10; i++) {
+            toTest.record(100);
+        }
+        int timeout = toTest.getTimeout(20000, 0);
+        assertTrue(timeout >= 200 && timeout <= 250);
+    }
+
+    @Test
+    public void shouldClampToBounds() {
+        for (int i = 0; i < 10; i++) {
+            toTest.record(1);
+        }
+        assertEquals(50, toTest.getTimeout(20000, 0));
+        for (int i = 0; i < 10; i++) {
+            toTest.record(5000);
+        }
+        assertEquals(1000, toTest.getTimeout(20000, 100));
+    }
+
+    @Test
+    public void shouldRecomputeAtMostEveryRefreshInterval() {
+        assertEquals(20000, toTest.getTimeout(20000, 0));
+        for (int i = 0; i < 10; i++) {
+            toTest.record(100);
+        }
+        assertEquals(20000, toTest.getTimeout(20000, 99));
+        assertTrue(toTest.getTimeout(20000, 100) < 20000);
+        assertEquals(10, toTest.getHistogram().getCount());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.MethodConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class AdaptiveTimeoutsTest {
+
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final MethodConfig otherMethodConfig = mock(MethodConfig.class);
+    private final AdaptiveTimeouts toTest = new AdaptiveTimeouts(0.99f, 2, 50, 1000, 10);
+    private Method method;
+
+    @Before
+    public void setUp() throws Exception {
+        method = Object.class.getMethod("toString");
+        when(methodConfig.getMethod()).thenReturn(method);
+        when(methodConfig.getSocketTimeout()).thenReturn(20000);
+        when(otherMethodConfig.getMethod()).thenReturn(Object.class.getMethod("hashCode"));
+        when(otherMethodConfig.getSocketTimeout()).thenReturn(30000);
+    }
+
+    @Test
+    public void shouldUseConfiguredSocketTimeoutUntilEnoughSamples() {
+        assertEquals(20000, toTest.getSocketTimeout(methodConfig));
+    }
+
+    @Test
+    public void shouldKeepOneHistogramPerMethod() {
+        for (int i = 0; i < 10; i++) {
+            toTest.record(methodConfig, 100);
+        }
+        int timeout = toTest.getSocketTimeout(methodConfig);
+        assertTrue(timeout >= 200 && timeout <= 250);
+        assertEquals(30000, toTest.getSocketTimeout(otherMethodConfig));
+        assertEquals(10, toTest.get(method).getHistogram().getCount());
+        assertEquals(2, toTest.getAll().size());
+    }
+
+    @Test
+    public void shouldReturnNullForMethodsNotCalledYet() {
+        assertNull(toTest.get(method));
+        assertTrue(toTest.getAll().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnorderedBounds() {
+        new AdaptiveTimeouts(0.99f, 2, 1000, 50);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.BulkheadConfig;
+import org.codegist.crest.config.MethodConfig;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class BulkheadRequestExecutorTest {
+
+    private final Request request = mock(Request.class);
+    private final Response response = mock(Response.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final RequestExecutor mockRequestExecutor = mock(RequestExecutor.class);
+    private final BulkheadRequestExecutor toTest = new BulkheadRequestExecutor(mockRequestExecutor);
+    private final Method method;
+
+    {
+        try {
+            method = Object.class.getMethod("toString");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getMethod()).thenReturn(method);
+        when(methodConfig.getBulkhead()).thenReturn(new BulkheadConfig(1));
+    }
+
+    @Test
+    public void shouldDelegateIfNoBulkheadIsConfigured() throws Exception {
+        when(methodConfig.getBulkhead()).thenReturn(null);
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertNull(toTest.getBulkhead("java.lang.Object"));
+    }
+
+    @Test
+    public void shouldHoldSlotUntilResponseIsDisposed() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        Response actual = toTest.execute(request);
+        assertEquals(0, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+        actual.dispose();
+        actual.dispose();
+        verify(response, times(2)).dispose();
+        assertEquals(1, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+    }
+
+    @Test
+    public void shouldHoldSlotUntilResponseIsDeserialized() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        when(response.deserialize()).thenReturn("result");
+        Response actual = toTest.execute(request);
+        assertEquals(0, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+        assertEquals("result", actual.deserialize());
+        assertEquals(1, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+    }
+
+    @Test
+    public void shouldHoldSlotUntilResponseStreamIsClosed() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        when(response.asStream()).thenReturn(new ByteArrayInputStream("entity".getBytes()));
+        Response actual = toTest.execute(request);
+        InputStream stream = actual.asStream();
+        assertEquals('e', stream.read());
+        assertEquals(0, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+        stream.close();
+        assertEquals(1, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+    }
+
+    @Test
+    public void shouldReleaseSlotOnUncheckedFailure() throws Exception {
+        IllegalStateException failure = new IllegalStateException();
+        when(mockRequestExecutor.execute(request)).thenThrow(failure);
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(1, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+    }
+
+    @Test
+    public void shouldReleaseSlotOnFailure() throws Exception {
+        RequestException failure = new RequestException(new Exception());
+        when(mockRequestExecutor.execute(request)).thenThrow(failure);
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RequestException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(1, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+    }
+
+    @Test
+    public void shouldRejectRequestsOnceBulkheadIsFull() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenAnswer(new Answer<Response>() {
+            public Response answer(InvocationOnMock invocation) throws Throwable {
+                try {
+                    toTest.execute(request);
+                    fail();
+                } catch (BulkheadFullException e) {
+                    assertEquals("java.lang.Object", e.getBulkhead());
+                    assertSame(request, e.getRequest());
+                }
+                return response;
+            }
+        });
+        toTest.execute(request).dispose();
+        verify(response).dispose();
+        verify(mockRequestExecutor, times(1)).execute(request);
+        assertEquals(1, toTest.getBulkhead("java.lang.Object").getRejectedCount());
+    }
+
+    @Test
+    public void shouldNotWaitForSlotPastTheDeadline() throws Exception {
+        when(methodConfig.getBulkhead()).thenReturn(new BulkheadConfig(1, 1, 10000, false));
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        Response held = toTest.execute(request);
+        CallDeadline.set(CallDeadline.after(50));
+        long start = System.nanoTime();
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (DeadlineExceededException e) {
+            assertEquals(50, e.getDeadline());
+            assertSame(request, e.getRequest());
+        } finally {
+            CallDeadline.clear();
+        }
+        assertTrue(System.nanoTime() - start < 5000000000l);
+        verify(mockRequestExecutor, times(1)).execute(request);
+        held.dispose();
+        assertEquals(1, toTest.getBulkhead("java.lang.Object").getAvailableSlots());
+    }
+
+    @Test
+    public void shouldKeyBulkheadByMethodIfConfigured() throws Exception {
+        when(methodConfig.getBulkhead()).thenReturn(new BulkheadConfig(1, 0, 0, true));
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        assertNull(toTest.getBulkhead("java.lang.Object"));
+        assertNotNull(toTest.getBulkhead(method.toGenericString()));
+    }
+}
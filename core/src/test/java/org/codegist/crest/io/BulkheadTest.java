@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.BulkheadConfig;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class BulkheadTest {
+
+    @Test
+    public void shouldRejectOnceAllSlotsAreTakenWithoutQueue() throws InterruptedException {
+        Bulkhead toTest = new Bulkhead("bulkhead", new BulkheadConfig(2));
+        assertTrue(toTest.tryAcquire());
+        assertTrue(toTest.tryAcquire());
+        assertFalse(toTest.tryAcquire());
+        assertEquals(0, toTest.getAvailableSlots());
+        assertEquals(1, toTest.getRejectedCount());
+        assertEquals(0, toTest.getQueuedCount());
+        toTest.release();
+        assertTrue(toTest.tryAcquire());
+    }
+
+    @Test
+    public void shouldRejectOnceMaxWaitElapsed() throws InterruptedException {
+        Bulkhead toTest = new Bulkhead("bulkhead", new BulkheadConfig(1, 1, 10, false));
+        assertTrue(toTest.tryAcquire());
+        assertFalse(toTest.tryAcquire());
+        assertEquals(1, toTest.getQueuedCount());
+        assertEquals(1, toTest.getRejectedCount());
+        assertEquals(0, toTest.getQueueSize());
+        assertTrue(toTest.getTotalQueueTime() >= 10);
+    }
+
+    @Test
+    public void shouldWaitNoLongerThanTheGivenMaxWait() throws InterruptedException {
+        Bulkhead toTest = new Bulkhead("bulkhead", new BulkheadConfig(1, 1, 10000, false));
+        assertTrue(toTest.tryAcquire());
+        long start = System.nanoTime();
+        assertFalse(toTest.tryAcquire(10));
+        assertTrue(System.nanoTime() - start < 5000000000l);
+        assertEquals(1, toTest.getRejectedCount());
+        assertEquals(0, toTest.getQueueSize());
+    }
+
+    @Test
+    public void shouldHandSlotToQueuedCallOnRelease() throws InterruptedException {
+        final Bulkhead toTest = new Bulkhead("bulkhead", new BulkheadConfig(1, 1, 5000, false));
+        assertTrue(toTest.tryAcquire());
+        final CountDownLatch queued = new CountDownLatch(1);
+        final boolean[] acquired = new boolean[1];
+        Thread waiter = new Thread(){
+            @Override
+            public void run() {
+                try {
+                    queued.countDown();
+                    acquired[0] = toTest.tryAcquire();
+                } catch (InterruptedException e) {
+                    acquired[0] = false;
+                }
+            }
+        };
+        waiter.start();
+        queued.await();
+        while(toTest.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+        assertFalse(toTest.tryAcquire());
+        toTest.release();
+        waiter.join();
+        assertTrue(acquired[0]);
+        assertEquals(1, toTest.getQueuedCount());
+        assertEquals(1, toTest.getRejectedCount());
+    }
+}
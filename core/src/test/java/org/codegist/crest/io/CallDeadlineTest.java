@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class CallDeadlineTest {
+
+    private static final long MILLISECOND = 1000000l;
+
+    @After
+    public void tearDown() {
+        CallDeadline.clear();
+    }
+
+    @Test
+    public void remainingShouldCountDownToZero() {
+        CallDeadline toTest = CallDeadline.after(100, 0);
+        assertEquals(100, toTest.getTimeout());
+        assertEquals(100, toTest.remaining(0));
+        assertEquals(40, toTest.remaining(60 * MILLISECOND));
+        assertEquals(1, toTest.remaining(100 * MILLISECOND - 1));
+        assertEquals(0, toTest.remaining(100 * MILLISECOND));
+        assertEquals(0, toTest.remaining(200 * MILLISECOND));
+    }
+
+    @Test
+    public void isExpiredShouldBeTrueOnceDeadlineReached() {
+        CallDeadline toTest = CallDeadline.after(100, 0);
+        assertFalse(toTest.isExpired(100 * MILLISECOND - 1));
+        assertTrue(toTest.isExpired(100 * MILLISECOND));
+    }
+
+    @Test
+    public void earliestShouldReturnTheDeadlineExpiringFirst() {
+        CallDeadline first = CallDeadline.after(100, 0);
+        CallDeadline second = CallDeadline.after(50, 60 * MILLISECOND);
+        assertSame(first, first.earliest(second));
+        assertSame(first, second.earliest(first));
+        assertSame(first, first.earliest(null));
+    }
+
+    @Test
+    public void shouldBeBoundToCurrentThread() throws InterruptedException {
+        final CallDeadline deadline = CallDeadline.after(100);
+        CallDeadline.set(deadline);
+        assertSame(deadline, CallDeadline.get());
+        final CallDeadline[] other = new CallDeadline[]{deadline};
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                other[0] = CallDeadline.get();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNull(other[0]);
+        CallDeadline.clear();
+        assertNull(CallDeadline.get());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.CircuitBreakerConfig;
+import org.codegist.crest.config.MethodConfig;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class CircuitBreakerRequestExecutorTest {
+
+    private final Request request = mock(Request.class);
+    private final Response response = mock(Response.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final RequestExecutor mockRequestExecutor = mock(RequestExecutor.class);
+    private final CircuitBreakerListener listener = mock(CircuitBreakerListener.class);
+    private final CircuitBreakerRequestExecutor toTest = new CircuitBreakerRequestExecutor(mockRequestExecutor, listener);
+
+    {
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getEndPoint()).thenReturn("http://localhost");
+        when(methodConfig.getCircuitBreaker()).thenReturn(new CircuitBreakerConfig(50, 100, 10000, 2, 10, 30000, 1, false));
+    }
+
+    @Test
+    public void shouldDelegateIfNoCircuitBreakerIsConfigured() throws Exception {
+        when(methodConfig.getCircuitBreaker()).thenReturn(null);
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertNull(toTest.getCircuit("http://localhost"));
+    }
+
+    @Test
+    public void shouldFailFastOnceCircuitIsOpen() throws Exception {
+        RequestException failure = new RequestException(new Exception());
+        when(mockRequestExecutor.execute(request)).thenThrow(failure);
+        for (int i = 0; i < 2; i++) {
+            try {
+                toTest.execute(request);
+                fail();
+            } catch (RequestException e) {
+                assertSame(failure, e);
+            }
+        }
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            assertEquals("http://localhost", e.getCircuit());
+            assertSame(request, e.getRequest());
+        }
+        verify(mockRequestExecutor, times(2)).execute(request);
+        verify(listener).onStateChange("http://localhost", CircuitBreaker.State.CLOSED, CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldConsiderAnyExceptionAsFailure() throws Exception {
+        IllegalStateException failure = new IllegalStateException();
+        when(mockRequestExecutor.execute(request)).thenThrow(failure);
+        for (int i = 0; i < 2; i++) {
+            try {
+                toTest.execute(request);
+                fail();
+            } catch (IllegalStateException e) {
+                assertSame(failure, e);
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, toTest.getCircuit("http://localhost").getState());
+    }
+
+    @Test
+    public void shouldConsiderServerErrorsAsFailures() throws Exception {
+        when(response.getStatusCode()).thenReturn(503);
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertSame(response, toTest.execute(request));
+        assertEquals(CircuitBreaker.State.OPEN, toTest.getCircuit("http://localhost").getState());
+    }
+
+    @Test
+    public void shouldNotConsiderClientErrorsAsFailures() throws Exception {
+        when(response.getStatusCode()).thenReturn(404);
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        toTest.execute(request);
+        assertEquals(CircuitBreaker.State.CLOSED, toTest.getCircuit("http://localhost").getState());
+    }
+
+    @Test
+    public void shouldNotConsiderFailuresOfCancelledAttemptsAsFailures() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenThrow(new RequestException(new Exception()));
+        CallCancellation cancellation = new CallCancellation();
+        cancellation.cancel();
+        CallCancellation.set(cancellation);
+        try {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    toTest.execute(request);
+                    fail();
+                } catch (RequestException e) {
+                    // expected
+                }
+            }
+        } finally {
+            CallCancellation.clear();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, toTest.getCircuit("http://localhost").getState());
+    }
+
+    @Test
+    public void shouldShareCircuitBetweenMethodsOfAnEndPointHavingTheSameConfiguration() throws Exception {
+        Request other = mock(Request.class);
+        MethodConfig otherConfig = mock(MethodConfig.class);
+        when(other.getMethodConfig()).thenReturn(otherConfig);
+        when(otherConfig.getEndPoint()).thenReturn("http://localhost");
+        when(otherConfig.getCircuitBreaker()).thenReturn(new CircuitBreakerConfig(50, 100, 10000, 2, 10, 30000, 1, false));
+        when(mockRequestExecutor.execute(any(Request.class))).thenThrow(new RequestException(new Exception()));
+        for (Request r : new Request[]{request, other}) {
+            try {
+                toTest.execute(r);
+                fail();
+            } catch (RequestException e) {
+                // expected
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, toTest.getCircuit("http://localhost").getState());
+    }
+
+    @Test
+    public void shouldNotShareCircuitBetweenMethodsOfAnEndPointConfiguredDifferently() throws Exception {
+        Request other = mock(Request.class);
+        MethodConfig otherConfig = mock(MethodConfig.class);
+        CircuitBreakerConfig lenient = new CircuitBreakerConfig(50, 100, 10000, 100, 10, 30000, 1, false);
+        when(other.getMethodConfig()).thenReturn(otherConfig);
+        when(otherConfig.getEndPoint()).thenReturn("http://localhost");
+        when(otherConfig.getCircuitBreaker()).thenReturn(lenient);
+        when(mockRequestExecutor.execute(any(Request.class))).thenThrow(new RequestException(new Exception()));
+        for (int i = 0; i < 2; i++) {
+            try {
+                toTest.execute(request);
+                fail();
+            } catch (RequestException e) {
+                // expected
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, toTest.getCircuit("http://localhost", methodConfig.getCircuitBreaker()).getState());
+        try {
+            toTest.execute(other);
+            fail();
+        } catch (RequestException e) {
+            assertFalse(e instanceof CircuitBreakerOpenException);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, toTest.getCircuit("http://localhost", lenient).getState());
+    }
+
+    @Test
+    public void shouldKeyCircuitByMethodIfConfigured() throws Exception {
+        Method method = Object.class.getMethod("toString");
+        when(methodConfig.getMethod()).thenReturn(method);
+        when(methodConfig.getCircuitBreaker()).thenReturn(new CircuitBreakerConfig(50, 100, 10000, 2, 10, 30000, 1, true));
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        assertNull(toTest.getCircuit("http://localhost"));
+        assertNotNull(toTest.getCircuit("http://localhost#" + method.toGenericString()));
+    }
+}
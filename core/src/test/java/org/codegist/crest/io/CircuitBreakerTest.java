@@ -0,0 +1,155 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.CircuitBreakerConfig;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.codegist.crest.io.CircuitBreaker.State.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class CircuitBreakerTest {
+
+    private final CircuitBreakerListener listener = mock(CircuitBreakerListener.class);
+    private final CircuitBreaker toTest = new CircuitBreaker("circuit", new CircuitBreakerConfig(50, 100, 1000, 4, 10, 5000, 2, false), listener);
+
+    @Test
+    public void shouldStayClosedUntilMinimumCallsIsReached() {
+        toTest.onResult(true, 1, 0);
+        toTest.onResult(true, 1, 0);
+        toTest.onResult(true, 1, 0);
+        assertEquals(CLOSED, toTest.getState());
+        assertTrue(toTest.tryAcquire(0));
+    }
+
+    @Test
+    public void shouldOpenWhenFailureRateIsReached() {
+        toTest.onResult(false, 1, 0);
+        toTest.onResult(false, 1, 0);
+        toTest.onResult(true, 1, 0);
+        toTest.onResult(true, 1, 0);
+        assertEquals(OPEN, toTest.getState());
+        assertFalse(toTest.tryAcquire(100));
+        assertEquals(1, toTest.getRejectedCount());
+        verify(listener).onStateChange("circuit", CLOSED, OPEN);
+    }
+
+    @Test
+    public void shouldOpenWhenSlowCallRateIsReached() {
+        for (int i = 0; i < 4; i++) {
+            toTest.onResult(false, 1000, 0);
+        }
+        assertEquals(OPEN, toTest.getState());
+    }
+
+    @Test
+    public void shouldLetLimitedProbesThroughOnceWaitElapsedAndCloseIfTheySucceed() {
+        open();
+        assertTrue(toTest.tryAcquire(5000));
+        assertEquals(HALF_OPEN, toTest.getState());
+        assertTrue(toTest.tryAcquire(5000));
+        assertFalse(toTest.tryAcquire(5000));
+        toTest.onResult(false, 1, 5001);
+        assertEquals(HALF_OPEN, toTest.getState());
+        toTest.onResult(false, 1, 5001);
+        assertEquals(CLOSED, toTest.getState());
+        verify(listener).onStateChange("circuit", OPEN, HALF_OPEN);
+        verify(listener).onStateChange("circuit", HALF_OPEN, CLOSED);
+    }
+
+    @Test
+    public void releaseShouldGiveTheProbePermitBack() {
+        open();
+        assertTrue(toTest.tryAcquire(5000));
+        assertTrue(toTest.tryAcquire(5000));
+        assertFalse(toTest.tryAcquire(5000));
+        toTest.release();
+        assertEquals(HALF_OPEN, toTest.getState());
+        assertTrue(toTest.tryAcquire(5000));
+    }
+
+    @Test
+    public void shouldReopenIfAProbeFails() {
+        open();
+        assertTrue(toTest.tryAcquire(5000));
+        toTest.onResult(true, 1, 5001);
+        assertEquals(OPEN, toTest.getState());
+        assertFalse(toTest.tryAcquire(5002));
+        assertTrue(toTest.tryAcquire(10001));
+    }
+
+    @Test
+    public void shouldNotLetMoreProbesThroughThanConfiguredWhenHalfOpeningConcurrently() throws Exception {
+        for (int run = 0; run < 200; run++) {
+            final CircuitBreaker circuit = new CircuitBreaker("circuit", new CircuitBreakerConfig(50, 100, 1000, 4, 10, 5000, 2, false), null);
+            for (int i = 0; i < 4; i++) {
+                circuit.onResult(true, 1, 0);
+            }
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger permitted = new AtomicInteger();
+            Thread[] threads = new Thread[8];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        if(circuit.tryAcquire(5000)) {
+                            permitted.incrementAndGet();
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(2, permitted.get());
+        }
+    }
+
+    @Test
+    public void shouldForgetFailuresOutsideTheWindow() {
+        toTest.onResult(true, 1, 0);
+        toTest.onResult(true, 1, 0);
+        toTest.onResult(true, 1, 0);
+        toTest.onResult(true, 1, 11000);
+        assertEquals(CLOSED, toTest.getState());
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            toTest.onResult(true, 1, 0);
+        }
+        assertEquals(OPEN, toTest.getState());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.MethodConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class DeadlineRequestExecutorTest {
+
+    private final Request request = mock(Request.class);
+    private final Response response = mock(Response.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final RequestExecutor mockRequestExecutor = mock(RequestExecutor.class);
+    private final DeadlineRequestExecutor toTest = new DeadlineRequestExecutor(mockRequestExecutor);
+
+    @Before
+    public void setUp() throws Exception {
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getMethod()).thenReturn(Object.class.getMethod("toString"));
+    }
+
+    @After
+    public void tearDown() {
+        CallDeadline.clear();
+    }
+
+    @Test
+    public void shouldDelegateWithoutDeadlineIfNoneIsSet() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenAnswer(new CurrentDeadline(null));
+        assertSame(response, toTest.execute(request));
+    }
+
+    @Test
+    public void shouldExposeMethodDeadlineDuringTheCall() throws Exception {
+        when(methodConfig.getDeadline()).thenReturn(1000);
+        final CallDeadline[] current = new CallDeadline[1];
+        when(mockRequestExecutor.execute(request)).thenAnswer(new Answer<Response>() {
+            public Response answer(InvocationOnMock invocation) throws Throwable {
+                current[0] = CallDeadline.get();
+                return response;
+            }
+        });
+        assertSame(response, toTest.execute(request));
+        assertEquals(1000, current[0].getTimeout());
+        assertNull(CallDeadline.get());
+    }
+
+    @Test
+    public void shouldUseThreadDeadlineIfEarlierThanMethodOne() throws Exception {
+        when(methodConfig.getDeadline()).thenReturn(1000);
+        CallDeadline deadline = CallDeadline.after(500);
+        CallDeadline.set(deadline);
+        when(mockRequestExecutor.execute(request)).thenAnswer(new CurrentDeadline(deadline));
+        assertSame(response, toTest.execute(request));
+        assertSame(deadline, CallDeadline.get());
+    }
+
+    @Test
+    public void shouldFailWithoutDelegatingIfDeadlineAlreadyExpired() throws Exception {
+        CallDeadline.set(CallDeadline.after(0));
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (DeadlineExceededException e) {
+            assertSame(request, e.getRequest());
+            assertEquals(0, e.getDeadline());
+        }
+        verifyZeroInteractions(mockRequestExecutor);
+        assertEquals(1, toTest.getExceededCount());
+    }
+
+    @Test
+    public void shouldReportFailuresOccurringAfterDeadlineAsDeadlineExceeded() throws Exception {
+        when(methodConfig.getDeadline()).thenReturn(10);
+        final RequestException failure = new RequestException(new java.io.IOException(), request);
+        when(mockRequestExecutor.execute(request)).thenAnswer(new Answer<Response>() {
+            public Response answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(20);
+                throw failure;
+            }
+        });
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (DeadlineExceededException e) {
+            assertSame(failure, e.getCause());
+            assertEquals(10, e.getDeadline());
+        }
+        assertEquals(1, toTest.getExceededCount());
+    }
+
+    @Test
+    public void shouldRethrowFailuresOccurringBeforeDeadline() throws Exception {
+        when(methodConfig.getDeadline()).thenReturn(10000);
+        RequestException failure = new RequestException(new java.io.IOException(), request);
+        when(mockRequestExecutor.execute(request)).thenThrow(failure);
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RequestException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(0, toTest.getExceededCount());
+    }
+
+    private final class CurrentDeadline implements Answer<Response> {
+        private final CallDeadline expected;
+
+        private CurrentDeadline(CallDeadline expected) {
+            this.expected = expected;
+        }
+
+        public Response answer(InvocationOnMock invocation) throws Throwable {
+            assertSame(expected, CallDeadline.get());
+            return response;
+        }
+    }
+}
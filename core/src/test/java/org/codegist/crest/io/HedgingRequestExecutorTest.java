@@ -0,0 +1,238 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.config.MethodType;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class HedgingRequestExecutorTest {
+
+    private final Request request = mock(Request.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final Response fast = mock(Response.class);
+    private final Response slow = mock(Response.class);
+    private final ScriptedRequestExecutor delegate = new ScriptedRequestExecutor();
+    private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(2);
+
+    {
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getType()).thenReturn(MethodType.GET);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotHedgeNonIdempotentRequests() throws Exception {
+        when(methodConfig.getType()).thenReturn(MethodType.POST);
+        delegate.script(fast);
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 1f, 0);
+        assertSame(fast, toTest.execute(request));
+        assertEquals(1, delegate.calls.get());
+    }
+
+    @Test
+    public void shouldNotHedgeUntilEnoughSamplesAreKnown() throws Exception {
+        delegate.script(delayed(slow, 50));
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 1f, 1);
+        assertSame(slow, toTest.execute(request));
+        assertEquals(0, toTest.getHedgeCount());
+    }
+
+    @Test
+    public void shouldReturnHedgeIfFasterAndAbortLoser() throws Exception {
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 1f, 1);
+        delegate.script(delayed(fast, 50));
+        toTest.execute(request);
+
+        delegate.script(delayed(slow, 300), fast);
+        assertSame(fast, toTest.execute(request));
+        assertEquals(1, toTest.getHedgeCount());
+        assertEquals(1, toTest.getHedgeWinCount());
+        verify(slow, timeout(2000)).dispose();
+    }
+
+    @Test
+    public void shouldRunPrimaryOnCallerThreadAndCancelItOnceHedgeWins() throws Exception {
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 1f, 1);
+        delegate.script(delayed(fast, 50));
+        toTest.execute(request);
+
+        delegate.script(abortable(slow, 5000), fast);
+        long start = System.currentTimeMillis();
+        assertSame(fast, toTest.execute(request));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(2, delegate.threads.size());
+        assertSame(Thread.currentThread(), delegate.threads.get(0));
+        assertNotSame(Thread.currentThread(), delegate.threads.get(1));
+        verify(slow, never()).dispose();
+    }
+
+    @Test
+    public void shouldDisposeResponseOfFailedHedge() throws Exception {
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 1f, 1);
+        delegate.script(delayed(fast, 50));
+        toTest.execute(request);
+
+        Response failed = mock(Response.class);
+        delegate.script(delayed(slow, 300), new RequestException("failed", failed));
+        assertSame(slow, toTest.execute(request));
+        verify(failed, timeout(2000)).dispose();
+        verify(slow, never()).dispose();
+    }
+
+    @Test
+    public void shouldCancelLosingHedgeAndDisposeItsFailureResponse() throws Exception {
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 1f, 1);
+        delegate.script(delayed(fast, 50));
+        toTest.execute(request);
+
+        Response failed = mock(Response.class);
+        delegate.script(delayed(slow, 100), abortable(new RequestException("failed", failed), 5000));
+        assertSame(slow, toTest.execute(request));
+        verify(failed, timeout(2000)).dispose();
+    }
+
+    @Test
+    public void shouldWaitForPrimaryWhenHedgeRatioIsExceeded() throws Exception {
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 0f, 1);
+        delegate.script(delayed(fast, 50));
+        toTest.execute(request);
+
+        delegate.script(delayed(slow, 200));
+        assertSame(slow, toTest.execute(request));
+        assertEquals(0, toTest.getHedgeCount());
+        assertEquals(1, toTest.getSuppressedHedgeCount());
+    }
+
+    @Test
+    public void shouldWaitForRemainingAttemptIfFirstOneFails() throws Exception {
+        HedgingRequestExecutor toTest = new HedgingRequestExecutor(delegate, scheduler, 0.5f, 1f, 1);
+        delegate.script(delayed(fast, 50));
+        toTest.execute(request);
+
+        delegate.script(delayed(slow, 300), new RequestException(new Exception()));
+        assertSame(slow, toTest.execute(request));
+    }
+
+    private static Delayed delayed(Response response, long millis) {
+        return new Delayed(response, millis, false);
+    }
+
+    private static Delayed abortable(Object step, long millis) {
+        return new Delayed(step, millis, true);
+    }
+
+    private static final class Delayed {
+        private final Object step;
+        private final long millis;
+        private final boolean abortable;
+
+        private Delayed(Object step, long millis, boolean abortable) {
+            this.step = step;
+            this.millis = millis;
+            this.abortable = abortable;
+        }
+    }
+
+    /**
+     * Mockito serializes consecutive stubbed answers, which would prevent concurrent attempts from overlapping
+     */
+    private static final class ScriptedRequestExecutor implements RequestExecutor {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+        private volatile Object[] script;
+
+        void script(Object... script) {
+            this.script = script;
+            this.calls.set(0);
+            this.threads.clear();
+        }
+
+        public Response execute(Request request) throws Exception {
+            threads.add(Thread.currentThread());
+            Object step = script[Math.min(calls.getAndIncrement(), script.length - 1)];
+            if(step instanceof Delayed) {
+                Delayed delayed = (Delayed) step;
+                if(delayed.abortable) {
+                    if(awaitCancellation(delayed.millis) && !(delayed.step instanceof Exception)) {
+                        throw new RequestException(new IOException("aborted"));
+                    }
+                } else {
+                    sleepUninterruptibly(delayed.millis);
+                }
+                step = delayed.step;
+            }
+            if(step instanceof Exception) {
+                throw (Exception) step;
+            }
+            return (Response) step;
+        }
+
+        // behaves like an in-flight request aborted through its cancellation
+        private static boolean awaitCancellation(long millis) throws Exception {
+            final CountDownLatch aborted = new CountDownLatch(1);
+            CallCancellation cancellation = CallCancellation.get();
+            cancellation.onCancel(new Runnable() {
+                public void run() {
+                    aborted.countDown();
+                }
+            });
+            try {
+                return aborted.await(millis, TimeUnit.MILLISECONDS);
+            } finally {
+                cancellation.onCancel(null);
+            }
+        }
+
+        // blocking socket reads don't react to interrupts
+        private static void sleepUninterruptibly(long millis) {
+            long end = System.currentTimeMillis() + millis;
+            long remaining;
+            while((remaining = end - System.currentTimeMillis()) > 0) {
+                try {
+                    Thread.sleep(remaining);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
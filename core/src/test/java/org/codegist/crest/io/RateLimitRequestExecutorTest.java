@@ -0,0 +1,158 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.config.RateLimitConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.codegist.crest.config.RateLimitConfig.Policy.DELAY;
+import static org.codegist.crest.config.RateLimitConfig.Policy.FAIL;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class RateLimitRequestExecutorTest {
+
+    private final Request request = mock(Request.class);
+    private final Response response = mock(Response.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final RequestExecutor mockRequestExecutor = mock(RequestExecutor.class);
+    private final RateLimitRequestExecutor toTest = new RateLimitRequestExecutor(mockRequestExecutor);
+
+    @Before
+    public void setUp() throws Exception {
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getEndPoint()).thenReturn("http://localhost");
+        when(methodConfig.getRateLimit()).thenReturn(new RateLimitConfig(2, 60000, FAIL, 0, false));
+        when(response.getStatusCode()).thenReturn(200);
+    }
+
+    @Test
+    public void shouldDelegateIfNoRateLimitIsConfigured() throws Exception {
+        when(methodConfig.getRateLimit()).thenReturn(null);
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertNull(toTest.getLimiter("http://localhost"));
+    }
+
+    @Test
+    public void shouldFailFastOnceRateLimitIsExceeded() throws Exception {
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        assertSame(response, toTest.execute(request));
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RateLimitExceededException e) {
+            assertSame(request, e.getRequest());
+            assertTrue(e.getRetryAfter() > 0);
+        }
+        verify(mockRequestExecutor, times(2)).execute(request);
+        assertEquals(1, toTest.getLimiter("http://localhost").getRejectedCount());
+    }
+
+    @Test
+    public void shouldDelayRequestsWithinMaxDelay() throws Exception {
+        when(methodConfig.getRateLimit()).thenReturn(new RateLimitConfig(1, 20, DELAY, 1000, false));
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        toTest.execute(request);
+        verify(mockRequestExecutor, times(2)).execute(request);
+        assertEquals(1, toTest.getLimiter("http://localhost").getDelayedCount());
+    }
+
+    @Test
+    public void shouldNotDelayRequestsPastTheirDeadline() throws Exception {
+        when(methodConfig.getRateLimit()).thenReturn(new RateLimitConfig(1, 10000, DELAY, 10000, false));
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        CallDeadline.set(CallDeadline.after(500));
+        long start = System.nanoTime();
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (DeadlineExceededException e) {
+            assertEquals(500, e.getDeadline());
+            assertSame(request, e.getRequest());
+        } finally {
+            CallDeadline.clear();
+        }
+        assertTrue(System.nanoTime() - start < 500000000l);
+        verify(mockRequestExecutor, times(1)).execute(request);
+    }
+
+    @Test
+    public void shouldSuspendUntilResetWhenServerReportsNoRemainingCalls() throws Exception {
+        when(response.getHeader("X-RateLimit-Remaining")).thenReturn("0");
+        when(response.getHeader("X-RateLimit-Reset")).thenReturn(String.valueOf(System.currentTimeMillis() / 1000 + 60));
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RateLimitExceededException e) {
+            assertTrue(e.getRetryAfter() > 50000);
+        }
+        assertEquals(1, toTest.getLimiter("http://localhost").getSuspendedCount());
+    }
+
+    @Test
+    public void shouldNotSuspendWhileServerReportsRemainingCalls() throws Exception {
+        when(response.getHeader("X-RateLimit-Remaining")).thenReturn("10");
+        when(response.getHeader("X-RateLimit-Reset")).thenReturn("60");
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        toTest.execute(request);
+        assertEquals(0, toTest.getLimiter("http://localhost").getSuspendedCount());
+    }
+
+    @Test
+    public void shouldSuspendForRetryAfterOnTooManyRequests() throws Exception {
+        when(response.getStatusCode()).thenReturn(429);
+        when(response.getHeader("Retry-After")).thenReturn("30");
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        assertSame(response, toTest.execute(request));
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (RateLimitExceededException e) {
+            assertTrue(e.getRetryAfter() > 20000);
+        }
+        assertEquals(1, toTest.getLimiter("http://localhost").getSuspendedCount());
+    }
+
+    @Test
+    public void shouldKeyLimiterByMethodIfConfigured() throws Exception {
+        Method method = Object.class.getMethod("toString");
+        when(methodConfig.getMethod()).thenReturn(method);
+        when(methodConfig.getRateLimit()).thenReturn(new RateLimitConfig(2, 60000, FAIL, 0, true));
+        when(mockRequestExecutor.execute(request)).thenReturn(response);
+        toTest.execute(request);
+        assertNull(toTest.getLimiter("http://localhost"));
+        assertNotNull(toTest.getLimiter("http://localhost#" + method.toGenericString()));
+    }
+}
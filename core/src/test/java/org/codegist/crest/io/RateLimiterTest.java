@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.codegist.crest.config.RateLimitConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class RateLimiterTest {
+
+    private static final long MS = 1000000l;
+    private final RateLimiter toTest = new RateLimiter("limiter", new RateLimitConfig(4, 1000));
+
+    @Test
+    public void shouldGrantBurstOfPermitsThenReject() {
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, toTest.reserve(0, 0));
+        }
+        assertEquals(-1, toTest.reserve(0, 0));
+        assertEquals(1, toTest.getRejectedCount());
+        assertEquals(250 * MS, toTest.getDelay(0));
+    }
+
+    @Test
+    public void shouldReserveFuturePermitsWithinMaxDelay() {
+        for (int i = 0; i < 4; i++) {
+            toTest.reserve(0, 0);
+        }
+        assertEquals(250 * MS, toTest.reserve(250 * MS, 0));
+        assertEquals(-1, toTest.reserve(250 * MS, 0));
+        assertEquals(500 * MS, toTest.reserve(Long.MAX_VALUE, 0));
+        assertEquals(2, toTest.getDelayedCount());
+    }
+
+    @Test
+    public void shouldRefillOverTime() {
+        for (int i = 0; i < 4; i++) {
+            toTest.reserve(0, 0);
+        }
+        assertEquals(0, toTest.reserve(0, 250 * MS));
+        assertEquals(-1, toTest.reserve(0, 250 * MS));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, toTest.reserve(0, 2000 * MS));
+        }
+    }
+
+    @Test
+    public void shouldNotGrantPermitsWhileSuspended() {
+        toTest.suspendUntil(2000 * MS);
+        assertEquals(-1, toTest.reserve(0, 0));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(2000 * MS, toTest.reserve(Long.MAX_VALUE, 0));
+        }
+        assertEquals(2250 * MS, toTest.reserve(Long.MAX_VALUE, 0));
+        assertEquals(1, toTest.getSuspendedCount());
+    }
+
+    @Test
+    public void shouldIgnoreEarlierSuspension() {
+        toTest.suspendUntil(2000 * MS);
+        toTest.suspendUntil(1000 * MS);
+        assertEquals(2000 * MS, toTest.getDelay(0));
+        assertEquals(1, toTest.getSuspendedCount());
+    }
+}
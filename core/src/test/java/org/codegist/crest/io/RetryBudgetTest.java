@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class RetryBudgetTest {
+
+    @Test
+    public void shouldAllowMinimumRetriesWithoutRequests() {
+        RetryBudget toTest = new RetryBudget(0f, 2, 1);
+        assertTrue(toTest.tryAcquireRetry());
+        assertTrue(toTest.tryAcquireRetry());
+        assertFalse(toTest.tryAcquireRetry());
+        assertEquals(2, toTest.getRetryCount());
+        assertEquals(1, toTest.getSuppressedRetryCount());
+    }
+
+    @Test
+    public void shouldAllowRetriesProportionallyToRequests() {
+        RetryBudget toTest = new RetryBudget(0.5f, 0, 10);
+        assertFalse(toTest.tryAcquireRetry());
+        for (int i = 0; i < 4; i++) {
+            toTest.onRequest();
+        }
+        assertTrue(toTest.tryAcquireRetry());
+        assertTrue(toTest.tryAcquireRetry());
+        assertFalse(toTest.tryAcquireRetry());
+        assertEquals(4, toTest.getRequestCount());
+        assertEquals(2, toTest.getRetryCount());
+        assertEquals(2, toTest.getSuppressedRetryCount());
+    }
+
+    @Test
+    public void shouldNotOvershootAllowanceUnderConcurrency() throws Exception {
+        final RetryBudget toTest = new RetryBudget(0f, 5, 10);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        toTest.tryAcquireRetry();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(toTest.getRetryCount() <= 50);
+        assertEquals(800, toTest.getRetryCount() + toTest.getSuppressedRetryCount());
+    }
+
+    @Test
+    public void defaultShouldBeSharedAndAllowTenPercentRetries() {
+        assertSame(RetryBudget.getDefault(), RetryBudget.getDefault());
+        assertEquals(0.1f, RetryBudget.getDefault().getRatio(), 0f);
+        assertEquals(10, RetryBudget.getDefault().getMinRetriesPerSecond());
+        assertEquals(10, RetryBudget.getDefault().getWindowSeconds());
+    }
+}
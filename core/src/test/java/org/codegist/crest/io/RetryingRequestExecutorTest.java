@@ -20,13 +20,18 @@
 
 package org.codegist.crest.io;
 
+import org.codegist.crest.CRestEventListener;
 import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.handler.DelayingRetryHandler;
 import org.codegist.crest.handler.RetryHandler;
+import org.codegist.crest.metrics.MetricsCollector;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 /**
@@ -61,6 +66,56 @@ public class RetryingRequestExecutorTest {
         verify(requestException2).dispose();
     }
 
+    @Test
+    public void executeShouldNotRetryOnceDeadlineExpired() throws Exception {
+        RequestException requestException = mock(RequestException.class);
+        when(retryHandler.retry(requestException, 2)).thenReturn(true);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException);
+
+        CallDeadline.set(CallDeadline.after(0));
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (Exception e) {
+            assertSame(requestException, e);
+        } finally {
+            CallDeadline.clear();
+        }
+        verify(mockRequestExecutor, times(1)).execute(request);
+        verifyZeroInteractions(retryHandler);
+    }
+
+    @Test
+    public void executeShouldDisposeFailedAttemptIfRetryHandlerHitsDeadline() throws Exception {
+        RequestException requestException = mock(RequestException.class);
+        DeadlineExceededException deadlineExceeded = new DeadlineExceededException(500, request);
+        when(retryHandler.retry(requestException, 2)).thenThrow(deadlineExceeded);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException);
+
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (Exception e) {
+            assertSame(deadlineExceeded, e);
+        }
+        verify(requestException).dispose();
+        verify(mockRequestExecutor, times(1)).execute(request);
+    }
+
+    @Test
+    public void executeShouldNotRetryDeadlineExceeded() throws Exception {
+        DeadlineExceededException deadlineExceeded = new DeadlineExceededException(500, request);
+        when(mockRequestExecutor.execute(request)).thenThrow(deadlineExceeded);
+
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (Exception e) {
+            assertSame(deadlineExceeded, e);
+        }
+        verifyZeroInteractions(retryHandler);
+    }
+
     @Test
     public void executeShouldRetryUntilRetryHandlerReturnsFalseAndRethrowLastException() throws Exception {
         RequestException requestException1 = mock(RequestException.class);
@@ -126,4 +181,136 @@ public class RetryingRequestExecutorTest {
             assertSame(expected, e);
         }
     }
+
+    @Test
+    public void executeShouldNotRetryOnceRetryBudgetIsExceeded() throws Exception {
+        RetryBudget budget = new RetryBudget(0f, 0, 1);
+        RetryingRequestExecutor toTest = new RetryingRequestExecutor(mockRequestExecutor, 123, budget);
+        RequestException requestException = mock(RequestException.class);
+        when(retryHandler.retry(requestException, 2)).thenReturn(true);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException);
+
+        try {
+            toTest.execute(request);
+        } catch (Exception e) {
+            assertSame(requestException, e);
+        }
+        verify(mockRequestExecutor, times(1)).execute(request);
+        assertEquals(1, budget.getRequestCount());
+        assertEquals(0, budget.getRetryCount());
+        assertEquals(1, budget.getSuppressedRetryCount());
+    }
+
+    @Test
+    public void executeShouldNotWaitForRetriesTheRetryBudgetSuppresses() throws Exception {
+        DelayingRetryHandler retryHandler = mock(DelayingRetryHandler.class);
+        when(methodConfig.getRetryHandler()).thenReturn(retryHandler);
+        RetryBudget budget = new RetryBudget(0f, 0, 1);
+        RetryingRequestExecutor toTest = new RetryingRequestExecutor(mockRequestExecutor, 123, budget);
+        RequestException requestException = mock(RequestException.class);
+        when(retryHandler.getRetryDelay(requestException, 2, 0)).thenReturn(10000L);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException);
+
+        long start = System.currentTimeMillis();
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (Exception e) {
+            assertSame(requestException, e);
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        verify(retryHandler, never()).retry(any(RequestException.class), anyInt());
+        assertEquals(1, budget.getSuppressedRetryCount());
+    }
+
+    @Test
+    public void executeShouldPassEachCallItsOwnPreviousDelay() throws Exception {
+        DelayingRetryHandler retryHandler = mock(DelayingRetryHandler.class);
+        when(methodConfig.getRetryHandler()).thenReturn(retryHandler);
+        RequestException requestException1 = mock(RequestException.class);
+        RequestException requestException2 = mock(RequestException.class);
+        RequestException requestException3 = mock(RequestException.class);
+        when(retryHandler.getRetryDelay(requestException1, 2, 0)).thenReturn(5L);
+        when(retryHandler.getRetryDelay(requestException2, 3, 5)).thenReturn(-1L);
+        when(retryHandler.getRetryDelay(requestException3, 2, 0)).thenReturn(1L);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException1, requestException2, requestException3).thenReturn(expected);
+
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (Exception e) {
+            assertSame(requestException2, e);
+        }
+        assertSame(expected, toTest.execute(request));
+        verify(retryHandler).getRetryDelay(requestException3, 2, 0);
+        verify(retryHandler, never()).retry(any(RequestException.class), anyInt());
+    }
+
+    @Test
+    public void executeShouldNotCountRetriesRefusedByRetryHandlerAsSuppressed() throws Exception {
+        RetryBudget budget = new RetryBudget(0f, 0, 1);
+        RetryingRequestExecutor toTest = new RetryingRequestExecutor(mockRequestExecutor, 123, budget);
+        RequestException requestException = mock(RequestException.class);
+        when(retryHandler.retry(requestException, 2)).thenReturn(false);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException);
+
+        try {
+            toTest.execute(request);
+        } catch (Exception e) {
+            assertSame(requestException, e);
+        }
+        assertEquals(0, budget.getRetryCount());
+        assertEquals(0, budget.getSuppressedRetryCount());
+    }
+
+    @Test
+    public void executeShouldConsumeRetryBudgetOnRetry() throws Exception {
+        RetryBudget budget = new RetryBudget(0f, 1, 1);
+        RetryingRequestExecutor toTest = new RetryingRequestExecutor(mockRequestExecutor, 123, budget);
+        RequestException requestException1 = mock(RequestException.class);
+        RequestException requestException2 = mock(RequestException.class);
+        when(retryHandler.retry(any(RequestException.class), anyInt())).thenReturn(true);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException1, requestException2);
+
+        try {
+            toTest.execute(request);
+        } catch (Exception e) {
+            assertSame(requestException2, e);
+        }
+        verify(retryHandler).retry(requestException1, 2);
+        assertEquals(1, budget.getRetryCount());
+        assertEquals(1, budget.getSuppressedRetryCount());
+    }
+
+    @Test
+    public void executeShouldReportRetriesToMetricsCollector() throws Exception {
+        MetricsCollector metricsCollector = mock(MetricsCollector.class);
+        RetryingRequestExecutor toTest = new RetryingRequestExecutor(mockRequestExecutor, 123, null, metricsCollector);
+        RequestException requestException1 = mock(RequestException.class);
+        RequestException requestException2 = mock(RequestException.class);
+        when(retryHandler.retry(requestException1, 2)).thenReturn(true);
+        when(retryHandler.retry(requestException2, 3)).thenReturn(false);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException1, requestException2);
+
+        try {
+            toTest.execute(request);
+            fail();
+        } catch (Exception e) {
+            assertSame(requestException2, e);
+        }
+        verify(metricsCollector).onRetry(methodConfig, 2);
+        verify(metricsCollector, never()).onRetry(methodConfig, 3);
+    }
+
+    @Test
+    public void executeShouldNotifyScheduledRetriesToEventListener() throws Exception {
+        CRestEventListener eventListener = mock(CRestEventListener.class);
+        RetryingRequestExecutor toTest = new RetryingRequestExecutor(mockRequestExecutor, 123, null, mock(MetricsCollector.class), eventListener);
+        RequestException requestException = mock(RequestException.class);
+        when(retryHandler.retry(requestException, 2)).thenReturn(true);
+        when(mockRequestExecutor.execute(request)).thenThrow(requestException).thenReturn(expected);
+
+        assertSame(expected, toTest.execute(request));
+        verify(eventListener).retryScheduled(eq(request), eq(2), anyLong());
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100000;
+
+    @Test
+    public void shouldAlwaysMapSameKeyToSameMember() {
+        List<Member> members = members(5);
+        ConsistentHashRing toTest = new ConsistentHashRing(members, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        ConsistentHashRing other = new ConsistentHashRing(members(5), ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        for (int i = 0; i < 1000; i++) {
+            Member member = toTest.get("key-" + i);
+            assertSame(member, toTest.get("key-" + i));
+            assertEquals(member.getUrl(), other.get("key-" + i).getUrl());
+        }
+    }
+
+    @Test
+    public void shouldSpreadKeysEvenlyAcrossMembers() {
+        List<Member> members = members(10);
+        ConsistentHashRing toTest = new ConsistentHashRing(members, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        Map<Member, Integer> counts = new HashMap<Member, Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            Member member = toTest.get("key-" + i);
+            Integer count = counts.get(member);
+            counts.put(member, count == null ? 1 : count + 1);
+        }
+        int mean = KEYS / members.size();
+        for (Member member : members) {
+            int count = counts.get(member);
+            assertTrue(member.getUrl() + " owns " + count + " keys", Math.abs(count - mean) < mean / 4);
+        }
+    }
+
+    @Test
+    public void shouldOnlyRemapKeysOfJoiningMember() {
+        List<Member> members = members(9);
+        ConsistentHashRing before = new ConsistentHashRing(members, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        Member joining = new Member("http://joining");
+        List<Member> joined = new ArrayList<Member>(members);
+        joined.add(joining);
+        ConsistentHashRing after = new ConsistentHashRing(joined, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+        int remapped = 0;
+        for (int i = 0; i < KEYS; i++) {
+            Member owner = after.get("key-" + i);
+            if (owner != before.get("key-" + i)) {
+                assertSame(joining, owner);
+                remapped++;
+            }
+        }
+        assertTrue("remapped " + remapped, remapped > KEYS / 20 && remapped < KEYS / 5);
+    }
+
+    @Test
+    public void shouldOnlyRemapKeysOfLeavingMember() {
+        List<Member> members = members(10);
+        ConsistentHashRing before = new ConsistentHashRing(members, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        Member leaving = members.get(3);
+        List<Member> left = new ArrayList<Member>(members);
+        left.remove(leaving);
+        ConsistentHashRing after = new ConsistentHashRing(left, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+        for (int i = 0; i < KEYS; i++) {
+            Member owner = before.get("key-" + i);
+            if (owner != leaving) {
+                assertSame(owner, after.get("key-" + i));
+            }
+        }
+    }
+
+    @Test
+    public void shouldSkipEjectedOwnerUntilReinstated() {
+        List<Member> members = members(4);
+        ConsistentHashRing toTest = new ConsistentHashRing(members, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        Member owner = toTest.get("key");
+        owner.eject(Long.MAX_VALUE);
+        Member fallback = toTest.get("key");
+        assertNotSame(owner, fallback);
+        assertSame(fallback, toTest.get("key"));
+        owner.reinstate();
+        assertSame(owner, toTest.get("key"));
+    }
+
+    @Test
+    public void shouldReturnOwnerIfAllMembersAreEjected() {
+        List<Member> members = members(2);
+        ConsistentHashRing toTest = new ConsistentHashRing(members, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        Member owner = toTest.get("key");
+        for (Member member : members) {
+            member.eject(Long.MAX_VALUE);
+        }
+        assertSame(owner, toTest.get("key"));
+    }
+
+    private static List<Member> members(int count) {
+        Member[] members = new Member[count];
+        for (int i = 0; i < count; i++) {
+            members[i] = new Member("http://member-" + i + ":8080");
+        }
+        return Arrays.asList(members);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class EndPointGroupTest {
+
+    private static final long MILLISECOND = 1000000l;
+
+    private final EndPointGroup toTest = new EndPointGroup("http://logical", Arrays.asList("http://a", "http://b", "http://c", "http://d"), new RoundRobinLoadBalancer(), 2, 1000);
+
+    @Test
+    public void shouldTrackOutstandingRequests() {
+        Member member = toTest.choose(0);
+        assertEquals("http://a", member.getUrl());
+        assertEquals(1, member.getOutstanding());
+        toTest.onResponse(member, 10, false, 10);
+        assertEquals(0, member.getOutstanding());
+        assertEquals(10, member.getLatency());
+        assertEquals(1, member.getRequestCount());
+    }
+
+    @Test
+    public void shouldEjectMemberAfterConsecutiveFailuresAndReinstateItOnceEjectionTimeElapsed() {
+        Member a = toTest.getMembers().get(0);
+        failure(a, 0);
+        failure(a, 0);
+        assertTrue(a.isEjected());
+        for (int i = 0; i < 6; i++) {
+            assertNotSame(a, choose(1));
+        }
+        assertSame(a, chooseUntil(a, 1000 * MILLISECOND));
+        assertFalse(a.isEjected());
+    }
+
+    @Test
+    public void shouldNotEjectMemberFailingIntermittently() {
+        Member a = toTest.getMembers().get(0);
+        failure(a, 0);
+        success(a, 0);
+        failure(a, 0);
+        assertFalse(a.isEjected());
+    }
+
+    @Test
+    public void shouldEjectRepeatedlyFailingMemberForLonger() {
+        Member a = toTest.getMembers().get(0);
+        failure(a, 0);
+        failure(a, 0);
+        assertSame(a, chooseUntil(a, 1000 * MILLISECOND));
+        toTest.onResponse(a, 1, true, 1000 * MILLISECOND);
+        failure(a, 1000 * MILLISECOND);
+        assertEquals(2, a.getEjectionCount());
+        for (int i = 0; i < 6; i++) {
+            assertNotSame(a, choose(2999 * MILLISECOND));
+        }
+        assertSame(a, chooseUntil(a, 3000 * MILLISECOND));
+    }
+
+    @Test
+    public void shouldEjectAtMostHalfOfTheMembers() {
+        List<Member> members = toTest.getMembers();
+        for (Member member : members) {
+            failure(member, 0);
+            failure(member, 0);
+        }
+        assertTrue(members.get(0).isEjected());
+        assertTrue(members.get(1).isEjected());
+        assertFalse(members.get(2).isEjected());
+        assertFalse(members.get(3).isEjected());
+    }
+
+    @Test
+    public void shouldKeepMembersStateWhenMembershipChanges() {
+        Member b = toTest.getMembers().get(1);
+        success(b, 0);
+        toTest.setMembers(Arrays.asList("http://b", "http://e"));
+        assertEquals(2, toTest.getMembers().size());
+        assertSame(b, toTest.getMembers().get(0));
+        assertEquals("http://e", toTest.getMembers().get(1).getUrl());
+    }
+
+    @Test
+    public void shouldReloadMembersFromFileOnceModified() throws IOException {
+        File file = File.createTempFile("members", ".txt");
+        try {
+            write(file, "# members\nhttp://a\n\nhttp://b\n");
+            EndPointGroup toTest = new EndPointGroup("http://logical", file, new RoundRobinLoadBalancer(), 2, 1000);
+            assertEquals(2, toTest.getMembers().size());
+
+            write(file, "http://c\n");
+            assertTrue(file.setLastModified(file.lastModified() + 2000));
+            toTest.choose(System.nanoTime() + 1000 * MILLISECOND);
+            assertEquals(1, toTest.getMembers().size());
+            assertEquals("http://c", toTest.getMembers().get(0).getUrl());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldRouteSameShardKeyToSameMember() {
+        Member member = toTest.choose("key", 0);
+        toTest.onResponse(member, 1, false, 0);
+        for (int i = 0; i < 10; i++) {
+            Member other = toTest.choose("key", 0);
+            toTest.onResponse(other, 1, false, 0);
+            assertSame(member, other);
+        }
+    }
+
+    @Test
+    public void shouldRouteShardKeyOfEjectedMemberElsewhereUntilReinstated() {
+        Member owner = toTest.choose("key", 0);
+        toTest.onResponse(owner, 1, true, 0);
+        failure(owner, 0);
+        assertTrue(owner.isEjected());
+        Member fallback = toTest.choose("key", 1);
+        toTest.onResponse(fallback, 1, false, 1);
+        assertNotSame(owner, fallback);
+        assertSame(owner, toTest.choose("key", 1000 * MILLISECOND));
+        assertFalse(owner.isEjected());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectEmptyGroup() {
+        new EndPointGroup("http://logical", Arrays.<String>asList(), new RoundRobinLoadBalancer(), 2, 1000);
+    }
+
+    private Member choose(long now) {
+        Member member = toTest.choose(now);
+        toTest.onResponse(member, 1, false, now);
+        return member;
+    }
+
+    /* the expected member is left with its request outstanding */
+    private Member chooseUntil(Member expected, long now) {
+        for (int i = 0; i < toTest.getMembers().size(); i++) {
+            Member member = toTest.choose(now);
+            if(member == expected) {
+                return member;
+            }
+            toTest.onResponse(member, 1, false, now);
+        }
+        return null;
+    }
+
+    private void failure(Member member, long now) {
+        member.onStart();
+        toTest.onResponse(member, 1, true, now);
+    }
+
+    private void success(Member member, long now) {
+        member.onStart();
+        toTest.onResponse(member, 1, false, now);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class LatencyWeightedLoadBalancerTest {
+
+    private final LatencyWeightedLoadBalancer toTest = new LatencyWeightedLoadBalancer();
+
+    @Test
+    public void shouldChooseTheFasterMember() {
+        Member slow = completed("http://slow", 100);
+        Member fast = completed("http://fast", 10);
+        for (int i = 0; i < 100; i++) {
+            assertSame(fast, toTest.choose(Arrays.asList(slow, fast)));
+        }
+    }
+
+    @Test
+    public void shouldChooseTheSlowerMemberIfTheFasterOneIsBusyEnough() {
+        Member slow = completed("http://slow", 100);
+        Member fast = completed("http://fast", 10);
+        for (int i = 0; i < 10; i++) {
+            fast.onStart();
+        }
+        for (int i = 0; i < 100; i++) {
+            assertSame(slow, toTest.choose(Arrays.asList(slow, fast)));
+        }
+    }
+
+    @Test
+    public void shouldProbeMembersWithoutLatency() {
+        Member measured = completed("http://measured", 10);
+        Member unmeasured = new Member("http://unmeasured");
+        for (int i = 0; i < 100; i++) {
+            assertSame(unmeasured, toTest.choose(Arrays.asList(measured, unmeasured)));
+        }
+    }
+
+    private static Member completed(String url, long rtt) {
+        Member member = new Member(url);
+        member.onStart();
+        member.onComplete(rtt, false);
+        return member;
+    }
+}
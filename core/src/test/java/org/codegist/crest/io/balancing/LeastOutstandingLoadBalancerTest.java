@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class LeastOutstandingLoadBalancerTest {
+
+    private final LeastOutstandingLoadBalancer toTest = new LeastOutstandingLoadBalancer();
+
+    @Test
+    public void shouldChooseTheOnlyMember() {
+        Member a = new Member("http://a");
+        assertSame(a, toTest.choose(Collections.singletonList(a)));
+    }
+
+    @Test
+    public void shouldChooseTheMemberWithFewerOutstandingRequests() {
+        Member a = new Member("http://a");
+        Member b = new Member("http://b");
+        a.onStart();
+        for (int i = 0; i < 100; i++) {
+            assertSame(b, toTest.choose(Arrays.asList(a, b)));
+        }
+    }
+}
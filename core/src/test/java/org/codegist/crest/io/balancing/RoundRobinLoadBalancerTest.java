@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.balancing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class RoundRobinLoadBalancerTest {
+
+    private final RoundRobinLoadBalancer toTest = new RoundRobinLoadBalancer();
+
+    @Test
+    public void shouldChooseEachMemberInTurn() {
+        Member a = new Member("http://a");
+        Member b = new Member("http://b");
+        Member c = new Member("http://c");
+        List<Member> members = Arrays.asList(a, b, c);
+        assertSame(a, toTest.choose(members));
+        assertSame(b, toTest.choose(members));
+        assertSame(c, toTest.choose(members));
+        assertSame(a, toTest.choose(members));
+    }
+}
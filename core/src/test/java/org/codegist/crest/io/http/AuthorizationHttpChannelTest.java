@@ -39,6 +39,9 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -149,5 +152,35 @@ public class AuthorizationHttpChannelTest {
 
     }
 
+    @Test
+    public void sendShouldSerializeEntityOnceForBothParamExtractionAndSending() throws Exception {
+        HttpEntityWriter mockHttpEntityWriter = mock(HttpEntityWriter.class);
+        final HttpChannel.Response expected = mock(HttpChannel.Response.class);
+        final ArgumentCaptor<HttpEntityWriter> entityCaptor = ArgumentCaptor.forClass(HttpEntityWriter.class);
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((OutputStream)invocation.getArguments()[0]).write("a=b".getBytes());
+                return null;
+            }
+        }).when(mockHttpEntityWriter).writeEntityTo(any(OutputStream.class));
+        when(mockHttpEntityWriter.getContentLength()).thenReturn(-1);
+        when(entityParamExtractor.extract(eq("content-type-1"), eq(UTF8), any(InputStream.class))).thenReturn(Collections.<EncodedPair>emptyList());
+        when(authenticatorManager.authorize(methodType, url, urlParams.get(0), urlParams.get(1), urlParams.get(2))).thenReturn(new AuthorizationToken("name", "value"));
+        when(delegate.send()).thenAnswer(new Answer<HttpChannel.Response>() {
+            public HttpChannel.Response answer(InvocationOnMock invocation) throws Throwable {
+                entityCaptor.getValue().writeEntityTo(sent);
+                assertEquals(3, entityCaptor.getValue().getContentLength());
+                return expected;
+            }
+        });
+
+        toTest.setContentType("content-type-1");
+        toTest.writeEntityWith(mockHttpEntityWriter);
+        verify(delegate).writeEntityWith(entityCaptor.capture());
 
+        assertSame(expected, toTest.send());
+        assertEquals("a=b", sent.toString());
+        verify(mockHttpEntityWriter, times(1)).writeEntityTo(any(OutputStream.class));
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.util.TimerWheel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class DeadlineHttpChannelResponseTest {
+
+    private final HttpChannel.Response delegate = mock(HttpChannel.Response.class);
+    private final TimerWheel.Timeout timeout = mock(TimerWheel.Timeout.class);
+    private final IOException failure = new IOException("Socket closed");
+    private final DeadlineHttpChannelResponse toTest = new DeadlineHttpChannelResponse(delegate, timeout, 500);
+
+    @Before
+    public void setUp() throws IOException {
+        when(delegate.getEntity()).thenReturn(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw failure;
+            }
+        });
+    }
+
+    @Test
+    public void closeShouldCancelTimeout() throws IOException {
+        toTest.close();
+        verify(timeout).cancel();
+        verify(delegate).close();
+    }
+
+    @Test
+    public void entityReadShouldFailWithDeadlineExceededOnceAborted() throws IOException {
+        when(timeout.isExpired()).thenReturn(true);
+        try {
+            toTest.getEntity().read();
+            fail();
+        } catch (DeadlineExceededIOException e) {
+            assertEquals(500, e.getDeadline());
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void entityReadShouldRethrowFailuresBeforeDeadline() throws IOException {
+        try {
+            toTest.getEntity().read();
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.io.IOs;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class EntityBufferTest {
+
+    @Test
+    public void shouldReadAndWriteOutBufferedBytesAsManyTimesAsNeeded() throws Exception {
+        EntityBuffer toTest = new EntityBuffer();
+        toTest.write("hello".getBytes());
+        toTest.write(' ');
+        toTest.write("world".getBytes());
+
+        assertEquals(11, toTest.size());
+        assertEquals("hello world", IOs.toString(toTest.getInputStream()));
+        assertEquals("hello world", IOs.toString(toTest.getInputStream()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        toTest.writeTo(out);
+        assertEquals("hello world", out.toString());
+        toTest.release();
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacity() throws Exception {
+        EntityBuffer toTest = new EntityBuffer();
+        byte[] chunk = new byte[5000];
+        for (int i = 0; i < 100; i++) {
+            toTest.write(chunk, 0, chunk.length);
+        }
+        assertEquals(500000, toTest.size());
+        toTest.release();
+    }
+
+    @Test
+    public void shouldStartEmptyWhenReusingAPooledArray() throws Exception {
+        EntityBuffer first = new EntityBuffer();
+        first.write("previous".getBytes());
+        first.release();
+
+        EntityBuffer toTest = new EntityBuffer();
+        toTest.write("next".getBytes());
+        assertEquals("next", IOs.toString(toTest.getInputStream()));
+        toTest.release();
+    }
+}
@@ -20,9 +20,14 @@
 
 package org.codegist.crest.io.http;
 
+import org.apache.http.HttpHost;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.*;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.CoreProtocolPNames;
 import org.apache.http.params.HttpParams;
 import org.codegist.crest.CRestConfig;
@@ -34,6 +39,7 @@ import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -121,6 +127,33 @@ public class HttpClientHttpChannelFactoryTest {
         verify(clientConnectionManager).shutdown();
     }
 
+    @Test
+    public void onLimitChangeShouldSetTheEndPointRouteMaxConnections() {
+        HttpParams params = new BasicHttpParams();
+        ConnPerRouteBean connPerRoute = new ConnPerRouteBean(2);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, connPerRoute);
+        when(client.getParams()).thenReturn(params);
+
+        toTest.onLimitChange("http://localhost:8080", 5);
+
+        assertEquals(5, connPerRoute.getMaxForRoute(new HttpRoute(new HttpHost("localhost", 8080, "http"))));
+        assertEquals(2, connPerRoute.getMaxForRoute(new HttpRoute(new HttpHost("localhost", 8081, "http"))));
+    }
+
+    @Test
+    public void onLimitChangeShouldResolveImplicitPorts() {
+        HttpParams params = new BasicHttpParams();
+        ConnPerRouteBean connPerRoute = new ConnPerRouteBean(2);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, connPerRoute);
+        when(client.getParams()).thenReturn(params);
+
+        toTest.onLimitChange("http://localhost", 5);
+        toTest.onLimitChange("https://localhost/api", 6);
+
+        assertEquals(5, connPerRoute.getMaxForRoute(new HttpRoute(new HttpHost("localhost", 80, "http"))));
+        assertEquals(6, connPerRoute.getMaxForRoute(new HttpRoute(new HttpHost("localhost", 443, "https"), null, true)));
+    }
+
 
 
     private void openShouldCreateAHttpClientHttpChannelInstanceWithClientFor(HttpUriRequest expectedRequest, MethodType methodType) throws Exception {
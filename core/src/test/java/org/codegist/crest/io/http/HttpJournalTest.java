@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class HttpJournalTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void shouldRoundTripThroughStream() throws IOException {
+        HttpJournal journal = new HttpJournal();
+        journal.record(MethodType.GET, "http://localhost/a?b=c", 1234l, new LoopbackResponse(200, "OK", "application/json", "gzip", Collections.singletonMap("Retry-After", "5"), "{}".getBytes(UTF8)));
+        journal.record(MethodType.DELETE, "http://localhost/a", 0l, new LoopbackResponse(204, null, null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        journal.writeTo(out);
+        List<HttpJournal.Entry> entries = HttpJournal.readFrom(new ByteArrayInputStream(out.toByteArray())).getEntries();
+
+        assertEquals(2, entries.size());
+        HttpJournal.Entry first = entries.get(0);
+        assertEquals(MethodType.GET, first.getMethodType());
+        assertEquals("http://localhost/a?b=c", first.getUrl());
+        assertEquals(1234l, first.getLatency());
+        assertEquals(200, first.getResponse().getStatusCode());
+        assertEquals("OK", first.getResponse().getStatusMessage());
+        assertEquals("application/json", first.getResponse().getContentType());
+        assertEquals("gzip", first.getResponse().getContentEncoding());
+        assertEquals("5", first.getResponse().getHeader("Retry-After"));
+        assertEquals("{}", new String(first.getResponse().getEntityBytes(), UTF8));
+
+        HttpJournal.Entry second = entries.get(1);
+        assertEquals(MethodType.DELETE, second.getMethodType());
+        assertEquals(204, second.getResponse().getStatusCode());
+        assertNull(second.getResponse().getStatusMessage());
+        assertNull(second.getResponse().getContentType());
+        assertEquals(0, second.getResponse().getContentLength());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectNonJournalStream() throws IOException {
+        HttpJournal.readFrom(new ByteArrayInputStream("not a journal".getBytes(UTF8)));
+    }
+}
@@ -30,6 +30,7 @@ import org.codegist.crest.io.RequestException;
 import org.codegist.crest.param.EncodedPair;
 import org.codegist.crest.serializer.ResponseDeserializer;
 import org.codegist.crest.util.Pairs;
+import org.codegist.crest.util.TimerWheel;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
@@ -40,6 +41,7 @@ import java.io.IOException;
 import java.util.Iterator;
 
 import static java.util.Arrays.asList;
+import static org.codegist.crest.test.util.Classes.getFieldValue;
 import static org.codegist.crest.test.util.Values.UTF8;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -79,6 +81,29 @@ public class HttpRequestExecutorTest {
         }
     }
 
+    @Test
+    public void executeShouldAbortChannelIfAnythingFailsBeforeTheResponse() throws Exception {
+        Request request = mock(Request.class);
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        IOException expected = new IOException();
+
+        mockStatic(HttpRequests.class);
+        when(HttpRequests.toUrl(request)).thenReturn("some-url");
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        when(methodConfig.getCharset()).thenReturn(UTF8);
+        when(methodConfig.getType()).thenReturn(MethodType.GET);
+        when(mockChannelFactory.open(MethodType.GET, "some-url", UTF8)).thenReturn(mockChannel);
+        doThrow(expected).when(mockChannel).setConnectionTimeout(anyInt());
+
+        try {
+            toTest.execute(request);
+            fail();
+        }catch(RequestException e){
+            assertSame(expected, e.getCause());
+        }
+        verify(mockChannel).abort();
+        verify(mockChannel, never()).send();
+    }
 
     @Test
     public void executeShouldOrchestrateCallsToChannelFactoryWithValuesFromGivenEntityRequest() throws Exception {
@@ -259,4 +284,13 @@ public class HttpRequestExecutorTest {
         Disposables.dispose(mockChannelFactory);
     }
 
+    @Test
+    public void disposeShouldOnlyDisposeTheTimerWheelIfNotShared() throws Exception {
+        TimerWheel timerWheel = new TimerWheel();
+        new HttpRequestExecutor(mockChannelFactory, mockBaseResponseDeserializer, mockCustomTypeResponseDeserializer, new HttpRequestExecutor.Options().setSharedTimerWheel(timerWheel)).dispose();
+        assertFalse((Boolean) getFieldValue(timerWheel, "disposed"));
+        new HttpRequestExecutor(mockChannelFactory, mockBaseResponseDeserializer, mockCustomTypeResponseDeserializer, new HttpRequestExecutor.Options().setTimerWheel(timerWheel)).dispose();
+        assertTrue((Boolean) getFieldValue(timerWheel, "disposed"));
+    }
+
 }
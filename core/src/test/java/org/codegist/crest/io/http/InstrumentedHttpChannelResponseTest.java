@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.CRestEventListener;
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.io.Request;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.MetricsContext;
+import org.codegist.crest.metrics.Stage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.codegist.crest.metrics.Stage.BODY_READ;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class InstrumentedHttpChannelResponseTest {
+
+    private final HttpChannel.Response delegate = mock(HttpChannel.Response.class);
+    private final MetricsCollector metricsCollector = mock(MetricsCollector.class);
+    private final CRestEventListener eventListener = mock(CRestEventListener.class);
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final Request request = mock(Request.class);
+    private final InstrumentedHttpChannelResponse toTest;
+    private final AtomicReference<MetricsContext> stageContext = new AtomicReference<MetricsContext>();
+    private final AtomicReference<MetricsContext> exchangeContext = new AtomicReference<MetricsContext>();
+
+    {
+        when(request.getMethodConfig()).thenReturn(methodConfig);
+        toTest = new InstrumentedHttpChannelResponse(delegate, metricsCollector, eventListener, request, 12);
+    }
+
+    @Test
+    public void closeShouldReportBodyReadOnceEntityHasBeenRead() throws IOException {
+        when(delegate.getEntity()).thenReturn(new ByteArrayInputStream(new byte[]{1, 2}));
+        when(delegate.getStatusCode()).thenReturn(200);
+        InputStream entity = toTest.getEntity();
+        assertEquals(1, entity.read());
+        assertEquals(1, entity.read(new byte[2], 0, 2));
+        toTest.close();
+        toTest.close();
+        verify(metricsCollector, times(1)).onStageStart(methodConfig, BODY_READ);
+        verify(metricsCollector, times(1)).onStage(eq(methodConfig), eq(BODY_READ), anyLong());
+        verify(metricsCollector, times(1)).onExchange(methodConfig, 200, 12, 2);
+        verify(eventListener, times(1)).responseBodyEnd(eq(request), anyLong());
+        verify(delegate, times(2)).close();
+    }
+
+    @Test
+    public void closeShouldNotReportBodyReadIfEntityHasNotBeenRequested() throws IOException {
+        when(delegate.getStatusCode()).thenThrow(new IOException());
+        toTest.close();
+        verify(metricsCollector, never()).onStage(any(MethodConfig.class), eq(BODY_READ), anyLong());
+        verify(metricsCollector).onExchange(methodConfig, -1, 12, 0);
+        verify(delegate).close();
+    }
+
+    @Test
+    public void closeShouldReportWithinTheMetricsContextOfTheCallTheResponseHasBeenReceivedFor() throws Exception {
+        MetricsContext context = new MetricsContext();
+        MetricsContext.set(context);
+        final InstrumentedHttpChannelResponse response = new InstrumentedHttpChannelResponse(delegate, new ContextRecordingMetricsCollector(), eventListener, request, 12);
+        MetricsContext.clear();
+        when(delegate.getEntity()).thenReturn(new ByteArrayInputStream(new byte[]{1}));
+        response.getEntity().read();
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    response.close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        reader.start();
+        reader.join();
+        assertSame(context, stageContext.get());
+        assertSame(context, exchangeContext.get());
+        response.close();
+        assertNull(MetricsContext.get());
+    }
+
+    @After
+    public void teardown() {
+        MetricsContext.clear();
+    }
+
+    private class ContextRecordingMetricsCollector implements MetricsCollector {
+        public void onStageStart(MethodConfig methodConfig, Stage stage) {
+        }
+
+        public void onStage(MethodConfig methodConfig, Stage stage, long nanos) {
+            stageContext.set(MetricsContext.get());
+        }
+
+        public void onExchange(MethodConfig methodConfig, int statusCode, long bytesOut, long bytesIn) {
+            exchangeContext.set(MetricsContext.get());
+        }
+
+        public void onRetry(MethodConfig methodConfig, int attemptNumber) {
+        }
+
+        public void onError(MethodConfig methodConfig, Exception error) {
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.Test;
+
+import javax.ws.rs.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class JaxRsHttpChannelFactoryTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final JaxRsHttpChannelFactory toTest = new JaxRsHttpChannelFactory("http://localhost/app/", new Resource());
+
+    @Test
+    public void shouldDispatchToMethodWithoutPath() throws IOException {
+        HttpChannel.Response response = toTest.open(MethodType.GET, "http://localhost/app/resource", UTF8).send();
+        assertEquals(200, response.getStatusCode());
+        assertEquals("text/html;charset=UTF-8", response.getContentType());
+        assertEquals("send()", read(response.getEntity()));
+    }
+
+    @Test
+    public void shouldBindDecodedPathParams() throws IOException {
+        HttpChannel.Response response = toTest.open(MethodType.GET, "http://localhost/app/resource/a%20b/12", UTF8).send();
+        assertEquals("p1=a b p2=12", read(response.getEntity()));
+    }
+
+    @Test
+    public void shouldBindQueryAndMatrixParamsWithDefaults() throws IOException {
+        assertEquals("q=a+b,c m=x d=def", read(toTest.open(MethodType.GET, "http://localhost/app/resource/params;m=x?q=a%2Bb&q=c", UTF8).send().getEntity()));
+        assertEquals("q= m=null d=def", read(toTest.open(MethodType.GET, "http://localhost/app/resource/params", UTF8).send().getEntity()));
+    }
+
+    @Test
+    public void shouldBindHeadersAndCookies() throws IOException {
+        HttpChannel channel = toTest.open(MethodType.GET, "http://localhost/app/resource/headers", UTF8);
+        channel.addHeader("X-Value", "v");
+        channel.addHeader("Cookie", "c1=a; c2=b");
+        assertEquals("h=v c=b", read(channel.send().getEntity()));
+    }
+
+    @Test
+    public void shouldBindFormParamsFromWrittenEntity() throws IOException {
+        HttpChannel channel = toTest.open(MethodType.POST, "http://localhost/app/resource/form", UTF8);
+        channel.setContentType("application/x-www-form-urlencoded");
+        channel.writeEntityWith(entity("p1=a+b&p2=%C3%A9"));
+        assertEquals("p1=a b p2=é", read(channel.send().getEntity()));
+    }
+
+    @Test
+    public void shouldBindEntity() throws IOException {
+        HttpChannel channel = toTest.open(MethodType.PUT, "http://localhost/app/resource/entity", UTF8);
+        channel.setContentType("text/plain;charset=UTF-8");
+        channel.writeEntityWith(entity("hello"));
+        HttpChannel.Response response = channel.send();
+        assertEquals(200, response.getStatusCode());
+        assertEquals("application/octet-stream", response.getContentType());
+        assertEquals("HELLO", read(response.getEntity()));
+    }
+
+    @Test
+    public void shouldReturnNoContentForVoidMethods() throws IOException {
+        assertEquals(204, toTest.open(MethodType.DELETE, "http://localhost/app/resource/12", UTF8).send().getStatusCode());
+    }
+
+    @Test
+    public void shouldRespondNotFoundOnInvalidPathParam() throws IOException {
+        assertEquals(404, toTest.open(MethodType.DELETE, "http://localhost/app/resource/abc", UTF8).send().getStatusCode());
+    }
+
+    @Test
+    public void shouldRespondServerErrorOnResourceException() throws IOException {
+        HttpChannel.Response response = toTest.open(MethodType.GET, "http://localhost/app/resource/error", UTF8).send();
+        assertEquals(500, response.getStatusCode());
+        assertEquals("java.lang.IllegalStateException: failed", read(response.getEntity()));
+    }
+
+    @Test
+    public void shouldRespondNotFoundOrNotAllowed() throws IOException {
+        assertEquals(404, toTest.open(MethodType.GET, "http://localhost/app/unknown", UTF8).send().getStatusCode());
+        assertEquals(404, toTest.open(MethodType.GET, "http://localhost/other/resource", UTF8).send().getStatusCode());
+        assertEquals(405, toTest.open(MethodType.POST, "http://localhost/app/resource", UTF8).send().getStatusCode());
+    }
+
+    @Test
+    public void shouldFallbackHeadToGetWithoutEntity() throws IOException {
+        HttpChannel.Response response = toTest.open(MethodType.HEAD, "http://localhost/app/resource", UTF8).send();
+        assertEquals(200, response.getStatusCode());
+        assertEquals(-1, response.getEntity().read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonRootResources() {
+        new JaxRsHttpChannelFactory("http://localhost", new Object());
+    }
+
+    private static HttpEntityWriter entity(final String content) {
+        return new HttpEntityWriter() {
+            public void writeEntityTo(OutputStream out) throws IOException {
+                out.write(content.getBytes(UTF8));
+            }
+
+            public int getContentLength() {
+                return -1;
+            }
+
+            public boolean isRepeatable() {
+                return false;
+            }
+        };
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while((b = in.read()) != -1) {
+            out.write(b);
+        }
+        return new String(out.toByteArray(), UTF8);
+    }
+
+    @Path("/resource")
+    @Produces("text/html;charset=UTF-8")
+    public static class Resource {
+
+        @GET
+        public String send() {
+            return "send()";
+        }
+
+        @GET
+        @Path("{p1}/{p2: \\d+}")
+        public String send(@PathParam("p1") String p1, @PathParam("p2") int p2) {
+            return "p1=" + p1 + " p2=" + p2;
+        }
+
+        @GET
+        @Path("params")
+        public String params(@QueryParam("q") List<String> q, @MatrixParam("m") String m, @QueryParam("d") @DefaultValue("def") String d) {
+            StringBuilder sb = new StringBuilder("q=");
+            for (int i = 0; i < q.size(); i++) {
+                sb.append(i > 0 ? "," : "").append(q.get(i));
+            }
+            return sb.append(" m=").append(m).append(" d=").append(d).toString();
+        }
+
+        @GET
+        @Path("headers")
+        public String headers(@HeaderParam("x-value") String header, @CookieParam("c2") String cookie) {
+            return "h=" + header + " c=" + cookie;
+        }
+
+        @POST
+        @Path("form")
+        public String form(@FormParam("p1") String p1, @FormParam("p2") String p2) {
+            return "p1=" + p1 + " p2=" + p2;
+        }
+
+        @PUT
+        @Path("entity")
+        @Produces({})
+        public byte[] entity(String entity) {
+            return entity.toUpperCase().getBytes(UTF8);
+        }
+
+        @DELETE
+        @Path("{id}")
+        public void delete(@PathParam("id") long id) {
+        }
+
+        @GET
+        @Path("error")
+        public String error() {
+            throw new IllegalStateException("failed");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.codegist.crest.io.ConcurrencyLimitListener;
+import org.codegist.crest.io.balancing.EndPointGroup;
+import org.codegist.crest.io.balancing.Member;
+import org.codegist.crest.io.balancing.RoundRobinLoadBalancer;
+import org.codegist.crest.test.util.Values;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class LoadBalancingHttpChannelFactoryTest {
+
+    private final HttpChannelFactory delegate = mock(HttpChannelFactory.class);
+    private final HttpChannel channel = mock(HttpChannel.class);
+    private final HttpChannel.Response response = mock(HttpChannel.Response.class);
+    private final EndPointGroup group = new EndPointGroup("http://logical", Arrays.asList("http://a:8080", "http://b:8080"), new RoundRobinLoadBalancer(), 1, 1000);
+    private final LoadBalancingHttpChannelFactory toTest = new LoadBalancingHttpChannelFactory(delegate, singletonList(group));
+
+    @Before
+    public void setUp() throws IOException {
+        when(delegate.open(MethodType.GET, "http://a:8080/path", Values.UTF8)).thenReturn(channel);
+        when(delegate.open(MethodType.GET, "http://a:8080/path?a=b", Values.UTF8)).thenReturn(channel);
+        when(delegate.open(MethodType.GET, "http://b:8080", Values.UTF8)).thenReturn(channel);
+        when(channel.send()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(200);
+    }
+
+    @Test
+    public void onLimitChangeShouldApplyLogicalEndPointLimitToEachMember() {
+        ConcurrencyLimitListener listener = mock(ConcurrencyLimitListener.class);
+        new LoadBalancingHttpChannelFactory(delegate, singletonList(group), listener).onLimitChange("http://logical", 7);
+        verify(listener).onLimitChange("http://a:8080", 7);
+        verify(listener).onLimitChange("http://b:8080", 7);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void onLimitChangeShouldForwardEndPointsNotBelongingToAnyGroup() {
+        ConcurrencyLimitListener listener = mock(ConcurrencyLimitListener.class);
+        new LoadBalancingHttpChannelFactory(delegate, singletonList(group), listener).onLimitChange("http://other:8080", 7);
+        verify(listener).onLimitChange("http://other:8080", 7);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void shouldDelegateUrlsNotBelongingToAnyGroup() throws IOException {
+        HttpChannel expected = mock(HttpChannel.class);
+        when(delegate.open(MethodType.GET, "http://logical2/path", Values.UTF8)).thenReturn(expected);
+        assertSame(expected, toTest.open(MethodType.GET, "http://logical2/path", Values.UTF8));
+    }
+
+    @Test
+    public void shouldReplaceLogicalEndPointWithMembersInTurn() throws IOException {
+        toTest.open(MethodType.GET, "http://logical/path?a=b", Values.UTF8).send();
+        toTest.open(MethodType.GET, "http://logical", Values.UTF8).send();
+        verify(delegate).open(MethodType.GET, "http://a:8080/path?a=b", Values.UTF8);
+        verify(delegate).open(MethodType.GET, "http://b:8080", Values.UTF8);
+    }
+
+    @Test
+    public void shouldRouteSameShardKeyToSameMember() throws IOException {
+        when(delegate.open(MethodType.GET, "http://b:8080/path", Values.UTF8)).thenReturn(channel);
+        toTest.open(MethodType.GET, "http://logical/path", Values.UTF8, "key").send();
+        Member owner = group.getMembers().get(0).getRequestCount() == 1 ? group.getMembers().get(0) : group.getMembers().get(1);
+        for (int i = 0; i < 5; i++) {
+            toTest.open(MethodType.GET, "http://logical/path", Values.UTF8, "key").send();
+        }
+        assertEquals(6, owner.getRequestCount());
+    }
+
+    @Test
+    public void shouldReportSuccessfulRequestsOnceSent() throws IOException {
+        HttpChannel actual = toTest.open(MethodType.GET, "http://logical/path", Values.UTF8);
+        Member member = group.getMembers().get(0);
+        assertEquals(1, member.getOutstanding());
+        assertSame(response, actual.send());
+        assertEquals(0, member.getOutstanding());
+        assertEquals(0, member.getFailureCount());
+    }
+
+    @Test
+    public void shouldReportServerErrorsAsFailures() throws IOException {
+        when(response.getStatusCode()).thenReturn(503);
+        assertSame(response, toTest.open(MethodType.GET, "http://logical/path", Values.UTF8).send());
+        assertEquals(1, group.getMembers().get(0).getFailureCount());
+        assertTrue(group.getMembers().get(0).isEjected());
+    }
+
+    @Test
+    public void shouldReportIOExceptionsAsFailures() throws IOException {
+        IOException failure = new IOException();
+        when(channel.send()).thenThrow(failure);
+        try {
+            toTest.open(MethodType.GET, "http://logical/path", Values.UTF8).send();
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(0, group.getMembers().get(0).getOutstanding());
+        assertEquals(1, group.getMembers().get(0).getFailureCount());
+    }
+
+    @Test
+    public void shouldReportAbortedRequestsAsFailuresOnlyOnce() throws IOException {
+        HttpChannel actual = toTest.open(MethodType.GET, "http://logical/path", Values.UTF8);
+        actual.abort();
+        actual.abort();
+        verify(channel, times(2)).abort();
+        assertEquals(0, group.getMembers().get(0).getOutstanding());
+        assertEquals(1, group.getMembers().get(0).getFailureCount());
+    }
+
+    @Test
+    public void shouldNotReportAbortOfAlreadyCompletedRequests() throws IOException {
+        HttpChannel actual = toTest.open(MethodType.GET, "http://logical/path", Values.UTF8);
+        actual.send();
+        actual.abort();
+        assertEquals(0, group.getMembers().get(0).getOutstanding());
+        assertEquals(0, group.getMembers().get(0).getFailureCount());
+        assertEquals(1, group.getMembers().get(0).getRequestCount());
+    }
+
+    @Test
+    public void shouldReportFailuresBeforeSendAsFailures() throws IOException {
+        IOException failure = new IOException();
+        doThrow(failure).when(channel).setHeader("name", "value");
+        HttpChannel actual = toTest.open(MethodType.GET, "http://logical/path", Values.UTF8);
+        try {
+            actual.setHeader("name", "value");
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(0, group.getMembers().get(0).getOutstanding());
+        assertEquals(1, group.getMembers().get(0).getFailureCount());
+    }
+
+    @Test
+    public void shouldReportUncheckedFailuresAsFailures() throws IOException {
+        when(channel.send()).thenThrow(new IllegalStateException());
+        try {
+            toTest.open(MethodType.GET, "http://logical/path", Values.UTF8).send();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(0, group.getMembers().get(0).getOutstanding());
+        assertEquals(1, group.getMembers().get(0).getFailureCount());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class LoopbackHttpChannelFactoryTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final LoopbackHttpChannelFactory toTest = new LoopbackHttpChannelFactory();
+
+    @Test
+    public void shouldServeRoutedResponse() throws IOException {
+        toTest.addRoute(MethodType.GET, "http://localhost/a", new LoopbackResponse(200, "application/json", "{}".getBytes(UTF8)));
+        HttpChannel.Response response = toTest.open(MethodType.GET, "http://localhost/a", UTF8).send();
+        assertEquals(200, response.getStatusCode());
+        assertEquals("application/json", response.getContentType());
+        assertEquals("{}", read(response.getEntity()));
+        assertSame(response.getEntity(), response.getEntity());
+    }
+
+    @Test
+    public void shouldServeEachResponseFromItsOwnView() throws IOException {
+        toTest.addRoute(MethodType.GET, "http://localhost/a", new LoopbackResponse(200, "text/plain", "abc".getBytes(UTF8)));
+        assertEquals("abc", read(toTest.open(MethodType.GET, "http://localhost/a", UTF8).send().getEntity()));
+        assertEquals("abc", read(toTest.open(MethodType.GET, "http://localhost/a", UTF8).send().getEntity()));
+    }
+
+    @Test
+    public void shouldMatchOnMethodTypeAndFallbackToUrlWithoutQueryString() throws IOException {
+        toTest.addRoute(MethodType.GET, "http://localhost/a", new LoopbackResponse(200, null, null));
+        assertEquals(200, toTest.open(MethodType.GET, "http://localhost/a?b=c", UTF8).send().getStatusCode());
+        assertEquals(404, toTest.open(MethodType.POST, "http://localhost/a", UTF8).send().getStatusCode());
+        assertEquals(404, toTest.open(MethodType.GET, "http://localhost/b", UTF8).send().getStatusCode());
+    }
+
+    @Test
+    public void shouldServeRouteResponsesInTurn() throws IOException {
+        toTest.addRoute(MethodType.GET, "http://localhost/a", new LoopbackResponse(200, null, null))
+              .addRoute(MethodType.GET, "http://localhost/a", new LoopbackResponse(503, null, null));
+        assertEquals(200, toTest.open(MethodType.GET, "http://localhost/a", UTF8).send().getStatusCode());
+        assertEquals(503, toTest.open(MethodType.GET, "http://localhost/a", UTF8).send().getStatusCode());
+        assertEquals(200, toTest.open(MethodType.GET, "http://localhost/a", UTF8).send().getStatusCode());
+    }
+
+    @Test
+    public void shouldWriteRequestEntity() throws IOException {
+        toTest.addRoute(MethodType.POST, "http://localhost/a", new LoopbackResponse(201, null, null));
+        final boolean[] written = new boolean[1];
+        HttpChannel channel = toTest.open(MethodType.POST, "http://localhost/a", UTF8);
+        channel.writeEntityWith(new HttpEntityWriter() {
+            public void writeEntityTo(OutputStream out) throws IOException {
+                out.write("entity".getBytes(UTF8));
+                written[0] = true;
+            }
+
+            public int getContentLength() {
+                return 6;
+            }
+
+            public boolean isRepeatable() {
+                return false;
+            }
+        });
+        assertEquals(201, channel.send().getStatusCode());
+        assertTrue(written[0]);
+    }
+
+    @Test
+    public void shouldReplayJournalWithLatency() throws IOException {
+        HttpJournal journal = new HttpJournal();
+        journal.record(MethodType.GET, "http://localhost/a", 20000000l, new LoopbackResponse(200, "OK", "text/plain", null, Collections.singletonMap("X-Id", "1"), "a".getBytes(UTF8)));
+        LoopbackHttpChannelFactory replaying = new LoopbackHttpChannelFactory(journal, true);
+
+        long start = System.nanoTime();
+        HttpChannel.Response response = replaying.open(MethodType.GET, "http://localhost/a", UTF8).send();
+        assertTrue(System.nanoTime() - start >= 20000000l);
+        assertEquals("OK", response.getStatusMessage());
+        assertEquals("1", response.getHeader("x-id"));
+        assertEquals("a", read(response.getEntity()));
+
+        HttpChannel channel = replaying.open(MethodType.GET, "http://localhost/a", UTF8);
+        channel.setSocketTimeout(5);
+        try {
+            channel.send();
+            fail();
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+    }
+
+    static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[2];
+        int n;
+        while((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), UTF8);
+    }
+}
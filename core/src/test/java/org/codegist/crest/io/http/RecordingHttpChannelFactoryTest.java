@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class RecordingHttpChannelFactoryTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final HttpChannelFactory delegate = mock(HttpChannelFactory.class);
+    private final HttpChannel channel = mock(HttpChannel.class);
+    private final HttpChannel.Response response = mock(HttpChannel.Response.class);
+    private final HttpJournal journal = new HttpJournal();
+    private final RecordingHttpChannelFactory toTest = new RecordingHttpChannelFactory(delegate, journal, "X-Id");
+
+    @Test
+    public void shouldRecordFullExchangeOnClose() throws IOException {
+        when(delegate.open(MethodType.GET, "http://localhost/a", UTF8)).thenReturn(channel);
+        when(channel.send()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(200);
+        when(response.getContentType()).thenReturn("text/plain");
+        when(response.getHeader("X-Id")).thenReturn("1");
+        when(response.getEntity()).thenReturn(new ByteArrayInputStream("abcdef".getBytes(UTF8)));
+
+        HttpChannel.Response actual = toTest.open(MethodType.GET, "http://localhost/a", UTF8).send();
+        InputStream entity = actual.getEntity();
+        byte[] buffer = new byte[2];
+        assertEquals(2, entity.read(buffer));
+        assertTrue(journal.getEntries().isEmpty());
+
+        actual.close();
+        actual.close();
+        verify(response, times(1)).close();
+        assertEquals(1, journal.getEntries().size());
+        HttpJournal.Entry entry = journal.getEntries().get(0);
+        assertEquals(MethodType.GET, entry.getMethodType());
+        assertEquals("http://localhost/a", entry.getUrl());
+        assertEquals(200, entry.getResponse().getStatusCode());
+        assertEquals("text/plain", entry.getResponse().getContentType());
+        assertEquals("1", entry.getResponse().getHeader("X-Id"));
+        assertEquals("abcdef", new String(entry.getResponse().getEntityBytes(), UTF8));
+    }
+
+    @Test
+    public void shouldRecordWhatWasReadIfEntityAlreadyClosed() throws IOException {
+        when(delegate.open(MethodType.GET, "http://localhost/a", UTF8)).thenReturn(channel);
+        when(channel.send()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(200);
+        when(response.getEntity()).thenReturn(new ByteArrayInputStream("abcdef".getBytes(UTF8)));
+
+        HttpChannel.Response actual = toTest.open(MethodType.GET, "http://localhost/a", UTF8).send();
+        InputStream entity = actual.getEntity();
+        assertEquals('a', entity.read());
+        entity.close();
+        actual.close();
+        assertEquals("a", new String(journal.getEntries().get(0).getResponse().getEntityBytes(), UTF8));
+    }
+
+    @Test
+    public void shouldReplayRecordedExchange() throws IOException {
+        when(delegate.open(MethodType.GET, "http://localhost/a", UTF8)).thenReturn(channel);
+        when(channel.send()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(200);
+        when(response.getEntity()).thenReturn(new ByteArrayInputStream("abc".getBytes(UTF8)));
+        toTest.open(MethodType.GET, "http://localhost/a", UTF8).send().close();
+
+        HttpChannel.Response replayed = new LoopbackHttpChannelFactory(journal, false).open(MethodType.GET, "http://localhost/a", UTF8).send();
+        assertEquals(200, replayed.getStatusCode());
+        assertEquals("abc", LoopbackHttpChannelFactoryTest.read(replayed.getEntity()));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class ReplayableEntityTest {
+
+    @Test
+    public void shouldWriteOutCapturedEntityAsManyTimesAsNeeded() throws Exception {
+        ReplayableEntity toTest = new ReplayableEntity(1024);
+        toTest.write("hello".getBytes());
+        toTest.write(' ');
+        toTest.write("world".getBytes());
+        toTest.close();
+
+        assertTrue(toTest.isCaptured());
+        assertFalse(toTest.isSpilled());
+        assertEquals(11, toTest.size());
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            toTest.writeTo(out);
+            assertEquals("hello world", out.toString());
+        }
+        toTest.release();
+    }
+
+    @Test
+    public void shouldSpillToTemporaryFileAboveThreshold() throws Exception {
+        ReplayableEntity toTest = new ReplayableEntity(10);
+        byte[] chunk = new byte[5000];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = (byte) i;
+        }
+        toTest.write("header".getBytes());
+        for (int i = 0; i < 10; i++) {
+            toTest.write(chunk, 0, chunk.length);
+        }
+        toTest.close();
+
+        assertTrue(toTest.isSpilled());
+        assertEquals(50006, toTest.size());
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            toTest.writeTo(out);
+            byte[] written = out.toByteArray();
+            assertEquals(50006, written.length);
+            assertEquals("header", new String(written, 0, 6));
+            assertEquals(chunk[4999], written[6 + 49999]);
+        }
+        toTest.release();
+    }
+
+    @Test
+    public void shouldFailWritingOutBeforeCaptureOrAfterRelease() throws Exception {
+        ReplayableEntity toTest = new ReplayableEntity(1024);
+        toTest.write("hello".getBytes());
+        try {
+            toTest.writeTo(new ByteArrayOutputStream());
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        toTest.close();
+        toTest.release();
+        try {
+            toTest.writeTo(new ByteArrayOutputStream());
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void shouldFailWritingOnceCaptured() throws Exception {
+        ReplayableEntity toTest = new ReplayableEntity(1024);
+        toTest.write("hello".getBytes());
+        toTest.close();
+        try {
+            toTest.write('!');
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        toTest.release();
+    }
+}
@@ -23,18 +23,27 @@ package org.codegist.crest.io.http;
 import org.codegist.common.log.Logger;
 import org.codegist.common.log.LoggingOutputStream;
 import org.codegist.crest.CRestException;
+import org.codegist.crest.NoOpCRestEventListener;
+import org.codegist.crest.config.MethodConfig;
 import org.codegist.crest.entity.EntityWriter;
 import org.codegist.crest.io.Request;
+import org.codegist.crest.metrics.NoOpMetricsCollector;
+import org.codegist.crest.param.Param;
 import org.codegist.crest.test.util.Requests;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertSame;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
@@ -48,7 +57,7 @@ public class RequestEntityWriterTest {
 
     private final EntityWriter mockEntityWriter = mock(EntityWriter.class);
     private final Request mockRequest = Requests.mockWith(mockEntityWriter);
-    private final RequestEntityWriter toTest = new RequestEntityWriter(mockRequest);
+    private final RequestEntityWriter toTest = new RequestEntityWriter(mockRequest, new NoOpMetricsCollector(), new NoOpCRestEventListener());
 
     @Test
     public void getContentLengthShouldReturnEntityWriterContentLength(){
@@ -96,4 +105,166 @@ public class RequestEntityWriterTest {
         org.apache.log4j.Logger.getLogger(Request.class).setLevel(org.apache.log4j.Level.INFO);
     }
 
+    @Test
+    public void isRepeatableShouldBeFalseWhenEntitiesAreNotReplayable(){
+        assertFalse(toTest.isRepeatable());
+    }
+
+    @Test
+    public void writeEntityToShouldReplayCapturedEntityOnNextAttempts() throws Exception {
+        final int[] serializations = {0};
+        EntityWriter entityWriter = new EntityWriter() {
+            public void writeTo(Request request, OutputStream outputStream) throws Exception {
+                serializations[0]++;
+                outputStream.write("entity".getBytes());
+            }
+
+            public String getContentType(Request request) {
+                return null;
+            }
+
+            public int getContentLength(Request request) {
+                return -1;
+            }
+        };
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        when(methodConfig.getEntityWriter()).thenReturn(entityWriter);
+        List<Param> none = Collections.emptyList();
+        HttpRequest request = new HttpRequest(methodConfig, none, none, none, none, none, none);
+
+        for (int i = 0; i < 3; i++) {
+            RequestEntityWriter attempt = new RequestEntityWriter(request, new NoOpMetricsCollector(), new NoOpCRestEventListener(), 1024);
+            assertTrue(attempt.isRepeatable());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            attempt.writeEntityTo(out);
+            attempt.writeEntityTo(out);
+            assertEquals("entityentity", out.toString());
+            assertEquals(6, attempt.getContentLength());
+        }
+        assertEquals(1, serializations[0]);
+
+        request.dispose();
+        new RequestEntityWriter(request, new NoOpMetricsCollector(), new NoOpCRestEventListener(), 1024).writeEntityTo(new ByteArrayOutputStream());
+        assertEquals(2, serializations[0]);
+        request.dispose();
+    }
+
+    @Test
+    public void writeEntityToShouldCaptureOnceWhenAttemptsWriteConcurrently() throws Exception {
+        final int[] serializations = {0};
+        final CountDownLatch capturing = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final HttpRequest request = newHttpRequest(new EntityWriter() {
+            public void writeTo(Request request, OutputStream outputStream) throws Exception {
+                serializations[0]++;
+                outputStream.write("ent".getBytes());
+                capturing.countDown();
+                proceed.await(5, TimeUnit.SECONDS);
+                outputStream.write("ity".getBytes());
+            }
+
+            public String getContentType(Request request) {
+                return null;
+            }
+
+            public int getContentLength(Request request) {
+                return -1;
+            }
+        });
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+        Thread capture = new Thread(new WriteAttempt(request, first));
+        Thread hedge = new Thread(new WriteAttempt(request, second));
+        capture.start();
+        assertTrue(capturing.await(5, TimeUnit.SECONDS));
+        hedge.start();
+        while(hedge.getState() != Thread.State.BLOCKED) {
+            assertTrue(hedge.isAlive());
+            Thread.sleep(1);
+        }
+        proceed.countDown();
+        capture.join(5000);
+        hedge.join(5000);
+
+        assertEquals(1, serializations[0]);
+        assertEquals("entity", first.toString());
+        assertEquals("entity", second.toString());
+        request.dispose();
+    }
+
+    @Test
+    public void disposeShouldNotReleaseTheEntityWhileAnAttemptIsStillWritingIt() throws Exception {
+        final HttpRequest request = newHttpRequest(new EntityWriter() {
+            public void writeTo(Request request, OutputStream outputStream) throws Exception {
+                outputStream.write("entity".getBytes());
+            }
+
+            public String getContentType(Request request) {
+                return null;
+            }
+
+            public int getContentLength(Request request) {
+                return -1;
+            }
+        });
+        new RequestEntityWriter(request, new NoOpMetricsCollector(), new NoOpCRestEventListener(), 1024).writeEntityTo(new ByteArrayOutputStream());
+        final ReplayableEntity captured = request.getReplayableEntity(1024);
+
+        final CountDownLatch replaying = new CountDownLatch(1);
+        final CountDownLatch disposed = new CountDownLatch(1);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                replaying.countDown();
+                try {
+                    disposed.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.write(b, off, len);
+            }
+        };
+        WriteAttempt attempt = new WriteAttempt(request, out);
+        Thread hedge = new Thread(attempt);
+        hedge.start();
+        assertTrue(replaying.await(5, TimeUnit.SECONDS));
+        request.dispose();
+        assertSame(captured, request.getReplayableEntity(1024));
+        disposed.countDown();
+        hedge.join(5000);
+
+        assertNull(attempt.failure);
+        assertEquals("entity", out.toString());
+        assertNotSame(captured, request.getReplayableEntity(1024));
+        request.dispose();
+    }
+
+    private static HttpRequest newHttpRequest(EntityWriter entityWriter) {
+        MethodConfig methodConfig = mock(MethodConfig.class);
+        when(methodConfig.getEntityWriter()).thenReturn(entityWriter);
+        List<Param> none = Collections.emptyList();
+        return new HttpRequest(methodConfig, none, none, none, none, none, none);
+    }
+
+    private static final class WriteAttempt implements Runnable {
+        private final HttpRequest request;
+        private final OutputStream out;
+        private volatile Exception failure;
+
+        private WriteAttempt(HttpRequest request, OutputStream out) {
+            this.request = request;
+            this.out = out;
+        }
+
+        public void run() {
+            try {
+                new RequestEntityWriter(request, new NoOpMetricsCollector(), new NoOpCRestEventListener(), 1024).writeEntityTo(out);
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Disposables;
+import org.codegist.crest.config.MethodType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class SharedHttpChannelFactoryTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final HttpChannel channel = mock(HttpChannel.class);
+
+    @Test
+    public void openShouldDelegate() throws IOException {
+        HttpChannelFactory delegate = mock(HttpChannelFactory.class);
+        when(delegate.open(MethodType.GET, "http://localhost", UTF8)).thenReturn(channel);
+        SharedHttpChannelFactory toTest = new SharedHttpChannelFactory(delegate);
+        assertSame(channel, toTest.open(MethodType.GET, "http://localhost", UTF8));
+        assertSame(channel, toTest.open(MethodType.GET, "http://localhost", UTF8, "key"));
+        assertSame(delegate, toTest.getDelegate());
+    }
+
+    @Test
+    public void openShouldPassTheShardKeyToAShardAwareDelegate() throws IOException {
+        ShardAwareHttpChannelFactory delegate = mock(ShardAwareHttpChannelFactory.class);
+        when(delegate.open(MethodType.GET, "http://localhost", UTF8, "key")).thenReturn(channel);
+        assertSame(channel, new SharedHttpChannelFactory(delegate).open(MethodType.GET, "http://localhost", UTF8, "key"));
+    }
+
+    @Test
+    public void disposeShouldNotDisposeTheDelegate() {
+        DisposableChannelFactory delegate = new DisposableChannelFactory();
+        Disposables.dispose(new SharedHttpChannelFactory(delegate));
+        assertFalse(delegate.disposed);
+    }
+
+    private static class DisposableChannelFactory implements HttpChannelFactory, Disposable {
+        private boolean disposed;
+
+        public HttpChannel open(MethodType methodType, String url, Charset charset) {
+            return null;
+        }
+
+        public void dispose() {
+            disposed = true;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class WireLoggerTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void shouldSampleConfiguredFractionOfExchanges() {
+        WireLogger toTest = new WireLogger(0.1f);
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            if(toTest.sample()) {
+                sampled++;
+            }
+        }
+        assertEquals(100, sampled);
+    }
+
+    @Test
+    public void shouldSampleAllOrNothing() {
+        WireLogger all = new WireLogger(1f);
+        WireLogger none = new WireLogger(0f);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(all.sample());
+            assertFalse(none.sample());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidSampleRate() {
+        new WireLogger(1.5f);
+    }
+
+    @Test
+    public void shouldDropRecordsWhenWriterCantKeepUp() throws InterruptedException {
+        final Object lock = new Object();
+        WireLogger toTest = new WireLogger(1f, 16, 1) {
+            @Override
+            void write(WireRecord record) {
+                synchronized (lock) {
+                    super.write(record);
+                }
+            }
+        };
+        synchronized (lock) {
+            for (int i = 0; i < 10; i++) {
+                toTest.publish(newRecord());
+            }
+        }
+        assertTrue(toTest.getDroppedCount() >= 8);
+        toTest.dispose();
+    }
+
+    @Test
+    public void shouldWriteRecordsAsynchronously() throws InterruptedException {
+        WireLogger toTest = new WireLogger(1f);
+        toTest.publish(newRecord());
+        toTest.publish(newRecord());
+        for (int i = 0; i < 100 && toTest.getLoggedCount() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, toTest.getLoggedCount());
+        assertEquals(0, toTest.getDroppedCount());
+        toTest.dispose();
+    }
+
+    @Test
+    public void shouldFormatRecordWithTruncatedEntities() {
+        WireRecord record = new WireRecord(MethodType.POST, "http://localhost/a", UTF8, 5);
+        record.addRequestHeader("Accept", "text/plain");
+        byte[] body = "hello world".getBytes(UTF8);
+        record.getRequestEntity().write(body, 0, body.length);
+        record.setResponse(200, "OK", "text/plain; charset=UTF-8", null);
+        record.getResponseEntity().write('o');
+        record.getResponseEntity().write('k');
+        record.complete();
+
+        String formatted = record.format();
+        assertTrue(formatted, formatted.startsWith("POST http://localhost/a ("));
+        assertTrue(formatted, formatted.contains("\n> Accept: text/plain"));
+        assertTrue(formatted, formatted.contains("\n> hello... (6 more bytes, 11 total)"));
+        assertTrue(formatted, formatted.contains("\n< 200 OK"));
+        assertTrue(formatted, formatted.contains("\n< Content-Type: text/plain; charset=UTF-8"));
+        assertTrue(formatted, formatted.endsWith("\n< ok"));
+    }
+
+    @Test
+    public void shouldFormatFailedRecord() {
+        WireRecord record = new WireRecord(MethodType.GET, "http://localhost/a", UTF8, 5);
+        record.setFailure(new java.io.IOException("refused"));
+        record.complete();
+        String formatted = record.format();
+        assertTrue(formatted, formatted.contains("\n> (no entity)"));
+        assertTrue(formatted, formatted.endsWith("\n< java.io.IOException: refused"));
+    }
+
+    private static WireRecord newRecord() {
+        WireRecord record = new WireRecord(MethodType.GET, "http://localhost", UTF8, 16);
+        record.complete();
+        return record;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class WireLoggingHttpChannelFactoryTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final HttpChannelFactory delegate = mock(HttpChannelFactory.class);
+    private final HttpChannel channel = mock(HttpChannel.class);
+    private final HttpChannel.Response response = mock(HttpChannel.Response.class);
+
+    @Test
+    public void shouldReturnDelegateChannelIfNotSampled() throws IOException {
+        when(delegate.open(MethodType.GET, "http://localhost", UTF8)).thenReturn(channel);
+        WireLoggingHttpChannelFactory toTest = new WireLoggingHttpChannelFactory(delegate, new WireLogger(0f));
+        assertSame(channel, toTest.open(MethodType.GET, "http://localhost", UTF8));
+    }
+
+    @Test
+    public void shouldRecordAndPublishSampledExchangeOnClose() throws IOException {
+        final WireRecord[] published = new WireRecord[1];
+        WireLogger wireLogger = new WireLogger(1f, 4) {
+            @Override
+            void publish(WireRecord record) {
+                published[0] = record;
+            }
+        };
+        when(delegate.open(MethodType.POST, "http://localhost", UTF8)).thenReturn(channel);
+        when(channel.send()).thenReturn(response);
+        when(response.getStatusCode()).thenReturn(201);
+        when(response.getStatusMessage()).thenReturn("Created");
+        when(response.getEntity()).thenReturn(new ByteArrayInputStream("response".getBytes(UTF8)));
+
+        WireLoggingHttpChannelFactory toTest = new WireLoggingHttpChannelFactory(delegate, wireLogger);
+        HttpChannel actual = toTest.open(MethodType.POST, "http://localhost", UTF8);
+        assertNotSame(channel, actual);
+
+        actual.addHeader("X-Id", "1");
+        verify(channel).addHeader("X-Id", "1");
+
+        actual.writeEntityWith(new HttpEntityWriter() {
+            public void writeEntityTo(OutputStream out) throws IOException {
+                out.write("request".getBytes(UTF8));
+            }
+            public int getContentLength() {
+                return -1;
+            }
+            public boolean isRepeatable() {
+                return false;
+            }
+        });
+        ArgumentCaptor<HttpEntityWriter> writer = ArgumentCaptor.forClass(HttpEntityWriter.class);
+        verify(channel).writeEntityWith(writer.capture());
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        writer.getValue().writeEntityTo(wire);
+        writer.getValue().writeEntityTo(new ByteArrayOutputStream());
+        assertEquals("request", new String(wire.toByteArray(), UTF8));
+
+        HttpChannel.Response actualResponse = actual.send();
+        InputStream entity = actualResponse.getEntity();
+        byte[] buffer = new byte[32];
+        assertEquals(8, entity.read(buffer));
+        assertEquals("response", new String(buffer, 0, 8, UTF8));
+        assertNull(published[0]);
+
+        actualResponse.close();
+        actualResponse.close();
+        verify(response, times(1)).close();
+        String formatted = published[0].format();
+        assertTrue(formatted, formatted.contains("\n> X-Id: 1"));
+        assertTrue(formatted, formatted.contains("\n> requ... (3 more bytes, 7 total)"));
+        assertTrue(formatted, formatted.contains("\n< 201 Created"));
+        assertTrue(formatted, formatted.contains("\n< resp... (4 more bytes, 8 total)"));
+    }
+
+    @Test
+    public void shouldPublishFailedExchange() throws IOException {
+        final WireRecord[] published = new WireRecord[1];
+        WireLogger wireLogger = new WireLogger(1f) {
+            @Override
+            void publish(WireRecord record) {
+                published[0] = record;
+            }
+        };
+        IOException failure = new IOException("refused");
+        when(delegate.open(MethodType.GET, "http://localhost", UTF8)).thenReturn(channel);
+        when(channel.send()).thenThrow(failure);
+
+        HttpChannel actual = new WireLoggingHttpChannelFactory(delegate, wireLogger).open(MethodType.GET, "http://localhost", UTF8);
+        try {
+            actual.send();
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        assertTrue(published[0].format().endsWith("\n< java.io.IOException: refused"));
+    }
+
+    @Test
+    public void disposeShouldOnlyDisposeTheWireLoggerIfNotShared() {
+        WireLogger wireLogger = mock(WireLogger.class);
+        new WireLoggingHttpChannelFactory(delegate, wireLogger, true).dispose();
+        verify(wireLogger, never()).dispose();
+        new WireLoggingHttpChannelFactory(delegate, wireLogger).dispose();
+        verify(wireLogger).dispose();
+    }
+}
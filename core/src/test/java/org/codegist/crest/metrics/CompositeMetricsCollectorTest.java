@@ -0,0 +1,64 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.crest.config.MethodConfig;
+import org.junit.Test;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class CompositeMetricsCollectorTest {
+
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final MetricsCollector delegate1 = mock(MetricsCollector.class);
+    private final DisposableMetricsCollector delegate2 = mock(DisposableMetricsCollector.class);
+    private final CompositeMetricsCollector toTest = new CompositeMetricsCollector(delegate1, delegate2);
+
+    @Test
+    public void shouldNotifyAllDelegates() {
+        Exception error = new Exception();
+        toTest.onStageStart(methodConfig, Stage.CALL);
+        toTest.onStage(methodConfig, Stage.CALL, 10);
+        toTest.onExchange(methodConfig, 200, 1, 2);
+        toTest.onRetry(methodConfig, 2);
+        toTest.onError(methodConfig, error);
+        for (MetricsCollector delegate : new MetricsCollector[]{delegate1, delegate2}) {
+            verify(delegate).onStageStart(methodConfig, Stage.CALL);
+            verify(delegate).onStage(methodConfig, Stage.CALL, 10);
+            verify(delegate).onExchange(methodConfig, 200, 1, 2);
+            verify(delegate).onRetry(methodConfig, 2);
+            verify(delegate).onError(methodConfig, error);
+        }
+    }
+
+    @Test
+    public void disposeShouldDisposeDisposableDelegates() {
+        toTest.dispose();
+        verify(delegate2).dispose();
+    }
+
+    interface DisposableMetricsCollector extends MetricsCollector, Disposable {
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.crest.config.MethodConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class DefaultMetricsCollectorTest {
+
+    private final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final DefaultMetricsCollector toTest = new DefaultMetricsCollector(mBeanServer, "test");
+
+    public DefaultMetricsCollectorTest() throws Exception {
+        when(methodConfig.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        when(methodConfig.getEndPoint()).thenReturn("http://localhost");
+    }
+
+    @After
+    public void tearDown() {
+        toTest.dispose();
+    }
+
+    @Test
+    public void shouldCollectMetricsPerMethod() {
+        assertNull(toTest.get(methodConfig));
+        toTest.onStage(methodConfig, Stage.CALL, 1000);
+        toTest.onRetry(methodConfig, 2);
+        toTest.onError(methodConfig, new Exception());
+        toTest.onExchange(methodConfig, 200, 10, 20);
+        MethodMetrics metrics = toTest.get(methodConfig);
+        assertEquals(10, metrics.getBytesOut());
+        assertEquals(20, metrics.getBytesIn());
+        assertEquals(1, metrics.getTimer(Stage.CALL).getCount());
+        assertEquals(1, metrics.getRetryCount());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(1, toTest.getAll().size());
+    }
+
+    @Test
+    public void shouldPublishMetricsOverJmx() throws Exception {
+        toTest.onStage(methodConfig, Stage.CALL, 1000);
+        ObjectName name = new ObjectName("org.codegist.crest:type=Metrics,name=\"test\",interface=\"java.lang.Object\",method=\"toString()\",endpoint=\"http://localhost\"");
+        assertTrue(mBeanServer.isRegistered(name));
+        assertEquals(1l, mBeanServer.getAttribute(name, "CallCount"));
+        toTest.dispose();
+        assertFalse(mBeanServer.isRegistered(name));
+    }
+
+    @Test
+    public void shouldPublishEachBuildOfAMethodUnderItsOwnName() throws Exception {
+        MethodConfig other = mock(MethodConfig.class);
+        when(other.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        when(other.getEndPoint()).thenReturn("http://localhost");
+        toTest.onStage(methodConfig, Stage.CALL, 1000);
+        toTest.onStage(other, Stage.CALL, 1000);
+        assertEquals(2, mBeanServer.queryNames(new ObjectName("org.codegist.crest:type=Metrics,name=\"test\",*"), null).size());
+        toTest.dispose();
+        assertEquals(0, mBeanServer.queryNames(new ObjectName("org.codegist.crest:type=Metrics,name=\"test\",*"), null).size());
+    }
+
+    @Test
+    public void defaultCollectorsShouldNotShareTheirNames() throws Exception {
+        DefaultMetricsCollector first = new DefaultMetricsCollector();
+        DefaultMetricsCollector second = new DefaultMetricsCollector();
+        ObjectName published = new ObjectName("org.codegist.crest:type=Metrics,interface=\"java.lang.Object\",method=\"toString()\",*");
+        MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+        try {
+            first.onStage(methodConfig, Stage.CALL, 1000);
+            second.onStage(methodConfig, Stage.CALL, 1000);
+            assertEquals(2, platform.queryNames(published, null).size());
+        } finally {
+            first.dispose();
+            second.dispose();
+        }
+        assertEquals(0, platform.queryNames(published, null).size());
+    }
+
+    @Test
+    public void shouldCollectWithoutMBeanServer() {
+        DefaultMetricsCollector toTest = new DefaultMetricsCollector(null, "test");
+        toTest.onStage(methodConfig, Stage.CALL, 1000);
+        assertEquals(1, toTest.get(methodConfig).getTimer(Stage.CALL).getCount());
+        toTest.dispose();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.codegist.crest.config.MethodConfig;
+import org.junit.Test;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class MethodMetricsTest {
+
+    private final MethodConfig methodConfig = mock(MethodConfig.class);
+    private final MethodMetrics toTest;
+
+    public MethodMetricsTest() throws Exception {
+        when(methodConfig.getMethod()).thenReturn(String.class.getMethod("substring", int.class, int.class));
+        when(methodConfig.getEndPoint()).thenReturn("http://localhost");
+        toTest = new MethodMetrics(methodConfig);
+    }
+
+    @Test
+    public void shouldBeTaggedByInterfaceMethodAndEndPoint() throws Exception {
+        assertEquals("java.lang.String", toTest.getAttribute("Interface"));
+        assertEquals("substring(int,int)", toTest.getAttribute("Method"));
+        assertEquals("http://localhost", toTest.getAttribute("EndPoint"));
+    }
+
+    @Test
+    public void shouldExposeStageAttributes() throws Exception {
+        toTest.getTimer(Stage.FIRST_BYTE).record(2000000);
+        toTest.onRetry();
+        toTest.onError();
+        assertEquals(1l, toTest.getAttribute("FirstByteCount"));
+        assertEquals(2000l, toTest.getAttribute("FirstByteMaxMicros"));
+        assertEquals(0l, toTest.getAttribute("RequestBuildingCount"));
+        assertEquals(1l, toTest.getAttribute("RetryCount"));
+        assertEquals(1l, toTest.getAttribute("ErrorCount"));
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void shouldRejectUnknownAttributes() throws Exception {
+        toTest.getAttribute("FirstByteUnknown");
+    }
+
+    @Test
+    public void shouldDescribeAllStageAttributes() throws Exception {
+        MBeanAttributeInfo[] attributes = toTest.getMBeanInfo().getAttributes();
+        assertEquals(7 + Stage.values().length * 6, attributes.length);
+        for (MBeanAttributeInfo attribute : attributes) {
+            toTest.getAttribute(attribute.getName());
+        }
+    }
+
+    @Test
+    public void resetOperationShouldClearMetrics() throws Exception {
+        toTest.getTimer(Stage.CALL).record(1000);
+        toTest.onError();
+        toTest.invoke("reset", new Object[0], new String[0]);
+        assertEquals(0, toTest.getTimer(Stage.CALL).getCount());
+        assertEquals(0, toTest.getErrorCount());
+        assertTrue(toTest.getAttributes(new String[]{"CallCount", "Unknown"}).size() == 1);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class StageTimerTest {
+
+    private final StageTimer toTest = new StageTimer();
+
+    @Test
+    public void shouldReturnZerosWhenEmpty() {
+        assertEquals(0, toTest.getCount());
+        assertEquals(0, toTest.getMeanMicros());
+        assertEquals(0, toTest.getPercentileMicros(0.99f));
+    }
+
+    @Test
+    public void shouldRecordCountTotalAndMax() {
+        toTest.record(1000);
+        toTest.record(3000);
+        toTest.record(-1);
+        assertEquals(2, toTest.getCount());
+        assertEquals(4000, toTest.getTotalNanos());
+        assertEquals(3000, toTest.getMaxNanos());
+        assertEquals(2, toTest.getMeanMicros());
+    }
+
+    @Test
+    public void shouldReturnBucketUpperBoundOfPercentile() {
+        for (int i = 0; i < 99; i++) {
+            toTest.record(100000);
+        }
+        toTest.record(10000000);
+        assertEquals(128, toTest.getPercentileMicros(0.5f));
+        assertEquals(128, toTest.getPercentileMicros(0.99f));
+        assertEquals(16384, toTest.getPercentileMicros(0.999f));
+    }
+
+    @Test
+    public void indexOfShouldMapToPowerOfTwoBuckets() {
+        assertEquals(0, StageTimer.indexOf(0));
+        assertEquals(0, StageTimer.indexOf(1));
+        assertEquals(1, StageTimer.indexOf(2));
+        assertEquals(2, StageTimer.indexOf(3));
+        assertEquals(2, StageTimer.indexOf(4));
+        assertEquals(3, StageTimer.indexOf(5));
+        assertEquals(StageTimer.BUCKET_COUNT - 1, StageTimer.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void resetShouldClearTimer() {
+        toTest.record(1000);
+        toTest.reset();
+        assertEquals(0, toTest.getCount());
+        assertEquals(0, toTest.getMaxNanos());
+        assertEquals(0, toTest.getPercentileMicros(0.5f));
+    }
+}
@@ -23,19 +23,27 @@ package org.codegist.crest.security.oauth;
 import org.codegist.crest.config.MethodType;
 import org.codegist.crest.param.EncodedPair;
 import org.codegist.crest.security.AuthorizationToken;
+import org.codegist.crest.util.TimerWheel;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Arrays.asList;
 import static org.codegist.crest.config.MethodType.GET;
 import static org.codegist.crest.util.Pairs.toPreEncodedPair;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 /**
@@ -83,9 +91,195 @@ public class OAuthorizationTest {
         verify(mockOAuthApi).refreshAccessToken(refreshedToken);
     }
 
+    @Test
+    public void shouldSignWithCallCredentialsWhenSet() throws Exception {
+        OAuthToken callToken = mock(OAuthToken.class);
+        EncodedPair argPair = toPreEncodedPair("c","c%20val");
+        CallCredentials.set(callToken);
+        try {
+            toTest.authorize(GET, "url", argPair);
+        } finally {
+            CallCredentials.clear();
+        }
+        verify(mockOAuthenticator).oauth(callToken, GET, "url", argPair);
+
+        toTest.authorize(GET, "url", argPair);
+        verify(mockOAuthenticator).oauth(mockToken, GET, "url", argPair);
+    }
+
+    @Test
+    public void shouldNotRefreshWhenCallCredentialsAreSet() throws Exception {
+        CallCredentials.set(mock(OAuthToken.class));
+        try {
+            toTest.refresh();
+        } finally {
+            CallCredentials.clear();
+        }
+        verifyZeroInteractions(mockOAuthApi);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void shouldThrowAnIllegalStateExceptionWhenTryingToRefreshTokenIfNoOAuthApiHasBeenPassed() throws Exception {
         OAuthorization toTest = new OAuthorization(mockToken, mockOAuthenticator);
         toTest.refresh();
     }
+
+    @Test
+    public void shouldRefreshOnlyOnceForConcurrentCallersOfSameAccessToken() throws Exception {
+        final CountingOAuthApi oauthApi = new CountingOAuthApi(100);
+        final OAuthorization toTest = new OAuthorization(new OAuthToken("token", "secret"), new EmptyOAuthenticator(), oauthApi);
+        final CyclicBarrier barrier = new CyclicBarrier(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        toTest.authorize(GET, "url");
+                        barrier.await();
+                        toTest.refresh();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, oauthApi.count.get());
+    }
+
+    @Test
+    public void shouldNotRefreshWhenRequestWasSignedWithARefreshedAccessToken() throws Exception {
+        CountingOAuthApi oauthApi = new CountingOAuthApi(0);
+        final OAuthorization toTest = new OAuthorization(new OAuthToken("token", "secret"), new EmptyOAuthenticator(), oauthApi);
+        toTest.authorize(GET, "url");
+
+        Thread other = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    toTest.refresh();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(1, oauthApi.count.get());
+
+        toTest.refresh();
+        assertEquals(1, oauthApi.count.get());
+
+        // signed again with the refreshed token, that is now the one to refresh
+        toTest.authorize(GET, "url");
+        toTest.refresh();
+        assertEquals(2, oauthApi.count.get());
+    }
+
+    @Test
+    public void shouldOnlyConsiderTheAccessTokenTheLastRequestHasBeenSignedWith() throws Exception {
+        CountingOAuthApi oauthApi = new CountingOAuthApi(0);
+        final OAuthorization toTest = new OAuthorization(new OAuthToken("token", "secret"), new EmptyOAuthenticator(), oauthApi);
+        toTest.authorize(GET, "url");
+        Thread other = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    toTest.refresh();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(1, oauthApi.count.get());
+
+        // the request signed with the call credentials replaces the stale access token
+        CallCredentials.set(mock(OAuthToken.class));
+        try {
+            toTest.authorize(GET, "url");
+            toTest.refresh();
+        } finally {
+            CallCredentials.clear();
+        }
+        toTest.refresh();
+        assertEquals(2, oauthApi.count.get());
+    }
+
+    @Test
+    public void shouldNotRefreshAheadOfExpiryInATightLoopWhenTheLifetimeIsShorterThanTheRefreshAheadTime() throws Exception {
+        CountingOAuthApi oauthApi = new CountingOAuthApi(0, Collections.singletonMap("oauth_expires_in", "1"));
+        TimerWheel timerWheel = new TimerWheel(10, 64);
+        try {
+            OAuthToken token = new OAuthToken("token", "secret", Collections.singletonMap("oauth_expires_in", "1"));
+            new OAuthorization(token, new EmptyOAuthenticator(), oauthApi, timerWheel, 5000);
+            Thread.sleep(OAuthorization.MIN_REFRESH_DELAY / 2);
+            assertEquals(0, oauthApi.count.get());
+            long timeout = System.currentTimeMillis() + 5000;
+            while(oauthApi.count.get() == 0 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, oauthApi.count.get());
+            assertSame(token, oauthApi.last);
+        } finally {
+            timerWheel.dispose();
+        }
+    }
+
+    @Test
+    public void shouldRefreshAheadOfExpiry() throws Exception {
+        CountingOAuthApi oauthApi = new CountingOAuthApi(0);
+        TimerWheel timerWheel = new TimerWheel(10, 64);
+        try {
+            OAuthToken token = new OAuthToken("token", "secret", Collections.singletonMap("oauth_expires_in", "1"));
+            new OAuthorization(token, new EmptyOAuthenticator(), oauthApi, timerWheel, 950);
+            long timeout = System.currentTimeMillis() + 5000;
+            while(oauthApi.count.get() == 0 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, oauthApi.count.get());
+            assertSame(token, oauthApi.last);
+        } finally {
+            timerWheel.dispose();
+        }
+    }
+
+    private static final class EmptyOAuthenticator implements OAuthenticator {
+        public List<EncodedPair> oauth(OAuthToken accessOAuthToken, MethodType methodType, String url, EncodedPair... parameters) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static final class CountingOAuthApi implements OAuthApi {
+        private final AtomicInteger count = new AtomicInteger();
+        private final long latency;
+        private final Map<String, String> attributes;
+        private volatile OAuthToken last;
+
+        private CountingOAuthApi(long latency) {
+            this(latency, Collections.<String, String>emptyMap());
+        }
+
+        private CountingOAuthApi(long latency, Map<String, String> attributes) {
+            this.latency = latency;
+            this.attributes = attributes;
+        }
+
+        public OAuthToken getRequestToken() {
+            throw new UnsupportedOperationException();
+        }
+
+        public OAuthToken getAccessToken(OAuthToken requestOAuthToken, String verifier) {
+            throw new UnsupportedOperationException();
+        }
+
+        public OAuthToken refreshAccessToken(OAuthToken accessToken) throws Exception {
+            Thread.sleep(latency);
+            last = accessToken;
+            return new OAuthToken("token-" + count.incrementAndGet(), "secret", attributes);
+        }
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.security.oauth.v1;
+
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class HmacSha1SignerTest {
+
+    private final SecretKeySpec key = new SecretKeySpec("consumer-secret&access-secret".getBytes(), "HmacSHA1");
+
+    @Test
+    public void shouldSignLikeAFreshlyInitializedMac() throws Exception {
+        HmacSha1Signer toTest = new HmacSha1Signer(key);
+        byte[] data = "GET&http%3A%2F%2Fhost%2Fpath&a%3Db".getBytes();
+
+        assertArrayEquals(expected(data), toTest.sign(data, 0, data.length));
+        // signing again must not be affected by the previous signature
+        assertArrayEquals(expected(data), toTest.sign(data, 0, data.length));
+    }
+
+    @Test
+    public void shouldOnlySignTheGivenRange() throws Exception {
+        HmacSha1Signer toTest = new HmacSha1Signer(key);
+        byte[] data = "xxGET&http%3A%2F%2Fhost%2Fpathxx".getBytes();
+
+        assertArrayEquals(expected("GET&http%3A%2F%2Fhost%2Fpath".getBytes()), toTest.sign(data, 2, data.length - 4));
+    }
+
+    @Test
+    public void shouldBeUsableByConcurrentThreads() throws Exception {
+        final HmacSha1Signer toTest = new HmacSha1Signer(key);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 4; t++) {
+                final byte[] data = ("data-" + t).getBytes();
+                final byte[] expected = expected(data);
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        for (int i = 0; i < 1000; i++) {
+                            if(!Arrays.equals(expected, toTest.sign(data, 0, data.length))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private byte[] expected(byte[] data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(key);
+        return mac.doFinal(data);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.security.oauth.v1;
+
+import org.codegist.crest.security.oauth.OAuthToken;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class SignerCacheTest {
+
+    private final OAuthToken consumerToken = new OAuthToken("consumer", "consumer-secret");
+    private final SignerCache toTest = new SignerCache(consumerToken, 2);
+
+    @Test
+    public void shouldReuseSignerOfSameAccessSecret() throws Exception {
+        HmacSha1Signer first = toTest.get(new OAuthToken("a", "a-secret"));
+        assertSame(first, toTest.get(new OAuthToken("a", "a-secret")));
+        assertEquals(1, toTest.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedSignerWhenFull() throws Exception {
+        OAuthToken a = new OAuthToken("a", "a-secret");
+        OAuthToken b = new OAuthToken("b", "b-secret");
+        OAuthToken c = new OAuthToken("c", "c-secret");
+        HmacSha1Signer signerA = toTest.get(a);
+        HmacSha1Signer signerB = toTest.get(b);
+        toTest.get(a);
+        toTest.get(c);
+
+        assertEquals(2, toTest.size());
+        assertSame(signerA, toTest.get(a));
+        assertNotSame(signerB, toTest.get(b));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram toTest = new LatencyHistogram(10, 1000);
+
+    @Test
+    public void shouldReturnMinusOneWhenEmpty() {
+        assertEquals(-1, toTest.getPercentile(0.95f, 1000));
+    }
+
+    @Test
+    public void shouldReturnBucketUpperBoundOfPercentile() {
+        for (int i = 0; i < 95; i++) {
+            toTest.record(10, 1000);
+        }
+        for (int i = 0; i < 5; i++) {
+            toTest.record(1000, 1000);
+        }
+        assertEquals(10, toTest.getPercentile(0.95f, 1000));
+        long p99 = toTest.getPercentile(0.99f, 1000);
+        assertTrue(p99 >= 1000 && p99 <= 1250);
+    }
+
+    @Test
+    public void shouldForgetLatenciesOutsideTheWindow() {
+        toTest.record(10, 1000);
+        assertEquals(10, toTest.getPercentile(0.5f, 1000));
+        assertEquals(-1, toTest.getPercentile(0.5f, 11000));
+    }
+
+    @Test
+    public void indexShouldMapLatenciesToBoundedBuckets() {
+        assertEquals(0, LatencyHistogram.indexOf(0));
+        assertEquals(0, LatencyHistogram.indexOf(1));
+        assertEquals(1, LatencyHistogram.indexOf(2));
+        assertEquals(LatencyHistogram.indexOf(600000), LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void countShouldSumAllBuckets() {
+        toTest.record(1);
+        toTest.record(100);
+        toTest.record(100000);
+        assertEquals(3, toTest.getCount());
+    }
+}
@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
@@ -115,6 +116,32 @@ public class RegistryBuilderTest {
         assertSame(mockItemDescriptor2, map.getValue().get("2"));
     }
 
+    @Test
+    public void registerAllShouldCopyItemDescriptors() throws Exception {
+        toTest.register(Component.class, "1", "2").defaultAs(Component2.class);
+        ComponentRegistry.Builder<String, Component> derived = new ComponentRegistry.Builder<String, Component>().registerAll(toTest);
+        Map mapping = Classes.getFieldValue(toTest, "mapping");
+        Map derivedMapping = Classes.getFieldValue(derived, "mapping");
+        assertEquals(2, derivedMapping.size());
+        assertNotSame(mapping.get("1"), derivedMapping.get("1"));
+        assertSame(derivedMapping.get("1"), derivedMapping.get("2"));
+        assertEquals(Component.class, Classes.getFieldValue(derivedMapping.get("1"), "clazz"));
+        Object defaultDescriptor = Classes.getFieldValue(derived, "defaultIfNotFoundDescriptor");
+        assertNotSame(Classes.getFieldValue(toTest, "defaultIfNotFoundDescriptor"), defaultDescriptor);
+        assertEquals(Component2.class, Classes.getFieldValue(defaultDescriptor, "clazz"));
+    }
+
+    @Test
+    public void registerShouldKeepItemDescriptorOfSameComponentAndConfig() throws Exception {
+        Map mapping = Classes.getFieldValue(toTest, "mapping");
+        toTest.register(Component.class, "1");
+        Object descriptor = mapping.get("1");
+        toTest.register(Component.class, "1", "2");
+        assertSame(descriptor, mapping.get("1"));
+        toTest.register(Component.class, new String[]{"1"}, Collections.<String, Object>singletonMap("a", "b"));
+        assertNotSame(descriptor, mapping.get("1"));
+    }
+
     static class Component {
 
     }
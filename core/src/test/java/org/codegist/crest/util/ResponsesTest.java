@@ -0,0 +1,70 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.codegist.crest.NonInstanciableClassTest;
+import org.codegist.crest.io.Response;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class ResponsesTest extends NonInstanciableClassTest {
+    public ResponsesTest() {
+        super(Responses.class);
+    }
+
+    private final Response response = mock(Response.class);
+
+    @Test
+    public void shouldReturnMinusOneIfRetryAfterIsAbsent() throws Exception {
+        assertEquals(-1, Responses.getRetryAfter(response));
+    }
+
+    @Test
+    public void shouldReadRetryAfterSeconds() throws Exception {
+        when(response.getHeader("Retry-After")).thenReturn(" 120 ");
+        assertEquals(120000, Responses.getRetryAfter(response));
+    }
+
+    @Test
+    public void shouldReadRetryAfterHttpDate() throws Exception {
+        when(response.getHeader("Retry-After")).thenReturn("Fri, 31 Dec 2100 23:59:59 GMT");
+        assertTrue(Responses.getRetryAfter(response) > 0);
+    }
+
+    @Test
+    public void shouldNotReturnNegativeDelayForPastHttpDate() throws Exception {
+        when(response.getHeader("Retry-After")).thenReturn("Thu, 01 Jan 1970 00:00:00 GMT");
+        assertEquals(0, Responses.getRetryAfter(response));
+    }
+
+    @Test
+    public void shouldReturnMinusOneIfRetryAfterIsInvalid() throws Exception {
+        when(response.getHeader("Retry-After")).thenReturn("soon");
+        assertEquals(-1, Responses.getRetryAfter(response));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.codegist.crest.NonInstanciableClassTest;
+import org.codegist.crest.config.ParamConfig;
+import org.codegist.crest.config.ParamType;
+import org.codegist.crest.io.Request;
+import org.codegist.crest.param.Param;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class ShardKeysTest extends NonInstanciableClassTest {
+
+    private final Request request = mock(Request.class);
+
+    public ShardKeysTest() {
+        super(ShardKeys.class);
+    }
+
+    @Before
+    public void setUp() {
+        for (ParamType type : ParamType.values()) {
+            when(request.getParams(type)).thenReturn(Collections.<Param>emptyList());
+        }
+    }
+
+    @Test
+    public void isShardKeyShouldCheckShardKeyMetaData() {
+        ParamConfig shardKey = mock(ParamConfig.class);
+        when(shardKey.getMetaDatas()).thenReturn(ShardKeys.toMetaDatas());
+        ParamConfig other = mock(ParamConfig.class);
+        when(other.getMetaDatas()).thenReturn(new HashMap<String, Object>());
+        assertTrue(ShardKeys.isShardKey(shardKey));
+        assertFalse(ShardKeys.isShardKey(other));
+    }
+
+    @Test
+    public void getShardKeyShouldReturnNullIfRequestHasNoShardKeyParam() {
+        when(request.getParams(ParamType.QUERY)).thenReturn(Arrays.asList(param(false, "a")));
+        assertNull(ShardKeys.getShardKey(request));
+    }
+
+    @Test
+    public void getShardKeyShouldReturnNullIfShardKeyParamHasNoValue() {
+        when(request.getParams(ParamType.QUERY)).thenReturn(Arrays.asList(param(true, (Object) null)));
+        assertNull(ShardKeys.getShardKey(request));
+    }
+
+    @Test
+    public void getShardKeyShouldReturnShardKeyParamValue() {
+        when(request.getParams(ParamType.QUERY)).thenReturn(Arrays.asList(param(false, "a"), param(true, 42)));
+        assertEquals("42", ShardKeys.getShardKey(request));
+    }
+
+    @Test
+    public void getShardKeyShouldJoinShardKeyParamsValuesInParamTypeOrder() {
+        when(request.getParams(ParamType.HEADER)).thenReturn(Arrays.asList(param(true, "c")));
+        when(request.getParams(ParamType.QUERY)).thenReturn(Arrays.asList(param(true, "a", "b")));
+        assertEquals("a/b/c", ShardKeys.getShardKey(request));
+    }
+
+    private static Param param(boolean shardKey, Object... values) {
+        ParamConfig paramConfig = mock(ParamConfig.class);
+        when(paramConfig.getMetaDatas()).thenReturn(shardKey ? ShardKeys.toMetaDatas() : new HashMap<String, Object>());
+        Param param = mock(Param.class);
+        when(param.getParamConfig()).thenReturn(paramConfig);
+        when(param.getValue()).thenReturn(Arrays.asList(values));
+        return param;
+    }
+}
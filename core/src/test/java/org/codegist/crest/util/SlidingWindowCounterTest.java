@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class SlidingWindowCounterTest {
+
+    private final SlidingWindowCounter toTest = new SlidingWindowCounter(2, 3, 100);
+
+    @Test
+    public void shouldSumMetricsIndependently() {
+        toTest.add(0, 1, 1000);
+        toTest.add(0, 2, 1050);
+        toTest.add(1, 5, 1099);
+        assertEquals(3, toTest.sum(0, 1099));
+        assertEquals(5, toTest.sum(1, 1099));
+    }
+
+    @Test
+    public void shouldSumAcrossBucketsOfTheWindow() {
+        toTest.add(0, 1, 1000);
+        toTest.add(0, 2, 1100);
+        toTest.add(0, 3, 1200);
+        assertEquals(6, toTest.sum(0, 1299));
+    }
+
+    @Test
+    public void shouldForgetBucketsOutsideTheWindow() {
+        toTest.add(0, 1, 1000);
+        toTest.add(0, 2, 1100);
+        assertEquals(3, toTest.sum(0, 1200));
+        assertEquals(2, toTest.sum(0, 1300));
+        assertEquals(0, toTest.sum(0, 1400));
+    }
+
+    @Test
+    public void shouldRecycleBucketWhenWindowSlides() {
+        toTest.add(0, 1, 1000);
+        toTest.add(0, 4, 1300);
+        assertEquals(4, toTest.sum(0, 1300));
+    }
+
+    @Test
+    public void resetShouldClearAllBuckets() {
+        toTest.add(0, 1, 1000);
+        toTest.add(1, 1, 1000);
+        toTest.reset();
+        assertEquals(0, toTest.sum(0, 1000));
+        assertEquals(0, toTest.sum(1, 1000));
+    }
+
+    @Test
+    public void windowShouldBeBucketCountTimesBucketDuration() {
+        assertEquals(300, toTest.getWindowMillis());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class TimerWheelTest {
+
+    private final TimerWheel toTest = new TimerWheel(5, 8);
+
+    @After
+    public void tearDown() {
+        toTest.dispose();
+    }
+
+    @Test
+    public void shouldRunTaskOnceDelayElapsed() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        TimerWheel.Timeout timeout = toTest.schedule(new CountDown(latch), 50);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, toTest.getPendingCount());
+    }
+
+    @Test
+    public void shouldRunTaskSpanningSeveralTurnsOfTheWheel() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        toTest.schedule(new CountDown(latch), 120);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 120);
+    }
+
+    @Test
+    public void shouldNotRunCancelledTask() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = toTest.schedule(new Runnable() {
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 20);
+        assertTrue(timeout.cancel());
+        assertEquals(0, toTest.getPendingCount());
+        Thread.sleep(60);
+        assertEquals(0, runs.get());
+        assertFalse(timeout.isExpired());
+    }
+
+    @Test
+    public void shouldRunManyTasks() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            toTest.schedule(new CountDown(latch), i % 100);
+        }
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(0, toTest.getPendingCount());
+    }
+
+    @Test
+    public void shouldKeepRunningAfterFailingTask() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        toTest.schedule(new Runnable() {
+            public void run() {
+                throw new IllegalStateException();
+            }
+        }, 0);
+        toTest.schedule(new CountDown(latch), 20);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectTasksOnceDisposed() {
+        toTest.dispose();
+        toTest.schedule(new CountDown(new CountDownLatch(1)), 10);
+    }
+
+    private static final class CountDown implements Runnable {
+        private final CountDownLatch latch;
+
+        private CountDown(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        public void run() {
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * <p>Base class of the <b>CRest</b> JFR events, emitted on the thread the stage they time has run on once it completes.</p>
+ * <p>Events begin when their stage starts and end once it completes. The elapsed field gives the stage's own duration, which only differs from the event's for the body read: its event spans from the first read to the response closing, while its elapsed time only sums the time spent reading.</p>
+ * @author laurent.gilles@codegist.org
+ */
+@Category({"CRest"})
+@StackTrace(false)
+abstract class CRestEvent extends Event {
+
+    @Label("Interface")
+    String interfaceName;
+
+    @Label("Method")
+    String method;
+
+    @Label("End-Point")
+    String endPoint;
+
+    @Label("Attempt")
+    @Description("Attempt number, starting at 1")
+    int attempt;
+
+    @Label("Status Code")
+    @Description("Response status code, 0 if not received yet")
+    int statusCode;
+
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Elapsed")
+    @Description("Stage duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
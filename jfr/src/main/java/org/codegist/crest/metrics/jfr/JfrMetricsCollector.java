@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics.jfr;
+
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.MetricsContext;
+import org.codegist.crest.metrics.Stage;
+
+/**
+ * <p>Metrics collector emitting a JDK Flight Recorder event for each invocation stage, so that <b>CRest</b> calls can be correlated with the rest of a recording (GC pauses, lock contention, socket reads...).</p>
+ * <p>Events carry the method, end-point, attempt number, and once the response has been received its status code and the amount of bytes sent and read. Events not enabled in the running recordings are neither populated nor committed.</p>
+ * <p>Events begin when their stage starts and get committed once it completes, so that they line up with the rest of the recording. The events of the stages in progress are kept by the threads running them, as a stage starts and completes on the same thread.</p>
+ * <p>Each call's attempt number and exchange state are attached to its {@link org.codegist.crest.metrics.MetricsContext}, so that the stages run by a hedged attempt or by the thread reading the response entity are reported for the call they belong to. Use {@link org.codegist.crest.metrics.jfr.JfrMetricsCollectors#create()} to fall back to a no-op collector when JFR isn't available.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class JfrMetricsCollector implements MetricsCollector {
+
+    private final ThreadLocal<CRestEvent[]> started = new ThreadLocal<CRestEvent[]>() {
+        @Override
+        protected CRestEvent[] initialValue() {
+            return new CRestEvent[Stage.values().length];
+        }
+    };
+
+    /**
+     * @inheritDoc
+     */
+    public void onStageStart(MethodConfig methodConfig, Stage stage) {
+        CRestEvent event = newEvent(stage);
+        if(event.isEnabled()) {
+            event.begin();
+            started.get()[stage.ordinal()] = event;
+        } else {
+            started.get()[stage.ordinal()] = null;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onStage(MethodConfig methodConfig, Stage stage, long nanos) {
+        CRestEvent[] events = started.get();
+        CRestEvent event = events[stage.ordinal()];
+        events[stage.ordinal()] = null;
+        if(event == null) {
+            /* not notified as started on this thread, ie a nested call of the same stage, reported as an instant event */
+            event = newEvent(stage);
+        }
+        if(event.isEnabled()) {
+            populate(event, methodConfig, state(), nanos);
+            event.end();
+            event.commit();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onExchange(MethodConfig methodConfig, int statusCode, long bytesOut, long bytesIn) {
+        state().exchanged(statusCode, bytesOut, bytesIn);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onRetry(MethodConfig methodConfig, int attemptNumber) {
+        state().retried(attemptNumber);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void onError(MethodConfig methodConfig, Exception error) {
+        state().failed(error.getClass().getName());
+    }
+
+    private CallState state() {
+        MetricsContext context = MetricsContext.get();
+        if(context == null) {
+            /* notified outside of any call, nothing to correlate with */
+            return new CallState();
+        }
+        CallState state = (CallState) context.getAttachment(this);
+        return state != null ? state : (CallState) context.attach(this, new CallState());
+    }
+
+    private static void populate(CRestEvent event, MethodConfig methodConfig, CallState state, long nanos) {
+        event.interfaceName = methodConfig.getMethod().getDeclaringClass().getName();
+        event.method = methodConfig.getMethod().getName();
+        event.endPoint = methodConfig.getEndPoint();
+        event.elapsed = nanos;
+        state.populate(event);
+    }
+
+    private static CRestEvent newEvent(Stage stage) {
+        switch (stage) {
+            case REQUEST_BUILDING:
+                return new UrlBuildingEvent();
+            case CONNECTION:
+                return new ConnectionEvent();
+            case SERIALIZATION:
+                return new SendEvent();
+            case FIRST_BYTE:
+                return new ResponseWaitEvent();
+            case BODY_READ:
+                return new BodyReadEvent();
+            case DESERIALIZATION:
+                return new DeserializationEvent();
+            default:
+                return new CallEvent();
+        }
+    }
+
+    private static final class CallState {
+        private int attempt = 1;
+        private int statusCode;
+        private long bytesOut;
+        private long bytesIn;
+        private String error;
+
+        /* a hedged attempt updates the state of its call from its own thread */
+        private synchronized void exchanged(int statusCode, long bytesOut, long bytesIn) {
+            this.statusCode = statusCode;
+            this.bytesOut = bytesOut;
+            this.bytesIn = bytesIn;
+        }
+
+        private synchronized void retried(int attempt) {
+            this.attempt = attempt;
+            this.statusCode = 0;
+            this.bytesOut = 0;
+            this.bytesIn = 0;
+        }
+
+        private synchronized void failed(String error) {
+            this.error = error;
+        }
+
+        private synchronized void populate(CRestEvent event) {
+            event.attempt = attempt;
+            event.statusCode = statusCode;
+            event.bytesOut = bytesOut;
+            event.bytesIn = bytesIn;
+            if(event instanceof CallEvent) {
+                ((CallEvent) event).error = error;
+            }
+        }
+    }
+}
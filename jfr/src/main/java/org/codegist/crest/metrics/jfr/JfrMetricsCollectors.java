@@ -0,0 +1,69 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics.jfr;
+
+import org.codegist.crest.metrics.MetricsCollector;
+import org.codegist.crest.metrics.NoOpMetricsCollector;
+
+/**
+ * JFR metrics collector factory, falling back to a no-op collector when JDK Flight Recorder isn't available in the running JVM.
+ * @author laurent.gilles@codegist.org
+ */
+public final class JfrMetricsCollectors {
+
+    private static final boolean AVAILABLE = checkAvailability();
+
+    private JfrMetricsCollectors() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return a JFR metrics collector if JFR is available, a no-op one otherwise
+     */
+    public static MetricsCollector create() {
+        return AVAILABLE ? new JfrMetricsCollector() : new NoOpMetricsCollector();
+    }
+
+    /**
+     * @return true if JDK Flight Recorder is available in the running JVM
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    private static boolean checkAvailability() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+        return isFlightRecorderAvailable();
+    }
+
+    /* kept apart so that jdk.jfr classes are only resolved once known to be present */
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            return jdk.jfr.FlightRecorder.isAvailable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.metrics.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.codegist.crest.config.MethodConfig;
+import org.codegist.crest.metrics.MetricsContext;
+import org.codegist.crest.metrics.Stage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class JfrMetricsCollectorTest {
+
+    private final JfrMetricsCollector toTest = new JfrMetricsCollector();
+    private final MethodConfig methodConfig = methodConfig("http://localhost:8080");
+    private final Recording recording = new Recording();
+
+    @Before
+    public void setup() {
+        recording.enable("org.codegist.crest.Call");
+        recording.enable("org.codegist.crest.Connection");
+        recording.enable("org.codegist.crest.ResponseWait");
+        recording.enable("org.codegist.crest.BodyRead");
+        recording.start();
+    }
+
+    @After
+    public void teardown() {
+        MetricsContext.clear();
+        recording.close();
+    }
+
+    @Test
+    public void shouldReportTheCallStateOnItsEvents() throws Exception {
+        MetricsContext.set(new MetricsContext());
+        toTest.onRetry(methodConfig, 2);
+        toTest.onStage(methodConfig, Stage.CONNECTION, 10);
+        toTest.onExchange(methodConfig, 503, 12, 34);
+        toTest.onError(methodConfig, new IllegalStateException());
+        toTest.onStage(methodConfig, Stage.CALL, 100);
+
+        List<RecordedEvent> events = stop();
+        assertEquals(2, events.size());
+        RecordedEvent connection = event(events, "org.codegist.crest.Connection");
+        assertEquals("http://localhost:8080", connection.getString("endPoint"));
+        assertEquals("toString", connection.getString("method"));
+        assertEquals(2, connection.getInt("attempt"));
+        assertEquals(0, connection.getInt("statusCode"));
+        assertEquals(10, connection.getLong("elapsed"));
+        RecordedEvent call = event(events, "org.codegist.crest.Call");
+        assertEquals(2, call.getInt("attempt"));
+        assertEquals(503, call.getInt("statusCode"));
+        assertEquals(12, call.getLong("bytesOut"));
+        assertEquals(34, call.getLong("bytesIn"));
+        assertEquals(IllegalStateException.class.getName(), call.getString("error"));
+    }
+
+    @Test
+    public void shouldAttributeTheStagesOfAnotherThreadToTheCallOfItsContext() throws Exception {
+        final MetricsContext context = new MetricsContext();
+        MetricsContext.set(context);
+        Thread hedge = new Thread(new Runnable() {
+            public void run() {
+                MetricsContext.set(context);
+                toTest.onStage(methodConfig, Stage.FIRST_BYTE, 20);
+                toTest.onExchange(methodConfig, 200, 0, 56);
+                MetricsContext.clear();
+            }
+        });
+        hedge.start();
+        hedge.join();
+        toTest.onStage(methodConfig, Stage.CALL, 100);
+
+        List<RecordedEvent> events = stop();
+        RecordedEvent call = event(events, "org.codegist.crest.Call");
+        assertEquals(200, call.getInt("statusCode"));
+        assertEquals(56, call.getLong("bytesIn"));
+        assertNull(call.getString("error"));
+    }
+
+    @Test
+    public void shouldNotCarryTheStateOfACallOverToTheNextCallsOfTheSameThread() throws Exception {
+        MetricsContext.set(new MetricsContext());
+        toTest.onRetry(methodConfig, 3);
+        toTest.onExchange(methodConfig, 500, 1, 2);
+        toTest.onError(methodConfig, new IllegalStateException());
+        MetricsContext.set(new MetricsContext());
+        toTest.onStage(methodConfig, Stage.CALL, 100);
+        MetricsContext.clear();
+        toTest.onStage(methodConfig, Stage.BODY_READ, 5);
+
+        List<RecordedEvent> events = stop();
+        for (RecordedEvent event : events) {
+            assertEquals(1, event.getInt("attempt"));
+            assertEquals(0, event.getInt("statusCode"));
+        }
+        assertNull(event(events, "org.codegist.crest.Call").getString("error"));
+        assertEquals(5, event(events, "org.codegist.crest.BodyRead").getLong("elapsed"));
+    }
+
+    @Test
+    public void eventsShouldSpanTheStagesTheyTime() throws Exception {
+        MetricsContext.set(new MetricsContext());
+        long start = System.nanoTime();
+        toTest.onStageStart(methodConfig, Stage.CALL);
+        Thread.sleep(50);
+        toTest.onStageStart(methodConfig, Stage.CONNECTION);
+        Thread.sleep(20);
+        long connection = System.nanoTime();
+        toTest.onStage(methodConfig, Stage.CONNECTION, connection - start);
+        toTest.onStage(methodConfig, Stage.CALL, System.nanoTime() - start);
+        long elapsed = System.nanoTime() - start;
+
+        List<RecordedEvent> events = stop();
+        RecordedEvent call = event(events, "org.codegist.crest.Call");
+        RecordedEvent conn = event(events, "org.codegist.crest.Connection");
+        assertTrue(call.getDuration().toNanos() >= 70000000l && call.getDuration().toNanos() <= elapsed);
+        assertTrue(conn.getDuration().toMillis() >= 20 && conn.getDuration().toMillis() < 50);
+        assertTrue(!conn.getStartTime().isBefore(call.getStartTime().plusMillis(50)));
+        assertTrue(!conn.getEndTime().isAfter(call.getEndTime()));
+    }
+
+    @Test
+    public void shouldReportTheStagesNotNotifiedAsStartedOnTheirThread() throws Exception {
+        MetricsContext.set(new MetricsContext());
+        toTest.onStageStart(methodConfig, Stage.CALL);
+        toTest.onStage(methodConfig, Stage.CALL, 100);
+        toTest.onStage(methodConfig, Stage.CALL, 200);
+
+        List<RecordedEvent> events = stop();
+        assertEquals(2, events.size());
+        for (RecordedEvent event : events) {
+            if(event.getLong("elapsed") == 200) {
+                assertTrue(event.getDuration().isZero());
+            }
+        }
+    }
+
+    private List<RecordedEvent> stop() throws IOException {
+        recording.stop();
+        Path file = Files.createTempFile("crest", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static RecordedEvent event(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> found = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : events) {
+            if(name.equals(event.getEventType().getName())) {
+                found.add(event);
+            }
+        }
+        assertEquals(name, 1, found.size());
+        return found.get(0);
+    }
+
+    private static MethodConfig methodConfig(final String endPoint) {
+        return (MethodConfig) Proxy.newProxyInstance(MethodConfig.class.getClassLoader(), new Class[]{MethodConfig.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if("getMethod".equals(method.getName())) {
+                    return Object.class.getMethod("toString");
+                } else if("getEndPoint".equals(method.getName())) {
+                    return endPoint;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
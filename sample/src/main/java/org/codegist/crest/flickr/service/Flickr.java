@@ -36,6 +36,7 @@ import java.util.Date;
  * @author Laurent Gilles (laurent.gilles@codegist.org)
  */
 @EndPoint("http://flickr.com")
+@RateLimit(permits = 3600, period = 3600000)
 @Path("/services")
 @ResponseHandler(FlickrResponseHandler.class)
 @POST
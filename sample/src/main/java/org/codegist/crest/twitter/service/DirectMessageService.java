@@ -27,6 +27,7 @@ import org.codegist.crest.twitter.model.Message;
  * @author Laurent Gilles (laurent.gilles@codegist.org)
  */
 @EndPoint("http://api.twitter.com")
+@RateLimit(permits = 350, period = 3600000)
 @Path("/1")
 @HeaderParam(value = "Accept-Encoding", defaultValue = "gzip")
 @Consumes("application/json")
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>HTTP/1.1 connection over a Unix domain socket, as pooled by the {@link org.codegist.crest.io.http.UnixDomainSocketHttpChannelFactory}.</p>
+ * <p>The channel is non-blocking and driven by its own selector, so that reads and writes honor the socket timeout, Unix domain socket channels not supporting SO_TIMEOUT. Both directions are buffered, the read buffer being kept across requests as a keep-alive connection may already hold the beginning of the next response.</p>
+ * @author laurent.gilles@codegist.org
+ */
+final class UnixDomainSocketConnection {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final UnixDomainSocketAddress address;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final InputStream in = new ConnectionInputStream();
+    private final OutputStream out = new ConnectionOutputStream();
+    private int timeout;
+    private long idleSince;
+
+    UnixDomainSocketConnection(UnixDomainSocketAddress address) throws IOException {
+        this.address = address;
+        this.channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(address);
+            channel.configureBlocking(false);
+            this.selector = Selector.open();
+            channel.register(selector, 0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        readBuffer.flip();
+    }
+
+    UnixDomainSocketAddress getAddress() {
+        return address;
+    }
+
+    void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    InputStream getInputStream() {
+        return in;
+    }
+
+    OutputStream getOutputStream() {
+        return out;
+    }
+
+    /**
+     * Marks the connection as idle, once returned to the pool
+     */
+    void idle() {
+        this.idleSince = System.nanoTime();
+    }
+
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    /**
+     * Checks a pooled connection can be reused. The server closing an idle keep-alive connection is only noticed by the client when reading from it, so a non-blocking read is attempted: end of stream means the connection is closed, while data means the previous response has not been fully read.
+     * @return whether the connection is still open and has no pending data
+     */
+    boolean isReusable() {
+        if(!channel.isOpen() || readBuffer.hasRemaining()) {
+            return false;
+        }
+        try {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            readBuffer.flip();
+            return read == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    void close() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private void await(int operation) throws IOException {
+        SelectionKey key = channel.keyFor(selector);
+        key.interestOps(operation);
+        try {
+            if(selector.select(timeout) == 0) {
+                close();
+                throw new SocketTimeoutException(operation == SelectionKey.OP_READ ? "Read timed out" : "Write timed out");
+            }
+            selector.selectedKeys().clear();
+        } finally {
+            if(key.isValid()) {
+                key.interestOps(0);
+            }
+        }
+    }
+
+    private void fill() throws IOException {
+        readBuffer.clear();
+        int read;
+        try {
+            while((read = channel.read(readBuffer)) == 0) {
+                await(SelectionKey.OP_READ);
+            }
+        } finally {
+            readBuffer.flip();
+        }
+        if(read < 0) {
+            throw new EOFException("Connection closed by " + address.getPath());
+        }
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        try {
+            while(writeBuffer.hasRemaining()) {
+                if(channel.write(writeBuffer) == 0) {
+                    await(SelectionKey.OP_WRITE);
+                }
+            }
+        } finally {
+            writeBuffer.clear();
+        }
+    }
+
+    private final class ConnectionInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            if(!readBuffer.hasRemaining() && !fillOrEof()) {
+                return -1;
+            }
+            return readBuffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0) {
+                return 0;
+            }
+            if(!readBuffer.hasRemaining() && !fillOrEof()) {
+                return -1;
+            }
+            int count = Math.min(len, readBuffer.remaining());
+            readBuffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return readBuffer.remaining();
+        }
+
+        private boolean fillOrEof() throws IOException {
+            try {
+                fill();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+    }
+
+    private final class ConnectionOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            if(!writeBuffer.hasRemaining()) {
+                flush();
+            }
+            writeBuffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while(len > 0) {
+                if(!writeBuffer.hasRemaining()) {
+                    UnixDomainSocketConnection.this.flush();
+                }
+                int count = Math.min(len, writeBuffer.remaining());
+                writeBuffer.put(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            UnixDomainSocketConnection.this.flush();
+        }
+    }
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.log.Logger;
+import org.codegist.crest.config.MethodType;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.codegist.crest.io.http.HttpConstants.HTTP_NOT_MODIFIED;
+import static org.codegist.crest.io.http.HttpConstants.HTTP_NO_CONTENT;
+
+/**
+ * HTTP/1.1 channel writing the request to, and reading the response from, a pooled Unix domain socket connection.
+ * @author laurent.gilles@codegist.org
+ */
+final class UnixDomainSocketHttpChannel implements HttpChannel {
+
+    private static final Logger LOG = Logger.getLogger(UnixDomainSocketHttpChannel.class);
+    private static final Charset ASCII = Charset.forName("ISO-8859-1");
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final int CHUNK_SIZE = 8192;
+
+    private final UnixDomainSocketHttpChannelFactory factory;
+    private final UnixDomainSocketAddress address;
+    private final MethodType methodType;
+    private final String target;
+    private final List<String[]> headers = new ArrayList<String[]>();
+    private HttpEntityWriter httpEntityWriter;
+    private int socketTimeout;
+    /* held until the response releases it, so that aborting after the connection went back to the pool leaves it alone */
+    private final AtomicReference<UnixDomainSocketConnection> connection = new AtomicReference<UnixDomainSocketConnection>();
+
+    UnixDomainSocketHttpChannel(UnixDomainSocketHttpChannelFactory factory, UnixDomainSocketAddress address, MethodType methodType, String host, String target) {
+        this.factory = factory;
+        this.address = address;
+        this.methodType = methodType;
+        this.target = target;
+        setHeader("Host", host);
+        setHeader("User-Agent", "CodeGist-CRest Agent");
+    }
+
+    public void setSocketTimeout(int timeout) {
+        this.socketTimeout = timeout;
+    }
+
+    public void setConnectionTimeout(int timeout) {
+        // connecting to a local socket does not block
+    }
+
+    public void addHeader(String name, String value) {
+        headers.add(new String[]{name, value});
+    }
+
+    public void setHeader(String name, String value) {
+        for (int i = headers.size() - 1; i >= 0; i--) {
+            if(headers.get(i)[0].equalsIgnoreCase(name)) {
+                headers.remove(i);
+            }
+        }
+        addHeader(name, value);
+    }
+
+    public void setContentType(String value) {
+        setHeader("Content-Type", value);
+    }
+
+    public void setAccept(String value) {
+        setHeader("Accept", value);
+    }
+
+    public void writeEntityWith(HttpEntityWriter httpEntityWriter) {
+        this.httpEntityWriter = httpEntityWriter;
+    }
+
+    public Response send() throws IOException {
+        UnixDomainSocketConnection connection = factory.acquire(address);
+        this.connection.set(connection);
+        connection.setTimeout(socketTimeout);
+        try {
+            writeRequest(connection.getOutputStream());
+            return readResponse(connection, connection.getInputStream());
+        } catch (IOException e) {
+            abort();
+            throw e;
+        } catch (RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    public void abort() {
+        LOG.trace("Aborting...");
+        UnixDomainSocketConnection connection = this.connection.getAndSet(null);
+        if(connection != null) {
+            connection.close();
+        }
+    }
+
+    private void writeRequest(OutputStream out) throws IOException {
+        boolean hasEntity = methodType.hasEntity() && httpEntityWriter != null;
+        int contentLength = hasEntity ? httpEntityWriter.getContentLength() : -1;
+        StringBuilder head = new StringBuilder(256);
+        head.append(methodType.name()).append(' ').append(target).append(" HTTP/1.1\r\n");
+        for (String[] header : headers) {
+            head.append(header[0]).append(": ").append(header[1]).append("\r\n");
+        }
+        if(hasEntity) {
+            head.append(contentLength >= 0 ? "Content-Length: " + contentLength : "Transfer-Encoding: chunked").append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(ASCII));
+
+        if(hasEntity) {
+            if(contentLength >= 0) {
+                httpEntityWriter.writeEntityTo(new UnclosableOutputStream(out));
+            } else {
+                OutputStream chunked = new BufferedOutputStream(new ChunkedOutputStream(out), CHUNK_SIZE);
+                httpEntityWriter.writeEntityTo(new UnclosableOutputStream(chunked));
+                chunked.close();
+            }
+        }
+        out.flush();
+    }
+
+    private Response readResponse(UnixDomainSocketConnection connection, InputStream in) throws IOException {
+        String statusLine;
+        String[] status;
+        int statusCode;
+        Map<String, String> responseHeaders;
+        do {
+            statusLine = readLine(in);
+            status = statusLine.split(" ", 3);
+            if(status.length < 2 || !status[0].startsWith("HTTP/")) {
+                throw new IOException("Invalid status line: " + statusLine);
+            }
+            try {
+                statusCode = Integer.parseInt(status[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid status line: " + statusLine);
+            }
+            responseHeaders = readHeaders(in);
+        } while(statusCode / 100 == 1);
+
+        String statusMessage = status.length == 3 ? status[2] : null;
+        String connectionHeader = responseHeaders.get("connection");
+        boolean keepAlive = statusLine.startsWith("HTTP/1.1")
+                ? !"close".equalsIgnoreCase(connectionHeader)
+                : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+        EntityInputStream entity;
+        String contentLength = responseHeaders.get("content-length");
+        String transferEncoding = responseHeaders.get("transfer-encoding");
+        if(methodType == MethodType.HEAD || statusCode == HTTP_NO_CONTENT || statusCode == HTTP_NOT_MODIFIED) {
+            entity = new LengthInputStream(in, 0, false);
+        } else if(transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            entity = new ChunkedInputStream(in);
+        } else if(contentLength != null) {
+            try {
+                entity = new LengthInputStream(in, Long.parseLong(contentLength.trim()), false);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + contentLength);
+            }
+        } else {
+            entity = new LengthInputStream(in, Long.MAX_VALUE, true);
+            keepAlive = false;
+        }
+        return new UnixDomainSocketResponse(connection, statusCode, statusMessage, responseHeaders, entity, keepAlive);
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<String, String>();
+        String line;
+        while((line = readLine(in)).length() > 0) {
+            int colon = line.indexOf(':');
+            if(colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase();
+            String value = line.substring(colon + 1).trim();
+            String previous = headers.get(name);
+            headers.put(name, previous != null ? previous + ", " + value : value);
+        }
+        return headers;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while((b = in.read()) != '\n') {
+            if(b < 0) {
+                throw new EOFException("Connection closed before the response was complete");
+            }
+            if(b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private final class UnixDomainSocketResponse implements Response {
+
+        private final UnixDomainSocketConnection connection;
+        private final int statusCode;
+        private final String statusMessage;
+        private final Map<String, String> headers;
+        private final EntityInputStream body;
+        private final InputStream entity;
+        private final boolean keepAlive;
+        private boolean released;
+
+        private UnixDomainSocketResponse(UnixDomainSocketConnection connection, int statusCode, String statusMessage, Map<String, String> headers, EntityInputStream entity, boolean keepAlive) {
+            this.connection = connection;
+            this.statusCode = statusCode;
+            this.statusMessage = statusMessage;
+            this.headers = headers;
+            this.keepAlive = keepAlive;
+            this.body = entity;
+            this.entity = new FilterInputStream(entity) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if(b < 0) {
+                        release(true);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    if(read < 0) {
+                        release(true);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() {
+                    UnixDomainSocketResponse.this.close();
+                }
+            };
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getStatusMessage() {
+            return statusMessage;
+        }
+
+        public InputStream getEntity() {
+            return entity;
+        }
+
+        public String getContentType() {
+            return headers.get("content-type");
+        }
+
+        public String getContentEncoding() {
+            return headers.get("content-encoding");
+        }
+
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase());
+        }
+
+        public void close() {
+            release(body.isComplete());
+        }
+
+        private void release(boolean complete) {
+            if(released) {
+                return;
+            }
+            released = true;
+            if(!UnixDomainSocketHttpChannel.this.connection.compareAndSet(connection, null)) {
+                /* aborted, the connection is already closed */
+                return;
+            }
+            if(complete && keepAlive) {
+                factory.release(connection);
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    private static final class UnclosableOutputStream extends FilterOutputStream {
+        private UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static final class ChunkedOutputStream extends FilterOutputStream {
+        private ChunkedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if(len == 0) {
+                return;
+            }
+            out.write(Integer.toHexString(len).getBytes(ASCII));
+            out.write(CRLF);
+            out.write(b, off, len);
+            out.write(CRLF);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write('0');
+            out.write(CRLF);
+            out.write(CRLF);
+        }
+    }
+
+    private abstract static class EntityInputStream extends FilterInputStream {
+        private EntityInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * @return whether the entity has been fully read, leaving the connection ready for the next response
+         */
+        abstract boolean isComplete();
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class LengthInputStream extends EntityInputStream {
+        private final boolean untilClose;
+        private long remaining;
+
+        private LengthInputStream(InputStream in, long length, boolean untilClose) {
+            super(in);
+            this.remaining = length;
+            this.untilClose = untilClose;
+        }
+
+        boolean isComplete() {
+            return remaining <= 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if(remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if(b < 0) {
+                return endOfStream();
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if(read < 0) {
+                return endOfStream();
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        private int endOfStream() throws EOFException {
+            if(!untilClose) {
+                throw new EOFException("Connection closed before the response entity was complete");
+            }
+            return -1;
+        }
+    }
+
+    private static final class ChunkedInputStream extends EntityInputStream {
+        private long remaining;
+        private boolean eof;
+
+        private ChunkedInputStream(InputStream in) {
+            super(in);
+        }
+
+        boolean isComplete() {
+            return eof;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(eof) {
+                return -1;
+            }
+            if(remaining == 0) {
+                nextChunk();
+                if(eof) {
+                    return -1;
+                }
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if(read < 0) {
+                throw new EOFException("Connection closed before the response entity was complete");
+            }
+            remaining -= read;
+            if(remaining == 0) {
+                readLine(in);
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return eof ? 0 : (int) Math.min(in.available(), remaining);
+        }
+
+        private void nextChunk() throws IOException {
+            String size = readLine(in);
+            int extension = size.indexOf(';');
+            try {
+                remaining = Long.parseLong((extension >= 0 ? size.substring(0, extension) : size).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk size: " + size);
+            }
+            if(remaining == 0) {
+                eof = true;
+                readHeaders(in);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.common.lang.Disposable;
+import org.codegist.common.lang.Validate;
+import org.codegist.crest.config.MethodType;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>HttpChannelFactory speaking HTTP/1.1 over Unix domain sockets, for local sidecars (proxies, caches, metadata agents) to be reached without going through the loopback TCP stack.</p>
+ * <p>The socket is selected by the end-point scheme: <code>unix://&lt;url-encoded socket path&gt;/&lt;request path&gt;</code>, ie <code>unix://%2Fvar%2Frun%2Fagent.sock/v1/metadata</code>. When the factory is created with a default socket, any other URL is sent to that socket as plain HTTP, its host being used as the Host header, so that existing http:// end-points can be redirected to a sidecar without changing the interfaces:</p>
+ * <code><pre>
+ * CRest crest = new CRestBuilder()
+ *                      .setHttpChannelFactory(new UnixDomainSocketHttpChannelFactory(Paths.get("/var/run/agent.sock")))
+ *                      .build();
+ * </pre></code>
+ * <p>Connections are kept alive and pooled per socket. A connection goes back to the pool once its response entity has been fully read, and is discarded if the response is closed before, or if the server asked for it to be closed. Pooled connections are reused most recent first, those idle for longer than the keep-alive duration or found closed by the server are discarded on acquisition.</p>
+ * <p>Requires Java 16 or above.</p>
+ * @author laurent.gilles@codegist.org
+ */
+public class UnixDomainSocketHttpChannelFactory implements HttpChannelFactory, Disposable {
+
+    /**
+     * Default maximum amount of idle connections kept per socket
+     */
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 32;
+    /**
+     * Default duration in milliseconds an idle connection is kept for
+     */
+    public static final long DEFAULT_KEEP_ALIVE = 30000l;
+
+    private static final String SCHEME = "unix://";
+
+    private final UnixDomainSocketAddress defaultAddress;
+    private final int maxIdleConnections;
+    private final long keepAlive;
+    private final ConcurrentMap<UnixDomainSocketAddress, Pool> pools = new ConcurrentHashMap<UnixDomainSocketAddress, Pool>();
+    private volatile boolean disposed;
+
+    /**
+     * Creates a factory only accepting unix:// URLs
+     */
+    public UnixDomainSocketHttpChannelFactory() {
+        this(null);
+    }
+
+    /**
+     * @param defaultSocket socket to send the non unix:// URLs requests to, null if only unix:// URLs are accepted
+     */
+    public UnixDomainSocketHttpChannelFactory(Path defaultSocket) {
+        this(defaultSocket, DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE);
+    }
+
+    /**
+     * @param defaultSocket socket to send the non unix:// URLs requests to, null if only unix:// URLs are accepted
+     * @param maxIdleConnections maximum amount of idle connections kept per socket
+     * @param keepAlive duration in milliseconds an idle connection is kept for
+     */
+    public UnixDomainSocketHttpChannelFactory(Path defaultSocket, int maxIdleConnections, long keepAlive) {
+        Validate.isTrue(maxIdleConnections >= 0, "maxIdleConnections must be positive");
+        Validate.isTrue(keepAlive >= 0, "keepAlive must be positive");
+        this.defaultAddress = defaultSocket != null ? UnixDomainSocketAddress.of(defaultSocket) : null;
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAlive = TimeUnit.MILLISECONDS.toNanos(keepAlive);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public HttpChannel open(MethodType methodType, String url, Charset charset) throws IOException {
+        if(url.regionMatches(true, 0, SCHEME, 0, SCHEME.length())) {
+            int pathStart = url.indexOf('/', SCHEME.length());
+            String socket = pathStart >= 0 ? url.substring(SCHEME.length(), pathStart) : url.substring(SCHEME.length());
+            UnixDomainSocketAddress address = UnixDomainSocketAddress.of(decode(socket));
+            return new UnixDomainSocketHttpChannel(this, address, methodType, "localhost", targetOf(url, pathStart));
+        }
+        if(defaultAddress == null) {
+            throw new IOException("No socket given for URL " + url + ", either use the " + SCHEME + " scheme or set a default socket");
+        }
+        int authorityStart = url.indexOf("://");
+        authorityStart = authorityStart >= 0 ? authorityStart + 3 : 0;
+        int pathStart = indexOfAny(url, "/?", authorityStart);
+        String host = pathStart >= 0 ? url.substring(authorityStart, pathStart) : url.substring(authorityStart);
+        return new UnixDomainSocketHttpChannel(this, defaultAddress, methodType, host, targetOf(url, pathStart));
+    }
+
+    /**
+     * @param address socket address
+     * @return the amount of idle connections currently pooled for the given socket
+     */
+    public int getIdleConnections(Path address) {
+        Pool pool = pools.get(UnixDomainSocketAddress.of(address));
+        return pool != null ? pool.size.get() : 0;
+    }
+
+    UnixDomainSocketConnection acquire(UnixDomainSocketAddress address) throws IOException {
+        Pool pool = pools.get(address);
+        if(pool != null) {
+            UnixDomainSocketConnection connection;
+            while((connection = pool.connections.pollFirst()) != null) {
+                pool.size.decrementAndGet();
+                if(System.nanoTime() - connection.getIdleSince() < keepAlive && connection.isReusable()) {
+                    return connection;
+                }
+                connection.close();
+            }
+        }
+        return new UnixDomainSocketConnection(address);
+    }
+
+    void release(UnixDomainSocketConnection connection) {
+        Pool pool = poolFor(connection.getAddress());
+        if(disposed || !connection.isOpen() || pool.size.incrementAndGet() > maxIdleConnections) {
+            pool.size.decrementAndGet();
+            connection.close();
+            return;
+        }
+        connection.idle();
+        pool.connections.offerFirst(connection);
+        if(disposed && pool.connections.remove(connection)) {
+            pool.size.decrementAndGet();
+            connection.close();
+        }
+    }
+
+    public void dispose() {
+        disposed = true;
+        for (Pool pool : pools.values()) {
+            UnixDomainSocketConnection connection;
+            while((connection = pool.connections.pollFirst()) != null) {
+                pool.size.decrementAndGet();
+                connection.close();
+            }
+        }
+    }
+
+    private Pool poolFor(UnixDomainSocketAddress address) {
+        Pool pool = pools.get(address);
+        if(pool == null) {
+            Pool newPool = new Pool();
+            pool = pools.putIfAbsent(address, newPool);
+            if(pool == null) {
+                pool = newPool;
+            }
+        }
+        return pool;
+    }
+
+    private static String targetOf(String url, int pathStart) {
+        if(pathStart < 0) {
+            return "/";
+        }
+        String target = url.substring(pathStart);
+        return target.startsWith("/") ? target : "/" + target;
+    }
+
+    private static int indexOfAny(String value, String chars, int from) {
+        for (int i = from; i < value.length(); i++) {
+            if(chars.indexOf(value.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(String socket) {
+        try {
+            return URLDecoder.decode(socket.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Pool {
+        private final ConcurrentLinkedDeque<UnixDomainSocketConnection> connections = new ConcurrentLinkedDeque<UnixDomainSocketConnection>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
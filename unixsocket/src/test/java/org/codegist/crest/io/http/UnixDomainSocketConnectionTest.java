@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.Charset;
+
+import static org.codegist.crest.io.http.UnixSocketServer.response;
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class UnixDomainSocketConnectionTest {
+
+    private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+    private final UnixSocketServer server;
+    private final UnixDomainSocketConnection toTest;
+
+    public UnixDomainSocketConnectionTest() throws IOException {
+        server = new UnixSocketServer();
+        toTest = new UnixDomainSocketConnection(UnixDomainSocketAddress.of(server.getPath()));
+    }
+
+    @After
+    public void teardown() throws IOException {
+        toTest.close();
+        server.close();
+    }
+
+    @Test
+    public void readShouldTimeOutAndCloseTheConnection() throws Exception {
+        server.setDelay(2000);
+        server.enqueue(response("200 OK", "late"));
+        toTest.setTimeout(100);
+        sendRequest();
+        long start = System.currentTimeMillis();
+        try {
+            toTest.getInputStream().read();
+            fail("should have timed out");
+        } catch (SocketTimeoutException e) {
+            assertEquals("Read timed out", e.getMessage());
+        }
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertFalse(toTest.isOpen());
+        assertFalse(toTest.isReusable());
+    }
+
+    @Test
+    public void readShouldReturnEndOfStreamOnceClosedByTheServer() throws Exception {
+        server.enqueue("HTTP/1.1 200 OK\r\nConnection: close\r\n\r\nbye");
+        sendRequest();
+        InputStream in = toTest.getInputStream();
+        StringBuilder read = new StringBuilder();
+        int b;
+        while((b = in.read()) >= 0) {
+            read.append((char) b);
+        }
+        assertTrue(read.toString().endsWith("\r\n\r\nbye"));
+    }
+
+    @Test
+    public void shouldBeReusableOnceTheResponseHasBeenFullyRead() throws Exception {
+        String response = response("200 OK", "ok");
+        server.enqueue(response);
+        sendRequest();
+        readFully(toTest.getInputStream(), response.length());
+        assertTrue(toTest.isReusable());
+    }
+
+    @Test
+    public void shouldNotBeReusableWithUnreadData() throws Exception {
+        String response = response("200 OK", "ok");
+        server.enqueue(response);
+        sendRequest();
+        readFully(toTest.getInputStream(), response.length() - 1);
+        assertFalse(toTest.isReusable());
+    }
+
+    @Test
+    public void shouldNotBeReusableOnceClosedByTheServer() throws Exception {
+        String response = response("200 OK", "ok");
+        server.enqueue(response);
+        sendRequest();
+        readFully(toTest.getInputStream(), response.length());
+        server.closeConnections();
+        long until = System.currentTimeMillis() + 2000;
+        while(toTest.isReusable() && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertFalse(toTest.isReusable());
+    }
+
+    @Test
+    public void writesLargerThanTheBufferShouldBeFullySent() throws Exception {
+        server.enqueue(response("200 OK", ""));
+        StringBuilder body = new StringBuilder();
+        while(body.length() < 50000) {
+            body.append("0123456789");
+        }
+        OutputStream out = toTest.getOutputStream();
+        out.write(("POST / HTTP/1.1\r\nContent-Length: " + body.length() + "\r\n\r\n").getBytes(ASCII));
+        out.write(body.toString().getBytes(ASCII));
+        out.flush();
+        assertEquals(body.toString(), server.takeRequest().getBody());
+    }
+
+    private void sendRequest() throws IOException {
+        OutputStream out = toTest.getOutputStream();
+        out.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(ASCII));
+        out.flush();
+    }
+
+    private static void readFully(InputStream in, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int off = 0;
+        while(off < length) {
+            int read = in.read(buffer, off, length - off);
+            assertTrue(read > 0);
+            off += read;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+
+import static org.codegist.crest.io.http.UnixDomainSocketHttpChannelTest.read;
+import static org.codegist.crest.io.http.UnixSocketServer.response;
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class UnixDomainSocketHttpChannelFactoryTest {
+
+    private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+    private final UnixSocketServer server;
+    private final UnixDomainSocketHttpChannelFactory toTest;
+
+    public UnixDomainSocketHttpChannelFactoryTest() throws IOException {
+        server = new UnixSocketServer();
+        toTest = new UnixDomainSocketHttpChannelFactory(server.getPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        toTest.dispose();
+        server.close();
+    }
+
+    @Test
+    public void openShouldSendUnixSchemeUrlsToTheirSocket() throws Exception {
+        UnixDomainSocketHttpChannelFactory factory = new UnixDomainSocketHttpChannelFactory();
+        try {
+            server.enqueue(response("200 OK", "ok"));
+            String url = "unix://" + URLEncoder.encode(server.getPath().toString(), "UTF-8") + "/v1/items?id=1";
+            assertEquals("ok", read(factory.open(MethodType.GET, url, ASCII).send()));
+            UnixSocketServer.Received request = server.takeRequest();
+            assertEquals("GET /v1/items?id=1 HTTP/1.1", request.getRequestLine());
+            assertEquals("localhost", request.getHeader("Host"));
+        } finally {
+            factory.dispose();
+        }
+    }
+
+    @Test
+    public void openShouldSendOtherUrlsToTheDefaultSocketWithTheirHost() throws Exception {
+        server.enqueue(response("200 OK", "ok"));
+        assertEquals("ok", read(toTest.open(MethodType.GET, "http://api.local:8080?id=1", ASCII).send()));
+        UnixSocketServer.Received request = server.takeRequest();
+        assertEquals("GET /?id=1 HTTP/1.1", request.getRequestLine());
+        assertEquals("api.local:8080", request.getHeader("Host"));
+    }
+
+    @Test(expected = IOException.class)
+    public void openShouldFailForNonUnixSchemeUrlsWithoutDefaultSocket() throws Exception {
+        new UnixDomainSocketHttpChannelFactory().open(MethodType.GET, "http://api.local/", ASCII);
+    }
+
+    @Test
+    public void fullyReadKeepAliveConnectionsShouldBeReused() throws Exception {
+        server.enqueue(response("200 OK", "first"));
+        server.enqueue(response("200 OK", "second"));
+        assertEquals("first", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(1, toTest.getIdleConnections(server.getPath()));
+        assertEquals("second", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(1, toTest.getIdleConnections(server.getPath()));
+        assertEquals(1, server.getConnections());
+    }
+
+    @Test
+    public void connectionsTheServerAskedToCloseShouldNotBeReused() throws Exception {
+        server.enqueue("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 5\r\n\r\nfirst");
+        server.enqueue(response("200 OK", "second"));
+        assertEquals("first", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(0, toTest.getIdleConnections(server.getPath()));
+        assertEquals("second", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(2, server.getConnections());
+    }
+
+    @Test
+    public void halfReadConnectionsShouldNotBeReturnedToThePool() throws Exception {
+        server.enqueue(response("200 OK", "0123456789"));
+        server.enqueue(response("200 OK", "second"));
+        HttpChannel.Response response = toTest.open(MethodType.GET, "http://api.local/", ASCII).send();
+        InputStream entity = response.getEntity();
+        assertEquals('0', entity.read());
+        assertEquals('1', entity.read());
+        response.close();
+        assertEquals(0, toTest.getIdleConnections(server.getPath()));
+        /* the next response must not be read from the rest of the previous one */
+        assertEquals("second", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(2, server.getConnections());
+    }
+
+    @Test
+    public void closingTheEntityOnlyOnceFullyReadShouldReturnTheConnectionToThePool() throws Exception {
+        server.enqueue(response("200 OK", "ab"));
+        HttpChannel.Response response = toTest.open(MethodType.GET, "http://api.local/", ASCII).send();
+        InputStream entity = response.getEntity();
+        assertEquals(2, entity.read(new byte[2], 0, 2));
+        entity.close();
+        assertEquals(1, toTest.getIdleConnections(server.getPath()));
+        response.close();
+        assertEquals(1, toTest.getIdleConnections(server.getPath()));
+    }
+
+    @Test
+    public void pooledConnectionsClosedByTheServerShouldBeDiscardedOnAcquisition() throws Exception {
+        server.enqueue(response("200 OK", "first"));
+        assertEquals("first", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(1, toTest.getIdleConnections(server.getPath()));
+        server.closeConnections();
+        server.enqueue(response("200 OK", "second"));
+        assertEquals("second", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(2, server.getConnections());
+    }
+
+    @Test
+    public void idleConnectionsShouldBeDiscardedOnceKeptAliveForLong() throws Exception {
+        UnixDomainSocketHttpChannelFactory factory = new UnixDomainSocketHttpChannelFactory(server.getPath(), 4, 0);
+        try {
+            server.enqueue(response("200 OK", "first"));
+            server.enqueue(response("200 OK", "second"));
+            assertEquals("first", read(factory.open(MethodType.GET, "http://api.local/", ASCII).send()));
+            assertEquals("second", read(factory.open(MethodType.GET, "http://api.local/", ASCII).send()));
+            assertEquals(2, server.getConnections());
+        } finally {
+            factory.dispose();
+        }
+    }
+
+    @Test
+    public void disposeShouldClosePooledConnections() throws Exception {
+        server.enqueue(response("200 OK", "first"));
+        assertEquals("first", read(toTest.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(1, toTest.getIdleConnections(server.getPath()));
+        toTest.dispose();
+        assertEquals(0, toTest.getIdleConnections(server.getPath()));
+    }
+}
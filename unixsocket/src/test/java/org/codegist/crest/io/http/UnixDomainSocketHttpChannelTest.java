@@ -0,0 +1,231 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import org.codegist.crest.config.MethodType;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+
+import static org.codegist.crest.io.http.UnixSocketServer.response;
+import static org.junit.Assert.*;
+
+/**
+ * @author laurent.gilles@codegist.org
+ */
+public class UnixDomainSocketHttpChannelTest {
+
+    private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+    private final UnixSocketServer server;
+    private final UnixDomainSocketHttpChannelFactory factory;
+
+    public UnixDomainSocketHttpChannelTest() throws IOException {
+        server = new UnixSocketServer();
+        factory = new UnixDomainSocketHttpChannelFactory(server.getPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        factory.dispose();
+        server.close();
+    }
+
+    @Test
+    public void sendShouldWriteTheRequestHeadAndReadAContentLengthEntity() throws Exception {
+        server.enqueue("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nX-Id: 1\r\nX-Id: 2\r\nContent-Length: 5\r\n\r\nhello");
+        HttpChannel channel = factory.open(MethodType.GET, "http://api.local/items?id=1", ASCII);
+        channel.setAccept("text/plain");
+        channel.addHeader("X-Trace", "abc");
+        HttpChannel.Response response = channel.send();
+        assertEquals(200, response.getStatusCode());
+        assertEquals("OK", response.getStatusMessage());
+        assertEquals("text/plain", response.getContentType());
+        assertEquals("1, 2", response.getHeader("x-id"));
+        assertEquals("hello", read(response));
+
+        UnixSocketServer.Received request = server.takeRequest();
+        assertEquals("GET /items?id=1 HTTP/1.1", request.getRequestLine());
+        assertEquals("api.local", request.getHeader("Host"));
+        assertEquals("text/plain", request.getHeader("Accept"));
+        assertEquals("abc", request.getHeader("X-Trace"));
+    }
+
+    @Test
+    public void sendShouldReadAChunkedEntity() throws Exception {
+        server.enqueue("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nX-Trailer: 1\r\n\r\n");
+        server.enqueue(response("200 OK", "next"));
+        assertEquals("hello world", read(factory.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals("next", read(factory.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(1, server.getConnections());
+    }
+
+    @Test
+    public void sendShouldReadAnEntityDelimitedByTheConnectionClose() throws Exception {
+        server.enqueue("HTTP/1.1 200 OK\r\nConnection: close\r\n\r\nuntil close");
+        assertEquals("until close", read(factory.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(0, factory.getIdleConnections(server.getPath()));
+    }
+
+    @Test
+    public void sendShouldSkipInformationalResponses() throws Exception {
+        server.enqueue("HTTP/1.1 100 Continue\r\n\r\n" + response("201 Created", "done"));
+        HttpChannel.Response response = factory.open(MethodType.GET, "http://api.local/", ASCII).send();
+        assertEquals(201, response.getStatusCode());
+        assertEquals("done", read(response));
+    }
+
+    @Test
+    public void sendShouldWriteAnEntityOfKnownLengthWithContentLength() throws Exception {
+        server.enqueue(response("200 OK", ""));
+        HttpChannel channel = factory.open(MethodType.POST, "http://api.local/items", ASCII);
+        channel.setContentType("text/plain");
+        channel.writeEntityWith(entity("hello", true));
+        read(channel.send());
+
+        UnixSocketServer.Received request = server.takeRequest();
+        assertEquals("5", request.getHeader("Content-Length"));
+        assertNull(request.getHeader("Transfer-Encoding"));
+        assertEquals("text/plain", request.getHeader("Content-Type"));
+        assertEquals("hello", request.getBody());
+    }
+
+    @Test
+    public void sendShouldWriteAnEntityOfUnknownLengthChunked() throws Exception {
+        server.enqueue(response("200 OK", ""));
+        HttpChannel channel = factory.open(MethodType.PUT, "http://api.local/items", ASCII);
+        channel.writeEntityWith(entity("hello chunked world", false));
+        read(channel.send());
+
+        UnixSocketServer.Received request = server.takeRequest();
+        assertEquals("chunked", request.getHeader("Transfer-Encoding"));
+        assertNull(request.getHeader("Content-Length"));
+        assertEquals("hello chunked world", request.getBody());
+    }
+
+    @Test
+    public void sendShouldNotReadAnEntityForHeadRequests() throws Exception {
+        server.enqueue("HTTP/1.1 200 OK\r\nContent-Length: 42\r\n\r\n");
+        server.enqueue(response("200 OK", "next"));
+        assertEquals("", read(factory.open(MethodType.HEAD, "http://api.local/", ASCII).send()));
+        assertEquals("next", read(factory.open(MethodType.GET, "http://api.local/", ASCII).send()));
+        assertEquals(1, server.getConnections());
+    }
+
+    @Test
+    public void sendShouldTimeOutIfTheResponseIsNotReceivedInTime() throws Exception {
+        server.setDelay(2000);
+        server.enqueue(response("200 OK", "late"));
+        HttpChannel channel = factory.open(MethodType.GET, "http://api.local/", ASCII);
+        channel.setSocketTimeout(100);
+        long start = System.currentTimeMillis();
+        try {
+            channel.send();
+            fail("should have timed out");
+        } catch (SocketTimeoutException e) {
+            assertEquals("Read timed out", e.getMessage());
+        }
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertEquals(0, factory.getIdleConnections(server.getPath()));
+    }
+
+    @Test
+    public void sendShouldFailOnAnInvalidStatusLine() throws Exception {
+        server.enqueue("garbage\r\n\r\n");
+        try {
+            factory.open(MethodType.GET, "http://api.local/", ASCII).send();
+            fail("should have failed");
+        } catch (IOException e) {
+            assertEquals("Invalid status line: garbage", e.getMessage());
+        }
+        assertEquals(0, factory.getIdleConnections(server.getPath()));
+    }
+
+    @Test
+    public void abortShouldCloseTheConnection() throws Exception {
+        server.enqueue("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n01234");
+        HttpChannel channel = factory.open(MethodType.GET, "http://api.local/", ASCII);
+        HttpChannel.Response response = channel.send();
+        channel.abort();
+        try {
+            read(response);
+            fail("should have failed");
+        } catch (IOException e) {
+            // closed
+        }
+        assertEquals(0, factory.getIdleConnections(server.getPath()));
+    }
+
+    @Test
+    public void abortShouldLeaveTheConnectionAloneOnceReleased() throws Exception {
+        server.enqueue(response("200 OK", "first"));
+        server.enqueue(response("200 OK", "second"));
+        HttpChannel channel = factory.open(MethodType.GET, "http://api.local/", ASCII);
+        HttpChannel.Response response = channel.send();
+        InputStream entity = response.getEntity();
+        while(entity.read() >= 0) {
+            // reads up to the end, releasing the connection to the pool
+        }
+        assertEquals(1, factory.getIdleConnections(server.getPath()));
+
+        HttpChannel next = factory.open(MethodType.GET, "http://api.local/", ASCII);
+        HttpChannel.Response nextResponse = next.send();
+        channel.abort();
+        response.close();
+        assertEquals("second", read(nextResponse));
+        assertEquals(1, server.getConnections());
+        assertEquals(1, factory.getIdleConnections(server.getPath()));
+    }
+
+    static String read(HttpChannel.Response response) throws IOException {
+        InputStream entity = response.getEntity();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4];
+        int read;
+        while((read = entity.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        response.close();
+        return new String(out.toByteArray(), ASCII);
+    }
+
+    private static HttpEntityWriter entity(final String content, final boolean knownLength) {
+        return new HttpEntityWriter() {
+            public void writeEntityTo(OutputStream out) throws IOException {
+                out.write(content.getBytes(ASCII));
+            }
+
+            public int getContentLength() {
+                return knownLength ? content.length() : -1;
+            }
+
+            public boolean isRepeatable() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2011 CodeGist.org
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ *  ===================================================================
+ *
+ *  More information at http://www.codegist.org.
+ */
+
+package org.codegist.crest.io.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP/1.1 server listening on a temporary Unix domain socket, answering each request with the next enqueued raw response, and recording the requests it received.
+ * @author laurent.gilles@codegist.org
+ */
+final class UnixSocketServer implements Closeable {
+
+    private static final Charset ASCII = Charset.forName("ISO-8859-1");
+
+    private final Path directory;
+    private final Path path;
+    private final ServerSocketChannel server;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final List<SocketChannel> clients = new CopyOnWriteArrayList<SocketChannel>();
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<String>();
+    private final BlockingQueue<Received> requests = new LinkedBlockingQueue<Received>();
+    private volatile long delay;
+
+    UnixSocketServer() throws IOException {
+        this.directory = Files.createTempDirectory("crest");
+        this.path = directory.resolve("server.sock");
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        this.server.bind(UnixDomainSocketAddress.of(path));
+        Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, "UnixSocketServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    static String response(String head, String body) {
+        return "HTTP/1.1 " + head + "\r\n" + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the amount of connections accepted so far
+     */
+    int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @param delay time in milliseconds to wait for before answering each request
+     */
+    void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * @param response raw response to answer the next request with, a response with a "Connection: close" header closes the connection once sent
+     */
+    void enqueue(String response) {
+        responses.add(response);
+    }
+
+    Received takeRequest() throws InterruptedException {
+        Received request = requests.poll(5, TimeUnit.SECONDS);
+        if(request == null) {
+            throw new AssertionError("No request received");
+        }
+        return request;
+    }
+
+    /**
+     * Closes the accepted connections, as a server timing out idle keep-alive connections would
+     */
+    void closeConnections() throws IOException {
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+    }
+
+    public void close() throws IOException {
+        server.close();
+        closeConnections();
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(directory);
+    }
+
+    private void accept() {
+        try {
+            while(true) {
+                final SocketChannel client = server.accept();
+                connections.incrementAndGet();
+                clients.add(client);
+                Thread handler = new Thread(new Runnable() {
+                    public void run() {
+                        serve(client);
+                    }
+                }, "UnixSocketServer-" + connections.get());
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try {
+            InputStream in = Channels.newInputStream(client);
+            OutputStream out = Channels.newOutputStream(client);
+            String requestLine;
+            while((requestLine = readLine(in)) != null) {
+                Map<String, String> headers = readHeaders(in);
+                requests.add(new Received(requestLine, headers, readBody(in, headers)));
+                String response = responses.poll(5, TimeUnit.SECONDS);
+                if(response == null) {
+                    break;
+                }
+                Thread.sleep(delay);
+                out.write(response.getBytes(ASCII));
+                out.flush();
+                if(response.contains("Connection: close")) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            // client gone
+        } finally {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<String, String>();
+        String line;
+        while((line = readLine(in)) != null && line.length() > 0) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private static String readBody(InputStream in, Map<String, String> headers) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if(headers.containsKey("content-length")) {
+            copy(in, body, Integer.parseInt(headers.get("content-length")));
+        } else if("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            int size;
+            while((size = Integer.parseInt(readLine(in), 16)) > 0) {
+                copy(in, body, size);
+                readLine(in);
+            }
+            readLine(in);
+        }
+        return new String(body.toByteArray(), ASCII);
+    }
+
+    private static void copy(InputStream in, OutputStream out, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.write(in.read());
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while((b = in.read()) != '\n') {
+            if(b < 0) {
+                return null;
+            }
+            if(b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    static final class Received {
+        private final String requestLine;
+        private final Map<String, String> headers;
+        private final String body;
+
+        private Received(String requestLine, Map<String, String> headers, String body) {
+            this.requestLine = requestLine;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String getRequestLine() {
+            return requestLine;
+        }
+
+        String getHeader(String name) {
+            return headers.get(name.toLowerCase());
+        }
+
+        String getBody() {
+            return body;
+        }
+    }
+}